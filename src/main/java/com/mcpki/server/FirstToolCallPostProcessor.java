@@ -0,0 +1,73 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.annotation.McpTool;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.Ordered;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Proxies the MCP tool beans, so that the JVM uptime at the first tool call is
+ * logged and published as gauge {@code mcpki.startup.first.tool.call}.
+ *
+ * Runs after the tool cache and trace post processors and adds the advisor in
+ * front of the existing ones, so that the first call is seen independently of
+ * admission control and cache hits. Internal calls (e.g. the warm-up) do not
+ * go through the proxy and are not counted.
+ */
+public class FirstToolCallPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger log = LoggerFactory.getLogger(FirstToolCallPostProcessor.class);
+
+	public FirstToolCallPostProcessor(final ObjectProvider<MeterRegistry> meterRegistry) {
+		final AtomicBoolean first = new AtomicBoolean(true);
+		final MethodInterceptor interceptor = invocation -> {
+			if (first.get() && first.compareAndSet(true, false)) {
+				final long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+				final McpTool tool = invocation.getMethod().getAnnotation(McpTool.class);
+				meterRegistry.ifAvailable(registry -> Gauge.builder("mcpki.startup.first.tool.call", () -> uptime)
+						.baseUnit("milliseconds").description("JVM uptime at the first tool call.").register(registry));
+				log.info("First tool call ({}) after {} ms JVM uptime.", tool == null ? "" : tool.name(), uptime);
+			}
+			return invocation.proceed();
+		};
+		this.advisor = new DefaultPointcutAdvisor(AnnotationMatchingPointcut.forMethodAnnotation(McpTool.class),
+				interceptor);
+		setProxyTargetClass(true);
+		setBeforeExistingAdvisors(true);
+		setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+	}
+}
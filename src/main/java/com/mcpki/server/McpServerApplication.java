@@ -21,23 +21,50 @@
 
 package com.mcpki.server;
 
+import java.lang.management.ManagementFactory;
 import java.security.Security;
 
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.boot.restclient.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @SpringBootApplication
 public class McpServerApplication {
 
+	private static final Logger log = LoggerFactory.getLogger(McpServerApplication.class);
+
 	public static void main(String[] args)
 	{
 		Security.addProvider(new BouncyCastleProvider());
-		SpringApplication.run(McpServerApplication.class, args);
+		final SpringApplication application = new SpringApplication(McpServerApplication.class);
+		// Startup steps are available at /actuator/startup to analyze startup time.
+		application.setApplicationStartup(new BufferingApplicationStartup(2048));
+		application.run(args);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void ready()
+	{
+		log.info("MCPKI server ready after {} ms JVM uptime.", ManagementFactory.getRuntimeMXBean().getUptime());
 	}
 	
+	@Bean
+	public static FirstToolCallPostProcessor firstToolCallPostProcessor(
+			final ObjectProvider<MeterRegistry> meterRegistry)
+	{
+		return new FirstToolCallPostProcessor(meterRegistry);
+	}
+
 	@Bean
 	public RestTemplateBuilder restTemplateBuilder() {
 	    return new RestTemplateBuilder();
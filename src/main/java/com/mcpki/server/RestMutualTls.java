@@ -21,11 +21,21 @@
 
 package com.mcpki.server;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 
 import org.apache.http.ssl.SSLContextBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.restclient.RestTemplateBuilder;
@@ -34,9 +44,13 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.util.ResourceUtils;
 import org.springframework.web.client.RestTemplate;
 
+import jakarta.annotation.PreDestroy;
+
 @Configuration
 public class RestMutualTls {
 
+	private static final Logger log = LoggerFactory.getLogger(RestMutualTls.class);
+
 	@Value("${com.mcpki.server.tools.ejbca.rest.keystore}")
 	private String keystore;
 
@@ -49,31 +63,146 @@ public class RestMutualTls {
 	@Value("${com.mcpki.server.tools.ejbca.rest.truststorepwd}")
 	private String truststorePwd;
 
+	@Value("${com.mcpki.server.tools.ejbca.rest.rotation.poll.ms:10000}")
+	private long rotationPollMs;
+
+	@Value("${com.mcpki.server.tools.ejbca.rest.rotation.ramp.ms:30000}")
+	private long rotationRampMs;
+
+	private ScheduledExecutorService watcher;
+
+	private String fileSignature;
+
+	private String pendingSignature;
+
 	@Bean
 	@Qualifier("tls")
 	public RestTemplate restTemplate(final RestTemplateBuilder builder) throws Exception
 	{
-		final SSLContext sslContext = SSLContextBuilder.create()
+		// Key and trust material are loaded with the first connection (or by the
+		// warm-up), so that the server accepts MCP requests right after startup.
+		final MutualTlsRequestFactory factory = new MutualTlsRequestFactory(this::loadSslContext,
+				TimeUnit.MILLISECONDS.toNanos(rotationRampMs));
+		startWatcher(factory);
+		return new RestTemplate(factory);
+	}
+
+	@PreDestroy
+	public void stopWatcher()
+	{
+		if (watcher != null) {
+			watcher.shutdownNow();
+		}
+	}
+
+	private SSLContext loadSslContext() throws Exception
+	{
+		return SSLContextBuilder.create()
 				.loadKeyMaterial(ResourceUtils.getFile(keystore), keystorePwd.toCharArray(), keystorePwd.toCharArray())
 				.loadTrustMaterial(ResourceUtils.getFile(truststore), truststorePwd.toCharArray()).build();
+	}
+
+	/**
+	 * Polls the key and trust store files and reloads the key material once a
+	 * change has been stable for one poll interval (so a partially written file
+	 * is not picked up).
+	 */
+	private void startWatcher(final MutualTlsRequestFactory factory)
+	{
+		if (rotationPollMs <= 0) {
+			return;
+		}
+		fileSignature = fileSignature();
+		if (fileSignature == null) {
+			log.info("Key or trust store is not a file, rotation watch disabled.");
+			return;
+		}
+		watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread thread = new Thread(r, "mcpki-tls-rotation");
+			thread.setDaemon(true);
+			return thread;
+		});
+		watcher.scheduleWithFixedDelay(() -> {
+			final String signature = fileSignature();
+			if (signature == null || signature.equals(fileSignature)) {
+				pendingSignature = null;
+				return;
+			}
+			if (!signature.equals(pendingSignature)) {
+				pendingSignature = signature;
+				return;
+			}
+			try {
+				factory.reload();
+				fileSignature = signature;
+				log.info("Reloaded EJBCA client key material.");
+			} catch (Exception e) {
+				// Keep the current key material and retry with the next change.
+				log.error("Failed to reload EJBCA client key material: {}.", e.getMessage());
+				fileSignature = signature;
+			}
+			pendingSignature = null;
+		}, rotationPollMs, rotationPollMs, TimeUnit.MILLISECONDS);
+	}
 
-		return new RestTemplate(new MutualTlsRequestFactory(sslContext));
+	private String fileSignature()
+	{
+		try {
+			final File keystoreFile = ResourceUtils.getFile(keystore);
+			final File truststoreFile = ResourceUtils.getFile(truststore);
+			if (!keystoreFile.isFile() || !truststoreFile.isFile()) {
+				return null;
+			}
+			return keystoreFile.lastModified() + ":" + keystoreFile.length() + ":" + truststoreFile.lastModified()
+					+ ":" + truststoreFile.length();
+		} catch (IOException e) {
+			return null;
+		}
 	}
 
-	private static class MutualTlsRequestFactory
-			extends org.springframework.http.client.SimpleClientHttpRequestFactory {
+	/**
+	 * Request factory setting the mutual TLS socket factory on each connection.
+	 *
+	 * After a reload, new connections are shifted to the new key material over
+	 * the ramp interval: pooled keep-alive connections of the previous socket
+	 * factory keep serving while the share of connections with the new key
+	 * material grows linearly, which avoids a burst of full handshakes. The
+	 * previous connections then idle out of the JDK keep-alive cache.
+	 */
+	static class MutualTlsRequestFactory extends org.springframework.http.client.SimpleClientHttpRequestFactory {
+
+		private final Callable<SSLContext> loader;
+
+		private final long rampNanos;
 
-		private final SSLContext sslContext;
+		private final LongSupplier clock;
+
+		// One socket factory instance, since the JDK only reuses keep-alive
+		// connections created by the same factory.
+		private volatile Rotation rotation;
+
+		/**
+		 * Current and previous socket factory with the time of the rotation,
+		 * replaced as a whole so that readers never see a mix of two rotations.
+		 */
+		private record Rotation(SSLSocketFactory current, SSLSocketFactory previous, long rotatedAt) {
+		}
+
+		public MutualTlsRequestFactory(Callable<SSLContext> loader, long rampNanos) {
+			this(loader, rampNanos, System::nanoTime);
+		}
 
-		public MutualTlsRequestFactory(SSLContext sslContext) {
-			this.sslContext = sslContext;
+		MutualTlsRequestFactory(final Callable<SSLContext> loader, final long rampNanos, final LongSupplier clock) {
+			this.loader = loader;
+			this.rampNanos = rampNanos;
+			this.clock = clock;
 		}
 
 		@Override
 		protected void prepareConnection(java.net.HttpURLConnection connection, String httpMethod) throws IOException
 		{
 			if (connection instanceof javax.net.ssl.HttpsURLConnection) {
-				((javax.net.ssl.HttpsURLConnection) connection).setSSLSocketFactory(sslContext.getSocketFactory());
+				((javax.net.ssl.HttpsURLConnection) connection).setSSLSocketFactory(socketFactory());
 				// ((javax.net.ssl.HttpsURLConnection) connection).setHostnameVerifier((hostname, session) -> true);
 				// In a secure production environment, hostname verification should be enabled to ensure
 				// that the server being accessed is the intended one and to prevent potential
@@ -81,5 +210,58 @@ public class RestMutualTls {
 			}
 			super.prepareConnection(connection, httpMethod);
 		}
+
+		/**
+		 * Loads the key material and atomically replaces the socket factory for
+		 * new connections. Does nothing if the key material has not been loaded
+		 * yet.
+		 */
+		void reload() throws Exception
+		{
+			if (rotation == null) {
+				return;
+			}
+			final SSLSocketFactory factory = loader.call().getSocketFactory();
+			synchronized (this) {
+				rotation = new Rotation(factory, rotation.current(), clock.getAsLong());
+			}
+		}
+
+		/**
+		 * Returns the socket factory of a new connection.
+		 */
+		SSLSocketFactory socketFactory() throws IOException
+		{
+			Rotation current = rotation;
+			if (current == null) {
+				synchronized (this) {
+					current = rotation;
+					if (current == null) {
+						try {
+							rotation = current = new Rotation(loader.call().getSocketFactory(), null, 0L);
+						} catch (IOException e) {
+							throw e;
+						} catch (Exception e) {
+							throw new IOException("Failed to load TLS key material.", e);
+						}
+					}
+				}
+			}
+
+			if (current.previous() != null) {
+				final long elapsed = clock.getAsLong() - current.rotatedAt();
+				if (elapsed >= rampNanos) {
+					synchronized (this) {
+						// Unless rotated again in the meantime.
+						if (rotation == current) {
+							rotation = new Rotation(current.current(), null, 0L);
+						}
+					}
+				} else if (ThreadLocalRandom.current().nextLong(rampNanos) >= elapsed) {
+					return current.previous();
+				}
+			}
+			return current.current();
+		}
 	}
-}
\ No newline at end of file
+}
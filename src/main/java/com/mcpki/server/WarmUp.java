@@ -0,0 +1,223 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.mcpki.server.tools.ejbcacc.GetAvailableCas;
+import com.mcpki.server.tools.ejbcacc.GetAvailableCas.CaResponse;
+import com.mcpki.server.tools.ejbcacc.GetAvailableCas.GetAvailableCasResponse;
+import com.mcpki.server.tools.ejbcacc.GetCaCertificate;
+import com.mcpki.server.tools.ejbcacc.GetCaCertificate.GetCaCertificateResponse;
+import com.mcpki.server.util.CanonicalDn;
+import com.mcpki.server.util.PemUtil;
+import com.mcpki.server.util.ValidationUtil;
+
+/**
+ * Warms up the server in the background after startup: loads the TLS key
+ * material, establishes the first EJBCA connection, primes the CA list and CA
+ * chains and runs the hot parsing and validation code for the JIT compiler.
+ *
+ * The health indicator "warmUp" stays OUT_OF_SERVICE until the warm-up has
+ * finished; add it to the readiness group to hold back traffic from load
+ * balancers (management.endpoint.health.group.readiness.include). If EJBCA
+ * cannot be reached, the indicator reports the error and the warm-up is
+ * retried, so the server only becomes ready with a working EJBCA connection.
+ *
+ * The warm-up calls the tools internally, without admission control and the
+ * first tool call metric.
+ */
+@Component("warmUp")
+public class WarmUp implements HealthIndicator {
+
+	private static final Logger log = LoggerFactory.getLogger(WarmUp.class);
+
+	@Value("${com.mcpki.server.warmup.enabled:true}")
+	private boolean enabled;
+
+	@Value("${com.mcpki.server.warmup.iterations:200}")
+	private int iterations;
+
+	@Value("${com.mcpki.server.warmup.retry.ms:10000}")
+	private long retryMs;
+
+	@Value("${com.mcpki.server.dn.length.min}")
+	private int dnMinLength;
+
+	@Value("${com.mcpki.server.dn.length.max}")
+	private int dnMaxLength;
+
+	@Autowired
+	private ObjectProvider<GetAvailableCas> getAvailableCas;
+
+	@Autowired
+	private ObjectProvider<GetCaCertificate> getCaCertificate;
+
+	private volatile boolean done;
+
+	private volatile String failure;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start()
+	{
+		if (!enabled) {
+			done = true;
+			return;
+		}
+		final Thread thread = new Thread(this::run, "mcpki-warmup");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public Health health()
+	{
+		if (!done) {
+			final String error = failure;
+			return error == null ? Health.outOfService().withDetail("warmUp", "running").build()
+					: Health.outOfService().withDetail("warmUp", "retrying").withDetail("error", error).build();
+		}
+		return Health.up().withDetail("warmUp", "finished").build();
+	}
+
+	/**
+	 * Returns true if the warm-up has finished.
+	 *
+	 * @return true if finished.
+	 */
+	public boolean isDone()
+	{
+		return done;
+	}
+
+	private void run()
+	{
+		final long start = System.currentTimeMillis();
+		final List<String> pems = new ArrayList<>();
+		while (true) {
+			try {
+				pems.clear();
+				failure = primeCaChains(pems);
+			} catch (RuntimeException e) {
+				failure = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+			}
+			if (failure == null) {
+				break;
+			}
+			// EJBCA may not be reachable yet; stay out of service and retry.
+			final long delay = Math.max(retryMs, 1000L);
+			log.warn("Warm-up failed, retrying in {} ms: {}.", delay, failure);
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		runHotPaths(pems);
+		done = true;
+		log.info("Warm-up finished after {} ms.", System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Loads the CA list and all CA chains, which establishes the mutual TLS
+	 * connection to EJBCA and fills the caches of the tools.
+	 *
+	 * @param pems receives the PEM formatted CA certificates.
+	 * @return the error message if the CA list could not be loaded, else null.
+	 */
+	private String primeCaChains(final List<String> pems)
+	{
+		final GetAvailableCas cas = getAvailableCas.getIfAvailable();
+		final GetCaCertificate chains = getCaCertificate.getIfAvailable();
+		if (cas == null) {
+			return null;
+		}
+
+		final GetAvailableCasResponse response = cas.cas(false);
+		if (response.certificate_authorities() == null) {
+			return response.error_message() == null ? "No CA list." : response.error_message();
+		}
+		log.info("Warm-up loaded {} CAs.", response.certificate_authorities().length);
+
+		if (chains != null) {
+			for (final CaResponse ca : response.certificate_authorities()) {
+				final CanonicalDn subject = CanonicalDn.of(ca.subject_dn());
+				if (subject == null) {
+					continue;
+				}
+				final GetCaCertificateResponse chain = chains.caCertificate(subject);
+				if (chain.ca_chain() != null) {
+					pems.add(firstPem(chain.ca_chain()));
+				} else if (log.isDebugEnabled()) {
+					log.debug("Warm-up got no CA chain for {}: {}.", subject, chain.error_message());
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Runs certificate parsing and parameter validation a number of times, so
+	 * that the first agent calls do not run in the interpreter.
+	 *
+	 * @param pems the PEM formatted certificates.
+	 */
+	private void runHotPaths(final List<String> pems)
+	{
+		for (int i = 0; i < iterations; i++) {
+			ValidationUtil.isValidDn("CN=mcpki-warmup-ca,O=mcpki.org", dnMinLength, dnMaxLength);
+			for (final String pem : pems) {
+				if (pem != null && ValidationUtil.isValidPemFormat(pem)) {
+					try {
+						PemUtil.parsePemCertificate(pem);
+					} catch (Exception e) {
+						// Ignore, only used to warm up.
+					}
+				}
+			}
+		}
+	}
+
+	private static String firstPem(final String chain)
+	{
+		final int begin = chain.indexOf("-----BEGIN CERTIFICATE-----");
+		final String end = "-----END CERTIFICATE-----";
+		final int endIndex = chain.indexOf(end, Math.max(begin, 0));
+		if (begin < 0 || endIndex < 0) {
+			return null;
+		}
+		return chain.substring(begin, endIndex + end.length());
+	}
+}
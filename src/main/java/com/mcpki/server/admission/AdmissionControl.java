@@ -0,0 +1,299 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.admission;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import com.mcpki.server.util.McpUtil;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import io.modelcontextprotocol.spec.McpError;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Admission control for MCP tool calls.
+ *
+ * Each call is charged against a token bucket per client and tool class and
+ * then waits for one of a limited number of execution slots, which are handed
+ * out by priority class and in weighted-fair order across clients. Clients are
+ * identified by their MCP session or by the subject of their TLS client
+ * certificate. The queue wait time is recorded per priority class as timer
+ * {@code mcpki.tools.queue.wait}.
+ *
+ * Properties (all under {@code com.mcpki.server.tools.admission}):
+ * <ul>
+ * <li>{@code enabled}: enables admission control (default false).</li>
+ * <li>{@code key}: {@code session} or {@code certificate} (default
+ * session).</li>
+ * <li>{@code concurrency}: concurrent tool calls (default 16).</li>
+ * <li>{@code queue.timeout.ms}: maximum queue wait (default 30000).</li>
+ * <li>{@code priority.aging.ms}: waiting time after which a call is promoted by
+ * one priority class (default 2000).</li>
+ * <li>{@code priority.high.reserved}: slots reserved for high priority calls
+ * (default 2).</li>
+ * <li>{@code <class>.rate}, {@code <class>.burst}, {@code <class>.cost}: token
+ * bucket and queuing cost per tool class (read, bulk, write).</li>
+ * <li>{@code tool.<tool_name>}: the tool class of a tool (default read).</li>
+ * <li>{@code priority.<tool_name>}: the priority class of a tool (high, normal,
+ * low; default normal).</li>
+ * </ul>
+ */
+@Service
+public class AdmissionControl {
+
+	private static final Logger log = LoggerFactory.getLogger(AdmissionControl.class);
+
+	private static final String PREFIX = "com.mcpki.server.tools.admission.";
+
+	private static final String ANONYMOUS = "anonymous";
+
+	@Value("${com.mcpki.server.tools.admission.enabled:false}")
+	private boolean enabled;
+
+	@Value("${com.mcpki.server.tools.admission.key:session}")
+	private String key;
+
+	@Value("${com.mcpki.server.tools.admission.concurrency:16}")
+	private int concurrency;
+
+	@Value("${com.mcpki.server.tools.admission.queue.timeout.ms:30000}")
+	private long queueTimeoutMs;
+
+	@Value("${com.mcpki.server.tools.admission.priority.aging.ms:2000}")
+	private long agingMs;
+
+	@Value("${com.mcpki.server.tools.admission.priority.high.reserved:2}")
+	private int highReserved;
+
+	@Value("${com.mcpki.server.tools.admission.clients.max:10000}")
+	private int maxClients;
+
+	@Autowired
+	private Environment environment;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final Map<ToolClass, Limit> limits = new EnumMap<>(ToolClass.class);
+
+	private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+
+	private Map<String, TokenBucket> buckets;
+
+	private Map<String, String> certificateIdentities;
+
+	private FairScheduler scheduler;
+
+	@PostConstruct
+	void init()
+	{
+		limits.put(ToolClass.READ, limit(ToolClass.READ, 20d, 40d, 1d));
+		limits.put(ToolClass.BULK, limit(ToolClass.BULK, 1d, 5d, 10d));
+		limits.put(ToolClass.WRITE, limit(ToolClass.WRITE, 5d, 10d, 2d));
+		buckets = boundedMap(maxClients * ToolClass.values().length);
+		certificateIdentities = boundedMap(maxClients);
+		scheduler = new FairScheduler(concurrency, highReserved, agingMs, TimeUnit.MILLISECONDS);
+		for (final Priority priority : Priority.values()) {
+			waitTimers.put(priority, Timer.builder("mcpki.tools.queue.wait").tag("priority", priority.key())
+					.description("Time tool calls waited for an execution slot.").register(meterRegistry));
+			Gauge.builder("mcpki.tools.queue.length", scheduler, s -> s.queueLength(priority))
+					.tag("priority", priority.key()).register(meterRegistry);
+		}
+		if (enabled) {
+			log.info("Admission control enabled (key={}, concurrency={}, limits={}).", key, concurrency, limits);
+		}
+	}
+
+	/**
+	 * Admits a tool call or throws an MCP error if the client exceeded its rate
+	 * limit or the call waited too long for an execution slot. The returned permit
+	 * must be closed when the call completes.
+	 *
+	 * @param exchange the MCP server exchange of the call (may be null).
+	 * @param toolName the MCP tool name.
+	 * @return the permit.
+	 * @throws McpError if the call is rejected.
+	 */
+	public Permit acquire(final McpSyncServerExchange exchange, final String toolName) throws McpError
+	{
+		if (!enabled) {
+			return Permit.NONE;
+		}
+
+		final String client = clientKey(exchange);
+		final ToolClass toolClass = toolClass(toolName);
+		final Priority priority = priority(toolName, toolClass);
+		final Limit limit = limits.get(toolClass);
+
+		final TokenBucket bucket;
+		synchronized (buckets) {
+			bucket = buckets.computeIfAbsent(client + "|" + toolClass,
+					k -> new TokenBucket(limit.rate(), limit.burst(), System.nanoTime()));
+		}
+		if (!bucket.tryConsume(1d, System.nanoTime())) {
+			if (log.isDebugEnabled()) {
+				log.debug("Rate limit exceeded by {} for {} ({}).", client, toolName, toolClass);
+			}
+			throw McpUtil.tooManyRequestsError("Rate limit exceeded.",
+					Map.of("tool", toolName, "retry_after_ms",
+							TimeUnit.NANOSECONDS.toMillis(bucket.nanosUntilAvailable(1d, System.nanoTime()))));
+		}
+
+		try {
+			final long waited = scheduler.acquire(client, priority, limit.cost(), 1d, queueTimeoutMs,
+					TimeUnit.MILLISECONDS);
+			if (waited < 0L) {
+				waitTimers.get(priority).record(queueTimeoutMs, TimeUnit.MILLISECONDS);
+				log.warn("Queue timeout for {} calling {}.", client, toolName);
+				throw McpUtil.tooManyRequestsError("Server busy.", Map.of("tool", toolName));
+			}
+			waitTimers.get(priority).record(waited, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw McpUtil.tooManyRequestsError("Interrupted while queued.", Map.of("tool", toolName));
+		}
+		return new Permit(scheduler);
+	}
+
+	/**
+	 * Records the TLS client certificate subject of an MCP session.
+	 *
+	 * @param sessionId the MCP session ID.
+	 * @param subject   the client certificate subject DN.
+	 */
+	public void registerClientCertificate(final String sessionId, final String subject)
+	{
+		synchronized (certificateIdentities) {
+			certificateIdentities.put(sessionId, subject);
+		}
+	}
+
+	/**
+	 * Returns the tool class configured for the given tool.
+	 *
+	 * @param toolName the MCP tool name.
+	 * @return the tool class.
+	 */
+	public ToolClass toolClass(final String toolName)
+	{
+		return ToolClass.of(environment.getProperty(PREFIX + "tool." + toolName), ToolClass.READ);
+	}
+
+	/**
+	 * Returns the priority class configured for the given tool. Without
+	 * configuration, writes are high, bulk reads low and other reads normal
+	 * priority.
+	 *
+	 * @param toolName  the MCP tool name.
+	 * @param toolClass the tool class of the tool.
+	 * @return the priority class.
+	 */
+	public Priority priority(final String toolName, final ToolClass toolClass)
+	{
+		final Priority defaultPriority = switch (toolClass) {
+		case WRITE -> Priority.HIGH;
+		case BULK -> Priority.LOW;
+		default -> Priority.NORMAL;
+		};
+		return Priority.of(environment.getProperty(PREFIX + "priority." + toolName), defaultPriority);
+	}
+
+	private String clientKey(final McpSyncServerExchange exchange)
+	{
+		final String sessionId = exchange != null ? exchange.sessionId() : null;
+		if (sessionId == null) {
+			return ANONYMOUS;
+		}
+		if ("certificate".equalsIgnoreCase(key)) {
+			synchronized (certificateIdentities) {
+				final String subject = certificateIdentities.get(sessionId);
+				if (subject != null) {
+					return subject;
+				}
+			}
+		}
+		return sessionId;
+	}
+
+	private Limit limit(final ToolClass toolClass, final double rate, final double burst, final double cost)
+	{
+		final String prefix = PREFIX + toolClass.key() + ".";
+		return new Limit(environment.getProperty(prefix + "rate", Double.class, rate),
+				environment.getProperty(prefix + "burst", Double.class, burst),
+				environment.getProperty(prefix + "cost", Double.class, cost));
+	}
+
+	private static <V> Map<String, V> boundedMap(final int maxEntries)
+	{
+		return new LinkedHashMap<String, V>(256, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, V> eldest)
+			{
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	record Limit(double rate, double burst, double cost) {
+	}
+
+	/**
+	 * An admitted tool call holding an execution slot until closed.
+	 */
+	public static class Permit implements AutoCloseable {
+
+		static final Permit NONE = new Permit(null);
+
+		private final FairScheduler scheduler;
+
+		private boolean closed;
+
+		private Permit(final FairScheduler scheduler) {
+			this.scheduler = scheduler;
+		}
+
+		@Override
+		public void close()
+		{
+			if (scheduler != null && !closed) {
+				closed = true;
+				scheduler.release();
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.admission;
+
+import java.security.cert.X509Certificate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.server.reactive.SslInfo;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Associates MCP sessions with the subject of the TLS client certificate
+ * (server.ssl.client-auth=need), so that admission control can key on the
+ * client identity rather than on the session.
+ */
+@Component
+public class ClientCertificateFilter implements WebFilter {
+
+	static final String SESSION_HEADER = "Mcp-Session-Id";
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	@Override
+	public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain)
+	{
+		final String subject = clientSubject(exchange.getRequest().getSslInfo());
+		if (subject != null) {
+			final String sessionId = exchange.getRequest().getHeaders().getFirst(SESSION_HEADER);
+			if (sessionId != null) {
+				admissionControl.registerClientCertificate(sessionId, subject);
+			} else {
+				// The initialize request gets its session ID with the response.
+				exchange.getResponse().beforeCommit(() -> {
+					final String created = exchange.getResponse().getHeaders().getFirst(SESSION_HEADER);
+					if (created != null) {
+						admissionControl.registerClientCertificate(created, subject);
+					}
+					return Mono.empty();
+				});
+			}
+		}
+		return chain.filter(exchange);
+	}
+
+	private static String clientSubject(final SslInfo sslInfo)
+	{
+		if (sslInfo == null) {
+			return null;
+		}
+		final X509Certificate[] certificates = sslInfo.getPeerCertificates();
+		if (certificates == null || certificates.length == 0) {
+			return null;
+		}
+		return certificates[0].getSubjectX500Principal().getName();
+	}
+}
@@ -0,0 +1,268 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.admission;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrently executing tool calls and hands out free
+ * slots by priority class and, within a class, in weighted-fair order
+ * (start-time fair queuing).
+ *
+ * Every waiting call gets a virtual finish tag of
+ * {@code max(virtualTime, lastFinishTag(client)) + cost / weight}. Within a
+ * priority class a freed slot goes to the waiter with the lowest tag, so a
+ * client flooding the queue pushes its own tags ahead while occasional callers
+ * are served next.
+ *
+ * Across classes the highest priority wins. To avoid starvation, a waiter is
+ * promoted by one class for every aging interval it has waited, without a
+ * bound: a low priority call that has waited two intervals longer than the
+ * oldest high priority call is served first, even under constant high priority
+ * load. A number of
+ * slots can be reserved for {@link Priority#HIGH}, so urgent calls do not even
+ * wait for running low priority calls to finish.
+ */
+public class FairScheduler {
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Map<Priority, PriorityQueue<Waiter>> queues = new EnumMap<>(Priority.class);
+
+	private final Map<String, Double> finishTags = new HashMap<>();
+
+	private final int reserved;
+
+	private final long agingNanos;
+
+	private int available;
+
+	private int waiting;
+
+	private double virtualTime;
+
+	private long sequence;
+
+	/**
+	 * Creates a scheduler with the given number of concurrent slots.
+	 *
+	 * @param concurrency the maximum number of concurrent calls.
+	 * @param reserved    the number of slots reserved for high priority calls.
+	 * @param aging       the waiting time after which a call is promoted by one
+	 *                    priority class.
+	 * @param unit        the time unit of the aging interval.
+	 */
+	public FairScheduler(final int concurrency, final int reserved, final long aging, final TimeUnit unit) {
+		this.available = concurrency;
+		this.reserved = Math.max(0, Math.min(reserved, concurrency - 1));
+		this.agingNanos = Math.max(1L, unit.toNanos(aging));
+		for (final Priority priority : Priority.values()) {
+			queues.put(priority, new PriorityQueue<>());
+		}
+	}
+
+	/**
+	 * Acquires a slot, waiting in priority and fair order if none is free.
+	 *
+	 * @param client   the client key.
+	 * @param priority the priority class of the call.
+	 * @param cost     the cost of the call.
+	 * @param weight   the weight of the client (higher is a larger share).
+	 * @param timeout  the maximum time to wait.
+	 * @param unit     the time unit of the timeout.
+	 * @return the time waited in nanoseconds, or -1 if the timeout elapsed.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public long acquire(final String client, final Priority priority, final double cost, final double weight,
+			final long timeout, final TimeUnit unit) throws InterruptedException
+	{
+		final long enqueued = System.nanoTime();
+		lock.lock();
+		try {
+			// Remaining waiters cannot use the free slots (see releaseLocked), so a
+			// call that can is not overtaking anyone.
+			if (available > reservedFor(priority)) {
+				available--;
+				return 0L;
+			}
+
+			final double start = Math.max(virtualTime, finishTags.getOrDefault(client, 0d));
+			final double finish = start + cost / Math.max(weight, Double.MIN_VALUE);
+			finishTags.put(client, finish);
+
+			final Waiter waiter = new Waiter(priority, start, finish, sequence++, enqueued, lock.newCondition());
+			queues.get(priority).add(waiter);
+			waiting++;
+
+			long nanos = unit.toNanos(timeout);
+			try {
+				while (!waiter.granted) {
+					if (nanos <= 0L) {
+						remove(waiter);
+						return -1L;
+					}
+					nanos = waiter.condition.awaitNanos(nanos);
+				}
+			} catch (InterruptedException e) {
+				if (waiter.granted) {
+					// Pass the slot on rather than leaking it.
+					releaseLocked();
+				} else {
+					remove(waiter);
+				}
+				throw e;
+			}
+			return System.nanoTime() - enqueued;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Releases a slot and hands it to the next waiter.
+	 */
+	public void release()
+	{
+		lock.lock();
+		try {
+			releaseLocked();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of waiting calls of the given priority class.
+	 *
+	 * @param priority the priority class.
+	 * @return the queue length.
+	 */
+	public int queueLength(final Priority priority)
+	{
+		lock.lock();
+		try {
+			return queues.get(priority).size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int reservedFor(final Priority priority)
+	{
+		return priority == Priority.HIGH ? 0 : reserved;
+	}
+
+	private void releaseLocked()
+	{
+		available++;
+		// A free slot may unblock a waiter that was held back by the reservation
+		// only once enough slots are free.
+		while (waiting > 0) {
+			final Waiter next = next(System.nanoTime());
+			if (next == null) {
+				return;
+			}
+			queues.get(next.priority).poll();
+			waiting--;
+			available--;
+			virtualTime = Math.max(virtualTime, next.start);
+			next.granted = true;
+			next.condition.signal();
+		}
+		// Nobody is waiting, so the per client history is not needed anymore.
+		finishTags.clear();
+		virtualTime = 0d;
+	}
+
+	/**
+	 * Returns the waiter with the best effective priority that may use a free
+	 * slot, or null if none.
+	 */
+	private Waiter next(final long now)
+	{
+		Waiter best = null;
+		long bestRank = Long.MAX_VALUE;
+		for (final PriorityQueue<Waiter> queue : queues.values()) {
+			final Waiter head = queue.peek();
+			if (head == null || available <= reservedFor(head.priority)) {
+				continue;
+			}
+			final long promotions = (now - head.enqueued) / agingNanos;
+			// Not clamped at the highest class: aged waiters only tying with fresh
+			// high priority waiters would lose every tie.
+			final long rank = head.priority.ordinal() - promotions;
+			// Ties go to the higher base priority, which is iterated first.
+			if (rank < bestRank) {
+				best = head;
+				bestRank = rank;
+			}
+		}
+		return best;
+	}
+
+	private void remove(final Waiter waiter)
+	{
+		if (queues.get(waiter.priority).remove(waiter)) {
+			waiting--;
+		}
+	}
+
+	private static final class Waiter implements Comparable<Waiter> {
+
+		private final Priority priority;
+
+		private final double start;
+
+		private final double finish;
+
+		private final long sequence;
+
+		private final long enqueued;
+
+		private final Condition condition;
+
+		private boolean granted;
+
+		private Waiter(final Priority priority, final double start, final double finish, final long sequence,
+				final long enqueued, final Condition condition) {
+			this.priority = priority;
+			this.start = start;
+			this.finish = finish;
+			this.sequence = sequence;
+			this.enqueued = enqueued;
+			this.condition = condition;
+		}
+
+		@Override
+		public int compareTo(final Waiter other)
+		{
+			final int result = Double.compare(finish, other.finish);
+			return result != 0 ? result : Long.compare(sequence, other.sequence);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.admission;
+
+/**
+ * Priority classes of MCP tool calls waiting for an execution slot.
+ */
+public enum Priority {
+
+	/** Urgent operations such as revocation and CRL generation. */
+	HIGH,
+
+	/** Interactive reads and enrollments. */
+	NORMAL,
+
+	/** Bulk reads such as expiry listings and counts. */
+	LOW;
+
+	/**
+	 * Returns the priority for the given (case-insensitive) name.
+	 *
+	 * @param name            the name, e.g. "high".
+	 * @param defaultPriority the priority returned if the name is null or unknown.
+	 * @return the priority.
+	 */
+	public static Priority of(final String name, final Priority defaultPriority)
+	{
+		if (name != null) {
+			for (final Priority priority : values()) {
+				if (priority.name().equalsIgnoreCase(name.trim())) {
+					return priority;
+				}
+			}
+		}
+		return defaultPriority;
+	}
+
+	/**
+	 * Returns the lower case name as used in property keys and metric tags.
+	 *
+	 * @return the property key name.
+	 */
+	public String key()
+	{
+		return name().toLowerCase();
+	}
+}
@@ -0,0 +1,101 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.admission;
+
+/**
+ * Token bucket with continuous refill.
+ *
+ * A bucket holds up to {@code capacity} tokens and refills at
+ * {@code ratePerSecond}. Each admitted call consumes its cost in tokens.
+ */
+public class TokenBucket {
+
+	private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+	private final double capacity;
+
+	private final double refillPerNano;
+
+	private double tokens;
+
+	private long lastRefill;
+
+	/**
+	 * Creates a full token bucket.
+	 *
+	 * @param ratePerSecond the number of tokens added per second.
+	 * @param capacity      the maximum number of tokens (burst size).
+	 * @param now           the current time in nanoseconds.
+	 */
+	public TokenBucket(final double ratePerSecond, final double capacity, final long now) {
+		this.capacity = capacity;
+		this.refillPerNano = ratePerSecond / NANOS_PER_SECOND;
+		this.tokens = capacity;
+		this.lastRefill = now;
+	}
+
+	/**
+	 * Consumes the given number of tokens if available.
+	 *
+	 * @param cost the number of tokens to consume.
+	 * @param now  the current time in nanoseconds.
+	 * @return true if the tokens were consumed, false if the bucket is too empty.
+	 */
+	public synchronized boolean tryConsume(final double cost, final long now)
+	{
+		refill(now);
+		if (tokens >= cost) {
+			tokens -= cost;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the time in nanoseconds until the given number of tokens is
+	 * available, or 0 if it is available now.
+	 *
+	 * @param cost the number of tokens.
+	 * @param now  the current time in nanoseconds.
+	 * @return the wait time in nanoseconds.
+	 */
+	public synchronized long nanosUntilAvailable(final double cost, final long now)
+	{
+		refill(now);
+		if (tokens >= cost) {
+			return 0L;
+		}
+		if (refillPerNano <= 0d) {
+			return Long.MAX_VALUE;
+		}
+		return (long) Math.ceil((cost - tokens) / refillPerNano);
+	}
+
+	private void refill(final long now)
+	{
+		final long elapsed = now - lastRefill;
+		if (elapsed > 0) {
+			tokens = Math.min(capacity, tokens + elapsed * refillPerNano);
+			lastRefill = now;
+		}
+	}
+}
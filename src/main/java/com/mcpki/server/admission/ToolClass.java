@@ -0,0 +1,66 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.admission;
+
+/**
+ * Classes of MCP tools sharing the same rate limits and queuing cost.
+ */
+public enum ToolClass {
+
+	/** Cheap reads such as CA certificates, profiles or certificate parsing. */
+	READ,
+
+	/** Expensive reads running paged or counting queries on the CA database. */
+	BULK,
+
+	/** Operations changing CA state such as enrollment, revocation or CRLs. */
+	WRITE;
+
+	/**
+	 * Returns the tool class for the given (case-insensitive) name.
+	 *
+	 * @param name         the name, e.g. "bulk".
+	 * @param defaultClass the class returned if the name is null or unknown.
+	 * @return the tool class.
+	 */
+	public static ToolClass of(final String name, final ToolClass defaultClass)
+	{
+		if (name != null) {
+			for (final ToolClass toolClass : values()) {
+				if (toolClass.name().equalsIgnoreCase(name.trim())) {
+					return toolClass;
+				}
+			}
+		}
+		return defaultClass;
+	}
+
+	/**
+	 * Returns the lower case name as used in property keys.
+	 *
+	 * @return the property key name.
+	 */
+	public String key()
+	{
+		return name().toLowerCase();
+	}
+}
@@ -0,0 +1,163 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.audit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.mcpki.server.audit.AuditLog.Action;
+import com.mcpki.server.audit.AuditLog.Verification;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Audit journal of the enrollments and revocations done through MCPKI, see
+ * {@link AuditLog}. Recording does nothing if the journal is disabled.
+ */
+@Service
+public class AuditJournal {
+
+	private static final Logger log = LoggerFactory.getLogger(AuditJournal.class);
+
+	@Value("${com.mcpki.server.audit.enabled:false}")
+	private boolean enabled;
+
+	@Value("${com.mcpki.server.audit.directory:./mcpki-audit}")
+	private String directory;
+
+	@Value("${com.mcpki.server.audit.segment.size.mb:64}")
+	private int segmentSizeMb;
+
+	@Value("${com.mcpki.server.audit.capacity:65536}")
+	private int capacity;
+
+	@Value("${com.mcpki.server.audit.fsync.ms:10}")
+	private long fsyncMs;
+
+	private AuditLog auditLog;
+
+	@PostConstruct
+	void init() throws IOException
+	{
+		if (!enabled) {
+			return;
+		}
+		// Unlike the caches, the journal is mandatory once enabled.
+		auditLog = new AuditLog(Path.of(directory), segmentSizeMb * 1024 * 1024, capacity, fsyncMs);
+	}
+
+	@PreDestroy
+	void close()
+	{
+		if (auditLog != null) {
+			try {
+				auditLog.close();
+			} catch (IOException e) {
+				log.warn("Failed to close audit journal: {}.", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the journal is enabled.
+	 *
+	 * @return true if enabled.
+	 */
+	public boolean isEnabled()
+	{
+		return auditLog != null;
+	}
+
+	/**
+	 * Records an issued certificate.
+	 *
+	 * @param issuer_dn                the issuer DN.
+	 * @param serial_number            the serial number.
+	 * @param username                 the end entity.
+	 * @param certificate_profile_name the certificate profile.
+	 */
+	public void issued(final String issuer_dn, final String serial_number, final String username,
+			final String certificate_profile_name)
+	{
+		if (auditLog != null) {
+			auditLog.append(Action.ISSUE, issuer_dn, serial_number, username, certificate_profile_name, null);
+		}
+	}
+
+	/**
+	 * Records a revoked certificate.
+	 *
+	 * @param issuer_dn         the issuer DN.
+	 * @param serial_number     the serial number.
+	 * @param revocation_reason the revocation reason.
+	 */
+	public void revoked(final String issuer_dn, final String serial_number, final String revocation_reason)
+	{
+		if (auditLog != null) {
+			auditLog.append(Action.REVOKE, issuer_dn, serial_number, null, null, revocation_reason);
+		}
+	}
+
+	/**
+	 * Reads the records in sequence order, see {@link AuditLog#read}.
+	 *
+	 * @param from   the sequence number of the first record.
+	 * @param max    the maximum number of records.
+	 * @param filter the filter of the records.
+	 * @return the matching records.
+	 * @throws IOException if the journal cannot be read.
+	 */
+	public List<AuditRecord> read(final long from, final int max, final Predicate<AuditRecord> filter)
+			throws IOException
+	{
+		return auditLog.read(from, max, filter);
+	}
+
+	/**
+	 * Verifies the hash chain of the journal.
+	 *
+	 * @return the result of the verification.
+	 * @throws IOException if the journal cannot be read.
+	 */
+	public Verification verify() throws IOException
+	{
+		return auditLog.verify();
+	}
+
+	/**
+	 * Returns the number of written records.
+	 *
+	 * @return the number of records.
+	 */
+	public long size()
+	{
+		return auditLog.size();
+	}
+}
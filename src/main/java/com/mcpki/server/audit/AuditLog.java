@@ -0,0 +1,556 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only audit log in memory-mapped segment files.
+ *
+ * Callers publish records into a lock-free ring buffer and return; a single
+ * writer thread takes the records in batches, writes them to the mapped
+ * segment and forces the segment to disk at most once per fsync interval
+ * (group fsync), so a record is durable within the interval. A full segment is
+ * forced and a new one started; segments are named after the sequence number
+ * of their first record and never deleted.
+ *
+ * Each record holds its length, a gapless sequence number, the timestamp, the
+ * hash of the previous record, its own hash and the payload (action and the
+ * length-prefixed UTF-8 fields). The hash is the SHA-256 hash of the record
+ * without the magic number and its own hash, i.e. it covers the previous hash,
+ * so that any modification, deletion or reordering breaks the chain, see
+ * {@link #verify()}. As in the segment store, a record is written before its
+ * magic number, so a record torn by a crash ends the segment.
+ */
+public class AuditLog implements Closeable {
+
+	private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+	static final int MAGIC = 0x4d434155;
+
+	static final int HASH = 32;
+
+	// magic, length, sequence, timestamp, previous hash, hash
+	static final int HEADER = 4 + 4 + 8 + 8 + HASH + HASH;
+
+	private static final int FIELDS = 5;
+
+	private static final int BATCH_SIZE = 256;
+
+	private static final long IDLE_NANOS = 200_000;
+
+	private static final String SUFFIX = ".audit";
+
+	/**
+	 * Audited operations.
+	 */
+	public enum Action {
+		ISSUE, REVOKE
+	}
+
+	/**
+	 * Result of the verification of the hash chain.
+	 *
+	 * @param valid                  true if the chain is intact.
+	 * @param records                the number of verified records.
+	 * @param first_invalid_sequence the sequence number of the first invalid
+	 *                               record or null.
+	 * @param error_message          the reason or null.
+	 */
+	public record Verification(boolean valid, long records, Long first_invalid_sequence, String error_message) {
+	}
+
+	private record Event(long timestamp, Action action, String[] fields) {
+	}
+
+	private final Path directory;
+
+	private final int segmentSize;
+
+	private final long fsyncNanos;
+
+	private final RingBuffer<Event> ring;
+
+	private final MessageDigest digest = sha256();
+
+	private final Thread writer;
+
+	// State of the writer thread.
+
+	private FileChannel channel;
+
+	private MappedByteBuffer buffer;
+
+	private int position;
+
+	private long nextSequence;
+
+	private byte[] previousHash = new byte[HASH];
+
+	// Sequence number of the last written record, readers stop there.
+	private volatile long written;
+
+	// Ring buffer sequence up to which the records are forced to disk.
+	private volatile long synced;
+
+	private volatile boolean running = true;
+
+	/**
+	 * Opens the log, recovers the end of the last segment and starts the writer
+	 * thread.
+	 *
+	 * @param directory   the directory of the segment files.
+	 * @param segmentSize the size of a segment file in bytes.
+	 * @param capacity    the capacity of the ring buffer.
+	 * @param fsyncMillis the maximum time between the writing of a record and
+	 *                    forcing it to disk in milliseconds.
+	 * @throws IOException if the segments cannot be opened.
+	 */
+	public AuditLog(final Path directory, final int segmentSize, final int capacity, final long fsyncMillis)
+			throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.fsyncNanos = TimeUnit.MILLISECONDS.toNanos(fsyncMillis);
+		this.ring = new RingBuffer<>(capacity);
+		Files.createDirectories(directory);
+		recover();
+		this.written = nextSequence - 1;
+		this.writer = new Thread(this::run, "mcpki-audit");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Appends a record. The record is written asynchronously; the call only
+	 * waits if the ring buffer is full.
+	 *
+	 * @param action                   the operation.
+	 * @param issuer_dn                the issuer DN.
+	 * @param serial_number            the certificate serial number.
+	 * @param username                 the end entity or null.
+	 * @param certificate_profile_name the certificate profile or null.
+	 * @param revocation_reason        the revocation reason or null.
+	 */
+	public void append(final Action action, final String issuer_dn, final String serial_number,
+			final String username, final String certificate_profile_name, final String revocation_reason)
+	{
+		if (!running) {
+			log.error("Audit log closed, record lost: {} {} {}.", action, issuer_dn, serial_number);
+			return;
+		}
+		ring.publish(new Event(System.currentTimeMillis(), action,
+				new String[] { issuer_dn, serial_number, username, certificate_profile_name, revocation_reason }));
+	}
+
+	/**
+	 * Waits until the records appended so far are forced to disk.
+	 *
+	 * @param timeoutMillis the maximum time to wait in milliseconds.
+	 * @return true if the records are on disk.
+	 */
+	public boolean flush(final long timeoutMillis)
+	{
+		final long target = ring.claimed();
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (synced < target) {
+			if (System.nanoTime() - deadline > 0 || !writer.isAlive()) {
+				return false;
+			}
+			LockSupport.parkNanos(IDLE_NANOS);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of records written.
+	 *
+	 * @return the sequence number of the next record.
+	 */
+	public long size()
+	{
+		return written + 1;
+	}
+
+	/**
+	 * Reads the written records in sequence order.
+	 *
+	 * @param from   the sequence number of the first record.
+	 * @param max    the maximum number of records.
+	 * @param filter the filter of the records.
+	 * @return the matching records.
+	 * @throws IOException if a segment cannot be read or a record is malformed.
+	 */
+	public List<AuditRecord> read(final long from, final int max, final Predicate<AuditRecord> filter)
+			throws IOException
+	{
+		final long last = written;
+		final List<AuditRecord> records = new ArrayList<>();
+		final List<Long> ids = segmentIds();
+		for (int i = 0; i < ids.size(); i++) {
+			if (i + 1 < ids.size() && ids.get(i + 1) <= from) {
+				// All records of the segment are before from.
+				continue;
+			}
+			final ByteBuffer segment = map(ids.get(i));
+			int offset = 0;
+			int next;
+			while ((next = next(segment, offset)) > 0) {
+				final long sequence = segment.getLong(offset + 8);
+				if (sequence > last) {
+					return records;
+				}
+				if (sequence >= from) {
+					final AuditRecord record = decode(segment, offset, next - offset);
+					if (filter.test(record)) {
+						records.add(record);
+						if (records.size() >= max) {
+							return records;
+						}
+					}
+				}
+				offset = next;
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Verifies the hash chain of the written records.
+	 *
+	 * @return the result of the verification.
+	 * @throws IOException if a segment cannot be read.
+	 */
+	public Verification verify() throws IOException
+	{
+		final long last = written;
+		final MessageDigest verifier = sha256();
+		byte[] previous = null;
+		long expected = -1;
+		long count = 0;
+		for (final long id : segmentIds()) {
+			final ByteBuffer segment = map(id);
+			int offset = 0;
+			int next;
+			while ((next = next(segment, offset)) > 0) {
+				final long sequence = segment.getLong(offset + 8);
+				if (sequence > last) {
+					return new Verification(true, count, null, null);
+				}
+				if (expected >= 0 && sequence != expected) {
+					return new Verification(false, count, expected, "Record " + expected + " is missing.");
+				}
+				final byte[] linked = new byte[HASH];
+				segment.get(offset + 24, linked);
+				if (previous == null ? sequence == 0 && !Arrays.equals(linked, new byte[HASH])
+						: !Arrays.equals(linked, previous)) {
+					return new Verification(false, count, sequence, "Hash chain broken at record " + sequence + ".");
+				}
+				final byte[] hash = new byte[HASH];
+				segment.get(offset + 24 + HASH, hash);
+				if (!Arrays.equals(hash, hash(verifier, segment, offset, next - offset))) {
+					return new Verification(false, count, sequence, "Record " + sequence + " was modified.");
+				}
+				previous = hash;
+				expected = sequence + 1;
+				count++;
+				offset = next;
+			}
+		}
+		final long end = Math.max(expected, 0);
+		if (end <= last) {
+			return new Verification(false, count, end, "Records from " + end + " are missing.");
+		}
+		return new Verification(true, count, null, null);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		running = false;
+		try {
+			writer.join(10_000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run()
+	{
+		final List<Event> batch = new ArrayList<>(BATCH_SIZE);
+		long lastSync = System.nanoTime();
+		boolean dirty = false;
+		while (true) {
+			// Read before draining, so that records published before close are written.
+			final boolean stopping = !running;
+			if (ring.drain(batch, BATCH_SIZE) > 0) {
+				for (final Event event : batch) {
+					try {
+						write(event);
+					} catch (IOException | RuntimeException e) {
+						log.error("Failed to write audit record {} {} {}: {}.", event.action(), event.fields()[0],
+								event.fields()[1], e.getMessage());
+					}
+				}
+				batch.clear();
+				written = nextSequence - 1;
+				dirty = true;
+			} else if (stopping) {
+				break;
+			} else {
+				LockSupport.parkNanos(IDLE_NANOS);
+			}
+			if (dirty && System.nanoTime() - lastSync >= fsyncNanos) {
+				force();
+				dirty = false;
+				lastSync = System.nanoTime();
+			}
+		}
+		force();
+		try {
+			if (channel != null) {
+				channel.close();
+			}
+		} catch (IOException e) {
+			log.warn("Failed to close audit segment: {}.", e.getMessage());
+		}
+	}
+
+	private void force()
+	{
+		final long consumed = ring.consumed();
+		if (buffer != null) {
+			buffer.force();
+		}
+		synced = consumed;
+	}
+
+	private void write(final Event event) throws IOException
+	{
+		final byte[][] fields = new byte[FIELDS][];
+		int length = HEADER + 1;
+		for (int i = 0; i < FIELDS; i++) {
+			fields[i] = event.fields()[i] == null ? null : event.fields()[i].getBytes(StandardCharsets.UTF_8);
+			length += 4 + (fields[i] == null ? 0 : fields[i].length);
+		}
+		if (buffer == null || buffer.capacity() - position < length) {
+			rotate(length);
+		}
+
+		final int offset = position;
+		buffer.putInt(offset + 4, length);
+		buffer.putLong(offset + 8, nextSequence);
+		buffer.putLong(offset + 16, event.timestamp());
+		buffer.put(offset + 24, previousHash);
+		int p = offset + HEADER;
+		buffer.put(p++, (byte) event.action().ordinal());
+		for (final byte[] field : fields) {
+			buffer.putInt(p, field == null ? -1 : field.length);
+			p += 4;
+			if (field != null) {
+				buffer.put(p, field);
+				p += field.length;
+			}
+		}
+		final byte[] hash = hash(digest, buffer, offset, length);
+		buffer.put(offset + 24 + HASH, hash);
+		buffer.putInt(offset, MAGIC);
+		position = offset + length;
+		previousHash = hash;
+		nextSequence++;
+	}
+
+	/**
+	 * Forces the current segment and starts a new one named after the next
+	 * sequence number.
+	 */
+	private void rotate(final int length) throws IOException
+	{
+		if (buffer != null) {
+			buffer.force();
+			channel.close();
+		}
+		channel = FileChannel.open(segmentPath(nextSequence), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		buffer = channel.map(MapMode.READ_WRITE, 0, Math.max(segmentSize, length));
+		position = 0;
+		if (log.isDebugEnabled()) {
+			log.debug("Started audit segment {}.", segmentPath(nextSequence));
+		}
+	}
+
+	/**
+	 * Finds the end of the last segment, i.e. the position, sequence number and
+	 * hash of the next record. A torn record ends the segment and is overwritten;
+	 * hashes are not checked here, so that a modified record does not cut off
+	 * the records after it (see {@link #verify()}).
+	 */
+	private void recover() throws IOException
+	{
+		final List<Long> ids = segmentIds();
+		for (int i = ids.size() - 1; i >= 0; i--) {
+			final boolean last = i == ids.size() - 1;
+			final ByteBuffer segment;
+			if (last) {
+				channel = FileChannel.open(segmentPath(ids.get(i)), StandardOpenOption.READ,
+						StandardOpenOption.WRITE);
+				buffer = channel.map(MapMode.READ_WRITE, 0, Math.max(segmentSize, channel.size()));
+				segment = buffer;
+			} else {
+				segment = map(ids.get(i));
+			}
+			int offset = 0;
+			int previous = -1;
+			int next;
+			while ((next = next(segment, offset)) > 0) {
+				previous = offset;
+				offset = next;
+			}
+			if (last) {
+				position = offset;
+			}
+			if (previous >= 0) {
+				nextSequence = segment.getLong(previous + 8) + 1;
+				segment.get(previous + 24 + HASH, previousHash);
+				if (!Arrays.equals(previousHash, hash(digest, segment, previous, offset - previous))) {
+					log.warn("Last audit record {} does not match its hash.", nextSequence - 1);
+				}
+				log.info("Audit log opened with {} records.", nextSequence);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the offset of the record after the record at the offset, or -1 if
+	 * there is no record at the offset.
+	 */
+	private static int next(final ByteBuffer segment, final int offset)
+	{
+		if (offset + HEADER > segment.capacity() || segment.getInt(offset) != MAGIC) {
+			return -1;
+		}
+		final int length = segment.getInt(offset + 4);
+		if (length < HEADER + 1 + 4 * FIELDS || (long) offset + length > segment.capacity()) {
+			return -1;
+		}
+		return offset + length;
+	}
+
+	private static byte[] hash(final MessageDigest digest, final ByteBuffer segment, final int offset,
+			final int length)
+	{
+		// Length, sequence, timestamp and previous hash, then the payload.
+		digest.update(segment.slice(offset + 4, 20 + HASH));
+		digest.update(segment.slice(offset + HEADER, length - HEADER));
+		return digest.digest();
+	}
+
+	private static AuditRecord decode(final ByteBuffer segment, final int offset, final int length)
+			throws IOException
+	{
+		final long sequence = segment.getLong(offset + 8);
+		final int end = offset + length;
+		int p = offset + HEADER;
+		final int action = segment.get(p++);
+		if (action < 0 || action >= Action.values().length) {
+			throw new IOException("Malformed audit record " + sequence + ".");
+		}
+		final String[] fields = new String[FIELDS];
+		for (int i = 0; i < FIELDS; i++) {
+			final int size = p + 4 <= end ? segment.getInt(p) : -2;
+			p += 4;
+			if (size < -1 || p + Math.max(size, 0) > end) {
+				throw new IOException("Malformed audit record " + sequence + ".");
+			}
+			if (size >= 0) {
+				final byte[] field = new byte[size];
+				segment.get(p, field);
+				fields[i] = new String(field, StandardCharsets.UTF_8);
+				p += size;
+			}
+		}
+		final byte[] hash = new byte[HASH];
+		segment.get(offset + 24 + HASH, hash);
+		return new AuditRecord(sequence, segment.getLong(offset + 16), Action.values()[action].name(), fields[0],
+				fields[1], fields[2], fields[3], fields[4], HexFormat.of().formatHex(hash));
+	}
+
+	private ByteBuffer map(final long id) throws IOException
+	{
+		try (FileChannel file = FileChannel.open(segmentPath(id), StandardOpenOption.READ)) {
+			return file.map(MapMode.READ_ONLY, 0, file.size());
+		}
+	}
+
+	private List<Long> segmentIds() throws IOException
+	{
+		final List<Long> ids = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			for (final Path file : files) {
+				final String name = file.getFileName().toString();
+				try {
+					ids.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+				} catch (NumberFormatException e) {
+					// Not a segment.
+				}
+			}
+		}
+		ids.sort(null);
+		return ids;
+	}
+
+	private Path segmentPath(final long id)
+	{
+		return directory.resolve(String.format("%016d%s", id, SUFFIX));
+	}
+
+	private static MessageDigest sha256()
+	{
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
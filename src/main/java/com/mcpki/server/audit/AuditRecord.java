@@ -0,0 +1,40 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.audit;
+
+/**
+ * Record of the audit journal.
+ *
+ * @param sequence                 the sequence number, gapless from 0.
+ * @param timestamp                the time of the operation in milliseconds.
+ * @param action                   the operation, ISSUE or REVOKE.
+ * @param issuer_dn                the issuer DN.
+ * @param serial_number            the certificate serial number in hex format.
+ * @param username                 the end entity or null.
+ * @param certificate_profile_name the certificate profile or null.
+ * @param revocation_reason        the revocation reason or null.
+ * @param hash                     the hex encoded SHA-256 hash chaining the
+ *                                 record to its predecessor.
+ */
+public record AuditRecord(long sequence, long timestamp, String action, String issuer_dn, String serial_number,
+		String username, String certificate_profile_name, String revocation_reason, String hash) {
+}
@@ -0,0 +1,146 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free ring buffer with many producers and a single consumer.
+ *
+ * A producer claims a sequence with one atomic increment, stores the element
+ * in the slot of the sequence and publishes it by writing the sequence to the
+ * slot (a volatile write). The consumer takes the slots in sequence order as
+ * long as they are published. If the buffer is full, producers park until the
+ * consumer has freed their slot, i.e. elements are never dropped.
+ *
+ * @param <E> the element type.
+ */
+final class RingBuffer<E> {
+
+	private static final long PARK_NANOS = 10_000;
+
+	private final Object[] slots;
+
+	private final AtomicLongArray published;
+
+	private final int mask;
+
+	private final AtomicLong claimed = new AtomicLong();
+
+	// Written by the consumer only.
+	private volatile long consumed;
+
+	/**
+	 * Creates the ring buffer.
+	 *
+	 * @param capacity the minimum capacity, rounded up to a power of two.
+	 */
+	RingBuffer(final int capacity) {
+		final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.slots = new Object[size];
+		this.published = new AtomicLongArray(size);
+		this.mask = size - 1;
+		for (int i = 0; i < size; i++) {
+			published.set(i, -1);
+		}
+	}
+
+	/**
+	 * Publishes the element, waiting while the buffer is full.
+	 *
+	 * @param element the element.
+	 * @return the sequence of the element.
+	 */
+	long publish(final E element)
+	{
+		final long sequence = claimed.getAndIncrement();
+		while (sequence - consumed >= slots.length) {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		final int index = (int) sequence & mask;
+		slots[index] = element;
+		published.set(index, sequence);
+		return sequence;
+	}
+
+	/**
+	 * Moves the published elements in sequence order to the list. Must only be
+	 * called by the consumer thread.
+	 *
+	 * @param to  the list.
+	 * @param max the maximum number of elements.
+	 * @return the number of elements moved.
+	 */
+	@SuppressWarnings("unchecked")
+	int drain(final List<E> to, final int max)
+	{
+		long next = consumed;
+		int count = 0;
+		while (count < max) {
+			final int index = (int) next & mask;
+			if (published.get(index) != next) {
+				break;
+			}
+			to.add((E) slots[index]);
+			slots[index] = null;
+			next++;
+			count++;
+		}
+		if (count > 0) {
+			consumed = next;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the sequence of the next element to be claimed.
+	 *
+	 * @return the number of claimed sequences.
+	 */
+	long claimed()
+	{
+		return claimed.get();
+	}
+
+	/**
+	 * Returns the sequence of the next element to be consumed.
+	 *
+	 * @return the number of consumed elements.
+	 */
+	long consumed()
+	{
+		return consumed;
+	}
+
+	/**
+	 * Returns the capacity.
+	 *
+	 * @return the number of slots.
+	 */
+	int capacity()
+	{
+		return slots.length;
+	}
+}
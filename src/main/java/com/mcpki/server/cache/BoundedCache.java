@@ -0,0 +1,321 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size bounded in-memory cache with a time to live.
+ *
+ * With {@link Eviction#LRU} the least recently used entry is evicted. With
+ * {@link Eviction#TINY_LFU} new entries go to a small LRU window (1% of the
+ * entries); an entry leaving the window replaces the least recently used entry
+ * of the main area only if it has been requested more often, as estimated by a
+ * count-min sketch that is halved periodically. This keeps frequently used
+ * entries when a scan of one-off keys passes through the cache.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public class BoundedCache<K, V> {
+
+	/**
+	 * Eviction policy.
+	 */
+	public enum Eviction {
+		LRU, TINY_LFU
+	}
+
+	private final long ttl;
+
+	private final int windowMax;
+
+	private final int mainMax;
+
+	private final ToLongFunction<V> weigher;
+
+	private final LongSupplier clock;
+
+	private final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final LinkedHashMap<K, Entry<V>> main = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final FrequencySketch sketch;
+
+	private long weight;
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	private record Entry<V>(V value, long expiresAt, long weight) {
+	}
+
+	/**
+	 * Creates the cache.
+	 *
+	 * @param maxEntries the maximum number of entries.
+	 * @param ttlMillis  the time to live of the entries in milliseconds.
+	 * @param eviction   the eviction policy.
+	 * @param weigher    the estimated memory size of a value in bytes.
+	 */
+	public BoundedCache(final int maxEntries, final long ttlMillis, final Eviction eviction,
+			final ToLongFunction<V> weigher) {
+		this(maxEntries, ttlMillis, eviction, weigher, System::currentTimeMillis);
+	}
+
+	BoundedCache(final int maxEntries, final long ttlMillis, final Eviction eviction, final ToLongFunction<V> weigher,
+			final LongSupplier clock) {
+		final int max = Math.max(1, maxEntries);
+		this.ttl = ttlMillis;
+		this.weigher = weigher;
+		this.clock = clock;
+		if (eviction == Eviction.TINY_LFU && max > 1) {
+			this.windowMax = Math.max(1, max / 100);
+			this.sketch = new FrequencySketch(max);
+		} else {
+			this.windowMax = 0;
+			this.sketch = null;
+		}
+		this.mainMax = max - windowMax;
+	}
+
+	/**
+	 * Returns the value of the key.
+	 *
+	 * @param key the key.
+	 * @return the value or null if there is none or it is expired.
+	 */
+	public synchronized V get(final K key)
+	{
+		if (sketch != null) {
+			sketch.increment(key.hashCode());
+		}
+		Entry<V> entry = window.get(key);
+		if (entry == null) {
+			entry = main.get(key);
+		}
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		if (entry.expiresAt() <= clock.getAsLong()) {
+			remove(key);
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.value();
+	}
+
+	/**
+	 * Stores the value of the key.
+	 *
+	 * @param key   the key.
+	 * @param value the value.
+	 */
+	public synchronized void put(final K key, final V value)
+	{
+		remove(key);
+		final Entry<V> entry = new Entry<>(value, clock.getAsLong() + ttl, weigher.applyAsLong(value));
+		weight += entry.weight();
+		if (sketch == null) {
+			main.put(key, entry);
+			while (main.size() > mainMax) {
+				evict(main.entrySet().iterator());
+			}
+			return;
+		}
+
+		window.put(key, entry);
+		while (window.size() > windowMax) {
+			final Iterator<Map.Entry<K, Entry<V>>> iterator = window.entrySet().iterator();
+			final Map.Entry<K, Entry<V>> candidate = iterator.next();
+			iterator.remove();
+			admit(candidate.getKey(), candidate.getValue());
+		}
+	}
+
+	/**
+	 * Removes the entry of the key.
+	 *
+	 * @param key the key.
+	 */
+	public synchronized void invalidate(final K key)
+	{
+		remove(key);
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear()
+	{
+		window.clear();
+		main.clear();
+		weight = 0;
+	}
+
+	public synchronized int size()
+	{
+		return window.size() + main.size();
+	}
+
+	/**
+	 * Returns the estimated memory size of the values.
+	 *
+	 * @return the size in bytes.
+	 */
+	public synchronized long weight()
+	{
+		return weight;
+	}
+
+	public synchronized long hits()
+	{
+		return hits;
+	}
+
+	public synchronized long misses()
+	{
+		return misses;
+	}
+
+	public synchronized long evictions()
+	{
+		return evictions;
+	}
+
+	/**
+	 * Moves an entry leaving the window to the main area if it is used more
+	 * often than the main area's eviction victim.
+	 */
+	private void admit(final K key, final Entry<V> candidate)
+	{
+		if (main.size() < mainMax) {
+			main.put(key, candidate);
+			return;
+		}
+		final Iterator<Map.Entry<K, Entry<V>>> iterator = main.entrySet().iterator();
+		final Map.Entry<K, Entry<V>> victim = iterator.next();
+		if (victim.getValue().expiresAt() <= clock.getAsLong()
+				|| sketch.frequency(key.hashCode()) > sketch.frequency(victim.getKey().hashCode())) {
+			evict(iterator);
+			main.put(key, candidate);
+		} else {
+			weight -= candidate.weight();
+			evictions++;
+		}
+	}
+
+	private void evict(final Iterator<Map.Entry<K, Entry<V>>> iterator)
+	{
+		final Map.Entry<K, Entry<V>> eldest = iterator.next();
+		iterator.remove();
+		weight -= eldest.getValue().weight();
+		evictions++;
+	}
+
+	private void remove(final K key)
+	{
+		Entry<V> entry = window.remove(key);
+		if (entry == null) {
+			entry = main.remove(key);
+		}
+		if (entry != null) {
+			weight -= entry.weight();
+		}
+	}
+
+	/**
+	 * Count-min sketch of 4 bit counters (one byte each for simplicity). All
+	 * counters are halved after a sample of 10 times the cache size, so that the
+	 * frequencies follow changes of the workload.
+	 */
+	private static final class FrequencySketch {
+
+		private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+				0xcbf29ce484222325L };
+
+		private final byte[][] table;
+
+		private final int mask;
+
+		private final int sampleSize;
+
+		private int additions;
+
+		FrequencySketch(final int maxEntries) {
+			final int width = Integer.highestOneBit(Math.max(16, Math.min(1 << 24, maxEntries * 8)) - 1) << 1;
+			this.table = new byte[SEEDS.length][width];
+			this.mask = width - 1;
+			this.sampleSize = 10 * maxEntries;
+		}
+
+		void increment(final int hash)
+		{
+			boolean added = false;
+			for (int i = 0; i < SEEDS.length; i++) {
+				final int index = index(hash, i);
+				if (table[i][index] < 15) {
+					table[i][index]++;
+					added = true;
+				}
+			}
+			if (added && ++additions >= sampleSize) {
+				reset();
+			}
+		}
+
+		int frequency(final int hash)
+		{
+			int frequency = Integer.MAX_VALUE;
+			for (int i = 0; i < SEEDS.length; i++) {
+				frequency = Math.min(frequency, table[i][index(hash, i)]);
+			}
+			return frequency;
+		}
+
+		private int index(final int hash, final int row)
+		{
+			long h = (hash + SEEDS[row]) * SEEDS[row];
+			h += h >>> 32;
+			return (int) h & mask;
+		}
+
+		private void reset()
+		{
+			for (final byte[] row : table) {
+				for (int i = 0; i < row.length; i++) {
+					row[i] = (byte) (row[i] >> 1);
+				}
+			}
+			additions /= 2;
+		}
+	}
+}
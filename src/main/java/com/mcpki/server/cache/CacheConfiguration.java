@@ -0,0 +1,61 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.cache;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the executor of the background cache refreshes and the result
+ * cache of the MCP tools.
+ */
+@Configuration
+public class CacheConfiguration {
+
+	@Value("${com.mcpki.server.cache.refresh.threads:2}")
+	private int refreshThreads;
+
+	@Bean(destroyMethod = "shutdownNow")
+	public ExecutorService cacheRefreshExecutor()
+	{
+		final AtomicInteger counter = new AtomicInteger();
+		return Executors.newFixedThreadPool(Math.max(1, refreshThreads), r -> {
+			final Thread thread = new Thread(r, "mcpki-cache-refresh-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "com.mcpki.server.cache.tool.enabled", havingValue = "true", matchIfMissing = false)
+	public static ToolCachePostProcessor toolCachePostProcessor(final ObjectProvider<ToolResultCache> toolResultCache)
+	{
+		return new ToolCachePostProcessor(toolResultCache);
+	}
+}
@@ -0,0 +1,282 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import com.mcpki.server.cache.SegmentStore.Entry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Persistent cache tier for slowly changing EJBCA data (CA chains, CRLs,
+ * certificate profiles) in memory-mapped segment files, so that a restarted
+ * node serves them from the page cache right away.
+ *
+ * Each namespace has a time to live and a stale period: an entry is served
+ * fresh within its time to live, served and revalidated in the background
+ * within the stale period, and not served afterwards. The properties are
+ * com.mcpki.server.cache.persistent.&lt;namespace&gt;.ttl.seconds and
+ * .stale.seconds; the defaults depend on the namespace (see {@link #DEFAULTS}).
+ * CRLs have no stale period by default, so an outdated CRL is never served.
+ */
+@Service
+public class PersistentCache {
+
+	private static final Logger log = LoggerFactory.getLogger(PersistentCache.class);
+
+	public static final String CA_CHAIN = "ca-chain";
+
+	public static final String CRL = "crl";
+
+	public static final String CERTIFICATE_PROFILE = "certificate-profile";
+
+	/**
+	 * Default time to live and stale period in seconds per namespace; other
+	 * namespaces default to {@link #OTHER}.
+	 */
+	static final Map<String, long[]> DEFAULTS = Map.of(CA_CHAIN, new long[] { 86400L, 604800L }, CRL,
+			new long[] { 300L, 0L }, CERTIFICATE_PROFILE, new long[] { 3600L, 86400L });
+
+	static final long[] OTHER = { 300L, 0L };
+
+	@Value("${com.mcpki.server.cache.persistent.enabled:false}")
+	private boolean enabled;
+
+	@Value("${com.mcpki.server.cache.persistent.directory:./mcpki-cache}")
+	private String directory;
+
+	@Value("${com.mcpki.server.cache.persistent.segment.size.mb:16}")
+	private int segmentSizeMb;
+
+	@Value("${com.mcpki.server.cache.persistent.compaction.interval.ms:600000}")
+	private long compactionIntervalMs;
+
+	@Value("${com.mcpki.server.cache.persistent.compaction.dead.ratio:0.5}")
+	private double compactionDeadRatio;
+
+	@Autowired
+	private Environment environment;
+
+	private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+	private SegmentStore store;
+
+	private ScheduledExecutorService executor;
+
+	@PostConstruct
+	void init()
+	{
+		if (!enabled) {
+			return;
+		}
+		try {
+			store = new SegmentStore(Path.of(directory), segmentSizeMb * 1024 * 1024);
+			log.info("Persistent cache opened with {} entries.", store.size());
+		} catch (IOException e) {
+			// The tools work without the cache.
+			log.error("Failed to open persistent cache in {}: {}.", directory, e.getMessage());
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread thread = new Thread(r, "mcpki-cache");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::compact, compactionIntervalMs, compactionIntervalMs,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	void close()
+	{
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		if (store != null) {
+			try {
+				store.close();
+			} catch (IOException e) {
+				log.warn("Failed to close persistent cache: {}.", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Returns the cached value if it is fresh or within the stale period. A stale
+	 * value is revalidated in the background with the loader, which returns null
+	 * if the value cannot be loaded (the stale value is then kept).
+	 *
+	 * @param namespace the namespace.
+	 * @param key       the key.
+	 * @param loader    the loader for the revalidation.
+	 * @return the value or null.
+	 */
+	public String get(final String namespace, final String key, final Supplier<String> loader)
+	{
+		if (store == null) {
+			return null;
+		}
+		final Entry entry = store.get(namespace + '\0' + key);
+		if (entry == null) {
+			return null;
+		}
+		final long now = System.currentTimeMillis();
+		if (now >= entry.expiresAt() + staleMillis(namespace)) {
+			return null;
+		}
+		if (now >= entry.expiresAt()) {
+			revalidate(namespace, key, loader);
+		}
+		return new String(entry.value(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the cached value only if it is within its time to live and not
+	 * older than the given age, for callers that handle staleness themselves
+	 * (e.g. with a {@link SwrCache}). No stale value is served and nothing is
+	 * revalidated.
+	 *
+	 * @param namespace    the namespace.
+	 * @param key          the key.
+	 * @param maxAgeMillis the maximum age of the value.
+	 * @return the fresh value or null.
+	 */
+	public String getFresh(final String namespace, final String key, final long maxAgeMillis)
+	{
+		if (store == null) {
+			return null;
+		}
+		final Entry entry = store.get(namespace + '\0' + key);
+		final long now = System.currentTimeMillis();
+		if (entry == null || now >= entry.expiresAt() || now - entry.storedAt() >= maxAgeMillis) {
+			return null;
+		}
+		return new String(entry.value(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Stores a value with the time to live of the namespace.
+	 *
+	 * @param namespace the namespace.
+	 * @param key       the key.
+	 * @param value     the value.
+	 */
+	public void put(final String namespace, final String key, final String value)
+	{
+		if (store == null || value == null) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		try {
+			store.put(namespace + '\0' + key, value.getBytes(StandardCharsets.UTF_8), now,
+					now + TimeUnit.SECONDS.toMillis(setting(namespace, "ttl", 0)));
+		} catch (IOException e) {
+			log.warn("Failed to store {} in persistent cache: {}.", namespace, e.getMessage());
+		}
+	}
+
+	/**
+	 * Invalidates the value of the key, e.g. after the data changed in EJBCA.
+	 *
+	 * @param namespace the namespace.
+	 * @param key       the key.
+	 */
+	public void invalidate(final String namespace, final String key)
+	{
+		if (store == null) {
+			return;
+		}
+		try {
+			// An entry that expired at the epoch is beyond any stale period.
+			store.put(namespace + '\0' + key, new byte[0], System.currentTimeMillis(), 0L);
+		} catch (IOException e) {
+			log.warn("Failed to invalidate {} in persistent cache: {}.", namespace, e.getMessage());
+		}
+	}
+
+	private void revalidate(final String namespace, final String key, final Supplier<String> loader)
+	{
+		final String id = namespace + '\0' + key;
+		if (!revalidating.add(id)) {
+			return;
+		}
+		executor.execute(() -> {
+			try {
+				final String value = loader.get();
+				if (value != null) {
+					put(namespace, key, value);
+				}
+			} catch (RuntimeException e) {
+				log.warn("Failed to revalidate {} {}: {}.", namespace, key, e.getMessage());
+			} finally {
+				revalidating.remove(id);
+			}
+		});
+	}
+
+	private long staleMillis(final String namespace)
+	{
+		return TimeUnit.SECONDS.toMillis(setting(namespace, "stale", 1));
+	}
+
+	/**
+	 * Returns the configured seconds of a namespace or the default.
+	 */
+	private long setting(final String namespace, final String name, final int index)
+	{
+		return environment.getProperty("com.mcpki.server.cache.persistent." + namespace + "." + name + ".seconds",
+				Long.class, DEFAULTS.getOrDefault(namespace, OTHER)[index]);
+	}
+
+	private void compact()
+	{
+		try {
+			if (store.deadRatio() > compactionDeadRatio) {
+				final long start = System.currentTimeMillis();
+				// Drop entries long expired, they are beyond any sensible stale period.
+				store.compact(start - TimeUnit.DAYS.toMillis(30));
+				log.info("Persistent cache compacted to {} entries in {} ms.", store.size(),
+						System.currentTimeMillis() - start);
+			}
+		} catch (IOException e) {
+			log.warn("Persistent cache compaction failed: {}.", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,353 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Key-value store in append-only, memory-mapped segment files.
+ *
+ * Each record holds the key, the value and its validity (stored at, expires
+ * at), protected by a CRC32. A record is written before its magic number, so a
+ * record torn by a crash is not valid and ends the replay of its segment. The
+ * index of the latest record per key is rebuilt from the segments on open;
+ * values are read from the mapped segments, i.e. from the page cache.
+ * Compaction rewrites the live records into new segments and deletes the old
+ * ones.
+ */
+public class SegmentStore implements Closeable {
+
+	static final int MAGIC = 0x4d435043;
+
+	// magic, crc, key length, value length, stored at, expires at
+	static final int HEADER = 4 + 4 + 4 + 4 + 8 + 8;
+
+	private static final String SUFFIX = ".seg";
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Path directory;
+
+	private final int segmentSize;
+
+	private final List<Segment> segments = new ArrayList<>();
+
+	private final Map<String, Location> index = new HashMap<>();
+
+	private long liveBytes;
+
+	private long totalBytes;
+
+	private long nextId;
+
+	/**
+	 * Stored value with its validity.
+	 *
+	 * @param value     the value.
+	 * @param storedAt  the time the value was stored in milliseconds.
+	 * @param expiresAt the time the value expires in milliseconds.
+	 */
+	public record Entry(byte[] value, long storedAt, long expiresAt) {
+	}
+
+	private record Location(Segment segment, int offset, int keyLength, int valueLength, long storedAt,
+			long expiresAt) {
+
+		int size()
+		{
+			return HEADER + keyLength + valueLength;
+		}
+	}
+
+	private static class Segment {
+
+		final long id;
+
+		final Path path;
+
+		final FileChannel channel;
+
+		final MappedByteBuffer buffer;
+
+		int position;
+
+		Segment(final long id, final Path path, final int capacity) throws IOException {
+			this.id = id;
+			this.path = path;
+			this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			this.buffer = channel.map(MapMode.READ_WRITE, 0, Math.max(capacity, channel.size()));
+		}
+
+		void close() throws IOException
+		{
+			buffer.force();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Opens the store and replays the existing segments.
+	 *
+	 * @param directory   the directory of the segment files.
+	 * @param segmentSize the size of a segment file in bytes.
+	 * @throws IOException if the segments cannot be opened.
+	 */
+	public SegmentStore(final Path directory, final int segmentSize) throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		Files.createDirectories(directory);
+
+		final List<Long> ids = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			for (final Path file : files) {
+				final String name = file.getFileName().toString();
+				try {
+					ids.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())));
+				} catch (NumberFormatException e) {
+					// Not a segment.
+				}
+			}
+		}
+		ids.sort(null);
+		for (final long id : ids) {
+			final Segment segment = new Segment(id, segmentPath(id), 0);
+			segments.add(segment);
+			replay(segment);
+			nextId = id + 1;
+		}
+	}
+
+	/**
+	 * Returns the entry of the key.
+	 *
+	 * @param key the key.
+	 * @return the entry or null.
+	 */
+	public Entry get(final String key)
+	{
+		lock.readLock().lock();
+		try {
+			final Location location = index.get(key);
+			if (location == null) {
+				return null;
+			}
+			final byte[] value = new byte[location.valueLength()];
+			location.segment().buffer.get(location.offset() + HEADER + location.keyLength(), value);
+			return new Entry(value, location.storedAt(), location.expiresAt());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Appends a value for the key.
+	 *
+	 * @param key       the key.
+	 * @param value     the value.
+	 * @param storedAt  the time the value was stored in milliseconds.
+	 * @param expiresAt the time the value expires in milliseconds.
+	 * @throws IOException if a new segment cannot be created.
+	 */
+	public void put(final String key, final byte[] value, final long storedAt, final long expiresAt)
+			throws IOException
+	{
+		lock.writeLock().lock();
+		try {
+			append(key, value, storedAt, expiresAt);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of keys.
+	 *
+	 * @return the number of keys.
+	 */
+	public int size()
+	{
+		lock.readLock().lock();
+		try {
+			return index.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the share of bytes in the segments not used by live records.
+	 *
+	 * @return the dead ratio between 0 and 1.
+	 */
+	public double deadRatio()
+	{
+		lock.readLock().lock();
+		try {
+			return totalBytes == 0 ? 0d : 1d - (double) liveBytes / totalBytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Rewrites the live records into new segments and deletes the old segments.
+	 * A crash during compaction leaves duplicates, which the replay resolves in
+	 * favour of the newer segments.
+	 *
+	 * @param dropExpiredBefore records expired before this time (milliseconds)
+	 *                          are dropped.
+	 * @throws IOException if the new segments cannot be written.
+	 */
+	public void compact(final long dropExpiredBefore) throws IOException
+	{
+		lock.writeLock().lock();
+		try {
+			final List<Segment> old = new ArrayList<>(segments);
+			final Map<String, Location> live = new HashMap<>(index);
+			segments.clear();
+			index.clear();
+			liveBytes = 0;
+			totalBytes = 0;
+			for (final Map.Entry<String, Location> entry : live.entrySet()) {
+				final Location location = entry.getValue();
+				if (location.expiresAt() < dropExpiredBefore) {
+					continue;
+				}
+				final byte[] value = new byte[location.valueLength()];
+				location.segment().buffer.get(location.offset() + HEADER + location.keyLength(), value);
+				append(entry.getKey(), value, location.storedAt(), location.expiresAt());
+			}
+			for (final Segment segment : segments) {
+				segment.buffer.force();
+			}
+			for (final Segment segment : old) {
+				segment.channel.close();
+				Files.deleteIfExists(segment.path);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		lock.writeLock().lock();
+		try {
+			for (final Segment segment : segments) {
+				segment.close();
+			}
+			segments.clear();
+			index.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void append(final String key, final byte[] value, final long storedAt, final long expiresAt)
+			throws IOException
+	{
+		final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		final int size = HEADER + keyBytes.length + value.length;
+		Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+		if (segment == null || segment.buffer.capacity() - segment.position < size) {
+			final long id = nextId++;
+			segment = new Segment(id, segmentPath(id), Math.max(segmentSize, size));
+			segments.add(segment);
+		}
+
+		final int offset = segment.position;
+		final MappedByteBuffer buffer = segment.buffer;
+		buffer.putInt(offset + 8, keyBytes.length);
+		buffer.putInt(offset + 12, value.length);
+		buffer.putLong(offset + 16, storedAt);
+		buffer.putLong(offset + 24, expiresAt);
+		buffer.put(offset + HEADER, keyBytes);
+		buffer.put(offset + HEADER + keyBytes.length, value);
+		buffer.putInt(offset + 4, crc(buffer, offset, keyBytes.length, value.length));
+		buffer.putInt(offset, MAGIC);
+		segment.position = offset + size;
+
+		register(key, new Location(segment, offset, keyBytes.length, value.length, storedAt, expiresAt));
+	}
+
+	private void replay(final Segment segment)
+	{
+		final MappedByteBuffer buffer = segment.buffer;
+		int offset = 0;
+		while (offset + HEADER <= buffer.capacity() && buffer.getInt(offset) == MAGIC) {
+			final int keyLength = buffer.getInt(offset + 8);
+			final int valueLength = buffer.getInt(offset + 12);
+			if (keyLength < 0 || valueLength < 0
+					|| (long) offset + HEADER + keyLength + valueLength > buffer.capacity()
+					|| buffer.getInt(offset + 4) != crc(buffer, offset, keyLength, valueLength)) {
+				break;
+			}
+			final byte[] key = new byte[keyLength];
+			buffer.get(offset + HEADER, key);
+			register(new String(key, StandardCharsets.UTF_8), new Location(segment, offset, keyLength, valueLength,
+					buffer.getLong(offset + 16), buffer.getLong(offset + 24)));
+			offset += HEADER + keyLength + valueLength;
+		}
+		segment.position = offset;
+	}
+
+	private void register(final String key, final Location location)
+	{
+		final Location previous = index.put(key, location);
+		if (previous != null) {
+			liveBytes -= previous.size();
+		}
+		liveBytes += location.size();
+		totalBytes += location.size();
+	}
+
+	private static int crc(final MappedByteBuffer buffer, final int offset, final int keyLength,
+			final int valueLength)
+	{
+		final CRC32 crc = new CRC32();
+		crc.update(buffer.slice(offset + 8, HEADER - 8 + keyLength + valueLength));
+		return (int) crc.getValue();
+	}
+
+	private Path segmentPath(final long id)
+	{
+		return directory.resolve(String.format("%016d%s", id, SUFFIX));
+	}
+}
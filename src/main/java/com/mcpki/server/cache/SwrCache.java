@@ -0,0 +1,202 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory cache with stale-while-revalidate semantics.
+ *
+ * Entries younger than the soft time to live are served directly. Entries
+ * between the soft and the hard time to live are served directly while one
+ * background refresh runs. Older or missing entries are loaded by the caller;
+ * concurrent callers of the same key share one load. If a load fails, the last
+ * good value is served and flagged as stale.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public class SwrCache<K, V> {
+
+	private static final Logger log = LoggerFactory.getLogger(SwrCache.class);
+
+	private final String name;
+
+	private final long softTtl;
+
+	private final long hardTtl;
+
+	private final Executor executor;
+
+	private final LongSupplier clock;
+
+	private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+	private final Map<K, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+
+	private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Loads a value; throws if the value cannot be loaded.
+	 *
+	 * @param <V> the value type.
+	 */
+	@FunctionalInterface
+	public interface Loader<V> {
+
+		V load() throws Exception;
+	}
+
+	/**
+	 * Cached value.
+	 *
+	 * @param value the value.
+	 * @param stale true if the value is past its hard time to live because the
+	 *              reload failed.
+	 */
+	public record Value<V>(V value, boolean stale) {
+	}
+
+	private record Entry<V>(V value, long loadedAt) {
+	}
+
+	/**
+	 * Creates the cache.
+	 *
+	 * @param name     the name (for logging).
+	 * @param softTtl  the time after which entries are refreshed in the
+	 *                 background.
+	 * @param hardTtl  the time after which entries are reloaded by the caller.
+	 * @param executor the executor of the background refreshes.
+	 */
+	public SwrCache(final String name, final Duration softTtl, final Duration hardTtl, final Executor executor) {
+		this(name, softTtl, hardTtl, executor, System::currentTimeMillis);
+	}
+
+	SwrCache(final String name, final Duration softTtl, final Duration hardTtl, final Executor executor,
+			final LongSupplier clock) {
+		this.name = name;
+		this.softTtl = softTtl.toMillis();
+		this.hardTtl = Math.max(softTtl.toMillis(), hardTtl.toMillis());
+		this.executor = executor;
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the value of the key.
+	 *
+	 * @param key    the key.
+	 * @param loader the loader.
+	 * @return the value.
+	 * @throws Exception the exception of the loader if there is no last good
+	 *                   value.
+	 */
+	public Value<V> get(final K key, final Loader<V> loader) throws Exception
+	{
+		final Entry<V> entry = entries.get(key);
+		final long now = clock.getAsLong();
+		if (entry != null) {
+			final long age = now - entry.loadedAt();
+			if (age < softTtl) {
+				return new Value<>(entry.value(), false);
+			}
+			if (age < hardTtl) {
+				refresh(key, loader);
+				return new Value<>(entry.value(), false);
+			}
+		}
+
+		try {
+			return new Value<>(load(key, loader).join(), false);
+		} catch (CompletionException e) {
+			if (entry != null) {
+				log.warn("Serving stale {} for {}: {}.", name, key, e.getCause().getMessage());
+				return new Value<>(entry.value(), true);
+			}
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+	}
+
+	/**
+	 * Removes the entry of the key.
+	 *
+	 * @param key the key.
+	 */
+	public void invalidate(final K key)
+	{
+		entries.remove(key);
+	}
+
+	private void refresh(final K key, final Loader<V> loader)
+	{
+		if (!refreshing.add(key)) {
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					load(key, loader).exceptionally(e -> {
+						log.warn("Background refresh of {} for {} failed: {}.", name, key, e.getMessage());
+						return null;
+					});
+				} finally {
+					refreshing.remove(key);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			refreshing.remove(key);
+		}
+	}
+
+	/**
+	 * Loads the value, or joins the running load of the key.
+	 */
+	private CompletableFuture<V> load(final K key, final Loader<V> loader)
+	{
+		final CompletableFuture<V> future = new CompletableFuture<>();
+		final CompletableFuture<V> running = loads.putIfAbsent(key, future);
+		if (running != null) {
+			return running;
+		}
+		try {
+			final V value = loader.load();
+			entries.put(key, new Entry<>(value, clock.getAsLong()));
+			future.complete(value);
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+		} finally {
+			loads.remove(key, future);
+		}
+		return future;
+	}
+}
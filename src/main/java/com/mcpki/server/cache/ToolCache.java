@@ -0,0 +1,68 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the results of an MCP tool method.
+ *
+ * The cache is named after the tool and each attribute can be overridden with
+ * the properties com.mcpki.server.cache.tool.&lt;tool&gt;.enabled, .ttl.seconds,
+ * .max.entries and .eviction. Results are cached only if they carry no
+ * error_message and are not stale, see {@link ToolResultCache}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ToolCache {
+
+	/**
+	 * Time to live of the results in seconds.
+	 */
+	long ttlSeconds() default 60;
+
+	/**
+	 * Names of the parameters the key is derived from. All parameters except the
+	 * MCP exchange if empty.
+	 */
+	String[] key() default {};
+
+	/**
+	 * Maximum number of cached results.
+	 */
+	int maxEntries() default 1000;
+
+	/**
+	 * Eviction policy once the cache is full.
+	 */
+	BoundedCache.Eviction eviction() default BoundedCache.Eviction.TINY_LFU;
+
+	/**
+	 * Events clearing the cache, e.g. {@link ToolResultCache#CRLS}.
+	 */
+	String[] invalidatedBy() default {};
+}
@@ -0,0 +1,52 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.cache;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.Ordered;
+
+/**
+ * Proxies beans with {@link ToolCache} methods, so that the calls go through
+ * the {@link ToolResultCache}.
+ *
+ * The proxies are class based (the tools do not implement interfaces) and are
+ * created before other post processors see the beans, so that the MCP tool
+ * registration picks up the proxy. The cache is looked up on the first call
+ * since post processors are created before the other beans.
+ */
+public class ToolCachePostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+	private static final long serialVersionUID = 1L;
+
+	public ToolCachePostProcessor(final ObjectProvider<ToolResultCache> toolResultCache) {
+		final MethodInterceptor interceptor = invocation -> toolResultCache.getObject().invoke(invocation);
+		this.advisor = new DefaultPointcutAdvisor(AnnotationMatchingPointcut.forMethodAnnotation(ToolCache.class),
+				interceptor);
+		setProxyTargetClass(true);
+		setBeforeExistingAdvisors(true);
+		setOrder(Ordered.HIGHEST_PRECEDENCE);
+	}
+}
@@ -0,0 +1,312 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.cache;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.annotation.McpTool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ReflectionUtils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import com.mcpki.server.util.CanonicalDn;
+
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+
+/**
+ * Result cache of the {@link ToolCache} annotated MCP tool methods.
+ *
+ * Results that are null, records with an error_message or "stale" flag, and
+ * strings that are no JSON document (sanitized error messages) or are flagged
+ * stale are not cached. Mutating tools clear the dependent caches with
+ * {@link #invalidate(String)}.
+ *
+ * Key parameters named *_dn are keyed by their {@link CanonicalDn}, so that
+ * spellings of the same DN share one entry.
+ *
+ * Hits, misses, evictions, the hit ratio, size and estimated memory are
+ * exported per tool as mcpki.cache.tool.*.
+ */
+@Service
+public class ToolResultCache implements MethodInterceptor {
+
+	private static final Logger log = LoggerFactory.getLogger(ToolResultCache.class);
+
+	/**
+	 * Event of issued or revoked certificates.
+	 */
+	public static final String CERTIFICATES = "certificates";
+
+	/**
+	 * Event of newly created CRLs.
+	 */
+	public static final String CRLS = "crls";
+
+	private static final String PREFIX = "com.mcpki.server.cache.tool.";
+
+	@Autowired
+	private Environment environment;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+
+	private final Map<Method, Binding> bindings = new ConcurrentHashMap<>();
+
+	/**
+	 * Cache of one tool method; the cache is null if disabled.
+	 */
+	private record Binding(String name, int[] keyParameters, boolean[] dnParameters, Set<String> invalidatedBy,
+			BoundedCache<List<Object>, Object> cache) {
+	}
+
+	@Override
+	public Object invoke(final MethodInvocation invocation) throws Throwable
+	{
+		final Binding binding = bindings.computeIfAbsent(invocation.getMethod(), this::bind);
+		if (binding.cache() == null) {
+			return invocation.proceed();
+		}
+
+		final Object[] arguments = invocation.getArguments();
+		final List<Object> key = new ArrayList<>(binding.keyParameters().length);
+		for (int i = 0; i < binding.keyParameters().length; i++) {
+			final Object argument = arguments[binding.keyParameters()[i]];
+			final CanonicalDn dn = binding.dnParameters()[i] && argument instanceof String text ? CanonicalDn.of(text)
+					: null;
+			key.add(dn != null ? dn : argument);
+		}
+
+		final Object cached = binding.cache().get(key);
+		if (cached != null) {
+			return cached;
+		}
+		final Object result = invocation.proceed();
+		if (isCacheable(result)) {
+			binding.cache().put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Clears the caches depending on the event.
+	 *
+	 * @param event the event, e.g. {@link #CERTIFICATES}.
+	 */
+	public void invalidate(final String event)
+	{
+		for (final Binding binding : bindings.values()) {
+			if (binding.cache() != null && binding.invalidatedBy().contains(event)) {
+				binding.cache().clear();
+				if (log.isDebugEnabled()) {
+					log.debug("Cleared result cache of {} on {}.", binding.name(), event);
+				}
+			}
+		}
+	}
+
+	private Binding bind(final Method method)
+	{
+		final ToolCache annotation = AnnotatedElementUtils.findMergedAnnotation(method, ToolCache.class);
+		final McpTool tool = AnnotatedElementUtils.findMergedAnnotation(method, McpTool.class);
+		final String name = tool != null && !tool.name().isEmpty() ? tool.name() : method.getName();
+		if (annotation == null || !environment.getProperty(PREFIX + name + ".enabled", Boolean.class, true)) {
+			return new Binding(name, new int[0], new boolean[0], Set.of(), null);
+		}
+
+		final long ttlSeconds = environment.getProperty(PREFIX + name + ".ttl.seconds", Long.class,
+				annotation.ttlSeconds());
+		final int maxEntries = environment.getProperty(PREFIX + name + ".max.entries", Integer.class,
+				annotation.maxEntries());
+		final BoundedCache.Eviction eviction = environment.getProperty(PREFIX + name + ".eviction",
+				BoundedCache.Eviction.class, annotation.eviction());
+
+		final BoundedCache<List<Object>, Object> cache = new BoundedCache<>(maxEntries, ttlSeconds * 1000, eviction,
+				ToolResultCache::estimateSize);
+		register(name, cache);
+		log.info("Caching results of {} for {} s (max. {} entries, {}).", name, ttlSeconds, maxEntries, eviction);
+		final int[] keyParameters = keyParameters(method, annotation.key());
+		return new Binding(name, keyParameters, dnParameters(method, keyParameters),
+				Set.of(annotation.invalidatedBy()), cache);
+	}
+
+	/**
+	 * Returns the indexes of the key parameters.
+	 */
+	private int[] keyParameters(final Method method, final String[] key)
+	{
+		final Class<?>[] types = method.getParameterTypes();
+		final String[] names = parameterNames.getParameterNames(method);
+		final List<String> keyNames = Arrays.asList(key);
+		if (!keyNames.isEmpty() && names == null) {
+			throw new IllegalStateException("Parameter names of " + method + " are not available.");
+		}
+
+		final List<Integer> indexes = new ArrayList<>();
+		for (int i = 0; i < types.length; i++) {
+			if (keyNames.isEmpty() ? !McpSyncServerExchange.class.isAssignableFrom(types[i])
+					: keyNames.contains(names[i])) {
+				indexes.add(i);
+			}
+		}
+		if (indexes.size() < keyNames.size()) {
+			throw new IllegalStateException("Unknown key parameter in " + keyNames + " of " + method + ".");
+		}
+		return indexes.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Returns which of the key parameters are DNs, by their name.
+	 */
+	private boolean[] dnParameters(final Method method, final int[] keyParameters)
+	{
+		final String[] names = parameterNames.getParameterNames(method);
+		final boolean[] dn = new boolean[keyParameters.length];
+		for (int i = 0; i < keyParameters.length; i++) {
+			dn[i] = names != null && names[keyParameters[i]].endsWith("_dn");
+		}
+		return dn;
+	}
+
+	private void register(final String name, final BoundedCache<List<Object>, Object> cache)
+	{
+		FunctionCounter.builder("mcpki.cache.tool.requests", cache, BoundedCache::hits).tag("tool", name)
+				.tag("result", "hit").register(meterRegistry);
+		FunctionCounter.builder("mcpki.cache.tool.requests", cache, BoundedCache::misses).tag("tool", name)
+				.tag("result", "miss").register(meterRegistry);
+		FunctionCounter.builder("mcpki.cache.tool.evictions", cache, BoundedCache::evictions).tag("tool", name)
+				.register(meterRegistry);
+		Gauge.builder("mcpki.cache.tool.hit.ratio", cache, c -> {
+			final long requests = c.hits() + c.misses();
+			return requests == 0 ? 0 : (double) c.hits() / requests;
+		}).tag("tool", name).register(meterRegistry);
+		Gauge.builder("mcpki.cache.tool.size", cache, BoundedCache::size).tag("tool", name).register(meterRegistry);
+		Gauge.builder("mcpki.cache.tool.memory", cache, BoundedCache::weight).tag("tool", name)
+				.baseUnit(BaseUnits.BYTES).register(meterRegistry);
+	}
+
+	/**
+	 * Returns true if the result is not an error or stale result.
+	 *
+	 * @param result the tool result.
+	 * @return true if the result can be cached.
+	 */
+	static boolean isCacheable(final Object result)
+	{
+		if (result == null) {
+			return false;
+		}
+		if (result instanceof CharSequence text) {
+			final String json = text.toString().strip();
+			return (json.startsWith("{") || json.startsWith("[")) && !json.contains("\"stale\":true");
+		}
+		if (result instanceof Record record) {
+			for (final RecordComponent component : record.getClass().getRecordComponents()) {
+				final Object value = value(record, component);
+				if ("error_message".equals(component.getName()) && value != null) {
+					return false;
+				}
+				if ("stale".equals(component.getName()) && Boolean.TRUE.equals(value)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a rough estimate of the memory size of a result (strings, arrays,
+	 * collections, maps and records are followed).
+	 *
+	 * @param value the value.
+	 * @return the estimated size in bytes.
+	 */
+	static long estimateSize(final Object value)
+	{
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof CharSequence text) {
+			return 40 + text.length();
+		}
+		if (value instanceof byte[] bytes) {
+			return 16 + bytes.length;
+		}
+		if (value instanceof Object[] array) {
+			long size = 16 + 8L * array.length;
+			for (final Object element : array) {
+				size += estimateSize(element);
+			}
+			return size;
+		}
+		if (value instanceof Collection<?> collection) {
+			long size = 48 + 8L * collection.size();
+			for (final Object element : collection) {
+				size += estimateSize(element);
+			}
+			return size;
+		}
+		if (value instanceof Map<?, ?> map) {
+			long size = 48 + 32L * map.size();
+			for (final Map.Entry<?, ?> entry : map.entrySet()) {
+				size += estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+			}
+			return size;
+		}
+		if (value instanceof Record record) {
+			long size = 16;
+			for (final RecordComponent component : record.getClass().getRecordComponents()) {
+				size += 8 + estimateSize(value(record, component));
+			}
+			return size;
+		}
+		return 16;
+	}
+
+	private static Object value(final Record record, final RecordComponent component)
+	{
+		final Method accessor = component.getAccessor();
+		ReflectionUtils.makeAccessible(accessor);
+		return ReflectionUtils.invokeMethod(accessor, record);
+	}
+}
@@ -0,0 +1,480 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.ejbca;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriUtils;
+
+import com.mcpki.server.cache.BoundedCache;
+import com.mcpki.server.util.McpUtil;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Client of the EJBCA REST API shared by the tools and background jobs.
+ *
+ * The request URIs are built from templates that are split into literals and
+ * variables once, the variables are percent-encoded (DNs as path segments,
+ * cached since the same CA DNs are used over and over) and the URI is handed
+ * to the REST template as java.net.URI, so that it is not parsed and encoded
+ * again. Errors are mapped to sanitized messages in one place.
+ *
+ * Transient failures are retried with jittered exponential backoff. Reads are
+ * retried on connection errors, timeouts and 502, 503 and 504 responses.
+ * Enrollment and revocation are sent with {@link #postIdempotent}: requests
+ * with the same idempotency key join the running request or get the response
+ * of the short-lived response cache, and they are only retried if the request
+ * cannot have reached EJBCA (connection refused, 503), so that retries do not
+ * issue duplicate certificates.
+ */
+@Component
+public class EjbcaClient {
+
+	private static final Logger log = LoggerFactory.getLogger(EjbcaClient.class);
+
+	/**
+	 * Maximum number of cached encoded path segments; further values are encoded
+	 * on each request.
+	 */
+	private static final int MAX_SEGMENTS = 1024;
+
+	/**
+	 * Maximum number of cached responses of idempotent requests.
+	 */
+	private static final int MAX_RESPONSES = 10_000;
+
+	/**
+	 * The EJBCA REST endpoints, relative to the base URL.
+	 */
+	public enum Endpoint {
+
+		CAS("/v1/ca?includeExternal={external}"),
+
+		CA_CERTIFICATE("/v1/ca/{subject_dn}/certificate/download"),
+
+		LATEST_CRL("/v1/ca/{issuer_dn}/getLatestCrl?deltaCrl=false&crlPartitionIndex=0"),
+
+		CREATE_CRL("/v1/ca/{issuer_dn}/createcrl?deltacrl=false"),
+
+		PKCS10_ENROLL("/v1/certificate/pkcs10enroll"),
+
+		REVOKE("/v1/certificate/{issuer_dn}/{serial_number}/revoke?reason={reason}"),
+
+		EXPIRE("/v1/certificate/expire?days={days}&offset={offset}&maxNumberOfResults={max}"),
+
+		COUNT("/v2/certificate/count?isActive={active}"),
+
+		CERTIFICATE_PROFILE("/v2/certificate/profile/{name}"),
+
+		SEARCH("/v2/certificate/search");
+
+		private final String template;
+
+		private final String[] literals;
+
+		private final boolean[] query;
+
+		Endpoint(final String template) {
+			this.template = template;
+			final List<String> parts = new ArrayList<>();
+			final List<Boolean> inQuery = new ArrayList<>();
+			int start = 0;
+			int open;
+			while ((open = template.indexOf('{', start)) >= 0) {
+				parts.add(template.substring(start, open));
+				inQuery.add(template.indexOf('?') >= 0 && template.indexOf('?') < open);
+				start = template.indexOf('}', open) + 1;
+			}
+			parts.add(template.substring(start));
+			this.literals = parts.toArray(new String[0]);
+			this.query = new boolean[inQuery.size()];
+			for (int i = 0; i < query.length; i++) {
+				query[i] = inQuery.get(i);
+			}
+		}
+
+		/**
+		 * Returns the template, e.g. /v1/ca/{issuer_dn}/certificate/download.
+		 *
+		 * @return the template.
+		 */
+		public String template()
+		{
+			return template;
+		}
+
+		/**
+		 * Returns the number of variables of the template.
+		 *
+		 * @return the number of variables.
+		 */
+		public int variables()
+		{
+			return query.length;
+		}
+	}
+
+	@Value("${com.mcpki.server.tools.ejbca.rest.url}")
+	private String baseUrl;
+
+	@Autowired
+	@Qualifier("tls")
+	private RestTemplate restTemplate;
+
+	@Value("${com.mcpki.server.tools.ejbca.rest.retry.attempts:3}")
+	private int retryAttempts;
+
+	@Value("${com.mcpki.server.tools.ejbca.rest.retry.backoff.ms:100}")
+	private long retryBackoffMs;
+
+	@Value("${com.mcpki.server.tools.ejbca.rest.retry.backoff.max.ms:2000}")
+	private long retryBackoffMaxMs;
+
+	@Value("${com.mcpki.server.tools.ejbca.rest.idempotency.ttl.seconds:300}")
+	private long idempotencyTtlSeconds;
+
+	private final Map<String, String> segments = new ConcurrentHashMap<>();
+
+	private final Map<String, CompletableFuture<Object>> running = new ConcurrentHashMap<>();
+
+	private BoundedCache<String, Object> responses;
+
+	/**
+	 * Response of a request sent with an idempotency key.
+	 *
+	 * @param response the response.
+	 * @param replayed true if it is the response of an earlier or concurrent
+	 *                 request with the same key, i.e. no request was sent.
+	 */
+	public record Idempotent<T>(T response, boolean replayed) {
+	}
+
+	public EjbcaClient() {
+	}
+
+	EjbcaClient(final String baseUrl, final RestTemplate restTemplate) {
+		this(baseUrl, restTemplate, 1, 0);
+	}
+
+	EjbcaClient(final String baseUrl, final RestTemplate restTemplate, final int retryAttempts,
+			final long retryBackoffMs) {
+		this.baseUrl = baseUrl;
+		this.restTemplate = restTemplate;
+		this.retryAttempts = retryAttempts;
+		this.retryBackoffMs = retryBackoffMs;
+		this.retryBackoffMaxMs = retryBackoffMs;
+		this.idempotencyTtlSeconds = 300;
+		init();
+	}
+
+	@PostConstruct
+	void init()
+	{
+		responses = new BoundedCache<>(MAX_RESPONSES, idempotencyTtlSeconds * 1000, BoundedCache.Eviction.LRU,
+				response -> 1024);
+	}
+
+	/**
+	 * Returns the idempotency key of a request, the SHA-256 hash of the parts,
+	 * e.g. of the CSR, the username and the password of an enrollment. The
+	 * credentials must be part of the key, so that a request with a wrong
+	 * password does not get the replayed response of an authorized one.
+	 *
+	 * @param parts the parts identifying the request.
+	 * @return the hex encoded key.
+	 */
+	public static String idempotencyKey(final String... parts)
+	{
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (final String part : parts) {
+				digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns the URI of the endpoint with the encoded variables.
+	 *
+	 * @param endpoint the endpoint.
+	 * @param values   the values of the variables in the order of the template.
+	 * @return the URI.
+	 */
+	public URI uri(final Endpoint endpoint, final Object... values)
+	{
+		if (values.length != endpoint.variables()) {
+			throw new IllegalArgumentException(
+					endpoint.template() + " takes " + endpoint.variables() + " values, not " + values.length + ".");
+		}
+		final StringBuilder uri = new StringBuilder(baseUrl.length() + endpoint.template().length() + 64)
+				.append(baseUrl).append(endpoint.literals[0]);
+		for (int i = 0; i < values.length; i++) {
+			final Object value = values[i];
+			if (value instanceof Number || value instanceof Boolean) {
+				uri.append(value);
+			} else if (endpoint.query[i]) {
+				uri.append(UriUtils.encodeQueryParam(String.valueOf(value), StandardCharsets.UTF_8));
+			} else {
+				uri.append(segment(String.valueOf(value)));
+			}
+			uri.append(endpoint.literals[i + 1]);
+		}
+		final URI result = URI.create(uri.toString());
+		if (log.isDebugEnabled()) {
+			log.debug("Requested URL: {}", result);
+		}
+		return result;
+	}
+
+	/**
+	 * Sends a GET request and decodes the response.
+	 *
+	 * @param <T>      the response type.
+	 * @param endpoint the endpoint.
+	 * @param type     the response type, String for the raw payload.
+	 * @param values   the values of the variables.
+	 * @return the response.
+	 * @throws RestClientException on connection and HTTP errors.
+	 */
+	public <T> T get(final Endpoint endpoint, final Class<T> type, final Object... values) throws RestClientException
+	{
+		return retry(endpoint, true, () -> restTemplate.getForObject(uri(endpoint, values), type));
+	}
+
+	/**
+	 * Sends a POST request with a JSON body and decodes the response. The body is
+	 * serialized straight into the request. The request is not retried.
+	 *
+	 * @param <T>      the response type.
+	 * @param endpoint the endpoint.
+	 * @param body     the request body, a record or a JSON string.
+	 * @param type     the response type.
+	 * @param values   the values of the variables.
+	 * @return the response.
+	 * @throws RestClientException on connection and HTTP errors.
+	 */
+	public <T> T post(final Endpoint endpoint, final Object body, final Class<T> type, final Object... values)
+			throws RestClientException
+	{
+		final HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		return restTemplate.postForObject(uri(endpoint, values), new HttpEntity<>(body, headers), type);
+	}
+
+	/**
+	 * Sends a POST request at most once per idempotency key within the time to
+	 * live of the responses. A request with the key of a running request waits
+	 * for its response, a request with the key of a completed request gets the
+	 * cached response. Only failures before the request reached EJBCA are
+	 * retried.
+	 *
+	 * @param <T>            the response type.
+	 * @param idempotencyKey the idempotency key, see
+	 *                       {@link #idempotencyKey(String...)}.
+	 * @param endpoint       the endpoint.
+	 * @param body           the request body, a record or a JSON string.
+	 * @param type           the response type.
+	 * @param values         the values of the variables.
+	 * @return the response and whether it was replayed.
+	 * @throws RestClientException on connection and HTTP errors.
+	 */
+	public <T> Idempotent<T> postIdempotent(final String idempotencyKey, final Endpoint endpoint, final Object body,
+			final Class<T> type, final Object... values) throws RestClientException
+	{
+		final String key = endpoint.name() + ":" + idempotencyKey;
+		Object cached = responses.get(key);
+		if (cached != null) {
+			return new Idempotent<>(type.cast(cached), true);
+		}
+
+		final CompletableFuture<Object> future = new CompletableFuture<>();
+		final CompletableFuture<Object> other = running.putIfAbsent(key, future);
+		if (other != null) {
+			try {
+				return new Idempotent<>(type.cast(other.join()), true);
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+			}
+		}
+		try {
+			// The request may have completed between the lookup and the registration.
+			cached = responses.get(key);
+			if (cached != null) {
+				future.complete(cached);
+				return new Idempotent<>(type.cast(cached), true);
+			}
+			final T response = retry(endpoint, false, () -> post(endpoint, body, type, values));
+			if (response != null) {
+				responses.put(key, response);
+			}
+			future.complete(response);
+			return new Idempotent<>(response, false);
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			running.remove(key);
+		}
+	}
+
+	/**
+	 * Sends a GET request and reads the response body with the extractor, e.g.
+	 * to stream large responses.
+	 *
+	 * @param <T>       the result type.
+	 * @param endpoint  the endpoint.
+	 * @param extractor the response extractor.
+	 * @param values    the values of the variables.
+	 * @return the result of the extractor.
+	 * @throws RestClientException on connection and HTTP errors.
+	 */
+	public <T> T execute(final Endpoint endpoint, final ResponseExtractor<T> extractor, final Object... values)
+			throws RestClientException
+	{
+		return retry(endpoint, true, () -> restTemplate.execute(uri(endpoint, values), HttpMethod.GET, null, extractor));
+	}
+
+	/**
+	 * Maps an exception of a request to an error message for the MCP client,
+	 * without the EJBCA URL.
+	 *
+	 * @param e the exception.
+	 * @return the sanitized error message.
+	 */
+	public String errorMessage(final Exception e)
+	{
+		String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+		if (e instanceof RestClientException) {
+			final Throwable cause = ((RestClientException) e).getRootCause();
+			if (cause != null && cause.getMessage() != null && !message.contains(cause.getMessage())) {
+				message = message + " (" + cause.getMessage() + ")";
+			}
+		}
+		return McpUtil.sanitizeResponse(message, baseUrl);
+	}
+
+	/**
+	 * Sends the request and retries transient failures with full jitter
+	 * exponential backoff.
+	 */
+	private <T> T retry(final Endpoint endpoint, final boolean read, final Supplier<T> request)
+			throws RestClientException
+	{
+		for (int attempt = 1;; attempt++) {
+			try {
+				return request.get();
+			} catch (RestClientException e) {
+				if (attempt >= retryAttempts || !isTransient(e, read)) {
+					throw e;
+				}
+				final long delay = ThreadLocalRandom.current()
+						.nextLong(Math.min(retryBackoffMaxMs, retryBackoffMs << Math.min(attempt - 1, 20)) + 1);
+				log.info("Retrying {} in {} ms ({}/{}): {}", endpoint, delay, attempt, retryAttempts - 1,
+						errorMessage(e));
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the request failed transiently. Requests that are not reads
+	 * are only retried if they cannot have reached EJBCA.
+	 *
+	 * @param e    the failure.
+	 * @param read true if the request is a read.
+	 * @return true if the request can be retried.
+	 */
+	static boolean isTransient(final RestClientException e, final boolean read)
+	{
+		if (e instanceof HttpStatusCodeException) {
+			final int status = ((HttpStatusCodeException) e).getStatusCode().value();
+			return status == 503 || read && (status == 502 || status == 504);
+		}
+		if (!(e instanceof ResourceAccessException)) {
+			return false;
+		}
+		final Throwable cause = e.getRootCause();
+		if (cause instanceof ConnectException || cause instanceof NoRouteToHostException
+				|| cause instanceof UnknownHostException) {
+			return true;
+		}
+		return read && (cause instanceof SocketTimeoutException || cause instanceof SocketException);
+	}
+
+	/**
+	 * Returns the percent-encoded path segment of the value, e.g. of a DN.
+	 */
+	private String segment(final String value)
+	{
+		final String cached = segments.get(value);
+		if (cached != null) {
+			return cached;
+		}
+		final String encoded = UriUtils.encodePathSegment(value, StandardCharsets.UTF_8);
+		if (segments.size() < MAX_SEGMENTS) {
+			segments.put(value, encoded);
+		}
+		return encoded;
+	}
+}
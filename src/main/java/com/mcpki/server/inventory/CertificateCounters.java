@@ -0,0 +1,344 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.inventory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Local certificate counters (total and active, overall and per issuer and
+ * profile), so that count queries do not run a count query on the CA
+ * database.
+ *
+ * The overall counters are seeded from the EJBCA count endpoint and updated
+ * with each successful enrollment and revocation through this server. The
+ * counters are reconciled periodically, which also corrects certificates that
+ * expired or were issued by other EJBCA clients in the meantime. The
+ * breakdown per issuer and profile is only available if it was seeded from a
+ * fresh certificate inventory at the last reconciliation; events alone cannot
+ * count it. Counters do not go below zero.
+ */
+@Service
+public class CertificateCounters {
+
+	private static final Logger log = LoggerFactory.getLogger(CertificateCounters.class);
+
+	@Value("${com.mcpki.server.counters.enabled:false}")
+	private boolean enabled;
+
+	@Value("${com.mcpki.server.counters.reconcile.interval.ms:900000}")
+	private long reconcileIntervalMs;
+
+	@Value("${com.mcpki.server.inventory.max.age.ms:300000}")
+	private long inventoryMaxAgeMs;
+
+	@Autowired
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private ObjectProvider<CertificateInventory> inventory;
+
+	private final AtomicLong total = new AtomicLong();
+
+	private final AtomicLong active = new AtomicLong();
+
+	/**
+	 * The breakdown, or null if the last reconciliation had no fresh inventory.
+	 */
+	private volatile Breakdown breakdown;
+
+	private volatile boolean seeded;
+
+	/**
+	 * Certificates revoked since the last reconciliation, which are not counted
+	 * again if the inventory does not know them.
+	 */
+	private final Set<String> revokedKeys = ConcurrentHashMap.newKeySet();
+
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Counter pair of a group.
+	 */
+	static final class Count {
+
+		final AtomicLong total = new AtomicLong();
+
+		final AtomicLong active = new AtomicLong();
+
+		Count() {
+		}
+
+		Count(final long[] counts) {
+			total.set(counts[0]);
+			active.set(counts[1]);
+		}
+	}
+
+	/**
+	 * Counters per issuer DN and per profile.
+	 */
+	private record Breakdown(Map<String, Count> byIssuer, Map<String, Count> byProfile) {
+	}
+
+	public CertificateCounters() {
+	}
+
+	CertificateCounters(final EjbcaClient ejbca, final ObjectProvider<CertificateInventory> inventory,
+			final long inventoryMaxAgeMs) {
+		this.enabled = true;
+		this.ejbca = ejbca;
+		this.inventory = inventory;
+		this.inventoryMaxAgeMs = inventoryMaxAgeMs;
+	}
+
+	/**
+	 * Response of the EJBCA certificate count.
+	 */
+	record CountResponse(Long count) {
+	}
+
+	/**
+	 * Counter values.
+	 *
+	 * @param count      the number of (active) certificates.
+	 * @param by_issuer  the number of (active) certificates per issuer DN, or
+	 *                   null if the breakdown is unavailable.
+	 * @param by_profile the number of (active) certificates per profile, or null
+	 *                   if the breakdown is unavailable.
+	 */
+	public record Snapshot(long count, Map<String, Long> by_issuer, Map<String, Long> by_profile) {
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start()
+	{
+		if (!enabled) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread thread = new Thread(r, "mcpki-counters");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::reconcile, 0, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop()
+	{
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns true if the counters are enabled and seeded.
+	 *
+	 * @return true if the counters can answer count queries.
+	 */
+	public boolean isReady()
+	{
+		return enabled && seeded;
+	}
+
+	/**
+	 * Returns true if the counters are enabled.
+	 *
+	 * @return true if enabled.
+	 */
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Counts an issued certificate.
+	 *
+	 * @param issuerDn the issuer DN (may be null).
+	 * @param profile  the certificate profile (may be null).
+	 */
+	public void issued(final String issuerDn, final String profile)
+	{
+		if (!enabled) {
+			return;
+		}
+		total.incrementAndGet();
+		active.incrementAndGet();
+		for (final Count count : groups(breakdown, canonicalIssuer(issuerDn), profile)) {
+			count.total.incrementAndGet();
+			count.active.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Counts a revoked certificate if it was active. With the inventory, the state
+	 * of the certificate record is checked (already revoked, on hold or expired
+	 * certificates are not counted) and the record is marked revoked until the
+	 * next synchronization. Without the inventory, each certificate is counted
+	 * once per reconciliation interval. Certificates released from hold are
+	 * corrected by the next reconciliation.
+	 *
+	 * @param issuerDn the issuer DN.
+	 * @param serial   the serial number in hex.
+	 */
+	public void revoked(final String issuerDn, final String serial)
+	{
+		if (!enabled) {
+			return;
+		}
+		final String issuer = canonicalIssuer(issuerDn);
+		final CertificateInventory local = inventory.getIfAvailable();
+		final CertificateRecord record = local != null ? local.get(issuer, serial) : null;
+		if (record != null) {
+			final long now = System.currentTimeMillis();
+			if (!record.isActive(now)) {
+				return;
+			}
+			local.upsert(List.of(new CertificateRecord(record.serial_number(), record.issuer_dn(),
+					record.subject_dn(), record.subject_alt_names(), record.certificate_profile(), record.not_before(),
+					record.not_after(), CertificateRecord.REVOKED, record.update_time())));
+		} else if (!revokedKeys.add(issuer + "|" + serial.toUpperCase())) {
+			return;
+		}
+		decrement(active);
+		for (final Count count : groups(breakdown, issuer, record != null ? record.certificate_profile() : null)) {
+			decrement(count.active);
+		}
+	}
+
+	/**
+	 * Returns the counter values.
+	 *
+	 * @param activeOnly true for the active certificates.
+	 * @return the counter values.
+	 */
+	public Snapshot snapshot(final boolean activeOnly)
+	{
+		final Breakdown current = breakdown;
+		if (current == null) {
+			return new Snapshot(activeOnly ? active.get() : total.get(), null, null);
+		}
+		return new Snapshot(activeOnly ? active.get() : total.get(), values(current.byIssuer(), activeOnly),
+				values(current.byProfile(), activeOnly));
+	}
+
+	/**
+	 * Reseeds the counters from EJBCA (overall) and the inventory (breakdown).
+	 * Without a fresh inventory the breakdown becomes unavailable.
+	 */
+	void reconcile()
+	{
+		try {
+			final long totalCount = count(false);
+			final long activeCount = count(true);
+
+			final CertificateInventory local = inventory.getIfAvailable();
+			final long now = System.currentTimeMillis();
+			Breakdown seededBreakdown = null;
+			if (local != null && local.isFresh(inventoryMaxAgeMs, now)) {
+				final Map<String, Count> issuers = new ConcurrentHashMap<>();
+				final Map<String, Count> profiles = new ConcurrentHashMap<>();
+				local.countBy(CertificateRecord::issuer_dn, now).forEach((k, v) -> issuers.put(k, new Count(v)));
+				local.countBy(CertificateRecord::certificate_profile, now)
+						.forEach((k, v) -> profiles.put(k, new Count(v)));
+				seededBreakdown = new Breakdown(issuers, profiles);
+			}
+
+			revokedKeys.clear();
+			final long drift = activeCount - active.get();
+			total.set(totalCount);
+			active.set(activeCount);
+			breakdown = seededBreakdown;
+			if (seeded && drift != 0) {
+				log.info("Reconciled certificate counters (active drift {}).", drift);
+			}
+			seeded = true;
+		} catch (RestClientException e) {
+			log.warn("Failed to reconcile certificate counters: {}.",
+					ejbca.errorMessage(e));
+		}
+	}
+
+	private long count(final boolean activeOnly)
+	{
+		final CountResponse response = ejbca.get(Endpoint.COUNT, CountResponse.class, activeOnly);
+		if (response == null || response.count() == null) {
+			throw new RestClientException("Certificate count response without count.");
+		}
+		return response.count();
+	}
+
+	private static String canonicalIssuer(final String issuerDn)
+	{
+		return issuerDn == null ? null : CertificateRecord.canonicalIssuer(issuerDn);
+	}
+
+	private static void decrement(final AtomicLong counter)
+	{
+		counter.updateAndGet(value -> Math.max(0, value - 1));
+	}
+
+	private static Count[] groups(final Breakdown breakdown, final String issuerDn, final String profile)
+	{
+		if (breakdown == null || issuerDn == null && profile == null) {
+			return new Count[0];
+		}
+		if (profile == null) {
+			return new Count[] { breakdown.byIssuer().computeIfAbsent(issuerDn, k -> new Count()) };
+		}
+		if (issuerDn == null) {
+			return new Count[] { breakdown.byProfile().computeIfAbsent(profile, k -> new Count()) };
+		}
+		return new Count[] { breakdown.byIssuer().computeIfAbsent(issuerDn, k -> new Count()),
+				breakdown.byProfile().computeIfAbsent(profile, k -> new Count()) };
+	}
+
+	private static Map<String, Long> values(final Map<String, Count> counts, final boolean activeOnly)
+	{
+		final Map<String, Long> values = new TreeMap<>();
+		counts.forEach((k, v) -> values.put(k, activeOnly ? v.active.get() : v.total.get()));
+		return values;
+	}
+}
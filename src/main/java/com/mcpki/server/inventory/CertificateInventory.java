@@ -0,0 +1,403 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.inventory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Local mirror of the certificate metadata of the CA with indexes on subject,
+ * subject alternative names, issuer, certificate profile and expiry.
+ *
+ * Subject and SAN lookups match the beginning of the full value or of a single
+ * RDN or SAN value (case-insensitive), issuer and profile lookups the full
+ * value. Issuer DNs are compared in canonical form. The expiry index is ordered by the end of validity.
+ */
+public class CertificateInventory {
+
+	private static final Comparator<CertificateRecord> ORDER = Comparator.comparingLong(CertificateRecord::not_after)
+			.thenComparing(CertificateRecord::key);
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, CertificateRecord> records = new HashMap<>();
+
+	private final NavigableMap<String, Set<String>> subjectIndex = new TreeMap<>();
+
+	private final NavigableMap<String, Set<String>> sanIndex = new TreeMap<>();
+
+	private final Map<String, Set<String>> issuerIndex = new HashMap<>();
+
+	private final Map<String, Set<String>> profileIndex = new HashMap<>();
+
+	private final NavigableMap<Long, Set<String>> expiryIndex = new TreeMap<>();
+
+	private volatile long lastSync;
+
+	/**
+	 * Result page of a search.
+	 *
+	 * @param certificates the certificates of the page.
+	 * @param total        the total number of matches.
+	 */
+	public record Page(List<CertificateRecord> certificates, int total) {
+	}
+
+	/**
+	 * Inserts or replaces certificate records and updates the indexes.
+	 *
+	 * @param batch the records.
+	 */
+	public void upsert(final Collection<CertificateRecord> batch)
+	{
+		lock.writeLock().lock();
+		try {
+			for (final CertificateRecord record : batch) {
+				final String key = record.key();
+				final CertificateRecord previous = records.put(key, record);
+				if (previous != null) {
+					unindex(key, previous);
+				}
+				index(key, record);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Marks the inventory as synchronized at the given time.
+	 *
+	 * @param time the time in milliseconds.
+	 */
+	public void synced(final long time)
+	{
+		lastSync = time;
+	}
+
+	/**
+	 * Returns the time of the last completed synchronization, or 0 if the
+	 * inventory has not been synchronized yet.
+	 *
+	 * @return the time in milliseconds.
+	 */
+	public long lastSync()
+	{
+		return lastSync;
+	}
+
+	/**
+	 * Returns true if the inventory has been synchronized within the given age.
+	 *
+	 * @param maxAge the maximum age in milliseconds.
+	 * @param now    the time in milliseconds.
+	 * @return true if fresh.
+	 */
+	public boolean isFresh(final long maxAge, final long now)
+	{
+		final long sync = lastSync;
+		return sync != 0 && now - sync <= maxAge;
+	}
+
+	/**
+	 * Returns the number of certificates.
+	 *
+	 * @return the number of certificates.
+	 */
+	public int size()
+	{
+		lock.readLock().lock();
+		try {
+			return records.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts the certificates, optionally the active ones only.
+	 *
+	 * @param activeOnly true to count active certificates only.
+	 * @param now        the time in milliseconds.
+	 * @return the number of certificates.
+	 */
+	public long count(final boolean activeOnly, final long now)
+	{
+		lock.readLock().lock();
+		try {
+			if (!activeOnly) {
+				return records.size();
+			}
+			long count = 0;
+			for (final Set<String> keys : expiryIndex.tailMap(now, false).values()) {
+				for (final String key : keys) {
+					if (records.get(key).isActive(now)) {
+						count++;
+					}
+				}
+			}
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the certificate record.
+	 *
+	 * @param issuer the issuer DN.
+	 * @param serial the serial number in hex.
+	 * @return the record or null.
+	 */
+	public CertificateRecord get(final String issuer, final String serial)
+	{
+		lock.readLock().lock();
+		try {
+			return records.get(CertificateRecord.canonicalIssuer(issuer) + "|" + serial.toUpperCase());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts all and active certificates grouped by a property (e.g. issuer or
+	 * profile).
+	 *
+	 * @param property the grouping property.
+	 * @param now      the time in milliseconds.
+	 * @return the counts (total, active) per property value.
+	 */
+	public Map<String, long[]> countBy(final Function<CertificateRecord, String> property, final long now)
+	{
+		lock.readLock().lock();
+		try {
+			final Map<String, long[]> counts = new HashMap<>();
+			for (final CertificateRecord record : records.values()) {
+				final long[] count = counts.computeIfAbsent(String.valueOf(property.apply(record)), k -> new long[2]);
+				count[0]++;
+				if (record.isActive(now)) {
+					count[1]++;
+				}
+			}
+			return counts;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Searches the inventory. Null or empty criteria are ignored; the result is
+	 * ordered by the end of validity.
+	 *
+	 * @param subject     the subject DN or RDN value prefix.
+	 * @param san         the subject alternative name prefix.
+	 * @param issuer      the issuer DN.
+	 * @param profile     the certificate profile.
+	 * @param status      the status (e.g. ACTIVE, REVOKED).
+	 * @param expiresFrom the lower bound of the end of validity (inclusive).
+	 * @param expiresTo   the upper bound of the end of validity (exclusive).
+	 * @param offset      the offset of the page.
+	 * @param max         the maximum number of results.
+	 * @return the result page.
+	 */
+	public Page search(final String subject, final String san, final String issuer, final String profile,
+			final String status, final long expiresFrom, final long expiresTo, final int offset, final int max)
+	{
+		lock.readLock().lock();
+		try {
+			Set<String> candidates = null;
+			candidates = intersect(candidates, prefixLookup(subjectIndex, subject));
+			candidates = intersect(candidates, prefixLookup(sanIndex, san));
+			candidates = intersect(candidates,
+					exactLookup(issuerIndex, isEmpty(issuer) ? issuer : CertificateRecord.canonicalIssuer(issuer)));
+			candidates = intersect(candidates, exactLookup(profileIndex, profile));
+
+			final List<CertificateRecord> matches = new ArrayList<>();
+			if (candidates != null) {
+				// Index hit: filter the (usually few) candidates instead of the expiry range.
+				for (final String key : candidates) {
+					final CertificateRecord record = records.get(key);
+					if (record.not_after() >= expiresFrom && record.not_after() < expiresTo
+							&& matchesStatus(record, status)) {
+						matches.add(record);
+					}
+				}
+				matches.sort(ORDER);
+			} else {
+				for (final Set<String> keys : expiryIndex.subMap(expiresFrom, true, expiresTo, false).values()) {
+					for (final String key : keys) {
+						final CertificateRecord record = records.get(key);
+						if (matchesStatus(record, status)) {
+							matches.add(record);
+						}
+					}
+				}
+			}
+
+			final int from = Math.min(Math.max(offset, 0), matches.size());
+			final int to = Math.min(from + Math.max(max, 0), matches.size());
+			return new Page(new ArrayList<>(matches.subList(from, to)), matches.size());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private static boolean matchesStatus(final CertificateRecord record, final String status)
+	{
+		return isEmpty(status) || record.status().equalsIgnoreCase(status);
+	}
+
+	private void index(final String key, final CertificateRecord record)
+	{
+		for (final String term : subjectTerms(record.subject_dn())) {
+			subjectIndex.computeIfAbsent(term, k -> new HashSet<>()).add(key);
+		}
+		for (final String term : sanTerms(record.subject_alt_names())) {
+			sanIndex.computeIfAbsent(term, k -> new HashSet<>()).add(key);
+		}
+		issuerIndex.computeIfAbsent(normalize(record.issuer_dn()), k -> new HashSet<>()).add(key);
+		profileIndex.computeIfAbsent(normalize(record.certificate_profile()), k -> new HashSet<>()).add(key);
+		expiryIndex.computeIfAbsent(record.not_after(), k -> new TreeSet<>()).add(key);
+	}
+
+	private void unindex(final String key, final CertificateRecord record)
+	{
+		for (final String term : subjectTerms(record.subject_dn())) {
+			remove(subjectIndex, term, key);
+		}
+		for (final String term : sanTerms(record.subject_alt_names())) {
+			remove(sanIndex, term, key);
+		}
+		remove(issuerIndex, normalize(record.issuer_dn()), key);
+		remove(profileIndex, normalize(record.certificate_profile()), key);
+		remove(expiryIndex, record.not_after(), key);
+	}
+
+	private static <K> void remove(final Map<K, Set<String>> index, final K term, final String key)
+	{
+		final Set<String> keys = index.get(term);
+		if (keys != null && keys.remove(key) && keys.isEmpty()) {
+			index.remove(term);
+		}
+	}
+
+	private static Set<String> prefixLookup(final NavigableMap<String, Set<String>> index, final String prefix)
+	{
+		if (isEmpty(prefix)) {
+			return null;
+		}
+		final String from = normalize(prefix);
+		final Set<String> keys = new HashSet<>();
+		for (final Set<String> matches : index.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+			keys.addAll(matches);
+		}
+		return keys;
+	}
+
+	private static Set<String> exactLookup(final Map<String, Set<String>> index, final String value)
+	{
+		if (isEmpty(value)) {
+			return null;
+		}
+		final Set<String> keys = index.get(normalize(value));
+		return keys == null ? Set.of() : keys;
+	}
+
+	private static Set<String> intersect(final Set<String> candidates, final Set<String> keys)
+	{
+		if (keys == null) {
+			return candidates;
+		}
+		if (candidates == null) {
+			return keys;
+		}
+		final Set<String> smaller = candidates.size() <= keys.size() ? candidates : keys;
+		final Set<String> larger = smaller == candidates ? keys : candidates;
+		final Set<String> result = new HashSet<>();
+		for (final String key : smaller) {
+			if (larger.contains(key)) {
+				result.add(key);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the full DN and the values of its RDNs, e.g. "cn=www.mcpki.org,o=x",
+	 * "www.mcpki.org" and "x".
+	 */
+	static Set<String> subjectTerms(final String dn)
+	{
+		final Set<String> terms = new HashSet<>();
+		if (isEmpty(dn)) {
+			return terms;
+		}
+		terms.add(normalize(dn));
+		for (final String rdn : dn.split("(?<!\\\\),")) {
+			final int eq = rdn.indexOf('=');
+			if (eq > 0 && eq < rdn.length() - 1) {
+				terms.add(normalize(rdn.substring(eq + 1)));
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * Returns the SAN values without their type, e.g. "www.mcpki.org" for
+	 * "dNSName=www.mcpki.org".
+	 */
+	static Set<String> sanTerms(final List<String> sans)
+	{
+		final Set<String> terms = new HashSet<>();
+		if (sans == null) {
+			return terms;
+		}
+		for (final String san : sans) {
+			final int eq = san.indexOf('=');
+			terms.add(normalize(eq > 0 ? san.substring(eq + 1) : san));
+		}
+		return terms;
+	}
+
+	private static String normalize(final String value)
+	{
+		return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+	}
+
+	private static boolean isEmpty(final String value)
+	{
+		return value == null || value.isBlank();
+	}
+}
@@ -0,0 +1,93 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.inventory;
+
+import java.util.List;
+
+import com.mcpki.server.util.CanonicalDn;
+
+// @formatter:off
+/**
+ * Certificate metadata mirrored from EJBCA. The issuer DN is kept in canonical
+ * form (see {@link CanonicalDn}), so that it matches the issuer DNs of the
+ * tool parameters.
+ *
+ * {
+ *   "serial_number": 			"3317571EB0DF61426A1A6A380DB03C23A1266E8E",
+ *   "issuer_dn": 				"CN=mcpki-dilithium2-root-ca,O=mcpki.org",
+ *   "subject_dn": 				"CN=www.mcpki.org,O=mcpki.org",
+ *   "subject_alt_names": 		["dNSName=www.mcpki.org"],
+ *   "certificate_profile": 	"SERVER",
+ *   "not_before": 				1751466855000,
+ *   "not_after": 				1783002855000,
+ *   "status": 					"ACTIVE",
+ *   "update_time": 			1751466855000
+ * }
+ */
+// @formatter:on
+public record CertificateRecord(String serial_number, String issuer_dn, String subject_dn,
+		List<String> subject_alt_names, String certificate_profile, long not_before, long not_after, String status,
+		long update_time) {
+
+	public static final String ACTIVE = "ACTIVE";
+
+	public static final String REVOKED = "REVOKED";
+
+	public CertificateRecord {
+		issuer_dn = canonicalIssuer(issuer_dn);
+	}
+
+	/**
+	 * Returns the canonical form of an issuer DN, or the DN itself if it cannot
+	 * be parsed.
+	 *
+	 * @param dn the issuer DN.
+	 * @return the canonical issuer DN.
+	 */
+	static String canonicalIssuer(final String dn)
+	{
+		final CanonicalDn canonical = CanonicalDn.of(dn);
+		return canonical == null ? dn : canonical.name();
+	}
+
+	/**
+	 * Returns the key of the certificate in the inventory (issuer and serial
+	 * number identify a certificate).
+	 *
+	 * @return the key.
+	 */
+	public String key()
+	{
+		return issuer_dn + "|" + serial_number;
+	}
+
+	/**
+	 * Returns true if the certificate is active at the given time.
+	 *
+	 * @param now the time in milliseconds.
+	 * @return true if active.
+	 */
+	public boolean isActive(final long now)
+	{
+		return ACTIVE.equals(status) && not_before <= now && now < not_after;
+	}
+}
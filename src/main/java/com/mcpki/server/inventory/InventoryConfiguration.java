@@ -0,0 +1,50 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.inventory;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configures the local certificate inventory mirrored from EJBCA.
+ */
+@Configuration
+@ConditionalOnProperty(name = "com.mcpki.server.inventory.enabled", havingValue = "true", matchIfMissing = false)
+public class InventoryConfiguration {
+
+	@Bean
+	public CertificateInventory certificateInventory(final MeterRegistry meterRegistry)
+	{
+		final CertificateInventory inventory = new CertificateInventory();
+		Gauge.builder("mcpki.inventory.size", inventory, CertificateInventory::size)
+				.description("Number of certificates in the local inventory.").register(meterRegistry);
+		Gauge.builder("mcpki.inventory.age", inventory,
+				i -> i.lastSync() == 0 ? Double.NaN : System.currentTimeMillis() - i.lastSync())
+				.baseUnit("milliseconds").description("Time since the last inventory synchronization.")
+				.register(meterRegistry);
+		return inventory;
+	}
+}
@@ -0,0 +1,262 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.inventory;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Synchronizes the certificate inventory incrementally with the EJBCA v2
+ * certificate search: each run fetches the certificates updated since the
+ * last run (less an overlap for clock skew and concurrent updates), ordered
+ * by update time and paged.
+ */
+@Component
+@ConditionalOnProperty(name = "com.mcpki.server.inventory.enabled", havingValue = "true", matchIfMissing = false)
+public class InventorySync {
+
+	private static final Logger log = LoggerFactory.getLogger(InventorySync.class);
+
+	@Value("${com.mcpki.server.inventory.sync.interval.ms:60000}")
+	private long intervalMs;
+
+	@Value("${com.mcpki.server.inventory.sync.overlap.ms:120000}")
+	private long overlapMs;
+
+	@Value("${com.mcpki.server.inventory.sync.page.size:500}")
+	private int pageSize;
+
+	@Autowired
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private CertificateInventory inventory;
+
+	private ScheduledExecutorService scheduler;
+
+	private long watermark;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start()
+	{
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread thread = new Thread(r, "mcpki-inventory-sync");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::sync, 0, intervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop()
+	{
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	/**
+	 * Runs one synchronization. Failures are logged and retried with the next
+	 * run from the same watermark.
+	 */
+	void sync()
+	{
+		final long start = System.currentTimeMillis();
+
+		long highest = watermark;
+		int fetched = 0;
+		try {
+			for (int page = 1;; page++) {
+				final SearchResponse response = ejbca.post(Endpoint.SEARCH,
+						searchRequest(Math.max(0, watermark - overlapMs), page), SearchResponse.class);
+				final List<SearchCertificate> certificates = response == null ? null : response.certificates();
+				if (certificates == null || certificates.isEmpty()) {
+					break;
+				}
+				final List<CertificateRecord> batch = new ArrayList<>(certificates.size());
+				for (final SearchCertificate certificate : certificates) {
+					final CertificateRecord record = toRecord(certificate);
+					if (record != null) {
+						batch.add(record);
+						highest = Math.max(highest, record.update_time());
+					}
+				}
+				inventory.upsert(batch);
+				fetched += certificates.size();
+				if (certificates.size() < pageSize) {
+					break;
+				}
+			}
+			watermark = highest;
+			inventory.synced(start);
+			log.info("Inventory synchronized: {} updates, {} certificates, {} ms.", fetched, inventory.size(),
+					System.currentTimeMillis() - start);
+		} catch (RestClientException e) {
+			log.warn("Inventory synchronization failed: {}.",
+					ejbca.errorMessage(e));
+		}
+	}
+
+	private SearchRequest searchRequest(final long updatedAfter, final int page)
+	{
+		return new SearchRequest(new Pagination(pageSize, page),
+				List.of(new Criterion("UPDATE_TIME", Instant.ofEpochMilli(updatedAfter).toString(), "AFTER")),
+				new Sort("UPDATE_TIME", "ASC"));
+	}
+
+	/**
+	 * Maps a certificate of the v2 search response to an inventory record.
+	 *
+	 * @param certificate the certificate.
+	 * @return the record, or null if serial number or issuer are missing.
+	 */
+	static CertificateRecord toRecord(final SearchCertificate certificate)
+	{
+		if (certificate.serialNumber() == null || certificate.issuerDN() == null) {
+			return null;
+		}
+		final List<String> sans = new ArrayList<>();
+		if (certificate.subjectAltName() != null) {
+			for (final String name : certificate.subjectAltName().split(",")) {
+				if (!name.isBlank()) {
+					sans.add(name.trim());
+				}
+			}
+		}
+		final String profile = certificate.certificateProfile() != null ? certificate.certificateProfile()
+				: certificate.certificateProfileId();
+		return new CertificateRecord(certificate.serialNumber().toUpperCase(), certificate.issuerDN(),
+				certificate.subjectDN(), sans, profile, time(certificate.notBefore()), time(certificate.expireDate()),
+				status(certificate.status()), time(certificate.updateTime()));
+	}
+
+	/**
+	 * Parses a time in milliseconds or ISO 8601 format.
+	 */
+	private static long time(final String value)
+	{
+		if (value == null) {
+			return 0L;
+		}
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			try {
+				return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+			} catch (DateTimeParseException ex) {
+				return 0L;
+			}
+		}
+	}
+
+	/**
+	 * Maps the EJBCA certificate status (numeric or CERT_* constant).
+	 */
+	private static String status(final String status)
+	{
+		if (status == null) {
+			return "UNKNOWN";
+		}
+		switch (status) {
+		case "20":
+		case "50":
+		case "CERT_ACTIVE":
+		case "CERT_NOTIFIEDABOUTEXPIRATION":
+			return CertificateRecord.ACTIVE;
+		case "30":
+		case "40":
+		case "CERT_TEMP_REVOKED":
+		case "CERT_REVOKED":
+			return CertificateRecord.REVOKED;
+		case "60":
+		case "CERT_ARCHIVED":
+			return "ARCHIVED";
+		default:
+			return "INACTIVE";
+		}
+	}
+
+	// @formatter:off
+	/**
+	 * {
+	 *   "pagination": 	{ "page_size": 500, "current_page": 1 },
+	 *   "criteria": 	[ { "property": "UPDATE_TIME", "value": "2025-09-01T00:00:00Z", "operation": "AFTER" } ],
+	 *   "sort": 		{ "property": "UPDATE_TIME", "operation": "ASC" }
+	 * }
+	 */
+	// @formatter:on
+	record SearchRequest(Pagination pagination, List<Criterion> criteria, Sort sort) {
+	}
+
+	record Pagination(int page_size, int current_page) {
+	}
+
+	record Criterion(String property, String value, String operation) {
+	}
+
+	record Sort(String property, String operation) {
+	}
+
+	/**
+	 * Certificate of the v2 search response. EJBCA versions differ in the field
+	 * names, the alternatives are aliases. Times are in milliseconds or ISO 8601
+	 * format, the status is numeric or a CERT_* constant.
+	 */
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	record SearchCertificate(@JsonAlias("serial_number") String serialNumber, @JsonAlias("issuer_dn") String issuerDN,
+			@JsonAlias("subject_dn") String subjectDN, @JsonAlias("subject_alt_name") String subjectAltName,
+			@JsonAlias("certificate_profile_name") String certificateProfile,
+			@JsonAlias("certificate_profile_id") String certificateProfileId, @JsonAlias("not_before") String notBefore,
+			@JsonAlias("not_after") String expireDate, String status, @JsonAlias("update_time") String updateTime) {
+	}
+
+	/**
+	 * Search response, one page of certificates.
+	 */
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	record SearchResponse(List<SearchCertificate> certificates) {
+	}
+}
@@ -0,0 +1,118 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.keygen;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+
+/**
+ * Key algorithms supported for server-side key generation.
+ */
+public enum KeyAlgorithm {
+
+	RSA_3072("RSA-3072", "SHA256withRSA"),
+
+	P_256("P-256", "SHA256withECDSA"),
+
+	/** Standardized CRYSTALS-Dilithium (FIPS 204), security category 2. */
+	ML_DSA_44("ML-DSA-44", "ML-DSA-44");
+
+	private final String label;
+
+	private final String signatureAlgorithm;
+
+	KeyAlgorithm(final String label, final String signatureAlgorithm) {
+		this.label = label;
+		this.signatureAlgorithm = signatureAlgorithm;
+	}
+
+	/**
+	 * Returns the key algorithm for the given label, e.g. "RSA-3072", "P-256" or
+	 * "ML-DSA-44" ("Dilithium2" is accepted as an alias for ML-DSA-44).
+	 *
+	 * @param label the label.
+	 * @return the key algorithm or null if unknown.
+	 */
+	public static KeyAlgorithm of(final String label)
+	{
+		if (label == null) {
+			return null;
+		}
+		if ("Dilithium2".equalsIgnoreCase(label.trim())) {
+			return ML_DSA_44;
+		}
+		for (final KeyAlgorithm algorithm : values()) {
+			if (algorithm.label.equalsIgnoreCase(label.trim())) {
+				return algorithm;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the label, e.g. "P-256".
+	 *
+	 * @return the label.
+	 */
+	public String label()
+	{
+		return label;
+	}
+
+	/**
+	 * Returns the signature algorithm used to sign CSRs with keys of this
+	 * algorithm.
+	 *
+	 * @return the signature algorithm.
+	 */
+	public String signatureAlgorithm()
+	{
+		return signatureAlgorithm;
+	}
+
+	/**
+	 * Generates a new key pair (slow for RSA).
+	 *
+	 * @return the key pair.
+	 * @throws GeneralSecurityException if the algorithm is not available.
+	 */
+	public KeyPair generate() throws GeneralSecurityException
+	{
+		final KeyPairGenerator generator;
+		switch (this) {
+		case RSA_3072:
+			generator = KeyPairGenerator.getInstance("RSA", "BC");
+			generator.initialize(3072);
+			break;
+		case P_256:
+			generator = KeyPairGenerator.getInstance("EC", "BC");
+			generator.initialize(new ECGenParameterSpec("secp256r1"));
+			break;
+		default:
+			generator = KeyPairGenerator.getInstance(label, "BC");
+			break;
+		}
+		return generator.generateKeyPair();
+	}
+}
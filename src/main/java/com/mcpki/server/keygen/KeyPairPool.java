@@ -0,0 +1,228 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.keygen;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory pools of pre-generated key pairs per algorithm, refilled in the
+ * background.
+ *
+ * The target depth of a pool follows the demand: the mean time between takes
+ * is tracked as an exponentially weighted moving average, and the pool holds
+ * enough key pairs for the configured horizon at that rate, bounded by the
+ * minimum and maximum depth. When a pool runs empty the key pair is generated
+ * on the calling thread. Each key pair is handed out at most once.
+ */
+public class KeyPairPool implements AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(KeyPairPool.class);
+
+	private static final double ALPHA = 0.2d;
+
+	private final Map<KeyAlgorithm, Pool> pools = new EnumMap<>(KeyAlgorithm.class);
+
+	private final ExecutorService refiller;
+
+	private final int minDepth;
+
+	private final int maxDepth;
+
+	private final long horizonNanos;
+
+	/**
+	 * Creates the pools and starts filling them up to the minimum depth.
+	 *
+	 * @param algorithms the pooled algorithms.
+	 * @param minDepth   the minimum pool depth.
+	 * @param maxDepth   the maximum pool depth.
+	 * @param horizon    the time the pool should cover at the current demand.
+	 * @param unit       the time unit of the horizon.
+	 * @param threads    the number of refill threads.
+	 */
+	public KeyPairPool(final Set<KeyAlgorithm> algorithms, final int minDepth, final int maxDepth, final long horizon,
+			final TimeUnit unit, final int threads) {
+		this.minDepth = minDepth;
+		this.maxDepth = Math.max(minDepth, maxDepth);
+		this.horizonNanos = unit.toNanos(horizon);
+		final AtomicInteger counter = new AtomicInteger();
+		this.refiller = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+			final Thread thread = new Thread(r, "mcpki-keygen-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		for (final KeyAlgorithm algorithm : algorithms) {
+			final Pool pool = new Pool(algorithm);
+			pools.put(algorithm, pool);
+			refill(pool);
+		}
+	}
+
+	/**
+	 * Takes a key pair from the pool, or generates one if the pool is empty.
+	 *
+	 * @param algorithm the key algorithm.
+	 * @return the key pair.
+	 * @throws GeneralSecurityException if key generation fails.
+	 */
+	public KeyPair take(final KeyAlgorithm algorithm) throws GeneralSecurityException
+	{
+		final Pool pool = pools.get(algorithm);
+		if (pool == null) {
+			return algorithm.generate();
+		}
+		pool.recordDemand(System.nanoTime());
+		KeyPair keyPair = pool.keyPairs.poll();
+		if (keyPair == null) {
+			pool.misses.incrementAndGet();
+			keyPair = algorithm.generate();
+		} else {
+			pool.depth.decrementAndGet();
+		}
+		refill(pool);
+		return keyPair;
+	}
+
+	/**
+	 * Returns the number of pooled key pairs.
+	 *
+	 * @param algorithm the key algorithm.
+	 * @return the pool depth.
+	 */
+	public int depth(final KeyAlgorithm algorithm)
+	{
+		final Pool pool = pools.get(algorithm);
+		return pool != null ? pool.depth.get() : 0;
+	}
+
+	/**
+	 * Returns the current target depth derived from the demand.
+	 *
+	 * @param algorithm the key algorithm.
+	 * @return the target depth.
+	 */
+	public int targetDepth(final KeyAlgorithm algorithm)
+	{
+		final Pool pool = pools.get(algorithm);
+		return pool != null ? pool.target(System.nanoTime()) : 0;
+	}
+
+	/**
+	 * Returns the number of takes that found the pool empty.
+	 *
+	 * @param algorithm the key algorithm.
+	 * @return the number of misses.
+	 */
+	public long misses(final KeyAlgorithm algorithm)
+	{
+		final Pool pool = pools.get(algorithm);
+		return pool != null ? pool.misses.get() : 0L;
+	}
+
+	@Override
+	public void close()
+	{
+		refiller.shutdownNow();
+		pools.values().forEach(pool -> pool.keyPairs.clear());
+	}
+
+	private void refill(final Pool pool)
+	{
+		if (!pool.refilling.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			refiller.execute(() -> {
+				try {
+					while (!Thread.currentThread().isInterrupted()
+							&& pool.depth.get() < pool.target(System.nanoTime())) {
+						pool.keyPairs.offer(pool.algorithm.generate());
+						pool.depth.incrementAndGet();
+					}
+				} catch (GeneralSecurityException e) {
+					log.error("Failed to generate {} key pair: {}.", pool.algorithm.label(), e.getMessage());
+				} finally {
+					pool.refilling.set(false);
+				}
+			});
+		} catch (RuntimeException e) {
+			// Rejected after close.
+			pool.refilling.set(false);
+		}
+	}
+
+	private final class Pool {
+
+		private final KeyAlgorithm algorithm;
+
+		private final ConcurrentLinkedQueue<KeyPair> keyPairs = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger depth = new AtomicInteger();
+
+		private final AtomicLong misses = new AtomicLong();
+
+		private final AtomicBoolean refilling = new AtomicBoolean();
+
+		private long lastTake;
+
+		private double meanInterval = Double.NaN;
+
+		private Pool(final KeyAlgorithm algorithm) {
+			this.algorithm = algorithm;
+		}
+
+		private synchronized void recordDemand(final long now)
+		{
+			if (lastTake != 0L) {
+				final double interval = now - lastTake;
+				meanInterval = Double.isNaN(meanInterval) ? interval : ALPHA * interval + (1 - ALPHA) * meanInterval;
+			}
+			lastTake = now;
+		}
+
+		private synchronized int target(final long now)
+		{
+			if (Double.isNaN(meanInterval)) {
+				return minDepth;
+			}
+			// Without takes the demand decays, so an idle pool is not refilled.
+			final double interval = Math.max(meanInterval, now - lastTake);
+			final long target = (long) Math.ceil(horizonNanos / Math.max(interval, 1d));
+			return (int) Math.max(minDepth, Math.min(maxDepth, target));
+		}
+	}
+}
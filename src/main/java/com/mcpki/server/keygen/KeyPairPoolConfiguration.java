@@ -0,0 +1,69 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.keygen;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the pool of pre-generated key pairs for server-side key
+ * generation.
+ */
+@Configuration
+@ConditionalOnProperty(name = "com.mcpki.server.tools.ejbca.EnrollCertificateWithServerKey", havingValue = "true", matchIfMissing = false)
+public class KeyPairPoolConfiguration {
+
+	@Value("${com.mcpki.server.keygen.pool.algorithms:RSA-3072,P-256,ML-DSA-44}")
+	private String[] algorithms;
+
+	@Value("${com.mcpki.server.keygen.pool.depth.min:4}")
+	private int minDepth;
+
+	@Value("${com.mcpki.server.keygen.pool.depth.max:256}")
+	private int maxDepth;
+
+	@Value("${com.mcpki.server.keygen.pool.horizon.seconds:30}")
+	private long horizonSeconds;
+
+	@Value("${com.mcpki.server.keygen.pool.threads:3}")
+	private int threads;
+
+	@Bean(destroyMethod = "close")
+	public KeyPairPool keyPairPool()
+	{
+		final Set<KeyAlgorithm> pooled = EnumSet.noneOf(KeyAlgorithm.class);
+		for (final String label : algorithms) {
+			final KeyAlgorithm algorithm = KeyAlgorithm.of(label);
+			if (algorithm == null) {
+				throw new IllegalArgumentException("Unknown key algorithm: " + label);
+			}
+			pooled.add(algorithm);
+		}
+		return new KeyPairPool(pooled, minDepth, maxDepth, horizonSeconds, TimeUnit.SECONDS, threads);
+	}
+}
@@ -0,0 +1,157 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.localca;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.bouncycastle.asn1.ASN1String;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+
+import com.mcpki.server.util.CanonicalDn;
+
+/**
+ * Name policy of the local CA, which issues certificates without the end
+ * entity authorisation of EJBCA.
+ *
+ * The canonical subject DN of a CSR must match the subject pattern, a regular
+ * expression in which the placeholder {username} stands for the requesting
+ * end entity, e.g. "CN={username},O=mcpki\.org". Subject alternative names
+ * must be DNS names in one of the allowed domains or their subdomains; other
+ * name types are rejected. Without a subject pattern every request is
+ * rejected.
+ *
+ * Instances are thread-safe.
+ */
+public class IssuancePolicy {
+
+	private static final String USERNAME = "{username}";
+
+	private final Pattern subjectPattern;
+
+	private final boolean bindsUsername;
+
+	private final List<String> sanDomains;
+
+	/**
+	 * Creates a policy.
+	 *
+	 * @param subjectPattern the pattern of the canonical subject DN, or null or
+	 *                       empty to reject all requests.
+	 * @param sanDomains     the allowed DNS domains of subject alternative names.
+	 */
+	public IssuancePolicy(final String subjectPattern, final List<String> sanDomains) {
+		this.subjectPattern = subjectPattern == null || subjectPattern.isBlank() ? null
+				: Pattern.compile(bindUsername(subjectPattern));
+		this.bindsUsername = this.subjectPattern != null && subjectPattern.contains(USERNAME);
+		this.sanDomains = sanDomains.stream().map(String::trim).filter(d -> !d.isEmpty())
+				.map(d -> d.toLowerCase(Locale.ROOT)).toList();
+	}
+
+	/**
+	 * Returns true if a subject pattern is configured.
+	 *
+	 * @return true if requests can be allowed.
+	 */
+	public boolean isConfigured()
+	{
+		return subjectPattern != null;
+	}
+
+	/**
+	 * Checks a CSR against the policy.
+	 *
+	 * @param csr      the certificate signing request.
+	 * @param username the validated name of the requesting end entity.
+	 * @return the reason of the rejection, or null if the CSR is allowed.
+	 */
+	public String check(final PKCS10CertificationRequest csr, final String username)
+	{
+		if (subjectPattern == null) {
+			return "No local CA subject policy configured.";
+		}
+		final CanonicalDn subject = CanonicalDn.of(csr.getSubject().toString());
+		if (subject == null) {
+			return "Invalid subject DN.";
+		}
+		final Matcher matcher = subjectPattern.matcher(subject.name());
+		if (!matcher.matches() || (bindsUsername && !username.equals(matcher.group("username")))) {
+			return "Subject DN not allowed: " + subject.name();
+		}
+
+		final Extensions requested = csr.getRequestedExtensions();
+		final Extension san = requested == null ? null : requested.getExtension(Extension.subjectAlternativeName);
+		if (san != null) {
+			for (final GeneralName name : GeneralNames.getInstance(san.getParsedValue()).getNames()) {
+				if (name.getTagNo() != GeneralName.dNSName) {
+					return "Subject alternative name type not allowed: " + name.getTagNo();
+				}
+				final String dns = ((ASN1String) name.getName()).getString();
+				if (!isAllowedDomain(dns)) {
+					return "Subject alternative name not allowed: " + dns;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if the DNS name (or the domain of a wildcard name) is one of
+	 * the allowed domains or a subdomain of one.
+	 */
+	boolean isAllowedDomain(final String dns)
+	{
+		String name = dns.toLowerCase(Locale.ROOT);
+		if (name.startsWith("*.")) {
+			name = name.substring(2);
+		}
+		if (name.isEmpty() || name.contains("*")) {
+			return false;
+		}
+		for (final String domain : sanDomains) {
+			if (name.equals(domain) || name.endsWith("." + domain)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Replaces the first {username} placeholder with a named group and further
+	 * ones with a back reference to it.
+	 */
+	private static String bindUsername(final String pattern)
+	{
+		final int first = pattern.indexOf(USERNAME);
+		if (first < 0) {
+			return pattern;
+		}
+		return pattern.substring(0, first) + "(?<username>[^,+=]+)"
+				+ pattern.substring(first + USERNAME.length()).replace(USERNAME, "\\k<username>");
+	}
+}
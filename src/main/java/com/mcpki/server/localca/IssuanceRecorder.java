@@ -0,0 +1,39 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.localca;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * Records certificates issued by the local CA, e.g. for audit and revocation.
+ * Implementations must not block the issuing thread.
+ */
+public interface IssuanceRecorder {
+
+	/**
+	 * Records an issued certificate.
+	 *
+	 * @param certificate the certificate.
+	 * @param username    the requesting end entity or null.
+	 */
+	void record(X509Certificate certificate, String username);
+}
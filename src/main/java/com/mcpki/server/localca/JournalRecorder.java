@@ -0,0 +1,141 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.localca;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records certificates issued by the local CA as JSON lines in a local journal
+ * file. Certificates are queued and written in batches by a background thread,
+ * so issuance does not wait for the disk.
+ */
+public class JournalRecorder implements IssuanceRecorder, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(JournalRecorder.class);
+
+	private static final int BATCH_SIZE = 256;
+
+	private final BlockingQueue<String> queue;
+
+	private final Path journal;
+
+	private final Thread writer;
+
+	private volatile boolean running = true;
+
+	/**
+	 * Creates and starts the journal recorder.
+	 *
+	 * @param journal  the journal file (appended to).
+	 * @param capacity the maximum number of queued entries.
+	 */
+	public JournalRecorder(final Path journal, final int capacity) {
+		this.journal = journal;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.writer = new Thread(this::run, "mcpki-localca-journal");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public void record(final X509Certificate certificate, final String username)
+	{
+		final Map<String, Object> entry = new TreeMap<>();
+		entry.put("serial_number", certificate.getSerialNumber().toString(16).toUpperCase());
+		entry.put("subject_dn", certificate.getSubjectX500Principal().getName());
+		entry.put("issuer_dn", certificate.getIssuerX500Principal().getName());
+		entry.put("not_before", certificate.getNotBefore().toInstant().toString());
+		entry.put("not_after", certificate.getNotAfter().toInstant().toString());
+		entry.put("username", username);
+		try {
+			entry.put("certificate", Base64.getEncoder().encodeToString(certificate.getEncoded()));
+		} catch (CertificateEncodingException e) {
+			log.warn("Failed to encode certificate {}: {}.", entry.get("serial_number"), e.getMessage());
+		}
+		if (!queue.offer(new JSONObject(entry).toJSONString())) {
+			// The certificate is issued already, so losing the entry is reported loudly.
+			log.error("Local CA journal queue full, entry lost: {}.", entry.get("serial_number"));
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		running = false;
+		writer.interrupt();
+		try {
+			writer.join(5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run()
+	{
+		final List<String> batch = new ArrayList<>(BATCH_SIZE);
+		while (running || !queue.isEmpty()) {
+			try {
+				final String first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+			} catch (InterruptedException e) {
+				// Drain the remaining entries on close.
+			}
+			queue.drainTo(batch, BATCH_SIZE - batch.size());
+			if (batch.isEmpty()) {
+				continue;
+			}
+			try (BufferedWriter out = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+				for (final String line : batch) {
+					out.write(line);
+					out.newLine();
+				}
+			} catch (IOException e) {
+				log.error("Failed to write {} entries to the local CA journal {}: {}.", batch.size(), journal,
+						e.getMessage());
+			}
+			batch.clear();
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.localca;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+
+/**
+ * In-process certificate authority issuing short-lived end entity certificates
+ * with a delegated sub-CA key, without a round-trip to EJBCA.
+ *
+ * Instances are thread-safe.
+ */
+public class LocalCa {
+
+	/** Tolerated clock skew of relying parties. */
+	private static final Duration BACKDATE = Duration.ofMinutes(1);
+
+	private final PrivateKey signingKey;
+
+	private final X509Certificate caCertificate;
+
+	private final X500Name issuer;
+
+	private final AuthorityKeyIdentifier authorityKeyIdentifier;
+
+	private final String signatureAlgorithm;
+
+	private final Duration maxValidity;
+
+	private final JcaX509ExtensionUtils extensionUtils;
+
+	private final JcaX509CertificateConverter converter = new JcaX509CertificateConverter().setProvider("BC");
+
+	private final SecureRandom random = new SecureRandom();
+
+	/**
+	 * Creates a local CA.
+	 *
+	 * @param signingKey         the private key of the (sub-)CA.
+	 * @param caCertificate      the certificate of the (sub-)CA.
+	 * @param signatureAlgorithm the signature algorithm, or null to derive it
+	 *                           from the key.
+	 * @param maxValidity        the maximum validity of issued certificates.
+	 * @throws GeneralSecurityException if the CA certificate cannot be processed.
+	 */
+	public LocalCa(final PrivateKey signingKey, final X509Certificate caCertificate, final String signatureAlgorithm,
+			final Duration maxValidity) throws GeneralSecurityException {
+		this.signingKey = signingKey;
+		this.caCertificate = caCertificate;
+		this.issuer = X500Name.getInstance(caCertificate.getSubjectX500Principal().getEncoded());
+		this.extensionUtils = new JcaX509ExtensionUtils();
+		this.authorityKeyIdentifier = extensionUtils.createAuthorityKeyIdentifier(caCertificate.getPublicKey());
+		this.signatureAlgorithm = signatureAlgorithm != null && !signatureAlgorithm.isBlank() ? signatureAlgorithm
+				: signatureAlgorithm(signingKey);
+		this.maxValidity = maxValidity;
+	}
+
+	/**
+	 * Issues a TLS client and server certificate for the given CSR. The subject
+	 * and the subject alternative names are taken from the CSR.
+	 *
+	 * @param csr      the PKCS#10 certificate signing request.
+	 * @param validity the requested validity (capped by the maximum validity).
+	 * @return the certificate.
+	 * @throws GeneralSecurityException if the CSR signature is invalid or signing
+	 *                                  fails.
+	 */
+	public X509Certificate issue(final PKCS10CertificationRequest csr, final Duration validity)
+			throws GeneralSecurityException
+	{
+		try {
+			if (!csr.isSignatureValid(
+					new JcaContentVerifierProviderBuilder().setProvider("BC").build(csr.getSubjectPublicKeyInfo()))) {
+				throw new GeneralSecurityException("Invalid CSR signature.");
+			}
+
+			final Instant now = Instant.now();
+			final Duration effective = validity.compareTo(maxValidity) > 0 ? maxValidity : validity;
+			Instant notAfter = now.plus(effective);
+			if (notAfter.isAfter(caCertificate.getNotAfter().toInstant())) {
+				notAfter = caCertificate.getNotAfter().toInstant();
+			}
+
+			final X509v3CertificateBuilder builder = new X509v3CertificateBuilder(issuer, serialNumber(),
+					Date.from(now.minus(BACKDATE)), Date.from(notAfter), csr.getSubject(),
+					csr.getSubjectPublicKeyInfo());
+			builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
+			// Key encipherment (RSA key transport) does not apply to EC, EdDSA and
+			// ML-DSA keys.
+			final boolean rsa = PKCSObjectIdentifiers.rsaEncryption
+					.equals(csr.getSubjectPublicKeyInfo().getAlgorithm().getAlgorithm());
+			builder.addExtension(Extension.keyUsage, true, new KeyUsage(
+					rsa ? KeyUsage.digitalSignature | KeyUsage.keyEncipherment : KeyUsage.digitalSignature));
+			builder.addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(
+					new KeyPurposeId[] { KeyPurposeId.id_kp_clientAuth, KeyPurposeId.id_kp_serverAuth }));
+			builder.addExtension(Extension.authorityKeyIdentifier, false, authorityKeyIdentifier);
+			builder.addExtension(Extension.subjectKeyIdentifier, false,
+					extensionUtils.createSubjectKeyIdentifier(csr.getSubjectPublicKeyInfo()));
+
+			final Extensions requested = csr.getRequestedExtensions();
+			if (requested != null && requested.getExtension(Extension.subjectAlternativeName) != null) {
+				builder.addExtension(requested.getExtension(Extension.subjectAlternativeName));
+			}
+
+			// Content signers are not thread-safe, so create one per certificate.
+			final ContentSigner signer = new JcaContentSignerBuilder(signatureAlgorithm).setProvider("BC")
+					.build(signingKey);
+			final X509CertificateHolder holder = builder.build(signer);
+			return converter.getCertificate(holder);
+		} catch (GeneralSecurityException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new GeneralSecurityException("Failed to issue certificate: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the certificate of the (sub-)CA.
+	 *
+	 * @return the CA certificate.
+	 */
+	public X509Certificate getCaCertificate()
+	{
+		return caCertificate;
+	}
+
+	/**
+	 * Returns the signature algorithm used to sign certificates.
+	 *
+	 * @return the signature algorithm.
+	 */
+	public String getSignatureAlgorithm()
+	{
+		return signatureAlgorithm;
+	}
+
+	/**
+	 * Returns a random positive 159 bit serial number, i.e. always 40 hex digits
+	 * as expected by revocation.
+	 */
+	private BigInteger serialNumber()
+	{
+		return new BigInteger(159, random).setBit(158);
+	}
+
+	private static String signatureAlgorithm(final PrivateKey key)
+	{
+		return switch (key.getAlgorithm()) {
+		case "RSA" -> "SHA256withRSA";
+		case "EC", "ECDSA" -> "SHA256withECDSA";
+		case "Ed25519" -> "Ed25519";
+		// Post-quantum algorithms like ML-DSA-44 or Dilithium2 name their signature.
+		default -> key.getAlgorithm();
+		};
+	}
+}
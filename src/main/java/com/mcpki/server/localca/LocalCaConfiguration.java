@@ -0,0 +1,113 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.localca;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ResourceUtils;
+
+/**
+ * Configures the in-process local CA from a PKCS#12 key store holding the key
+ * and certificate of a sub-CA delegated for short-lived certificates.
+ */
+@Configuration
+@ConditionalOnProperty(name = "com.mcpki.server.tools.localca.EnrollShortLivedCertificate", havingValue = "true", matchIfMissing = false)
+public class LocalCaConfiguration {
+
+	private static final Logger log = LoggerFactory.getLogger(LocalCaConfiguration.class);
+
+	@Value("${com.mcpki.server.tools.localca.keystore}")
+	private String keystore;
+
+	@Value("${com.mcpki.server.tools.localca.keystorepwd}")
+	private String keystorePwd;
+
+	@Value("${com.mcpki.server.tools.localca.alias:}")
+	private String alias;
+
+	@Value("${com.mcpki.server.tools.localca.signature.algorithm:}")
+	private String signatureAlgorithm;
+
+	@Value("${com.mcpki.server.tools.localca.validity.max.minutes:1440}")
+	private long maxValidityMinutes;
+
+	@Value("${com.mcpki.server.tools.localca.policy.subject.pattern:}")
+	private String subjectPattern;
+
+	@Value("${com.mcpki.server.tools.localca.policy.san.domains:}")
+	private String[] sanDomains;
+
+	@Value("${com.mcpki.server.tools.localca.journal:./mcpki-localca.journal}")
+	private String journal;
+
+	@Value("${com.mcpki.server.tools.localca.journal.capacity:65536}")
+	private int journalCapacity;
+
+	@Bean
+	public LocalCa localCa() throws Exception
+	{
+		final KeyStore store = KeyStore.getInstance("PKCS12", "BC");
+		try (InputStream in = new FileInputStream(ResourceUtils.getFile(keystore))) {
+			store.load(in, keystorePwd.toCharArray());
+		}
+		final String keyAlias = alias != null && !alias.isBlank() ? alias : store.aliases().nextElement();
+		final PrivateKey key = (PrivateKey) store.getKey(keyAlias, keystorePwd.toCharArray());
+		final X509Certificate certificate = (X509Certificate) store.getCertificate(keyAlias);
+		if (key == null || certificate == null) {
+			throw new IllegalStateException("No key entry '" + keyAlias + "' in local CA key store.");
+		}
+
+		final LocalCa ca = new LocalCa(key, certificate, signatureAlgorithm, Duration.ofMinutes(maxValidityMinutes));
+		log.info("Local CA {} loaded (signature algorithm {}).", certificate.getSubjectX500Principal().getName(),
+				ca.getSignatureAlgorithm());
+		return ca;
+	}
+
+	@Bean
+	public IssuancePolicy issuancePolicy()
+	{
+		final IssuancePolicy policy = new IssuancePolicy(subjectPattern, Arrays.asList(sanDomains));
+		if (!policy.isConfigured()) {
+			log.warn("No local CA subject policy configured, short-lived certificate requests are rejected.");
+		}
+		return policy;
+	}
+
+	@Bean(destroyMethod = "close")
+	public JournalRecorder issuanceRecorder()
+	{
+		return new JournalRecorder(Path.of(journal), journalCapacity);
+	}
+}
@@ -0,0 +1,121 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.mcpki.server.util.LogPayload;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AsyncAppenderBase;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Asynchronous logging, so that request threads do not wait for the console
+ * or the log file.
+ *
+ * The appenders configured by Spring Boot (console, file) are wrapped in
+ * Logback async appenders: a request thread only puts the event into a
+ * bounded queue and a background thread per appender writes it. Once the
+ * queue is filled beyond the discarding threshold (by default 80%), debug,
+ * trace and info events are dropped, so a debug session in production cannot
+ * stall the tools, while warnings and errors are kept. Caller data (class,
+ * line) is not collected. Remaining events are written when the logging
+ * system is stopped on shutdown.
+ *
+ * Logging during startup, before this service is created, is synchronous.
+ */
+@Service
+public class AsyncLogging {
+
+	private static final org.slf4j.Logger log = LoggerFactory.getLogger(AsyncLogging.class);
+
+	@Value("${com.mcpki.server.logging.async.enabled:true}")
+	private boolean enabled;
+
+	@Value("${com.mcpki.server.logging.async.queue.size:8192}")
+	private int queueSize;
+
+	@Value("${com.mcpki.server.logging.async.discarding.threshold:-1}")
+	private int discardingThreshold;
+
+	@Value("${com.mcpki.server.logging.async.never.block:false}")
+	private boolean neverBlock;
+
+	@Value("${com.mcpki.server.logging.payload.max.chars:256}")
+	private int payloadMaxChars;
+
+	private final List<AsyncAppender> appenders = new ArrayList<>();
+
+	@PostConstruct
+	public void init()
+	{
+		LogPayload.maxChars(payloadMaxChars);
+		if (!enabled) {
+			return;
+		}
+		if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+			log.info("Logging backend is not Logback, asynchronous logging disabled.");
+			return;
+		}
+
+		final Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+		final List<Appender<ILoggingEvent>> targets = new ArrayList<>();
+		root.iteratorForAppenders().forEachRemaining(targets::add);
+		for (final Appender<ILoggingEvent> target : targets) {
+			if (target instanceof AsyncAppenderBase) {
+				continue;
+			}
+			final AsyncAppender async = wrap(context, target);
+			// Attach first, so that no event is lost in between.
+			root.addAppender(async);
+			root.detachAppender(target);
+			appenders.add(async);
+		}
+		log.info("Asynchronous logging to {} appenders, queue size {}.", appenders.size(), queueSize);
+	}
+
+	private AsyncAppender wrap(final LoggerContext context, final Appender<ILoggingEvent> target)
+	{
+		final AsyncAppender async = new AsyncAppender();
+		async.setContext(context);
+		async.setName("ASYNC_" + target.getName());
+		async.setQueueSize(queueSize);
+		if (discardingThreshold >= 0) {
+			async.setDiscardingThreshold(discardingThreshold);
+		}
+		async.setNeverBlock(neverBlock);
+		async.setIncludeCallerData(false);
+		async.addAppender(target);
+		async.start();
+		return async;
+	}
+}
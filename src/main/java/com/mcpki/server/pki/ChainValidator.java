@@ -0,0 +1,205 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.pki;
+
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.CertificateNotYetValidException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * Builds the certification path from a certificate to a trust anchor and
+ * validates it: validity periods, signatures, CA basic constraints and key
+ * usages, path length constraints and, optionally, the CRL status.
+ *
+ * The candidate certificates are the intermediate CAs and the trust anchors
+ * (self-signed CA certificates). Signatures are verified through the
+ * verification cache.
+ */
+public class ChainValidator {
+
+	private static final int KEY_CERT_SIGN = 5;
+
+	private static final int CRL_SIGN = 6;
+
+	private final VerificationCache cache;
+
+	private final int maxPathLength;
+
+	/**
+	 * Validation result.
+	 *
+	 * @param valid  true if the path is valid.
+	 * @param path   the path from the certificate to the trust anchor (empty if
+	 *               none was found).
+	 * @param errors the validation errors.
+	 */
+	public record Result(boolean valid, List<X509Certificate> path, List<String> errors) {
+	}
+
+	/**
+	 * Creates the validator.
+	 *
+	 * @param cache         the signature verification cache.
+	 * @param maxPathLength the maximum number of certificates in a path.
+	 */
+	public ChainValidator(final VerificationCache cache, final int maxPathLength) {
+		this.cache = cache;
+		this.maxPathLength = maxPathLength;
+	}
+
+	/**
+	 * Validates a certificate.
+	 *
+	 * @param certificate the certificate.
+	 * @param candidates  the intermediate CAs and trust anchors.
+	 * @param crls        the CRL lookup by issuer, or null to skip the
+	 *                    revocation check.
+	 * @param time        the validation time.
+	 * @return the result.
+	 */
+	public Result validate(final X509Certificate certificate, final Collection<X509Certificate> candidates,
+			final Function<X500Principal, X509CRL> crls, final Date time)
+	{
+		final List<String> errors = new ArrayList<>();
+		final List<X509Certificate> path = new ArrayList<>();
+		path.add(certificate);
+		if (!build(path, candidates)) {
+			errors.add(name(certificate) + ": no path to a trust anchor.");
+			return new Result(false, List.of(), errors);
+		}
+
+		for (int i = 0; i < path.size(); i++) {
+			final X509Certificate current = path.get(i);
+			checkValidity(current, time, errors);
+			if (i == 0) {
+				continue;
+			}
+			// Number of intermediate CAs between this CA and the certificate.
+			checkCa(current, i - 1, errors);
+		}
+
+		if (crls != null) {
+			for (int i = 0; i < path.size() - 1; i++) {
+				checkRevocation(path.get(i), path.get(i + 1), crls.apply(path.get(i + 1).getSubjectX500Principal()),
+						time, errors);
+			}
+		}
+		return new Result(errors.isEmpty(), path, errors);
+	}
+
+	/**
+	 * Extends the path depth-first until it ends in a trust anchor.
+	 */
+	private boolean build(final List<X509Certificate> path, final Collection<X509Certificate> candidates)
+	{
+		final X509Certificate last = path.get(path.size() - 1);
+		if (isSelfSigned(last)) {
+			return path.size() > 1 || candidates.contains(last);
+		}
+		if (path.size() >= maxPathLength) {
+			return false;
+		}
+		for (final X509Certificate candidate : candidates) {
+			if (!candidate.getSubjectX500Principal().equals(last.getIssuerX500Principal()) || path.contains(candidate)
+					|| !cache.verify(last, candidate.getPublicKey())) {
+				continue;
+			}
+			path.add(candidate);
+			if (build(path, candidates)) {
+				return true;
+			}
+			path.remove(path.size() - 1);
+		}
+		return false;
+	}
+
+	private boolean isSelfSigned(final X509Certificate certificate)
+	{
+		return certificate.getSubjectX500Principal().equals(certificate.getIssuerX500Principal())
+				&& cache.verify(certificate, certificate.getPublicKey());
+	}
+
+	private static void checkValidity(final X509Certificate certificate, final Date time, final List<String> errors)
+	{
+		try {
+			certificate.checkValidity(time);
+		} catch (CertificateExpiredException e) {
+			errors.add(name(certificate) + ": expired at " + certificate.getNotAfter().toInstant() + ".");
+		} catch (CertificateNotYetValidException e) {
+			errors.add(name(certificate) + ": not valid before " + certificate.getNotBefore().toInstant() + ".");
+		}
+	}
+
+	private static void checkCa(final X509Certificate ca, final int intermediates, final List<String> errors)
+	{
+		final int pathLength = ca.getBasicConstraints();
+		if (pathLength < 0) {
+			errors.add(name(ca) + ": not a CA certificate.");
+		} else if (intermediates > pathLength) {
+			errors.add(name(ca) + ": path length constraint " + pathLength + " exceeded.");
+		}
+		final boolean[] keyUsage = ca.getKeyUsage();
+		if (keyUsage != null && !keyUsage[KEY_CERT_SIGN]) {
+			errors.add(name(ca) + ": key usage keyCertSign missing.");
+		}
+	}
+
+	private void checkRevocation(final X509Certificate certificate, final X509Certificate issuer, final X509CRL crl,
+			final Date time, final List<String> errors)
+	{
+		if (crl == null) {
+			errors.add(name(certificate) + ": no CRL of " + name(issuer) + " available.");
+			return;
+		}
+		final boolean[] keyUsage = issuer.getKeyUsage();
+		if (keyUsage != null && !keyUsage[CRL_SIGN]) {
+			errors.add(name(issuer) + ": key usage cRLSign missing.");
+		}
+		if (!crl.getIssuerX500Principal().equals(issuer.getSubjectX500Principal())
+				|| !cache.verify(crl, issuer.getPublicKey())) {
+			errors.add(name(issuer) + ": CRL signature invalid.");
+			return;
+		}
+		if (crl.getNextUpdate() != null && crl.getNextUpdate().before(time)) {
+			errors.add(name(issuer) + ": CRL expired at " + crl.getNextUpdate().toInstant() + ".");
+		}
+		final X509CRLEntry entry = crl.getRevokedCertificate(certificate.getSerialNumber());
+		if (entry != null && !entry.getRevocationDate().after(time)) {
+			errors.add(name(certificate) + ": revoked at " + entry.getRevocationDate().toInstant()
+					+ (entry.getRevocationReason() != null ? " (" + entry.getRevocationReason() + ")" : "") + ".");
+		}
+	}
+
+	private static String name(final X509Certificate certificate)
+	{
+		return certificate.getSubjectX500Principal().getName();
+	}
+}
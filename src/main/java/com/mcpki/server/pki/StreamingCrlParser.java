@@ -0,0 +1,264 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.pki;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1GeneralizedTime;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.ASN1SequenceParser;
+import org.bouncycastle.asn1.ASN1StreamParser;
+import org.bouncycastle.asn1.ASN1TaggedObject;
+import org.bouncycastle.asn1.ASN1TaggedObjectParser;
+import org.bouncycastle.asn1.ASN1UTCTime;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.Time;
+
+/**
+ * Parses DER encoded CRLs from a stream, one revoked certificate entry at a
+ * time, so that CRLs of any size can be summarized without loading them.
+ *
+ * The signature of the CRL is not verified.
+ */
+public class StreamingCrlParser {
+
+	private static final String[] REASONS = { "unspecified", "keyCompromise", "cACompromise", "affiliationChanged",
+			"superseded", "cessationOfOperation", "certificateHold", "unknown", "removeFromCRL", "privilegeWithdrawn",
+			"aACompromise" };
+
+	/**
+	 * Revoked certificate entry.
+	 *
+	 * @param serial_number   the serial number in hex.
+	 * @param revocation_date the revocation date.
+	 * @param reason          the revocation reason.
+	 */
+	public record Entry(String serial_number, Date revocation_date, String reason) {
+	}
+
+	/**
+	 * CRL summary.
+	 *
+	 * @param issuer_dn      the issuer DN.
+	 * @param this_update    the issue date.
+	 * @param next_update    the next update date (may be null).
+	 * @param crl_number     the CRL number in hex (may be null).
+	 * @param entry_count    the number of revoked certificates.
+	 * @param reasons        the number of entries per revocation reason.
+	 * @param newest_entries the most recently revoked entries, newest first.
+	 */
+	public record CrlSummary(String issuer_dn, Date this_update, Date next_update, String crl_number,
+			long entry_count, Map<String, Long> reasons, List<Entry> newest_entries) {
+	}
+
+	/**
+	 * Header fields read before the entries.
+	 */
+	private record Header(String issuer, Date thisUpdate, Date nextUpdate, ASN1Encodable next) {
+	}
+
+	/**
+	 * Summarizes a CRL.
+	 *
+	 * @param der    the DER encoded CRL.
+	 * @param newest the number of newest entries in the summary.
+	 * @return the summary.
+	 * @throws IOException if the CRL cannot be read or is malformed.
+	 */
+	public static CrlSummary summarize(final InputStream der, final int newest) throws IOException
+	{
+		final Map<String, Long> reasons = new TreeMap<>();
+		final PriorityQueue<Entry> latest = new PriorityQueue<>(Comparator.comparing(Entry::revocation_date));
+		final long[] count = new long[1];
+
+		final ASN1SequenceParser tbs = tbsCertList(der);
+		final Header header = header(tbs);
+		final String crlNumber = crlNumber(entries(tbs, header.next(), entry -> {
+			count[0]++;
+			reasons.merge(entry.reason(), 1L, Long::sum);
+			if (newest > 0) {
+				latest.add(entry);
+				if (latest.size() > newest) {
+					latest.poll();
+				}
+			}
+		}));
+
+		final List<Entry> newestEntries = new ArrayList<>(latest);
+		newestEntries.sort(Comparator.comparing(Entry::revocation_date).reversed());
+		return new CrlSummary(header.issuer(), header.thisUpdate(), header.nextUpdate(), crlNumber, count[0],
+				reasons, newestEntries);
+	}
+
+	/**
+	 * Returns a page of the revoked certificate entries in CRL order.
+	 *
+	 * @param der    the DER encoded CRL.
+	 * @param offset the index of the first entry.
+	 * @param max    the maximum number of entries.
+	 * @return the entries, one more than max if there are more entries.
+	 * @throws IOException if the CRL cannot be read or is malformed.
+	 */
+	public static List<Entry> entries(final InputStream der, final long offset, final int max) throws IOException
+	{
+		final List<Entry> page = new ArrayList<>();
+		final ASN1SequenceParser tbs = tbsCertList(der);
+		final Header header = header(tbs);
+		final ASN1Encodable revoked = header.next();
+		if (!(revoked instanceof ASN1SequenceParser)) {
+			return page;
+		}
+		long index = 0;
+		ASN1Encodable object;
+		while (page.size() <= max && (object = ((ASN1SequenceParser) revoked).readObject()) != null) {
+			if (index++ < offset) {
+				// Read the entry, so that the stream is positioned at the next one.
+				load(object);
+				continue;
+			}
+			page.add(entry(object));
+		}
+		return page;
+	}
+
+	private static ASN1SequenceParser tbsCertList(final InputStream der) throws IOException
+	{
+		final ASN1Encodable crl = new ASN1StreamParser(der).readObject();
+		if (!(crl instanceof ASN1SequenceParser)) {
+			throw new IOException("Not a CRL.");
+		}
+		final ASN1Encodable tbs = ((ASN1SequenceParser) crl).readObject();
+		if (!(tbs instanceof ASN1SequenceParser)) {
+			throw new IOException("Not a CRL.");
+		}
+		return (ASN1SequenceParser) tbs;
+	}
+
+	/**
+	 * Reads version, signature algorithm, issuer, thisUpdate and nextUpdate.
+	 */
+	private static Header header(final ASN1SequenceParser tbs) throws IOException
+	{
+		try {
+			ASN1Encodable object = tbs.readObject();
+			if (object instanceof ASN1Integer) {
+				object = tbs.readObject();
+			}
+			// Signature algorithm.
+			load(object);
+			final X500Name issuer = X500Name.getInstance(load(tbs.readObject()));
+			final Date thisUpdate = Time.getInstance(load(tbs.readObject())).getDate();
+			Date nextUpdate = null;
+			object = tbs.readObject();
+			if (object instanceof ASN1UTCTime || object instanceof ASN1GeneralizedTime) {
+				nextUpdate = Time.getInstance(object).getDate();
+				object = tbs.readObject();
+			}
+			return new Header(issuer.toString(), thisUpdate, nextUpdate, object);
+		} catch (IllegalArgumentException | IllegalStateException | ClassCastException e) {
+			throw new IOException("Malformed CRL: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads the revoked certificate entries and returns the object following
+	 * them.
+	 */
+	private static ASN1Encodable entries(final ASN1SequenceParser tbs, final ASN1Encodable next,
+			final Consumer<Entry> consumer) throws IOException
+	{
+		if (!(next instanceof ASN1SequenceParser)) {
+			return next;
+		}
+		final ASN1SequenceParser revoked = (ASN1SequenceParser) next;
+		ASN1Encodable object;
+		while ((object = revoked.readObject()) != null) {
+			consumer.accept(entry(object));
+		}
+		return tbs.readObject();
+	}
+
+	private static Entry entry(final ASN1Encodable object) throws IOException
+	{
+		try {
+			final ASN1Sequence entry = ASN1Sequence.getInstance(load(object));
+			final String serial = ASN1Integer.getInstance(entry.getObjectAt(0)).getValue().toString(16)
+					.toUpperCase();
+			final Date date = Time.getInstance(entry.getObjectAt(1)).getDate();
+			String reason = REASONS[CRLReason.unspecified];
+			if (entry.size() > 2) {
+				final Extension extension = Extensions.getInstance(entry.getObjectAt(2))
+						.getExtension(Extension.reasonCode);
+				if (extension != null) {
+					final int code = CRLReason.getInstance(extension.getParsedValue()).getValue().intValue();
+					reason = code >= 0 && code < REASONS.length ? REASONS[code] : Integer.toString(code);
+				}
+			}
+			return new Entry(serial, date, reason);
+		} catch (IllegalArgumentException | IllegalStateException | ClassCastException e) {
+			throw new IOException("Malformed CRL entry: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the CRL number of the crlExtensions [0] or null.
+	 */
+	private static String crlNumber(final ASN1Encodable object) throws IOException
+	{
+		if (!(object instanceof ASN1TaggedObjectParser)) {
+			return null;
+		}
+		try {
+			final ASN1TaggedObject tagged = ASN1TaggedObject.getInstance(load(object));
+			final Extension extension = Extensions.getInstance(tagged, true).getExtension(Extension.cRLNumber);
+			return extension == null ? null
+					: ASN1Integer.getInstance(extension.getParsedValue()).getValue().toString(16).toUpperCase();
+		} catch (IllegalArgumentException | IllegalStateException | ClassCastException e) {
+			throw new IOException("Malformed CRL extensions: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Loads a (small) object completely.
+	 */
+	private static ASN1Encodable load(final ASN1Encodable object) throws IOException
+	{
+		if (object == null) {
+			throw new IOException("Truncated CRL.");
+		}
+		return object.toASN1Primitive();
+	}
+}
@@ -0,0 +1,162 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.pki;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of signature verification results, so that repeated validations do
+ * not verify the same (e.g. ML-DSA) signatures again.
+ *
+ * The key is the hash of the issuer public key and the hash of the signed
+ * data (TBS) together with the signature value; the signature is part of the
+ * key since a certificate with the same TBS but a different signature must be
+ * verified on its own. Only definite results are cached.
+ */
+public class VerificationCache {
+
+	private final Map<String, Boolean> results;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	@FunctionalInterface
+	private interface Verifier {
+
+		void verify() throws GeneralSecurityException;
+	}
+
+	/**
+	 * Creates the cache.
+	 *
+	 * @param maxEntries the maximum number of cached results (LRU).
+	 */
+	public VerificationCache(final int maxEntries) {
+		this.results = new LinkedHashMap<>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest)
+			{
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Verifies the signature of a certificate.
+	 *
+	 * @param certificate the certificate.
+	 * @param issuerKey   the public key of the issuer.
+	 * @return true if the signature is valid.
+	 */
+	public boolean verify(final X509Certificate certificate, final PublicKey issuerKey)
+	{
+		try {
+			return verify(certificate.getTBSCertificate(), certificate.getSignature(), issuerKey,
+					() -> certificate.verify(issuerKey, "BC"));
+		} catch (GeneralSecurityException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Verifies the signature of a CRL.
+	 *
+	 * @param crl       the CRL.
+	 * @param issuerKey the public key of the issuer.
+	 * @return true if the signature is valid.
+	 */
+	public boolean verify(final X509CRL crl, final PublicKey issuerKey)
+	{
+		try {
+			return verify(crl.getTBSCertList(), crl.getSignature(), issuerKey, () -> crl.verify(issuerKey, "BC"));
+		} catch (GeneralSecurityException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the number of cache hits.
+	 *
+	 * @return the hits.
+	 */
+	public long hits()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of cache misses.
+	 *
+	 * @return the misses.
+	 */
+	public long misses()
+	{
+		return misses.get();
+	}
+
+	private boolean verify(final byte[] tbs, final byte[] signature, final PublicKey issuerKey,
+			final Verifier verifier) throws NoSuchAlgorithmException
+	{
+		final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		final String keyHash = HexFormat.of().formatHex(digest.digest(issuerKey.getEncoded()));
+		digest.update(tbs);
+		final String key = keyHash + ":" + HexFormat.of().formatHex(digest.digest(signature));
+
+		Boolean result;
+		synchronized (results) {
+			result = results.get(key);
+		}
+		if (result != null) {
+			hits.incrementAndGet();
+			return result;
+		}
+		misses.incrementAndGet();
+
+		try {
+			verifier.verify();
+			result = Boolean.TRUE;
+		} catch (SignatureException e) {
+			result = Boolean.FALSE;
+		} catch (GeneralSecurityException e) {
+			// Unknown algorithm or unsuitable key: not cached.
+			return false;
+		}
+		synchronized (results) {
+			results.put(key, result);
+		}
+		return result;
+	}
+}
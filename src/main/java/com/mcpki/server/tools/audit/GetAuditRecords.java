@@ -0,0 +1,159 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.tools.audit;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.annotation.McpTool;
+import org.springframework.ai.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.audit.AuditJournal;
+import com.mcpki.server.audit.AuditLog.Action;
+import com.mcpki.server.audit.AuditLog.Verification;
+import com.mcpki.server.audit.AuditRecord;
+import com.mcpki.server.util.CanonicalDn;
+import com.mcpki.server.util.McpUtil;
+import com.mcpki.server.util.ResponseUtil;
+import com.mcpki.server.util.ValidationUtil;
+
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+
+/**
+ * MCP tool to query the audit journal of enrollments and revocations.
+ */
+@Service
+@ConditionalOnProperty(name = { "com.mcpki.server.tools.audit.GetAuditRecords",
+		"com.mcpki.server.audit.enabled" }, havingValue = "true", matchIfMissing = false)
+public class GetAuditRecords {
+
+	private static final Logger log = LoggerFactory.getLogger(GetAuditRecords.class);
+
+	@Value("${com.mcpki.server.dn.length.min}")
+	private int dnMinLength;
+
+	@Value("${com.mcpki.server.dn.length.max}")
+	private int dnMaxLength;
+
+	@Value("${com.mcpki.server.name.length.min}")
+	private int nameMinLength;
+
+	@Value("${com.mcpki.server.name.length.max}")
+	private int nameMaxLength;
+
+	@Value("${com.mcpki.server.tools.audit.GetAuditRecords.max.items:100}")
+	private int maxItems;
+
+	@Autowired
+	private AuditJournal auditJournal;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	/**
+	 * Returns the audit records matching the criteria in sequence order. Empty
+	 * criteria are ignored.
+	 * 
+	 * @param action        the operation (ISSUE, REVOKE).
+	 * @param issuer_dn     the issuer DN.
+	 * @param serial_number the serial number in hex format.
+	 * @param username      the end entity.
+	 * @param max           the maximum number of records.
+	 * @param cursor        the cursor of the previous page.
+	 * @param verify        verify the hash chain of the whole journal.
+	 * @param exchange      the MCP server exchange.
+	 * @return the matching records.
+	 */
+	@McpTool(name = "get_audit_records", description = "Queries the audit journal of certificate enrollments and revocations.")
+	public GetAuditRecordsResponse audit_getRecords(
+			@McpToolParam(description = "Operation (ISSUE, REVOKE).", required = false) final String action,
+			@McpToolParam(description = "Issuer DN.", required = false) final String issuer_dn,
+			@McpToolParam(description = "Certificate serial number in hex format.", required = false) final String serial_number,
+			@McpToolParam(description = "Name of the end entity.", required = false) final String username,
+			@McpToolParam(description = "Maximum number of records returned (max 100).", required = false) final Integer max,
+			@McpToolParam(description = "next_cursor of the previous response.", required = false) final String cursor,
+			@McpToolParam(description = "Verify the hash chain of the whole journal.", required = false) final Boolean verify,
+			final McpSyncServerExchange exchange)
+	{
+		try (Permit permit = admissionControl.acquire(exchange, "get_audit_records")) {
+			Predicate<AuditRecord> filter = record -> true;
+			if (action != null && !action.isBlank()) {
+				final String name = action.strip().toUpperCase();
+				if (!List.of(Action.ISSUE.name(), Action.REVOKE.name()).contains(name)) {
+					throw McpUtil.invalidParamsError("Invalid action.", action);
+				}
+				filter = filter.and(record -> name.equals(record.action()));
+			}
+			if (issuer_dn != null && !issuer_dn.isBlank()) {
+				final CanonicalDn issuer = ValidationUtil.assertValidIssuerDn(issuer_dn, dnMinLength, dnMaxLength);
+				filter = filter.and(record -> issuer.name().equals(record.issuer_dn()));
+			}
+			if (serial_number != null && !serial_number.isBlank()) {
+				filter = filter.and(record -> serial_number.strip().equalsIgnoreCase(record.serial_number()));
+			}
+			if (username != null && !username.isBlank()) {
+				ValidationUtil.assertValidName("username", username, nameMinLength, nameMaxLength);
+				filter = filter.and(record -> username.equals(record.username()));
+			}
+			final int count = max == null || max <= 0 ? maxItems : Math.min(max, maxItems);
+			final long from = cursor == null || cursor.isBlank() ? 0 : ResponseUtil.offset(cursor);
+
+			try {
+				final Verification verification = Boolean.TRUE.equals(verify) ? auditJournal.verify() : null;
+				final List<AuditRecord> records = auditJournal.read(from, count, filter);
+				final String next = records.size() < count ? null
+						: ResponseUtil.cursor(records.get(records.size() - 1).sequence() + 1);
+				if (log.isDebugEnabled()) {
+					log.debug("Audit query from {} returned {} records.", from, records.size());
+				}
+				return new GetAuditRecordsResponse(records, next, auditJournal.size(), verification, null);
+			} catch (IOException e) {
+				log.error("Failed to read audit journal: {}.", e.getMessage());
+				return new GetAuditRecordsResponse(null, null, 0, null, "Failed to read audit journal.");
+			}
+		}
+	}
+
+	// @formatter:off
+	/**
+	 * {
+	 *   "records": 		[{ "sequence": 0, "timestamp": 1751466855000, "action": "ISSUE", ... }],
+	 *   "next_cursor": 	"...",
+	 *   "total": 			1,
+	 *   "verification": 	{ "valid": true, "records": 1, ... },
+	 *   "error_message": 	null
+	 * }
+	 */
+	// @formatter:on
+	record GetAuditRecordsResponse(List<AuditRecord> records, String next_cursor, long total,
+			Verification verification, String error_message) {
+	}
+}
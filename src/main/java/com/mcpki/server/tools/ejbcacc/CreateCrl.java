@@ -26,17 +26,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.annotation.McpTool;
 import org.springframework.ai.mcp.annotation.McpToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.cache.PersistentCache;
+import com.mcpki.server.cache.ToolResultCache;
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+import com.mcpki.server.util.CanonicalDn;
 import com.mcpki.server.util.ValidationUtil;
 
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+
 /**
  * MCP tool to create a Certificate Revocation List (CRL) by an issuer.
  */
@@ -46,9 +50,6 @@ public class CreateCrl {
 
 	private static final Logger log = LoggerFactory.getLogger(CreateCrl.class);
 
-	@Value("${com.mcpki.server.tools.ejbca.rest.url}")
-	private String baseUrl;
-
 	@Value("${com.mcpki.server.dn.length.min}")
 	private int dnMinLength;
 
@@ -56,31 +57,38 @@ public class CreateCrl {
 	private int dnMaxLength;
 
 	@Autowired
-	@Qualifier("tls")
-	public RestTemplate restTemplate;
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	@Autowired
+	private PersistentCache persistentCache;
+
+	@Autowired
+	private ToolResultCache toolResultCache;
 
 	/**
 	 * Issues a Certificate Revocation List (CRL) for the given issuer DN.
 	 * 
 	 * @param issuer_dn the issuer DN.
+	 * @param exchange  the MCP server exchange.
 	 * @return the CreateCrlResponse object.
 	 */
 	@McpTool(name = "create_crl", description = "Create CRL.")
 	public CreateCrlResponse ejbca_createCrl(
-			@McpToolParam(description = "The subject DN of the issuing CA.") final String issuer_dn)
+			@McpToolParam(description = "The subject DN of the issuing CA.") final String issuer_dn,
+			final McpSyncServerExchange exchange)
 	{
-		ValidationUtil.assertValidIssuerDn(issuer_dn, dnMinLength, dnMaxLength);
+		try (Permit permit = admissionControl.acquire(exchange, "create_crl")) {
+			final CanonicalDn issuer = ValidationUtil.assertValidIssuerDn(issuer_dn, dnMinLength, dnMaxLength);
 
-		final String url = baseUrl + "/v1/ca/" + issuer_dn + "/createcrl?deltacrl=false";
-		if (log.isDebugEnabled()) {
-			log.debug("Requested URL: " + url);
+			final CreateCrlResponse response = ejbca.post(Endpoint.CREATE_CRL, "{}", CreateCrlResponse.class,
+					issuer);
+			persistentCache.invalidate(PersistentCache.CRL, issuer.name());
+			toolResultCache.invalidate(ToolResultCache.CRLS);
+			return response;
 		}
-
-		final HttpHeaders headers = new HttpHeaders();
-		headers.setContentType(MediaType.APPLICATION_JSON);
-		final HttpEntity<String> request = new HttpEntity<String>("{}", headers);
-		final CreateCrlResponse response = restTemplate.postForObject(url, request, CreateCrlResponse.class);
-		return response;
 	}
 
 	// @formatter:off
@@ -21,29 +21,35 @@
 
 package com.mcpki.server.tools.ejbcacc;
 
-import java.util.Map;
-import java.util.TreeMap;
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+import java.util.List;
 
-import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.annotation.McpTool;
 import org.springframework.ai.mcp.annotation.McpToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import com.mcpki.server.util.McpUtil;
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.audit.AuditJournal;
+import com.mcpki.server.cache.ToolResultCache;
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+import com.mcpki.server.ejbca.EjbcaClient.Idempotent;
+import com.mcpki.server.inventory.CertificateCounters;
+import com.mcpki.server.util.CanonicalDn;
+import com.mcpki.server.util.LogPayload;
 import com.mcpki.server.util.PemUtil;
 import com.mcpki.server.util.ValidationUtil;
 
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+
 /**
  * MCP tool to enroll a certificate with a Certificate Signing Request (CSR).
  */
@@ -53,9 +59,6 @@ public class EnrollCertificateWithCsr {
 
 	private static final Logger log = LoggerFactory.getLogger(EnrollCertificateWithCsr.class);
 
-	@Value("${com.mcpki.server.tools.ejbca.rest.url}")
-	private String baseUrl;
-
 	@Value("${com.mcpki.server.email.length.min}")
 	private int emailMinLength;
 
@@ -84,8 +87,19 @@ public class EnrollCertificateWithCsr {
 	private String pwdAllowedCharacters;
 
 	@Autowired
-	@Qualifier("tls")
-	public RestTemplate restTemplate;
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	@Autowired
+	private CertificateCounters counters;
+
+	@Autowired
+	private ToolResultCache toolResultCache;
+
+	@Autowired
+	private AuditJournal auditJournal;
 
 	/**
 	 * Enrolls a certificate given the PKCS#10 Certificate Signing Request (CSR) and
@@ -99,6 +113,7 @@ public class EnrollCertificateWithCsr {
 	 * @param password                 the user password.
 	 * @param includeChain             include the CA certificate chain.
 	 * @param email                    the user e-mail address.
+	 * @param exchange                 the MCP server exchange.
 	 * @return the PEM formatted certificate.
 	 */
 	@McpTool(name = "enroll_certificate_with_csr", description = "Enrolls a certificate given a CSR.")
@@ -109,65 +124,116 @@ public class EnrollCertificateWithCsr {
 			@McpToolParam(description = "Name of the issuing CA.") final String name_of_ca,
 			@McpToolParam(description = "Name of the end entity.") final String username,
 			@McpToolParam(description = "Password of the end entity.") final String password,
-			@McpToolParam(description = "Email of the end entity.") final String email)
+			@McpToolParam(description = "Email of the end entity.") final String email,
+			final McpSyncServerExchange exchange)
 	{
-		final String url = baseUrl + "/v1/certificate/pkcs10enroll";
+		try (Permit permit = admissionControl.acquire(exchange, "enroll_certificate_with_csr")) {
+			if (log.isDebugEnabled()) {
+				log.debug("Enrollment: username={}, profile={}, ca={}, csr={}.", LogPayload.of(username),
+						LogPayload.of(certificate_profile_name), LogPayload.of(name_of_ca), LogPayload.of(csr));
+			}
 
-		if (log.isDebugEnabled()) {
-			log.debug("Requested URL: " + url);
-		}
-		if (log.isDebugEnabled()) {
-			log.debug("CSR: " + csr);
+			ValidationUtil.assertValidPassword(password, pwdMinStrength, pwdMaxStrength, pwdAllowedCharacters);
+			ValidationUtil.assertValidName("certificateProfileName", certificate_profile_name, nameMinLength,
+					nameMaxLength);
+			ValidationUtil.assertValidName("endEntityProfileName", end_entity_profile_name, nameMinLength, nameMaxLength);
+			ValidationUtil.assertValidName("username", username, nameMinLength, nameMaxLength);
+			ValidationUtil.assertValidEmail(email, emailMinLength, emailMaxLength);
+			ValidationUtil.assertValidPem("csr", csr, pemMinStrength, pemMaxStrength);
+
+			return enroll(csr, certificate_profile_name, end_entity_profile_name, name_of_ca, username, password,
+					email);
 		}
+	}
 
-		final HttpHeaders headers = new HttpHeaders();
-		headers.setContentType(MediaType.APPLICATION_JSON);
-
-		ValidationUtil.assertValidPassword(password, pwdMinStrength, pwdMaxStrength, pwdAllowedCharacters);
-		ValidationUtil.assertValidName("certificateProfileName", certificate_profile_name, nameMinLength,
-				nameMaxLength);
-		ValidationUtil.assertValidName("endEntityProfileName", end_entity_profile_name, nameMinLength, nameMaxLength);
-		ValidationUtil.assertValidName("username", username, nameMinLength, nameMaxLength);
-		ValidationUtil.assertValidEmail(email, emailMinLength, emailMaxLength);
-		ValidationUtil.assertValidPem("csr", csr, pemMinStrength, pemMaxStrength);
-
-		final Map<String, Object> param = new TreeMap<>();
-		param.put("certificate_request", csr);
-		param.put("certificate_profile_name", certificate_profile_name);
-		param.put("end_entity_profile_name", end_entity_profile_name);
-		param.put("certificate_authority_name", name_of_ca);
-		param.put("username", username);
-		param.put("password", password);
-		param.put("include_chain", Boolean.toString(false));
-		param.put("email", email);
-		param.put("reponse_format", "PEM");
-		final JSONObject json = new JSONObject(param);
-
-		final HttpEntity<String> request = new HttpEntity<String>(json.toJSONString(), headers);
+	/**
+	 * Sends the enrollment request to EJBCA. The parameters must be validated by
+	 * the caller. The request is idempotent for the CSR, the username and the
+	 * password: a repeated request gets the certificate of the first one.
+	 * 
+	 * @param csr                      the PEM formatted CSR.
+	 * @param certificate_profile_name the certificate profile name.
+	 * @param end_entity_profile_name  the end entity profile name.
+	 * @param name_of_ca               the CA name.
+	 * @param username                 the username.
+	 * @param password                 the user password.
+	 * @param email                    the user e-mail address.
+	 * @return the PEM formatted certificate or an error message.
+	 */
+	EnrollCertificateWithCsrResponse enroll(final String csr, final String certificate_profile_name,
+			final String end_entity_profile_name, final String name_of_ca, final String username,
+			final String password, final String email)
+	{
+		// The request record is serialized straight into the request body.
+		final EnrollCertificateWithCsrRequest request = new EnrollCertificateWithCsrRequest(csr,
+				certificate_profile_name, end_entity_profile_name, name_of_ca, username, password, false, email);
+		final Idempotent<EnrollCertificateWithCsrResponse> enrolled;
 		EnrollCertificateWithCsrResponse payload;
 
 		try {
-			payload = restTemplate.postForObject(url, request, EnrollCertificateWithCsrResponse.class);
+			// The profiles and the CA are part of the key, so that a request for
+			// another profile is not answered with the certificate of the first,
+			// and the password, so that EJBCA authorizes a request with another.
+			enrolled = ejbca.postIdempotent(EjbcaClient.idempotencyKey(csr, username, password,
+					certificate_profile_name, end_entity_profile_name, name_of_ca), Endpoint.PKCS10_ENROLL, request,
+					EnrollCertificateWithCsrResponse.class);
+			payload = enrolled.response();
 			final String pem = PemUtil.toPemCertificate(payload.certificate());
 			if (log.isDebugEnabled()) {
-				log.debug("Generated certificate: \n{}", pem);
+				log.debug("Generated certificate: serial_number={}, certificate={}.", payload.serial_number(),
+						LogPayload.of(pem));
 			}
 			if (ValidationUtil.isValidPem(pem, pemMinStrength, pemMaxStrength)) {
+				if (!enrolled.replayed()) {
+					record(pem, payload.serial_number(), certificate_profile_name, username);
+					toolResultCache.invalidate(ToolResultCache.CERTIFICATES);
+				}
 				return new EnrollCertificateWithCsrResponse(pem, payload.serial_number(), "PEM",
 						payload.error_message());
 			} else {
-				return new EnrollCertificateWithCsrResponse(null, null, null,
-						McpUtil.sanitizeResponse("Certificate is invalid PEM format.", baseUrl));
+				return new EnrollCertificateWithCsrResponse(null, null, null, "Certificate is invalid PEM format.");
 			}
 		} catch (RestClientException e) {
 			// Connection refused and others land here, so sanitize response.
 			// Also others land here:
 			// Certificate profile with name abc not found.
-			return new EnrollCertificateWithCsrResponse(null, null, null, McpUtil
-					.sanitizeResponse(e.getMessage() + " --- " + e.getCause() + " --- " + e.getRootCause(), baseUrl));
+			return new EnrollCertificateWithCsrResponse(null, null, null, ejbca.errorMessage(e));
 		}
 	}
 
+	/**
+	 * Counts the issued certificate in the local counters and records it in the
+	 * audit journal.
+	 */
+	private void record(final String pem, final String serial_number, final String certificate_profile_name,
+			final String username)
+	{
+		if (!counters.isEnabled() && !auditJournal.isEnabled()) {
+			return;
+		}
+		String issuer = null;
+		try {
+			final List<X509Certificate> certificates = PemUtil.readPemCertificates(pem);
+			final CanonicalDn dn = certificates.isEmpty() ? null
+					: CanonicalDn.of(certificates.get(0).getIssuerX500Principal().getName());
+			if (dn != null) {
+				issuer = dn.name();
+			}
+		} catch (IOException e) {
+			log.warn("Failed to read issuer of enrolled certificate: {}.", e.getMessage());
+		}
+		counters.issued(issuer, certificate_profile_name);
+		auditJournal.issued(issuer, serial_number, username, certificate_profile_name);
+	}
+
+	/**
+	 * Body of the PKCS#10 enrollment request.
+	 */
+	record EnrollCertificateWithCsrRequest(String certificate_request, String certificate_profile_name,
+			String end_entity_profile_name, String certificate_authority_name, String username, String password,
+			boolean include_chain, String email) {
+	}
+
 	// @formatter:off
 	/**
      * {
@@ -0,0 +1,253 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.tools.ejbcacc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.annotation.McpTool;
+import org.springframework.ai.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.keygen.KeyAlgorithm;
+import com.mcpki.server.keygen.KeyPairPool;
+import com.mcpki.server.tools.ejbcacc.EnrollCertificateWithCsr.EnrollCertificateWithCsrResponse;
+import com.mcpki.server.tools.ejbcacc.RevokeCertificate.RevokeCertificateResponse;
+import com.mcpki.server.util.CanonicalDn;
+import com.mcpki.server.util.McpUtil;
+import com.mcpki.server.util.PemUtil;
+import com.mcpki.server.util.ValidationUtil;
+
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+
+/**
+ * MCP tool to enroll a certificate with a server-side generated key pair. Key
+ * pairs are drawn from a pool of pre-generated key pairs, so the critical path
+ * is a CSR signature plus the enrollment round-trip to EJBCA.
+ */
+@Service
+@ConditionalOnProperty(name = { "com.mcpki.server.tools.ejbca.EnrollCertificateWithServerKey",
+		"com.mcpki.server.tools.ejbca.EnrollCertificateWithCsr" }, havingValue = "true", matchIfMissing = false)
+public class EnrollCertificateWithServerKey {
+
+	private static final Logger log = LoggerFactory.getLogger(EnrollCertificateWithServerKey.class);
+
+	@Value("${com.mcpki.server.email.length.min}")
+	private int emailMinLength;
+
+	@Value("${com.mcpki.server.email.length.max}")
+	private int emailMaxLength;
+
+	@Value("${com.mcpki.server.name.length.min}")
+	private int nameMinLength;
+
+	@Value("${com.mcpki.server.name.length.max}")
+	private int nameMaxLength;
+
+	@Value("${com.mcpki.server.dn.length.min}")
+	private int dnMinLength;
+
+	@Value("${com.mcpki.server.dn.length.max}")
+	private int dnMaxLength;
+
+	@Value("${com.mcpki.server.password.strength.min}")
+	private int pwdMinStrength;
+
+	@Value("${com.mcpki.server.password.strength.max}")
+	private int pwdMaxStrength;
+
+	@Value("${com.mcpki.server.password.allowedCharacters}")
+	private String pwdAllowedCharacters;
+
+	@Autowired
+	private EnrollCertificateWithCsr enrollCertificateWithCsr;
+
+	@Autowired
+	private ObjectProvider<RevokeCertificate> revokeCertificate;
+
+	@Autowired
+	private KeyPairPool keyPairPool;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	/**
+	 * Enrolls a certificate for a server-side generated key pair and returns the
+	 * key and certificate as PKCS#12 key store protected by the end entity
+	 * password. The key store is checked before the enrollment; if it still
+	 * cannot be created afterwards, the certificate is revoked.
+	 * 
+	 * @param key_algorithm            the key algorithm (RSA-3072, P-256 or
+	 *                                 ML-DSA-44).
+	 * @param subject_dn               the subject DN of the certificate.
+	 * @param certificate_profile_name the certificate profile name.
+	 * @param end_entity_profile_name  the end entity profile name.
+	 * @param name_of_ca               the CA name.
+	 * @param username                 the username.
+	 * @param password                 the user password (also protects the key
+	 *                                 store).
+	 * @param email                    the user e-mail address.
+	 * @param exchange                 the MCP server exchange.
+	 * @return the certificate and the base64 encoded PKCS#12 key store.
+	 */
+	@McpTool(name = "enroll_certificate_with_server_key", description = "Enrolls a certificate with a server-side generated key pair.")
+	public EnrollCertificateWithServerKeyResponse ejbca_enrollWithServerKey(
+			@McpToolParam(description = "Key algorithm (RSA-3072, P-256 or ML-DSA-44).") final String key_algorithm,
+			@McpToolParam(description = "Subject DN of the certificate.") final String subject_dn,
+			@McpToolParam(description = "Name of the certificate profile.") final String certificate_profile_name,
+			@McpToolParam(description = "Name of the end entity profile.") final String end_entity_profile_name,
+			@McpToolParam(description = "Name of the issuing CA.") final String name_of_ca,
+			@McpToolParam(description = "Name of the end entity.") final String username,
+			@McpToolParam(description = "Password of the end entity.") final String password,
+			@McpToolParam(description = "Email of the end entity.") final String email,
+			final McpSyncServerExchange exchange)
+	{
+		try (Permit permit = admissionControl.acquire(exchange, "enroll_certificate_with_server_key")) {
+			final KeyAlgorithm algorithm = KeyAlgorithm.of(key_algorithm);
+			if (algorithm == null) {
+				throw McpUtil.invalidParamsError("Invalid key algorithm.", key_algorithm);
+			}
+			ValidationUtil.assertValidIssuerDn(subject_dn, dnMinLength, dnMaxLength);
+			ValidationUtil.assertValidPassword(password, pwdMinStrength, pwdMaxStrength, pwdAllowedCharacters);
+			ValidationUtil.assertValidName("certificateProfileName", certificate_profile_name, nameMinLength,
+					nameMaxLength);
+			ValidationUtil.assertValidName("endEntityProfileName", end_entity_profile_name, nameMinLength, nameMaxLength);
+			ValidationUtil.assertValidName("username", username, nameMinLength, nameMaxLength);
+			ValidationUtil.assertValidEmail(email, emailMinLength, emailMaxLength);
+
+			final KeyPair keyPair;
+			final KeyStore keyStore;
+			final String csr;
+			try {
+				keyPair = keyPairPool.take(algorithm);
+				// Fail before the enrollment rather than with an issued certificate.
+				keyStore = KeyStore.getInstance("PKCS12", "BC");
+				keyStore.load(null, null);
+				if (!"PKCS#8".equals(keyPair.getPrivate().getFormat())) {
+					throw new IllegalStateException("Private key not PKCS#8 encodable.");
+				}
+				final PKCS10CertificationRequest request = new JcaPKCS10CertificationRequestBuilder(
+						new X500Name(subject_dn), keyPair.getPublic()).build(
+								new JcaContentSignerBuilder(algorithm.signatureAlgorithm()).setProvider("BC")
+										.build(keyPair.getPrivate()));
+				csr = PemUtil.toPemCsr(Base64.getEncoder().encodeToString(request.getEncoded()));
+			} catch (Exception e) {
+				log.warn("Failed to create {} CSR: {}.", algorithm.label(), e.getMessage());
+				return new EnrollCertificateWithServerKeyResponse(null, null, null, null, algorithm.label(),
+						"Failed to create key pair, key store or CSR.");
+			}
+
+			final EnrollCertificateWithCsrResponse response = enrollCertificateWithCsr.enroll(csr,
+					certificate_profile_name, end_entity_profile_name, name_of_ca, username, password, email);
+			if (response.certificate() == null) {
+				return new EnrollCertificateWithServerKeyResponse(null, null, null, null, algorithm.label(),
+						response.error_message());
+			}
+
+			Certificate certificate = null;
+			try {
+				certificate = CertificateFactory.getInstance("X.509").generateCertificate(
+						new ByteArrayInputStream(response.certificate().getBytes(StandardCharsets.US_ASCII)));
+				keyStore.setKeyEntry(username, keyPair.getPrivate(), password.toCharArray(),
+						new Certificate[] { certificate });
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				keyStore.store(out, password.toCharArray());
+				return new EnrollCertificateWithServerKeyResponse(response.certificate(), response.serial_number(),
+						Base64.getEncoder().encodeToString(out.toByteArray()), "PKCS12", algorithm.label(), null);
+			} catch (Exception e) {
+				log.warn("Failed to create PKCS#12 key store for {}: {}.", response.serial_number(), e.getMessage());
+				// Without the key store the private key is lost, so the certificate
+				// must not stay valid.
+				final boolean revoked = revoke(certificate, response.serial_number(), password);
+				return new EnrollCertificateWithServerKeyResponse(response.certificate(), response.serial_number(),
+						null, null, algorithm.label(),
+						revoked ? "Failed to create key store, the issued certificate has been revoked."
+								: "Failed to create key store, the issued certificate could not be revoked.");
+			}
+		}
+	}
+
+	/**
+	 * Revokes a certificate whose key store could not be created.
+	 *
+	 * @return true if the certificate is revoked.
+	 */
+	private boolean revoke(final Certificate certificate, final String serial_number, final String password)
+	{
+		final RevokeCertificate revoker = revokeCertificate.getIfAvailable();
+		final CanonicalDn issuer = certificate instanceof X509Certificate x509
+				? CanonicalDn.of(x509.getIssuerX500Principal().getName())
+				: null;
+		if (revoker == null || issuer == null || serial_number == null) {
+			log.error("Certificate {} of {} issued without key store and not revoked.", serial_number, issuer);
+			return false;
+		}
+		try {
+			final RevokeCertificateResponse response = revoker.revoke(issuer, serial_number, password,
+					"CESSATION_OF_OPERATION");
+			if (response != null && response.revoked()) {
+				log.info("Revoked certificate {} of {} issued without key store.", serial_number, issuer);
+				return true;
+			}
+		} catch (RestClientException e) {
+			log.warn("Failed to revoke certificate {} of {}: {}.", serial_number, issuer, e.getMessage());
+		}
+		log.error("Certificate {} of {} issued without key store and not revoked.", serial_number, issuer);
+		return false;
+	}
+
+	// @formatter:off
+	/**
+	 * {
+	 *   "certificate": 		"-----BEGIN CERTIFICATE-----\nMII...",
+	 *   "serial_number":		"3317571EB0DF61426A1A6A380DB03C23A1266E8E",
+	 *   "keystore":			"MIIK...",
+	 *   "keystore_format": 	"PKCS12",
+	 *   "key_algorithm": 		"P-256",
+	 *   "error_message": 		null
+	 * }
+	 */
+	// @formatter:on
+	record EnrollCertificateWithServerKeyResponse(String certificate, String serial_number, String keystore,
+			String keystore_format, String key_algorithm, String error_message) {
+	}
+}
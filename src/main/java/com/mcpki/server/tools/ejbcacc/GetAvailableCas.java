@@ -21,6 +21,9 @@
 
 package com.mcpki.server.tools.ejbcacc;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.annotation.McpTool;
@@ -30,10 +33,17 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import com.mcpki.server.util.McpUtil;
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.cache.BoundedCache;
+import com.mcpki.server.cache.SwrCache;
+import com.mcpki.server.cache.ToolCache;
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import jakarta.annotation.PostConstruct;
 
 /**
  * MCP tool to get a list of available Certification Authorities (CA).
@@ -44,38 +54,90 @@ public class GetAvailableCas {
 
 	private static final Logger log = LoggerFactory.getLogger(GetAvailableCas.class);
 
-	@Value("${com.mcpki.server.tools.ejbca.rest.url}")
-	private String baseUrl;
+	@Value("${com.mcpki.server.tools.ejbca.GetAvailableCas.cache.soft.ttl.seconds:300}")
+	private long softTtlSeconds;
+
+	@Value("${com.mcpki.server.tools.ejbca.GetAvailableCas.cache.hard.ttl.seconds:86400}")
+	private long hardTtlSeconds;
+
+	@Autowired
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private AdmissionControl admissionControl;
 
 	@Autowired
-	@Qualifier("tls")
-	public RestTemplate restTemplate;
+	@Qualifier("cacheRefreshExecutor")
+	private ExecutorService cacheRefreshExecutor;
+
+	private SwrCache<Boolean, GetAvailableCasResponse> cache;
+
+	@PostConstruct
+	void init()
+	{
+		cache = new SwrCache<>("CA list", Duration.ofSeconds(softTtlSeconds), Duration.ofSeconds(hardTtlSeconds),
+				cacheRefreshExecutor);
+	}
 
 	/**
-	 * Returns the list of available Certification Authorities (CA).
+	 * Returns the list of available Certification Authorities (CA). The list is
+	 * served from the cache and refreshed in the background; if EJBCA fails, the
+	 * last list is returned with "stale": true.
 	 * 
 	 * @param external true if external CA are returned.
+	 * @param exchange the MCP server exchange.
 	 * @return the list of available CAs.
 	 */
+	@ToolCache(ttlSeconds = 60, maxEntries = 2, eviction = BoundedCache.Eviction.LRU)
 	@McpTool(name = "get_available_cas", description = "Get the list of available CAs.")
 	public GetAvailableCasResponse ejbca_getCas(
-			@McpToolParam(description = "True if external CAs a returned also.") final boolean external)
+			@McpToolParam(description = "True if external CAs a returned also.") final boolean external,
+			final McpSyncServerExchange exchange)
+	{
+		try (Permit permit = admissionControl.acquire(exchange, "get_available_cas")) {
+			return cas(external);
+		}
+	}
+
+	/**
+	 * Returns the list of available CAs from the cache without admission control,
+	 * e.g. for the warm-up.
+	 * 
+	 * @param external true if external CA are returned.
+	 * @return the list of available CAs or an error message.
+	 */
+	public GetAvailableCasResponse cas(final boolean external)
 	{
-		final String url = baseUrl + "/v1/ca?includeExternal=" + external;
 		try {
-			final GetAvailableCasResponse payload = restTemplate.getForObject(url, GetAvailableCasResponse.class);
-			if (log.isDebugEnabled()) {
-				if (payload.certificate_authorities != null) {
-					for (CaResponse response : payload.certificate_authorities) {
-						log.debug("CA: {}, expires at {}.", response.name, response.expiration_date);
-					}
-				}
+			final SwrCache.Value<GetAvailableCasResponse> cas = cache.get(external, () -> load(external));
+			if (cas.stale()) {
+				return new GetAvailableCasResponse(cas.value().certificate_authorities, cas.value().error_message,
+						true);
 			}
-			return payload;
-		} catch (RestClientException e) {
+			return cas.value();
+		} catch (Exception e) {
 			// Connection refused and others land here, so sanitize response.
-			return new GetAvailableCasResponse(null, McpUtil.sanitizeResponse(e.getMessage(), baseUrl));
+			return new GetAvailableCasResponse(null, ejbca.errorMessage(e), false);
+		}
+	}
+
+	/**
+	 * Loads the list of CAs from EJBCA.
+	 * 
+	 * @param external true if external CA are returned.
+	 * @return the list of available CAs.
+	 */
+	private GetAvailableCasResponse load(final boolean external)
+	{
+		final GetAvailableCasResponse payload = ejbca.get(Endpoint.CAS, GetAvailableCasResponse.class, external);
+		if (log.isDebugEnabled()) {
+			if (payload.certificate_authorities != null) {
+				for (CaResponse response : payload.certificate_authorities) {
+					log.debug("CA: {}, expires at {}.", response.name, response.expiration_date);
+				}
+			}
 		}
+		return payload;
 	}
 
 	// @formatter:off
@@ -92,10 +154,10 @@ public class GetAvailableCas {
 	 * ]}
 	 */
 	// @formatter:on
-	record GetAvailableCasResponse(CaResponse[] certificate_authorities, String error_message) {
+	public record GetAvailableCasResponse(CaResponse[] certificate_authorities, String error_message, boolean stale) {
 	}
 
-	record CaResponse(long id, String name, String subject_dn, String issuer_dn, String expiration_date,
+	public record CaResponse(long id, String name, String subject_dn, String issuer_dn, String expiration_date,
 			boolean external) {
 	}
 }
@@ -21,24 +21,28 @@
 
 package com.mcpki.server.tools.ejbcacc;
 
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.annotation.McpTool;
 import org.springframework.ai.mcp.annotation.McpToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import com.mcpki.server.util.McpUtil;
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.cache.PersistentCache;
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+import com.mcpki.server.util.CanonicalDn;
+import com.mcpki.server.util.LogPayload;
 import com.mcpki.server.util.ValidationUtil;
 
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+
 /**
  * MCP tool the get a CA certificate (chain).
  */
@@ -48,9 +52,6 @@ public class GetCaCertificate {
 
 	private static final Logger log = LoggerFactory.getLogger(GetCaCertificate.class);
 
-	@Value("${com.mcpki.server.tools.ejbca.rest.url}")
-	private String baseUrl;
-
 	@Value("${com.mcpki.server.dn.length.min}")
 	private int dnMinLength;
 
@@ -58,47 +59,101 @@ public class GetCaCertificate {
 	private int dnMaxLength;
 
 	@Autowired
-	@Qualifier("tls")
-	public RestTemplate restTemplate;
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	@Autowired
+	private PersistentCache persistentCache;
 
 	/**
 	 * Returns the PEM formatted CA certificate chain (last is root CA) including
-	 * boundaries and Subject / Issuer annotation.
+	 * boundaries and Subject / Issuer annotation. Chains are kept in the
+	 * persistent cache.
 	 * 
 	 * @param subject_dn the subject DN of the issuing CA.
+	 * @param exchange   the MCP server exchange.
 	 * @return the CA certificate chain.
 	 */
 	@McpTool(name = "get_ca_certificate", description = "Get CA certificate.")
 	public GetCaCertificateResponse ejbca_getCaCertificate(
-			@McpToolParam(description = "The subject DN of the CA certificate.") String subject_dn)
+			@McpToolParam(description = "The subject DN of the CA certificate.") String subject_dn,
+			final McpSyncServerExchange exchange)
 	{
-		ValidationUtil.assertValidIssuerDn(subject_dn, dnMinLength, dnMaxLength);
+		try (Permit permit = admissionControl.acquire(exchange, "get_ca_certificate")) {
+			return caCertificate(ValidationUtil.assertValidIssuerDn(subject_dn, dnMinLength, dnMaxLength));
+		}
+	}
 
-		final String url = baseUrl + "/v1/ca/" + subject_dn + "/certificate/download";
-		if (log.isDebugEnabled()) {
-			log.debug("Requested URL: " + url);
+	/**
+	 * Returns the CA certificate chain without admission control, for use by other
+	 * components.
+	 * 
+	 * @param subject_dn the canonical subject DN of the issuing CA.
+	 * @return the CA certificate chain.
+	 */
+	public GetCaCertificateResponse caCertificate(final CanonicalDn subject_dn)
+	{
+		final String cached = persistentCache.get(PersistentCache.CA_CHAIN, subject_dn.name(),
+				() -> download(subject_dn));
+		if (cached != null) {
+			return new GetCaCertificateResponse(cached, null, null);
 		}
 
 		String payload;
 		try {
-			payload = restTemplate.getForObject(url, String.class);
+			payload = ejbca.get(Endpoint.CA_CERTIFICATE, String.class, subject_dn);
 			if (log.isDebugEnabled()) {
-				log.debug("Got CA certificate chain for {}: {}: ", subject_dn, payload);
+				log.debug("Got CA certificate chain: subject_dn={}, chain={}.", subject_dn, LogPayload.of(payload));
 			}
 		} catch (RestClientException e) {
-			// Connection refused and others land here, so sanitize response.
-			return new GetCaCertificateResponse(McpUtil.sanitizeResponse(e.getMessage(), baseUrl), null, null);
+			// Connection refused and others land here, so sanitize response. The
+			// chain stays null, so that callers can tell the error from a chain.
+			return new GetCaCertificateResponse(null, e instanceof HttpStatusCodeException h
+					? String.valueOf(h.getStatusCode().value()) : "503", ejbca.errorMessage(e));
 		}
 
-		// If the string can be parsed as JSON string, it should be an error, otherwise
-		// it is a string of the PEM encoded CA chain or a connection error.
-		try {
-			final JSONObject error = (JSONObject) new JSONParser().parse(payload);
-			log.warn("Error: " + error.toJSONString());
+		// A JSON object is an error, otherwise it is a string of the PEM encoded CA
+		// chain.
+		if (payload == null || isJsonObject(payload)) {
+			log.warn("Failed to get CA certificate chain: subject_dn={}, response={}.", subject_dn,
+					LogPayload.of(payload));
 			return new GetCaCertificateResponse(null, "400", "CA certificate chain was found.");
-		} catch (ParseException e) {
-			return new GetCaCertificateResponse(payload, null, null);
 		}
+		persistentCache.put(PersistentCache.CA_CHAIN, subject_dn.name(), payload);
+		return new GetCaCertificateResponse(payload, null, null);
+	}
+
+	/**
+	 * Downloads the CA certificate chain for the revalidation of the cache.
+	 * 
+	 * @param subject_dn the canonical subject DN of the issuing CA.
+	 * @return the CA certificate chain or null on errors.
+	 */
+	private String download(final CanonicalDn subject_dn)
+	{
+		final String payload = ejbca.get(Endpoint.CA_CERTIFICATE, String.class, subject_dn);
+		return isJsonObject(payload) ? null : payload;
+	}
+
+	/**
+	 * Returns true if the payload is a JSON object (an error response), which is
+	 * told from the annotated PEM chain by the first non-whitespace character
+	 * instead of parsing it.
+	 */
+	static boolean isJsonObject(final String payload)
+	{
+		if (payload == null) {
+			return false;
+		}
+		for (int i = 0; i < payload.length(); i++) {
+			final char c = payload.charAt(i);
+			if (!Character.isWhitespace(c)) {
+				return c == '{';
+			}
+		}
+		return false;
 	}
 
 	// @formatter:off
@@ -114,6 +169,6 @@ public class GetCaCertificate {
 	 * }
 	 */
 	// @formatter:on
-	record GetCaCertificateResponse(String ca_chain, String error_code, String error_message) {
+	public record GetCaCertificateResponse(String ca_chain, String error_code, String error_message) {
 	}
 }
@@ -21,6 +21,14 @@
 
 package com.mcpki.server.tools.ejbcacc;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.annotation.McpTool;
@@ -30,12 +38,21 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import com.mcpki.server.util.McpUtil;
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.cache.PersistentCache;
+import com.mcpki.server.cache.SwrCache;
+import com.mcpki.server.cache.ToolCache;
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+import com.mcpki.server.util.ResponseUtil;
+import com.mcpki.server.util.ResponseUtil.Page;
 import com.mcpki.server.util.ValidationUtil;
 
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import jakarta.annotation.PostConstruct;
+
 /**
  * MCP tool to get a certificate profile detail information.
  */
@@ -45,42 +62,156 @@ public class GetCertificateProfile {
 
 	private static final Logger log = LoggerFactory.getLogger(GetCertificateProfile.class);
 
-	@Value("${com.mcpki.server.tools.ejbca.rest.url}")
-	private String baseUrl;
-
 	@Value("${com.mcpki.server.name.length.min}")
 	private int nameMinLength;
 
 	@Value("${com.mcpki.server.name.length.max}")
 	private int nameMaxLength;
 
+	@Value("${com.mcpki.server.tools.ejbca.GetCertificateProfile.cache.soft.ttl.seconds:300}")
+	private long softTtlSeconds;
+
+	@Value("${com.mcpki.server.tools.ejbca.GetCertificateProfile.cache.hard.ttl.seconds:86400}")
+	private long hardTtlSeconds;
+
+	@Value("${com.mcpki.server.response.max.bytes:16384}")
+	private int maxResponseBytes;
+
+	@Autowired
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
 	@Autowired
-	@Qualifier("tls")
-	public RestTemplate restTemplate;
+	private PersistentCache persistentCache;
+
+	@Autowired
+	@Qualifier("cacheRefreshExecutor")
+	private ExecutorService cacheRefreshExecutor;
+
+	private SwrCache<String, String> cache;
+
+	@PostConstruct
+	void init()
+	{
+		cache = new SwrCache<>("certificate profile", Duration.ofSeconds(softTtlSeconds),
+				Duration.ofSeconds(hardTtlSeconds), cacheRefreshExecutor);
+	}
 
 	/**
-	 * Returns the certificate profile with the given name.
+	 * Returns the certificate profile with the given name. Profiles are served
+	 * from the cache and refreshed in the background; if EJBCA fails, the last
+	 * profile is returned with "stale": true.
+	 * 
+	 * If fields are requested, only these are returned. Profiles exceeding the
+	 * response size budget are returned in pages of fields (sorted by name) with
+	 * a "next_cursor" to request the next page.
 	 * 
-	 * @param name the name
+	 * @param name     the name
+	 * @param fields   the comma separated fields.
+	 * @param cursor   the cursor of the previous response.
+	 * @param exchange the MCP server exchange.
 	 * @return the certificate profile
 	 */
+	@ToolCache(ttlSeconds = 60, maxEntries = 1000)
 	@McpTool(name = "get_certificate_profile", description = "Get certificate profile.")
 	public String ejbca_getCertificateProfile(
-			@McpToolParam(description = "The name of the certificate profile.") final String name)
+			@McpToolParam(description = "The name of the certificate profile.") final String name,
+			@McpToolParam(description = "Comma separated fields of the profile (e.g. available_key_algorithms).", required = false) final String fields,
+			@McpToolParam(description = "next_cursor of the previous response.", required = false) final String cursor,
+			final McpSyncServerExchange exchange)
 	{
-		ValidationUtil.assertValidName("certificateProfileName", name, nameMinLength, nameMaxLength);
+		try (Permit permit = admissionControl.acquire(exchange, "get_certificate_profile")) {
+			ValidationUtil.assertValidName("certificateProfileName", name, nameMinLength, nameMaxLength);
+			final List<String> projection = ResponseUtil.parseFields(fields);
+			final int start = cursor == null || cursor.isBlank() ? 0 : ResponseUtil.offset(cursor);
 
-		final String url = baseUrl + "/v2/certificate/profile/" + name;
-		if (log.isDebugEnabled()) {
-			log.debug("Requested URL: " + url);
+			try {
+				final SwrCache.Value<String> profile = cache.get(name, () -> load(name));
+				final String shaped = shape(profile.value(), projection, start);
+				return profile.stale() ? markStale(shaped) : shaped;
+			} catch (Exception e) {
+				// Connection refused and others land here, so sanitize response.
+				return ejbca.errorMessage(e);
+			}
 		}
+	}
 
+	/**
+	 * Loads the certificate profile from the persistent cache or EJBCA. Only
+	 * persistent entries younger than the soft time to live are used: the
+	 * stale-while-revalidate cache owns staleness, so its refreshes must reach
+	 * EJBCA.
+	 * 
+	 * @param name the name.
+	 * @return the certificate profile.
+	 */
+	private String load(final String name)
+	{
+		final String cached = persistentCache.getFresh(PersistentCache.CERTIFICATE_PROFILE, name,
+				TimeUnit.SECONDS.toMillis(softTtlSeconds));
+		if (cached != null) {
+			return cached;
+		}
+
+		final String payload = ejbca.get(Endpoint.CERTIFICATE_PROFILE, String.class, name);
+		persistentCache.put(PersistentCache.CERTIFICATE_PROFILE, name, payload);
+		return payload;
+	}
+
+	/**
+	 * Projects the profile and returns the page of fields from start.
+	 */
+	@SuppressWarnings("unchecked")
+	private String shape(final String profile, final List<String> fields, final int start)
+	{
+		if (fields.isEmpty() && start == 0 && profile.length() <= maxResponseBytes) {
+			return profile;
+		}
 		try {
-			final String payload = restTemplate.getForObject(url, String.class);
-			return payload;
-		} catch (RestClientException e) {
-			// Connection refused and others land here, so sanitize response.
-			return McpUtil.sanitizeResponse(e.getMessage(), baseUrl);
+			final JSONObject json = ResponseUtil.project((JSONObject) new JSONParser().parse(profile), fields);
+			final Page page = ResponseUtil.encodeObject(json, start, maxResponseBytes);
+			final JSONObject shaped = (JSONObject) page.value();
+			if (start + page.count() < json.size()) {
+				shaped.put("next_cursor", ResponseUtil.cursor(start + page.count()));
+			}
+			return shaped.toJSONString();
+		} catch (ParseException | ClassCastException e) {
+			return profile;
+		}
+	}
+
+	/**
+	 * Adds "stale": true to the profile object, without parsing it again unless
+	 * it may already have a stale field.
+	 */
+	@SuppressWarnings("unchecked")
+	static String markStale(final String profile)
+	{
+		if (profile.contains("\"stale\"")) {
+			try {
+				final JSONObject json = (JSONObject) new JSONParser().parse(profile);
+				json.put("stale", true);
+				return json.toJSONString();
+			} catch (ParseException | ClassCastException e) {
+				return profile;
+			}
+		}
+		int start = 0;
+		while (start < profile.length() && Character.isWhitespace(profile.charAt(start))) {
+			start++;
+		}
+		if (start == profile.length() || profile.charAt(start) != '{') {
+			return profile;
+		}
+		int next = start + 1;
+		while (next < profile.length() && Character.isWhitespace(profile.charAt(next))) {
+			next++;
 		}
+		final boolean empty = next < profile.length() && profile.charAt(next) == '}';
+		return new StringBuilder(profile.length() + 15).append(profile, 0, start + 1)
+				.append(empty ? "\"stale\":true" : "\"stale\":true,").append(profile, start + 1, profile.length())
+				.toString();
 	}
 }
@@ -21,16 +21,37 @@
 
 package com.mcpki.server.tools.ejbcacc;
 
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.annotation.McpTool;
 import org.springframework.ai.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.cache.ToolCache;
+import com.mcpki.server.cache.ToolResultCache;
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+import com.mcpki.server.inventory.CertificateInventory;
+import com.mcpki.server.inventory.CertificateInventory.Page;
+import com.mcpki.server.inventory.CertificateRecord;
+import com.mcpki.server.util.ResponseUtil;
+
+import io.modelcontextprotocol.server.McpSyncServerExchange;
 
 /**
  * MCP tool to get the list of certificates about to expire.
@@ -41,46 +62,143 @@ public class GetCertificatesAboutToExpire {
 
 	private static final Logger log = LoggerFactory.getLogger(GetCertificatesAboutToExpire.class);
 
-	@Value("${com.mcpki.server.tools.ejbca.rest.url}")
-	private String baseUrl;
-
 	@Value("${com.mcpki.server.tools.ejbca.GetCertificatesAboutToExpire.max.items:100}")
 	private int maxItems;
 
+	@Value("${com.mcpki.server.inventory.max.age.ms:300000}")
+	private long inventoryMaxAgeMs;
+
+	@Value("${com.mcpki.server.response.max.bytes:16384}")
+	private int maxResponseBytes;
+
 	@Autowired
-	@Qualifier("tls")
-	public RestTemplate restTemplate;
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	@Autowired
+	private ObjectProvider<CertificateInventory> inventory;
 
 	/**
-	 * Return the certificates about to expire within the given time in days.
+	 * Return the certificates about to expire within the given time in days. The
+	 * certificates are taken from the local inventory if it is enabled and
+	 * recently synchronized (metadata only, without the encoded certificates).
 	 * 
-	 * @param days   the number of days
-	 * @param offset the list offset
-	 * @param max    the maximum number of results per page
+	 * The EJBCA response is passed through unless fields or a format are
+	 * requested or it exceeds the response size budget. Then the response is
+	 * { certificates: [...] or { columns, rows }, next_cursor: "..." } where the
+	 * cursor is present if there are more certificates.
+	 * 
+	 * @param days     the number of days
+	 * @param offset   the list offset
+	 * @param max      the maximum number of results per page
+	 * @param fields   the comma separated fields of each certificate
+	 * @param format   json or table
+	 * @param cursor   the cursor of the previous response (replaces offset)
+	 * @param exchange the MCP server exchange.
 	 * @return the list certificates about to expire
 	 */
+	@ToolCache(ttlSeconds = 60, maxEntries = 100, invalidatedBy = ToolResultCache.CERTIFICATES)
 	@McpTool(name = "get_certificates_about_to_expire", description = "Get certificates about to expire.")
 	public String ejbca_getCertificatesAboutToExpire(
 			@McpToolParam(description = "Number of days until expiration.") int days,
 			@McpToolParam(description = "List offset (often 0).") int offset,
-			@McpToolParam(description = "Maximum number of items returned (max 100).") int max)
+			@McpToolParam(description = "Maximum number of items returned (max 100).") int max,
+			@McpToolParam(description = "Comma separated fields of each certificate (e.g. serial_number,subject_dn).", required = false) final String fields,
+			@McpToolParam(description = "Response format: json (default) or table.", required = false) final String format,
+			@McpToolParam(description = "next_cursor of the previous response.", required = false) final String cursor,
+			final McpSyncServerExchange exchange)
 	{
-		if (days < 0) {
-			days = 0;
+		try (Permit permit = admissionControl.acquire(exchange, "get_certificates_about_to_expire")) {
+			if (days < 0) {
+				days = 0;
+			}
+			if (offset < 0) {
+				offset = 0;
+			}
+			if (max > maxItems) {
+				max = maxItems;
+			}
+			if (cursor != null && !cursor.isBlank()) {
+				offset = ResponseUtil.offset(cursor);
+			}
+			final List<String> projection = ResponseUtil.parseFields(fields);
+			final boolean table = ResponseUtil.isTable(format);
+
+			final CertificateInventory local = inventory.getIfAvailable();
+			final long now = System.currentTimeMillis();
+			if (local != null && local.isFresh(inventoryMaxAgeMs, now)) {
+				return shape(expiringFromInventory(local, now, days, offset, max), offset, projection, table);
+			}
+
+			final String response = ejbca.get(Endpoint.EXPIRE, String.class, days, offset, max);
+			return shape(response, offset, projection, table);
 		}
-		if (offset < 0) {
-			offset = 0;
+	}
+
+	/**
+	 * Projects, encodes and truncates the certificate list of the response.
+	 */
+	@SuppressWarnings("unchecked")
+	private String shape(final String response, final int offset, final List<String> fields, final boolean table)
+	{
+		if (response == null || fields.isEmpty() && !table && response.length() <= maxResponseBytes) {
+			return response;
 		}
-		if (max > maxItems) {
-			max = maxItems;
+		try {
+			final JSONObject json = (JSONObject) new JSONParser().parse(response);
+			final JSONObject list = (JSONObject) json.get("certificates_rest_response");
+			final JSONObject pagination = (JSONObject) json.get("pagination_rest_response_component");
+			final Object items = list == null ? null : list.get("certificates");
+			final List<? extends Map<?, ?>> certificates = items == null ? List.of()
+					: (List<? extends Map<?, ?>>) items;
+
+			final ResponseUtil.Page page = ResponseUtil.encodeList(certificates, fields, table, maxResponseBytes);
+			final Map<String, Object> shaped = new TreeMap<>();
+			shaped.put("certificates", page.value());
+			if (page.count() < certificates.size()
+					|| pagination != null && Boolean.TRUE.equals(pagination.get("more_results"))) {
+				shaped.put("next_cursor", ResponseUtil.cursor(offset + page.count()));
+			}
+			return new JSONObject(shaped).toJSONString();
+		} catch (ParseException | ClassCastException e) {
+			log.warn("Unexpected response of certificates about to expire: {}.", e.getMessage());
+			return response;
 		}
-		final String url = baseUrl + "/v1/certificate/expire?days=" + days + "&offset=" + offset
-				+ "&maxNumberOfResults=" + max;
-		if (log.isDebugEnabled()) {
-			log.debug("Requested URL: {}", url);
+	}
+
+	/**
+	 * Answers the request from the local inventory in the structure of the EJBCA
+	 * response.
+	 */
+	@SuppressWarnings("unchecked")
+	private static String expiringFromInventory(final CertificateInventory local, final long now, final int days,
+			final int offset, final int max)
+	{
+		final Page page = local.search(null, null, null, null, CertificateRecord.ACTIVE, now,
+				now + TimeUnit.DAYS.toMillis(days), offset, max);
+
+		final JSONArray certificates = new JSONArray();
+		for (final CertificateRecord record : page.certificates()) {
+			final Map<String, Object> certificate = new TreeMap<>();
+			certificate.put("serial_number", record.serial_number());
+			certificate.put("issuer_dn", record.issuer_dn());
+			certificate.put("subject_dn", record.subject_dn());
+			certificate.put("certificate_profile", record.certificate_profile());
+			certificate.put("not_after", record.not_after());
+			certificates.add(new JSONObject(certificate));
 		}
+		final int next = offset + page.certificates().size();
+
+		final Map<String, Object> pagination = new TreeMap<>();
+		pagination.put("more_results", next < page.total());
+		pagination.put("next_offset", next);
+		pagination.put("number_of_results", page.certificates().size());
 
-		final String response = restTemplate.getForObject(url, String.class);
-		return response;
+		final Map<String, Object> response = new TreeMap<>();
+		response.put("pagination_rest_response_component", new JSONObject(pagination));
+		response.put("certificates_rest_response", new JSONObject(Map.of("certificates", certificates)));
+		return new JSONObject(response).toJSONString();
 	}
 }
@@ -21,16 +21,34 @@
 
 package com.mcpki.server.tools.ejbcacc;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.annotation.McpTool;
 import org.springframework.ai.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+import com.mcpki.server.inventory.CertificateCounters;
+import com.mcpki.server.inventory.CertificateCounters.Snapshot;
+import com.mcpki.server.inventory.CertificateInventory;
+import com.mcpki.server.util.ResponseUtil;
+
+import io.modelcontextprotocol.server.McpSyncServerExchange;
 
 /**
  * MCP tool to count the number of certificates.
@@ -41,30 +59,101 @@ public class GetCountCertificates {
 
 	private static final Logger log = LoggerFactory.getLogger(GetCountCertificates.class);
 
-	@Value("${com.mcpki.server.tools.ejbca.rest.url}")
-	private String baseUrl;
+	@Value("${com.mcpki.server.inventory.max.age.ms:300000}")
+	private long inventoryMaxAgeMs;
+
+	@Autowired
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private AdmissionControl admissionControl;
 
 	@Autowired
-	@Qualifier("tls")
-	public RestTemplate restTemplate;
+	private ObjectProvider<CertificateInventory> inventory;
+
+	@Autowired
+	private CertificateCounters counters;
 
 	/**
-	 * Returns the number certificates in the database.
+	 * Returns the number certificates in the database. The count is taken from
+	 * the local counters or the local inventory if they are enabled, otherwise
+	 * from EJBCA. The breakdown per issuer and profile is only included if the
+	 * counters were seeded from a fresh inventory.
+	 * 
+	 * Response: { count: n, by_issuer: { dn: n }, by_profile: { name: n } }
 	 * 
-	 * Response: { count: n }
+	 * In the table format the breakdowns are { columns: [...], rows: [[...]] }.
 	 * 
-	 * @param active true if an active certificates should be counted only.
+	 * @param active   true if an active certificates should be counted only.
+	 * @param fields   the comma separated fields, e.g. count.
+	 * @param format   json or table.
+	 * @param exchange the MCP server exchange.
 	 * @return the number of certificates.
 	 */
 	@McpTool(name = "get_count_certificates", description = "Counts the certificates.")
 	public String ejbca_getCountCertificates(
-			@McpToolParam(description = "True for active certificates only.") boolean active)
+			@McpToolParam(description = "True for active certificates only.") boolean active,
+			@McpToolParam(description = "Comma separated fields (count, by_issuer, by_profile).", required = false) final String fields,
+			@McpToolParam(description = "Response format: json (default) or table.", required = false) final String format,
+			final McpSyncServerExchange exchange)
 	{
-		final String url = baseUrl + "/v2/certificate/count?isActive=" + active;
-		if (log.isDebugEnabled()) {
-			log.debug("Call count certificates: {}", url);
+		try (Permit permit = admissionControl.acquire(exchange, "get_count_certificates")) {
+			final List<String> projection = ResponseUtil.parseFields(fields);
+			final boolean table = ResponseUtil.isTable(format);
+			return shape(count(active), projection, table);
 		}
-		final String response = restTemplate.getForObject(url, String.class);
-		return response;
+	}
+
+	/**
+	 * Counts the certificates with the counters, the inventory or EJBCA.
+	 */
+	private String count(final boolean active)
+	{
+		if (counters.isReady()) {
+			final Snapshot snapshot = counters.snapshot(active);
+			final Map<String, Object> response = new TreeMap<>();
+			response.put("count", snapshot.count());
+			if (snapshot.by_issuer() != null) {
+				response.put("by_issuer", new JSONObject(snapshot.by_issuer()));
+				response.put("by_profile", new JSONObject(snapshot.by_profile()));
+			}
+			return new JSONObject(response).toJSONString();
+		}
+
+		final CertificateInventory local = inventory.getIfAvailable();
+		final long now = System.currentTimeMillis();
+		if (local != null && local.isFresh(inventoryMaxAgeMs, now)) {
+			return new JSONObject(Map.of("count", local.count(active, now))).toJSONString();
+		}
+
+		return ejbca.get(Endpoint.COUNT, String.class, active);
+	}
+
+	/**
+	 * Projects the response and encodes the breakdowns as tables.
+	 */
+	@SuppressWarnings("unchecked")
+	private static String shape(final String response, final List<String> fields, final boolean table)
+	{
+		if (response == null || fields.isEmpty() && !table) {
+			return response;
+		}
+		try {
+			final JSONObject json = ResponseUtil.project((JSONObject) new JSONParser().parse(response), fields);
+			if (table) {
+				json.computeIfPresent("by_issuer", (key, counts) -> table((Map<?, ?>) counts, "issuer_dn"));
+				json.computeIfPresent("by_profile", (key, counts) -> table((Map<?, ?>) counts, "certificate_profile"));
+			}
+			return json.toJSONString();
+		} catch (ParseException | ClassCastException e) {
+			return response;
+		}
+	}
+
+	private static Object table(final Map<?, ?> counts, final String column)
+	{
+		final List<Map<String, Object>> rows = new ArrayList<>();
+		counts.forEach((key, count) -> rows.add(Map.of(column, key, "count", count)));
+		return ResponseUtil.encodeList(rows, List.of(column, "count"), true, Integer.MAX_VALUE).value();
 	}
 }
@@ -0,0 +1,362 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.tools.ejbcacc;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.annotation.McpTool;
+import org.springframework.ai.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+import com.mcpki.server.pki.StreamingCrlParser;
+import com.mcpki.server.pki.StreamingCrlParser.CrlSummary;
+import com.mcpki.server.pki.StreamingCrlParser.Entry;
+import com.mcpki.server.util.CanonicalDn;
+import com.mcpki.server.util.JsonStringInputStream;
+import com.mcpki.server.util.ResponseUtil;
+import com.mcpki.server.util.ValidationUtil;
+
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * MCP tool to summarize the latest CRL of an issuer, for CRLs too large for
+ * get_latest_crl.
+ *
+ * The CRL is streamed from the EJBCA response into a DER file in the spool
+ * directory (without holding it in memory) and parsed entry by entry. The
+ * spooled CRL is kept for the spool time to live, so that the entries can be
+ * paged through without downloading the CRL again. A replaced spool file is
+ * deleted when the last reader is done with it. The cursor carries the CRL
+ * number, so that pages of different CRLs are not mixed.
+ */
+@Service
+@ConditionalOnProperty(name = "com.mcpki.server.tools.ejbca.GetCrlSummary", havingValue = "true", matchIfMissing = false)
+public class GetCrlSummary {
+
+	private static final Logger log = LoggerFactory.getLogger(GetCrlSummary.class);
+
+	@Value("${com.mcpki.server.dn.length.min}")
+	private int dnMinLength;
+
+	@Value("${com.mcpki.server.dn.length.max}")
+	private int dnMaxLength;
+
+	@Value("${com.mcpki.server.tools.ejbca.GetCrlSummary.newest.max:100}")
+	private int newestMax;
+
+	@Value("${com.mcpki.server.tools.ejbca.GetCrlSummary.entries.max:500}")
+	private int entriesMax;
+
+	@Value("${com.mcpki.server.tools.ejbca.GetCrlSummary.spool.directory:${java.io.tmpdir}}")
+	private String spoolDirectory;
+
+	@Value("${com.mcpki.server.tools.ejbca.GetCrlSummary.spool.ttl.seconds:300}")
+	private long spoolTtlSeconds;
+
+	@Value("${com.mcpki.server.tools.ejbca.GetCrlSummary.max.size.mb:512}")
+	private long maxSizeMb;
+
+	@Autowired
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	private final Map<CanonicalDn, Spool> spools = new ConcurrentHashMap<>();
+
+	/**
+	 * Download locks of the issuers with a download in progress or waiting.
+	 */
+	private final Map<CanonicalDn, DownloadLock> locks = new ConcurrentHashMap<>();
+
+	/**
+	 * Lock of the download of an issuer's CRL with the number of threads using
+	 * it, so that it is removed with the last one. The count is only changed in
+	 * the atomic compute functions of the lock map.
+	 */
+	private static final class DownloadLock {
+
+		int users;
+	}
+
+	/**
+	 * Spooled CRL of an issuer, with a reference for the spool map and one for
+	 * each reader. The file is deleted when the last reference is released.
+	 */
+	private static final class Spool {
+
+		final Path file;
+
+		final CrlSummary summary;
+
+		final long fetchedAt;
+
+		private final AtomicInteger references = new AtomicInteger(1);
+
+		Spool(final Path file, final CrlSummary summary, final long fetchedAt) {
+			this.file = file;
+			this.summary = summary;
+			this.fetchedAt = fetchedAt;
+		}
+
+		/**
+		 * Adds a reference unless the file is already deleted.
+		 *
+		 * @return true if the spool can be read.
+		 */
+		boolean retain()
+		{
+			int count;
+			do {
+				count = references.get();
+				if (count == 0) {
+					return false;
+				}
+			} while (!references.compareAndSet(count, count + 1));
+			return true;
+		}
+
+		void release()
+		{
+			if (references.decrementAndGet() == 0) {
+				delete(file);
+			}
+		}
+	}
+
+	/**
+	 * Returns the summary of the latest CRL of the issuer: entry count, this and
+	 * next update, CRL number, the number of entries per revocation reason and the
+	 * newest entries. The revoked certificate entries are returned in pages only
+	 * if max or cursor is given.
+	 * 
+	 * @param issuer_dn the issuer DN.
+	 * @param newest    the number of newest entries (default 10).
+	 * @param max       the number of entries per page.
+	 * @param cursor    the cursor of the previous page.
+	 * @param exchange  the MCP server exchange.
+	 * @return the summary and the page of entries.
+	 */
+	@McpTool(name = "get_crl_summary", description = "Summarizes the latest CRL of an issuer; lists the entries on request.")
+	public GetCrlSummaryResponse ejbca_getCrlSummary(
+			@McpToolParam(description = "The subject DN of the issuing CA.") final String issuer_dn,
+			@McpToolParam(description = "Number of newest entries in the summary (default 10).", required = false) final Integer newest,
+			@McpToolParam(description = "Number of entries per page; entries are listed only if max or cursor is given.", required = false) final Integer max,
+			@McpToolParam(description = "next_cursor of the previous response.", required = false) final String cursor,
+			final McpSyncServerExchange exchange)
+	{
+		try (Permit permit = admissionControl.acquire(exchange, "get_crl_summary")) {
+			final CanonicalDn issuer = ValidationUtil.assertValidIssuerDn(issuer_dn, dnMinLength, dnMaxLength);
+			final boolean listEntries = max != null || cursor != null && !cursor.isBlank();
+			final int count = max == null ? entriesMax : Math.max(1, Math.min(max, entriesMax));
+
+			try {
+				final Spool spool = spool(issuer);
+				if (spool == null) {
+					return new GetCrlSummaryResponse(null, null, null, "No CRL available for " + issuer + ".");
+				}
+				try {
+					final CrlSummary summary = limit(spool.summary, newest == null ? 10 : newest);
+					if (!listEntries) {
+						return new GetCrlSummaryResponse(summary, null, null, null);
+					}
+
+					final String version = version(spool.summary);
+					final long offset = cursor == null || cursor.isBlank() ? 0 : ResponseUtil.offset(cursor, version);
+					List<Entry> entries;
+					try (InputStream in = new BufferedInputStream(Files.newInputStream(spool.file))) {
+						entries = StreamingCrlParser.entries(in, offset, count);
+					}
+					String next = null;
+					if (entries.size() > count) {
+						entries = entries.subList(0, count);
+						next = ResponseUtil.cursor(offset + count, version);
+					}
+					return new GetCrlSummaryResponse(summary, entries, next, null);
+				} finally {
+					spool.release();
+				}
+			} catch (IOException | RestClientException e) {
+				// Connection refused and others land here, so sanitize response.
+				return new GetCrlSummaryResponse(null, null, null, ejbca.errorMessage(e));
+			}
+		}
+	}
+
+	@PreDestroy
+	public void deleteSpools()
+	{
+		for (final CanonicalDn issuer_dn : spools.keySet()) {
+			final Spool spool = spools.remove(issuer_dn);
+			if (spool != null) {
+				spool.release();
+			}
+		}
+	}
+
+	/**
+	 * Returns the spooled CRL of the issuer, downloading it if there is none or
+	 * it is expired. The returned spool is retained and must be released.
+	 */
+	private Spool spool(final CanonicalDn issuer_dn) throws IOException
+	{
+		Spool spool = spools.get(issuer_dn);
+		if (isFresh(spool) && spool.retain()) {
+			return spool;
+		}
+		final DownloadLock lock = locks.compute(issuer_dn, (dn, current) -> {
+			final DownloadLock used = current != null ? current : new DownloadLock();
+			used.users++;
+			return used;
+		});
+		try {
+			synchronized (lock) {
+				spool = spools.get(issuer_dn);
+				if (isFresh(spool) && spool.retain()) {
+					return spool;
+				}
+
+				final Path file = Files.createTempFile(Path.of(spoolDirectory), "mcpki-crl-", ".der");
+				try {
+					if (!Boolean.TRUE.equals(download(issuer_dn, file))) {
+						delete(file);
+						return null;
+					}
+					final CrlSummary summary;
+					try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+						summary = StreamingCrlParser.summarize(in, newestMax);
+					}
+					spool = new Spool(file, summary, System.currentTimeMillis());
+				} catch (IOException | RuntimeException e) {
+					delete(file);
+					throw e;
+				}
+
+				spool.retain();
+				final Spool previous = spools.put(issuer_dn, spool);
+				if (previous != null) {
+					// Deleted when its current readers are done.
+					previous.release();
+				}
+				log.info("Spooled CRL {} of {} with {} entries ({} bytes).", spool.summary.crl_number(), issuer_dn,
+						spool.summary.entry_count(), Files.size(file));
+				return spool;
+			}
+		} finally {
+			locks.computeIfPresent(issuer_dn, (dn, current) -> --current.users == 0 ? null : current);
+		}
+	}
+
+	/**
+	 * Streams the Base64 encoded CRL of the EJBCA response into the file.
+	 *
+	 * @return true if there is a CRL.
+	 */
+	private Boolean download(final CanonicalDn issuer_dn, final Path file)
+	{
+		final long maxBytes = maxSizeMb * 1024 * 1024;
+
+		return ejbca.execute(Endpoint.LATEST_CRL, response -> {
+			final InputStream crl = JsonStringInputStream.field(new BufferedInputStream(response.getBody()), "crl");
+			if (crl == null) {
+				return false;
+			}
+			try (InputStream der = Base64.getMimeDecoder().wrap(crl); OutputStream out = Files.newOutputStream(file)) {
+				final byte[] buffer = new byte[8192];
+				long size = 0;
+				int read;
+				while ((read = der.read(buffer)) != -1) {
+					size += read;
+					if (size > maxBytes) {
+						throw new IOException("CRL exceeds " + maxSizeMb + " MB.");
+					}
+					out.write(buffer, 0, read);
+				}
+				return size > 0;
+			}
+		}, issuer_dn);
+	}
+
+	private boolean isFresh(final Spool spool)
+	{
+		return spool != null && System.currentTimeMillis() - spool.fetchedAt < spoolTtlSeconds * 1000;
+	}
+
+	/**
+	 * Returns the version of the CRL for the cursor: the CRL number, or the this
+	 * update time without CRL number.
+	 */
+	private static String version(final CrlSummary summary)
+	{
+		if (summary.crl_number() != null) {
+			return summary.crl_number();
+		}
+		return summary.this_update() == null ? "" : String.valueOf(summary.this_update().getTime());
+	}
+
+	private static CrlSummary limit(final CrlSummary summary, final int newest)
+	{
+		final List<Entry> entries = summary.newest_entries();
+		final int size = Math.max(0, Math.min(newest, entries.size()));
+		return new CrlSummary(summary.issuer_dn(), summary.this_update(), summary.next_update(),
+				summary.crl_number(), summary.entry_count(), summary.reasons(), entries.subList(0, size));
+	}
+
+	private static void delete(final Path file)
+	{
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			log.warn("Failed to delete spooled CRL {}: {}.", file, e.getMessage());
+		}
+	}
+
+	/**
+	 * { summary: { issuer_dn, this_update, next_update, crl_number, entry_count,
+	 * reasons: { keyCompromise: n }, newest_entries: [...] }, entries: [...],
+	 * next_cursor: "..." }
+	 */
+	public record GetCrlSummaryResponse(CrlSummary summary, List<Entry> entries, String next_cursor,
+			String error_message) {
+	}
+}
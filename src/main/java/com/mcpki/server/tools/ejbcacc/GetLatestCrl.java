@@ -26,15 +26,22 @@ import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.annotation.McpTool;
 import org.springframework.ai.mcp.annotation.McpToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.cache.PersistentCache;
+import com.mcpki.server.cache.ToolCache;
+import com.mcpki.server.cache.ToolResultCache;
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+import com.mcpki.server.util.CanonicalDn;
 import com.mcpki.server.util.PemUtil;
 import com.mcpki.server.util.ValidationUtil;
 
+import io.modelcontextprotocol.server.McpSyncServerExchange;
 import io.modelcontextprotocol.spec.McpError;
 
 /**
@@ -46,9 +53,6 @@ public class GetLatestCrl {
 
 	private static final Logger log = LoggerFactory.getLogger(GetLatestCrl.class);
 
-	@Value("${com.mcpki.server.tools.ejbca.rest.url}")
-	private String baseUrl;
-
 	@Value("${com.mcpki.server.pem.length.min}")
 	private int pemMinStrength;
 
@@ -62,36 +66,76 @@ public class GetLatestCrl {
 	private int dnMaxLength;
 
 	@Autowired
-	@Qualifier("tls")
-	public RestTemplate restTemplate;
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	@Autowired
+	private PersistentCache persistentCache;
 
 	/**
 	 * Returns the latest Certificate Revocation List (CRL) for the given issuer.
+	 * CRLs are kept in the persistent cache for a short time.
 	 * 
 	 * @param issuer_dn the issuer DN.
+	 * @param exchange  the MCP server exchange.
 	 * @return the CRL.
 	 */
+	@ToolCache(ttlSeconds = 60, maxEntries = 100, invalidatedBy = ToolResultCache.CRLS)
 	@McpTool(name = "get_latest_crl", description = "Get latest CRL.")
 	public GetLatestCrlResponse ejbca_getLatestCrl(
-			@McpToolParam(description = "The subject DN of the issuing CA.") final String issuer_dn) throws McpError
+			@McpToolParam(description = "The subject DN of the issuing CA.") final String issuer_dn,
+			final McpSyncServerExchange exchange) throws McpError
 	{
-		ValidationUtil.assertValidIssuerDn(issuer_dn, dnMinLength, dnMaxLength);
+		try (Permit permit = admissionControl.acquire(exchange, "get_latest_crl")) {
+			return latestCrl(ValidationUtil.assertValidIssuerDn(issuer_dn, dnMinLength, dnMaxLength));
+		}
+	}
 
-		final String url = baseUrl + "/v1/ca/" + issuer_dn + "/getLatestCrl?deltaCrl=false?crlPartitionIndex=0";
-		if (log.isDebugEnabled()) {
-			log.debug("Requested URL: " + url);
+	/**
+	 * Returns the latest CRL without admission control, for use by other
+	 * components.
+	 * 
+	 * @param issuer_dn the canonical issuer DN.
+	 * @return the CRL.
+	 */
+	public GetLatestCrlResponse latestCrl(final CanonicalDn issuer_dn)
+	{
+		final String cached = persistentCache.get(PersistentCache.CRL, issuer_dn.name(), () -> download(issuer_dn));
+		if (cached != null) {
+			return new GetLatestCrlResponse(cached, "PEM");
 		}
 
-		final GetLatestCrlResponse payload = restTemplate.getForObject(url, GetLatestCrlResponse.class);
-		String formattedCrl;
-		if (payload.crl() != null && !"null".equalsIgnoreCase(payload.crl()) && ValidationUtil
-				.isValidPem(formattedCrl = PemUtil.toPemCrl(payload.crl()), pemMinStrength, pemMaxStrength)) {
+		final String formattedCrl = download(issuer_dn);
+		if (formattedCrl != null) {
+			persistentCache.put(PersistentCache.CRL, issuer_dn.name(), formattedCrl);
 			return new GetLatestCrlResponse(formattedCrl, "PEM");
 		} else {
 			return new GetLatestCrlResponse("null", "PEM");
 		}
 	}
 
+	/**
+	 * Downloads the latest CRL.
+	 * 
+	 * @param issuer_dn the canonical issuer DN.
+	 * @return the PEM formatted CRL or null if there is no valid CRL.
+	 */
+	private String download(final CanonicalDn issuer_dn)
+	{
+		final GetLatestCrlResponse payload = ejbca.get(Endpoint.LATEST_CRL, GetLatestCrlResponse.class, issuer_dn);
+		String formattedCrl;
+		if (payload.crl() != null && !"null".equalsIgnoreCase(payload.crl()) && ValidationUtil
+				.isValidPem(formattedCrl = PemUtil.toPemCrl(payload.crl()), pemMinStrength, pemMaxStrength)) {
+			return formattedCrl;
+		}
+		if (payload.crl() != null && !"null".equalsIgnoreCase(payload.crl())) {
+			log.info("CRL is no valid PEM or exceeds {} characters, use get_crl_summary instead.", pemMaxStrength);
+		}
+		return null;
+	}
+
 	// @formatter:off
 	/**
 	 * {
@@ -105,6 +149,6 @@ public class GetLatestCrl {
 	 * }
 	 */
 	// @formatter:on
-	record GetLatestCrlResponse(String crl, String response_format) {
+	public record GetLatestCrlResponse(String crl, String response_format) {
 	}
 }
@@ -22,27 +22,30 @@
 package com.mcpki.server.tools.ejbcacc;
 
 import java.util.Date;
-import java.util.Map;
-import java.util.TreeMap;
 
-import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.annotation.McpTool;
 import org.springframework.ai.mcp.annotation.McpToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.audit.AuditJournal;
+import com.mcpki.server.cache.ToolResultCache;
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+import com.mcpki.server.ejbca.EjbcaClient.Idempotent;
+import com.mcpki.server.inventory.CertificateCounters;
+import com.mcpki.server.util.CanonicalDn;
 import com.mcpki.server.util.ValidationUtil;
 
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+
 /**
  * MCP tool to revoke a certificate.
  */
@@ -52,9 +55,6 @@ public class RevokeCertificate {
 
 	private static final Logger log = LoggerFactory.getLogger(RevokeCertificate.class);
 
-	@Value("${com.mcpki.server.tools.ejbca.rest.url}")
-	private String baseUrl;
-
 	@Value("${com.mcpki.server.password.strength.min}")
 	private int pwdMinStrength;
 
@@ -74,8 +74,19 @@ public class RevokeCertificate {
 	private int serialNumberLength;
 
 	@Autowired
-	@Qualifier("tls")
-	public RestTemplate restTemplate;
+	private EjbcaClient ejbca;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	@Autowired
+	private CertificateCounters counters;
+
+	@Autowired
+	private ToolResultCache toolResultCache;
+
+	@Autowired
+	private AuditJournal auditJournal;
 
 	/**
 	 * This method revokes a certificate.
@@ -84,6 +95,7 @@ public class RevokeCertificate {
 	 * @param serial_number     the serial number of the certificate in hex
 	 * @param password          the password used to enroll the certificate
 	 * @param revocation_reason the revocation reason
+	 * @param exchange          the MCP server exchange.
 	 * @return a confirmation message if the certificate has been revoked or an
 	 *         error message otherwise.
 	 */
@@ -92,39 +104,62 @@ public class RevokeCertificate {
 			@McpToolParam(description = "The issuer of the certificate.") String issuer_dn,
 			@McpToolParam(description = "The certificate serial number in hex format.") String serial_number,
 			@McpToolParam(description = "The certificate password.") String password,
-			@McpToolParam(description = "The revocation reason.") String revocation_reason)
+			@McpToolParam(description = "The revocation reason.") String revocation_reason,
+			final McpSyncServerExchange exchange)
 	{
-		ValidationUtil.assertValidSerialNumberHex(serial_number, serialNumberLength);
-		ValidationUtil.assertValidIssuerDn(issuer_dn, dnMinLength, dnMaxLength);
-		ValidationUtil.assertValidPassword(password, pwdMinStrength, pwdMaxStrength, pwdAllowedCharacters);
-		ValidationUtil.assertValidRevocationReason(revocation_reason);
-
-		final String url = baseUrl + "/v1/certificate/" + issuer_dn + "/" + serial_number + "/revoke?reason="
-				+ revocation_reason;
-		if (log.isDebugEnabled()) {
-			log.debug("Requested URL: " + url);
+		try (Permit permit = admissionControl.acquire(exchange, "revoke_certificate")) {
+			ValidationUtil.assertValidSerialNumberHex(serial_number, serialNumberLength);
+			final CanonicalDn issuer = ValidationUtil.assertValidIssuerDn(issuer_dn, dnMinLength, dnMaxLength);
+			ValidationUtil.assertValidPassword(password, pwdMinStrength, pwdMaxStrength, pwdAllowedCharacters);
+			ValidationUtil.assertValidRevocationReason(revocation_reason);
+
+			try {
+				return revoke(issuer, serial_number, password, revocation_reason);
+			} catch (RestClientException e) {
+				if (log.isDebugEnabled()) {
+					log.debug("Could not revoke certificate with SN {} issued by {} with revocation reason {}: {}",
+							serial_number, issuer_dn, revocation_reason, e.getMessage());
+				}
+				return new RevokeCertificateResponse(false, issuer_dn, serial_number, null, revocation_reason,
+						"Certificate could not be revoked. Either the certificate does not exist, the password is "
+								+ "tempered or the revocation reason is invalid.");
+			}
 		}
+	}
 
-		final Map<String, Object> param = new TreeMap<>();
-		param.put("password", password);
-		final JSONObject json = new JSONObject(param);
-
-		try {
-			final HttpHeaders headers = new HttpHeaders();
-			headers.setContentType(MediaType.APPLICATION_JSON);
-			final HttpEntity<String> request = new HttpEntity<String>(json.toJSONString(), headers);
-			final RevokeCertificateResponse response = restTemplate.postForObject(url, request,
-					RevokeCertificateResponse.class);
-			return response;
-		} catch (RestClientException e) {
-			if (log.isDebugEnabled()) {
-				log.debug("Could not revoke certificate with SN {} issued by {} with revocation reason {}: {}",
-						serial_number, issuer_dn, revocation_reason, e.getMessage());
-			}
-			return new RevokeCertificateResponse(false, issuer_dn, serial_number, null, revocation_reason,
-					"Certificate could not be revoked. Either the certificate does not exist, the password is "
-							+ "tempered or the revocation reason is invalid.");
+	/**
+	 * Revokes the certificate with validated parameters and updates the counters,
+	 * the audit journal and the cached certificate results.
+	 *
+	 * @param issuer            the issuer DN.
+	 * @param serial_number     the serial number in hex.
+	 * @param password          the end entity password.
+	 * @param revocation_reason the revocation reason.
+	 * @return the EJBCA response.
+	 * @throws RestClientException if EJBCA rejects the revocation.
+	 */
+	RevokeCertificateResponse revoke(final CanonicalDn issuer, final String serial_number, final String password,
+			final String revocation_reason)
+	{
+		// The password is part of the key, so that a repeated request with a
+		// wrong password is not answered with the confirmation of the first.
+		final Idempotent<RevokeCertificateResponse> revoked = ejbca.postIdempotent(
+				EjbcaClient.idempotencyKey(issuer.name(), serial_number.toUpperCase(), revocation_reason, password),
+				Endpoint.REVOKE, new RevokeCertificateRequest(password), RevokeCertificateResponse.class, issuer,
+				serial_number, revocation_reason);
+		final RevokeCertificateResponse response = revoked.response();
+		if (response != null && response.revoked() && !revoked.replayed()) {
+			counters.revoked(issuer.name(), serial_number);
+			auditJournal.revoked(issuer.name(), serial_number.toUpperCase(), revocation_reason);
+			toolResultCache.invalidate(ToolResultCache.CERTIFICATES);
 		}
+		return response;
+	}
+
+	/**
+	 * Body of the revocation request.
+	 */
+	record RevokeCertificateRequest(String password) {
 	}
 
 	// @formatter:off
@@ -0,0 +1,133 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.tools.inventory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.annotation.McpTool;
+import org.springframework.ai.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.inventory.CertificateInventory;
+import com.mcpki.server.inventory.CertificateInventory.Page;
+import com.mcpki.server.inventory.CertificateRecord;
+
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+
+/**
+ * MCP tool to search the local certificate inventory.
+ */
+@Service
+@ConditionalOnProperty(name = { "com.mcpki.server.tools.inventory.SearchCertificates",
+		"com.mcpki.server.inventory.enabled" }, havingValue = "true", matchIfMissing = false)
+public class SearchCertificates {
+
+	private static final Logger log = LoggerFactory.getLogger(SearchCertificates.class);
+
+	@Value("${com.mcpki.server.tools.inventory.SearchCertificates.max.items:100}")
+	private int maxItems;
+
+	@Autowired
+	private CertificateInventory inventory;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	/**
+	 * Searches the certificates in the local inventory. Empty criteria are
+	 * ignored; the result is ordered by the end of validity.
+	 * 
+	 * @param subject             the subject DN or the beginning of an RDN value.
+	 * @param san                 the beginning of a subject alternative name.
+	 * @param issuer_dn           the issuer DN.
+	 * @param certificate_profile the certificate profile.
+	 * @param status              the status (ACTIVE, REVOKED, ARCHIVED).
+	 * @param expires_within_days the number of days until expiration (0 for
+	 *                            any).
+	 * @param offset              the list offset.
+	 * @param max                 the maximum number of results.
+	 * @param exchange            the MCP server exchange.
+	 * @return the matching certificates.
+	 */
+	@McpTool(name = "search_certificates", description = "Searches certificates by subject, SAN, issuer, profile, status and expiry.")
+	public SearchCertificatesResponse inventory_search(
+			@McpToolParam(description = "Subject DN or beginning of an RDN value (e.g. the common name).", required = false) final String subject,
+			@McpToolParam(description = "Beginning of a subject alternative name (e.g. a DNS name).", required = false) final String san,
+			@McpToolParam(description = "Issuer DN.", required = false) final String issuer_dn,
+			@McpToolParam(description = "Name of the certificate profile.", required = false) final String certificate_profile,
+			@McpToolParam(description = "Status (ACTIVE, REVOKED, ARCHIVED).", required = false) final String status,
+			@McpToolParam(description = "Number of days until expiration (0 for any).") int expires_within_days,
+			@McpToolParam(description = "List offset (often 0).") int offset,
+			@McpToolParam(description = "Maximum number of items returned (max 100).") int max,
+			final McpSyncServerExchange exchange)
+	{
+		try (Permit permit = admissionControl.acquire(exchange, "search_certificates")) {
+			if (inventory.lastSync() == 0) {
+				return new SearchCertificatesResponse(null, 0, false, 0, 0L,
+						"Certificate inventory is not synchronized yet.");
+			}
+			if (offset < 0) {
+				offset = 0;
+			}
+			if (max <= 0 || max > maxItems) {
+				max = maxItems;
+			}
+			final long now = System.currentTimeMillis();
+			final long expiresTo = expires_within_days > 0 ? now + TimeUnit.DAYS.toMillis(expires_within_days)
+					: Long.MAX_VALUE;
+			final long expiresFrom = expires_within_days > 0 ? now : Long.MIN_VALUE;
+
+			final Page page = inventory.search(subject, san, issuer_dn, certificate_profile, status, expiresFrom,
+					expiresTo, offset, max);
+			if (log.isDebugEnabled()) {
+				log.debug("Search returned {} of {} certificates.", page.certificates().size(), page.total());
+			}
+			final int next = offset + page.certificates().size();
+			return new SearchCertificatesResponse(page.certificates(), page.total(), next < page.total(), next,
+					inventory.lastSync(), null);
+		}
+	}
+
+	// @formatter:off
+	/**
+	 * {
+	 *   "certificates": 		[{ "serial_number": "3317571EB0DF61426A1A6A380DB03C23A1266E8E", ... }],
+	 *   "total": 				1,
+	 *   "more_results": 		false,
+	 *   "next_offset": 		1,
+	 *   "synchronized_at": 	1751466855000,
+	 *   "error_message": 		null
+	 * }
+	 */
+	// @formatter:on
+	record SearchCertificatesResponse(List<CertificateRecord> certificates, int total, boolean more_results,
+			int next_offset, long synchronized_at, String error_message) {
+	}
+}
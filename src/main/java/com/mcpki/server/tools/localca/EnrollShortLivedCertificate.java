@@ -0,0 +1,164 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.tools.localca;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.annotation.McpTool;
+import org.springframework.ai.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.audit.AuditJournal;
+import com.mcpki.server.localca.IssuancePolicy;
+import com.mcpki.server.localca.IssuanceRecorder;
+import com.mcpki.server.localca.LocalCa;
+import com.mcpki.server.util.CanonicalDn;
+import com.mcpki.server.util.McpUtil;
+import com.mcpki.server.util.PemUtil;
+import com.mcpki.server.util.ValidationUtil;
+
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+
+/**
+ * MCP tool to issue a short-lived certificate with the in-process local CA.
+ * Requests are checked against the {@link IssuancePolicy} of the local CA.
+ */
+@Service
+@ConditionalOnProperty(name = "com.mcpki.server.tools.localca.EnrollShortLivedCertificate", havingValue = "true", matchIfMissing = false)
+public class EnrollShortLivedCertificate {
+
+	private static final Logger log = LoggerFactory.getLogger(EnrollShortLivedCertificate.class);
+
+	@Value("${com.mcpki.server.name.length.min}")
+	private int nameMinLength;
+
+	@Value("${com.mcpki.server.name.length.max}")
+	private int nameMaxLength;
+
+	@Value("${com.mcpki.server.pem.length.min}")
+	private int pemMinStrength;
+
+	@Value("${com.mcpki.server.pem.length.max}")
+	private int pemMaxStrength;
+
+	@Autowired
+	private LocalCa localCa;
+
+	@Autowired
+	private IssuancePolicy issuancePolicy;
+
+	@Autowired
+	private IssuanceRecorder issuanceRecorder;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	@Autowired
+	private AuditJournal auditJournal;
+
+	/**
+	 * Issues a short-lived certificate for the given PKCS#10 Certificate Signing
+	 * Request (CSR) and returns it in the PEM format. The certificate is recorded
+	 * asynchronously in the local CA journal and in the audit journal.
+	 * 
+	 * @param csr              the CSR.
+	 * @param validity_minutes the validity in minutes (capped by the server).
+	 * @param username         the username.
+	 * @param exchange         the MCP server exchange.
+	 * @return the PEM formatted certificate.
+	 */
+	@McpTool(name = "enroll_short_lived_certificate", description = "Enrolls a short-lived certificate given a CSR.")
+	public EnrollShortLivedCertificateResponse localca_enrollShortLived(
+			@McpToolParam(description = "Certificate Signing Request (CSR)") final String csr,
+			@McpToolParam(description = "Validity in minutes.") final int validity_minutes,
+			@McpToolParam(description = "Name of the end entity.") final String username,
+			final McpSyncServerExchange exchange)
+	{
+		try (Permit permit = admissionControl.acquire(exchange, "enroll_short_lived_certificate")) {
+			ValidationUtil.assertValidName("username", username, nameMinLength, nameMaxLength);
+			ValidationUtil.assertValidPem("csr", csr, pemMinStrength, pemMaxStrength);
+			if (validity_minutes <= 0) {
+				throw McpUtil.invalidParamsError("Invalid validity.", Map.of("validity_minutes", validity_minutes));
+			}
+
+			final PKCS10CertificationRequest request;
+			try {
+				request = PemUtil.parsePemCsr(csr);
+			} catch (IOException e) {
+				throw McpUtil.invalidParamsError("Invalid CSR.", Map.of("csr", csr));
+			}
+			// There is no EJBCA end entity check, so the subject and the names must
+			// be allowed by the local policy.
+			final String rejected = issuancePolicy.check(request, username);
+			if (rejected != null) {
+				log.warn("Short-lived certificate for {} rejected: {}.", username, rejected);
+				throw McpUtil.invalidParamsError("Request not allowed by policy.", Map.of("reason", rejected));
+			}
+
+			try {
+				final X509Certificate certificate = localCa.issue(request, Duration.ofMinutes(validity_minutes));
+				issuanceRecorder.record(certificate, username);
+				final String serialNumber = certificate.getSerialNumber().toString(16).toUpperCase();
+				final CanonicalDn issuer = CanonicalDn.of(certificate.getIssuerX500Principal().getName());
+				auditJournal.issued(issuer != null ? issuer.name() : null, serialNumber, username, null);
+				if (log.isDebugEnabled()) {
+					log.debug("Issued short-lived certificate {} for {}.", serialNumber,
+							certificate.getSubjectX500Principal().getName());
+				}
+				return new EnrollShortLivedCertificateResponse(
+						PemUtil.toPemCertificate(Base64.getEncoder().encodeToString(certificate.getEncoded())),
+						serialNumber, certificate.getNotAfter().toInstant().toString(), "PEM", null);
+			} catch (GeneralSecurityException e) {
+				log.warn("Failed to issue short-lived certificate: {}.", e.getMessage());
+				return new EnrollShortLivedCertificateResponse(null, null, null, null, e.getMessage());
+			}
+		}
+	}
+
+	// @formatter:off
+	/**
+	 * {
+	 *   "certificate": 		"-----BEGIN CERTIFICATE-----\nMII...",
+	 *   "serial_number":		"4317571EB0DF61426A1A6A380DB03C23A1266E8E",
+	 *   "not_after":			"2025-09-01T12:00:00Z",
+	 *   "format": 				"PEM",
+	 *   "error_message": 		null
+	 * }
+	 */
+	// @formatter:on
+	record EnrollShortLivedCertificateResponse(String certificate, String serial_number, String not_after,
+			String format, String error_message) {
+	}
+}
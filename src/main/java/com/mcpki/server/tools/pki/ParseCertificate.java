@@ -28,14 +28,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.annotation.McpTool;
 import org.springframework.ai.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.util.LogPayload;
 import com.mcpki.server.util.McpUtil;
 import com.mcpki.server.util.PemUtil;
 import com.mcpki.server.util.ValidationUtil;
 
+import io.modelcontextprotocol.server.McpSyncServerExchange;
 import io.modelcontextprotocol.spec.McpError;
 
 @Service
@@ -50,31 +55,38 @@ public class ParseCertificate {
 	@Value("${com.mcpki.server.pem.length.max}")
 	private int pemMaxStrength;
 
+	@Autowired
+	private AdmissionControl admissionControl;
+
 	/**
 	 * Returns the certificate in human readable form.
 	 * 
 	 * @param issuerDn the issuer DN.
+	 * @param exchange the MCP server exchange.
 	 * @return the certificate.
 	 */
 	@McpTool(name = "parse_certificate", description = "Parses a certificate.")
 	public String pki_parseCertificate(
-			@McpToolParam(description = "The PEM formatted X.509 certificate.") final String certificate) throws McpError
+			@McpToolParam(description = "The PEM formatted X.509 certificate.") final String certificate,
+			final McpSyncServerExchange exchange) throws McpError
 	{
-		ValidationUtil.assertValidPem("certificate", certificate, pemMinStrength, pemMaxStrength);
-
-		if (log.isDebugEnabled()) {
-			log.debug("Parse PEM certificate: " + certificate);
-		}
+		try (Permit permit = admissionControl.acquire(exchange, "parse_certificate")) {
+			ValidationUtil.assertValidPem("certificate", certificate, pemMinStrength, pemMaxStrength);
 
-		try {
-			final String result = PemUtil.parsePemCertificate(certificate);
 			if (log.isDebugEnabled()) {
-				log.debug("Parsed certificate: " + result);
+				log.debug("Parse certificate: certificate={}.", LogPayload.of(certificate));
+			}
+
+			try {
+				final String result = PemUtil.parsePemCertificate(certificate);
+				if (log.isDebugEnabled()) {
+					log.debug("Parsed certificate: result={}.", LogPayload.of(result));
+				}
+				return result;
+			} catch (IOException e) {
+				log.info("Failed to parse certificate: {}.", e.getMessage());
+				throw McpUtil.invalidParamsError("Failed to parse PEM certificate.", Map.of("certificate", certificate));
 			}
-			return result;
-		} catch (IOException e) {
-			e.printStackTrace();
-			throw McpUtil.invalidParamsError("Failed to parse PEM certificate.", Map.of("certificate", certificate));
 		}
 	}
 }
@@ -0,0 +1,220 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.tools.pki;
+
+import java.io.IOException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.annotation.McpTool;
+import org.springframework.ai.mcp.annotation.McpToolParam;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.mcpki.server.admission.AdmissionControl;
+import com.mcpki.server.admission.AdmissionControl.Permit;
+import com.mcpki.server.pki.ChainValidator;
+import com.mcpki.server.pki.ChainValidator.Result;
+import com.mcpki.server.pki.VerificationCache;
+import com.mcpki.server.tools.ejbcacc.GetCaCertificate;
+import com.mcpki.server.tools.ejbcacc.GetCaCertificate.GetCaCertificateResponse;
+import com.mcpki.server.tools.ejbcacc.GetLatestCrl;
+import com.mcpki.server.tools.ejbcacc.GetLatestCrl.GetLatestCrlResponse;
+import com.mcpki.server.util.CanonicalDn;
+import com.mcpki.server.util.McpUtil;
+import com.mcpki.server.util.PemUtil;
+import com.mcpki.server.util.ValidationUtil;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import io.modelcontextprotocol.spec.McpError;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * MCP tool to validate the certification path of a certificate against the
+ * CA chains of EJBCA.
+ */
+@Service
+@ConditionalOnProperty(name = { "com.mcpki.server.tools.pki.ValidateCertificateChain",
+		"com.mcpki.server.tools.ejbca.GetCaCertificate" }, havingValue = "true", matchIfMissing = false)
+public class ValidateCertificateChain {
+
+	private static final Logger log = LoggerFactory.getLogger(ValidateCertificateChain.class);
+
+	@Value("${com.mcpki.server.pem.length.min}")
+	private int pemMinStrength;
+
+	@Value("${com.mcpki.server.pem.length.max}")
+	private int pemMaxStrength;
+
+	@Value("${com.mcpki.server.dn.length.min}")
+	private int dnMinLength;
+
+	@Value("${com.mcpki.server.dn.length.max}")
+	private int dnMaxLength;
+
+	@Value("${com.mcpki.server.tools.pki.ValidateCertificateChain.cache.size:10000}")
+	private int cacheSize;
+
+	@Value("${com.mcpki.server.tools.pki.ValidateCertificateChain.path.length.max:8}")
+	private int maxPathLength;
+
+	@Autowired
+	private GetCaCertificate getCaCertificate;
+
+	@Autowired
+	private ObjectProvider<GetLatestCrl> getLatestCrl;
+
+	@Autowired
+	private AdmissionControl admissionControl;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private ChainValidator validator;
+
+	@PostConstruct
+	void init()
+	{
+		final VerificationCache cache = new VerificationCache(cacheSize);
+		FunctionCounter.builder("mcpki.pki.verification.cache", cache, VerificationCache::hits).tag("result", "hit")
+				.description("Signature verifications answered by the cache.").register(meterRegistry);
+		FunctionCounter.builder("mcpki.pki.verification.cache", cache, VerificationCache::misses)
+				.tag("result", "miss").description("Signature verifications computed.").register(meterRegistry);
+		validator = new ChainValidator(cache, maxPathLength);
+	}
+
+	/**
+	 * Builds and validates the path from the certificate to the root CA: validity
+	 * periods, signatures, CA key usages and path length constraints and,
+	 * optionally, the revocation status with the latest CRLs.
+	 * 
+	 * @param certificate      the PEM formatted certificate.
+	 * @param check_revocation true to check the CRL status.
+	 * @param exchange         the MCP server exchange.
+	 * @return the validation result.
+	 */
+	@McpTool(name = "validate_certificate_chain", description = "Validates the certificate chain of a certificate.")
+	public ValidateCertificateChainResponse pki_validateCertificateChain(
+			@McpToolParam(description = "The PEM formatted X.509 certificate.") final String certificate,
+			@McpToolParam(description = "True to check the revocation status with CRLs.") final boolean check_revocation,
+			final McpSyncServerExchange exchange) throws McpError
+	{
+		try (Permit permit = admissionControl.acquire(exchange, "validate_certificate_chain")) {
+			ValidationUtil.assertValidPem("certificate", certificate, pemMinStrength, pemMaxStrength);
+
+			final X509Certificate leaf;
+			try {
+				final List<X509Certificate> certificates = PemUtil.readPemCertificates(certificate);
+				if (certificates.isEmpty()) {
+					throw McpUtil.invalidParamsError("No certificate found.", Map.of("certificate", certificate));
+				}
+				leaf = certificates.get(0);
+			} catch (IOException e) {
+				throw McpUtil.invalidParamsError("Failed to parse PEM certificate.", Map.of("certificate", certificate));
+			}
+
+			final String issuer = leaf.getIssuerX500Principal().getName();
+			final GetCaCertificateResponse chain = getCaCertificate
+					.caCertificate(ValidationUtil.assertValidIssuerDn(issuer, dnMinLength, dnMaxLength));
+			if (chain.ca_chain() == null) {
+				return new ValidateCertificateChainResponse(false, null, null,
+						"CA certificate chain of " + issuer + " not available: " + chain.error_message());
+			}
+			final List<X509Certificate> candidates;
+			try {
+				candidates = PemUtil.readPemCertificates(chain.ca_chain());
+			} catch (IOException e) {
+				return new ValidateCertificateChainResponse(false, null, null,
+						"CA certificate chain of " + issuer + " is invalid.");
+			}
+
+			final Result result = validator.validate(leaf, candidates, check_revocation ? crls() : null, new Date());
+			if (log.isDebugEnabled()) {
+				log.debug("Validated {}: {}.", leaf.getSubjectX500Principal().getName(), result.errors());
+			}
+			final List<String> path = new ArrayList<>();
+			for (final X509Certificate element : result.path()) {
+				path.add(element.getSubjectX500Principal().getName());
+			}
+			return new ValidateCertificateChainResponse(result.valid(), path, result.errors(), null);
+		}
+	}
+
+	/**
+	 * Returns the CRL lookup of one validation (each CRL is loaded once).
+	 */
+	private Function<X500Principal, X509CRL> crls()
+	{
+		final GetLatestCrl crls = getLatestCrl.getIfAvailable();
+		final Map<X500Principal, X509CRL> loaded = new HashMap<>();
+		return issuer -> {
+			if (crls == null) {
+				return null;
+			}
+			return loaded.computeIfAbsent(issuer, i -> {
+				final CanonicalDn dn = CanonicalDn.of(i.getName());
+				if (dn == null) {
+					return null;
+				}
+				final GetLatestCrlResponse response = crls.latestCrl(dn);
+				if (response.crl() == null || "null".equals(response.crl())) {
+					return null;
+				}
+				try {
+					return PemUtil.readPemCrl(response.crl());
+				} catch (IOException e) {
+					log.warn("Failed to parse CRL of {}: {}.", i.getName(), e.getMessage());
+					return null;
+				}
+			});
+		};
+	}
+
+	// @formatter:off
+	/**
+	 * {
+	 *   "valid": 			false,
+	 *   "path": 			["CN=www.mcpki.org,O=mcpki.org", "CN=mcpki-dilithium2-root-ca,O=mcpki.org"],
+	 *   "errors": 			["CN=www.mcpki.org,O=mcpki.org: revoked at 2025-07-02T14:34:15Z (KEY_COMPROMISE)."],
+	 *   "error_message": 	null
+	 * }
+	 */
+	// @formatter:on
+	record ValidateCertificateChainResponse(boolean valid, List<String> path, List<String> errors,
+			String error_message) {
+	}
+}
@@ -0,0 +1,61 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.trace;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configures the capture of anonymised tool call traces.
+ */
+@Configuration
+@ConditionalOnProperty(name = "com.mcpki.server.trace.enabled", havingValue = "true", matchIfMissing = false)
+public class TraceConfiguration {
+
+	@Value("${com.mcpki.server.trace.file:./mcpki-trace.jsonl}")
+	private String file;
+
+	@Value("${com.mcpki.server.trace.capacity:65536}")
+	private int capacity;
+
+	@Value("${com.mcpki.server.trace.values:get_ca_certificate.subject_dn,issuer_dn,certificate_profile_name,end_entity_profile_name,name_of_ca,fields,format}")
+	private String[] values;
+
+	@Bean(destroyMethod = "close")
+	public TraceRecorder traceRecorder()
+	{
+		return new TraceRecorder(Path.of(file), capacity, Set.copyOf(Arrays.asList(values)));
+	}
+
+	@Bean
+	public static TracePostProcessor tracePostProcessor(final ObjectProvider<TraceRecorder> traceRecorder)
+	{
+		return new TracePostProcessor(traceRecorder);
+	}
+}
@@ -0,0 +1,311 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.trace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.annotation.McpTool;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+
+/**
+ * Records anonymised MCP tool call traces as JSON lines, for replay against a
+ * test instance (see TraceReplayer in the tests).
+ *
+ * A trace line holds the tool, the start time, the duration, the size of the
+ * result, whether it failed, a salted hash of the MCP session (so that bursts
+ * per agent are kept) and the shape of each parameter: type, length and kind
+ * (certificate, csr, dn, hex, email or text). Values are recorded only for the
+ * configured parameters (e.g. CA DNs and profile names) and for numbers and
+ * booleans; passwords and other secrets are never recorded. Lines are queued
+ * and written in batches by a background thread, as the local CA journal.
+ */
+public class TraceRecorder implements MethodInterceptor, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(TraceRecorder.class);
+
+	private static final int BATCH_SIZE = 256;
+
+	private static final Pattern SECRET = Pattern.compile("(?i).*(password|pwd|secret|token|passphrase).*");
+
+	private static final Pattern DN = Pattern.compile("^[A-Za-z][A-Za-z0-9.]*=.*");
+
+	private static final Pattern HEX = Pattern.compile("^[0-9a-fA-F]+$");
+
+	private final BlockingQueue<String> queue;
+
+	private final Path file;
+
+	private final Set<String> values;
+
+	private final byte[] salt = new byte[16];
+
+	private final Thread writer;
+
+	private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+
+	private final Map<Method, Binding> bindings = new ConcurrentHashMap<>();
+
+	private final AtomicLong lost = new AtomicLong();
+
+	private volatile boolean running = true;
+
+	/**
+	 * Tool name and parameter names of a tool method.
+	 */
+	record Binding(String tool, String[] names) {
+	}
+
+	/**
+	 * Creates and starts the recorder.
+	 *
+	 * @param file     the trace file (appended to).
+	 * @param capacity the maximum number of queued lines.
+	 * @param values   the parameters recorded with their values, either by name
+	 *                 for all tools or as tool.parameter for one tool.
+	 */
+	public TraceRecorder(final Path file, final int capacity, final Set<String> values) {
+		this.file = file;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.values = values;
+		new SecureRandom().nextBytes(salt);
+		this.writer = new Thread(this::run, "mcpki-trace");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public Object invoke(final MethodInvocation invocation) throws Throwable
+	{
+		final Binding binding = bindings.computeIfAbsent(invocation.getMethod(), this::bind);
+		final long start = System.currentTimeMillis();
+		final long started = System.nanoTime();
+		Object result = null;
+		Throwable error = null;
+		try {
+			result = invocation.proceed();
+			return result;
+		} catch (Throwable e) {
+			error = e;
+			throw e;
+		} finally {
+			record(binding, invocation.getArguments(), start, System.nanoTime() - started, result, error);
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		running = false;
+		writer.interrupt();
+		try {
+			writer.join(5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (lost.get() > 0) {
+			log.warn("{} trace lines lost on full queue.", lost.get());
+		}
+	}
+
+	void record(final Binding binding, final Object[] arguments, final long start, final long nanos,
+			final Object result, final Throwable error)
+	{
+		final Map<String, Object> params = new TreeMap<>();
+		String session = null;
+		for (int i = 0; i < arguments.length; i++) {
+			if (arguments[i] instanceof McpSyncServerExchange exchange) {
+				session = anonymise(exchange.sessionId());
+			} else {
+				final String name = binding.names() != null ? binding.names()[i] : "arg" + i;
+				params.put(name, shape(binding.tool(), name, arguments[i]));
+			}
+		}
+
+		final Map<String, Object> line = new TreeMap<>();
+		line.put("tool", binding.tool());
+		line.put("start_ms", start);
+		line.put("duration_ms", nanos / 1e6);
+		line.put("session", session);
+		line.put("params", params);
+		line.put("response_size", result == null ? 0 : String.valueOf(result).length());
+		line.put("error", error != null || hasErrorMessage(result));
+		if (!queue.offer(new JSONObject(line).toJSONString())) {
+			lost.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the shape of a parameter value, with the value only for numbers,
+	 * booleans and the configured parameters, and without anything but the type
+	 * for secrets.
+	 *
+	 * @param tool  the tool name.
+	 * @param name  the parameter name.
+	 * @param value the value.
+	 * @return the shape.
+	 */
+	Map<String, Object> shape(final String tool, final String name, final Object value)
+	{
+		final Map<String, Object> shape = new TreeMap<>();
+		if (value == null) {
+			shape.put("type", "null");
+		} else if (SECRET.matcher(name).matches()) {
+			shape.put("type", "string");
+			shape.put("redacted", true);
+		} else if (value instanceof Number || value instanceof Boolean) {
+			shape.put("type", value instanceof Number ? "number" : "boolean");
+			shape.put("value", value);
+		} else if (value instanceof CharSequence text) {
+			final String string = text.toString();
+			shape.put("type", "string");
+			shape.put("length", string.length());
+			shape.put("kind", kind(string));
+			if (values.contains(name) || values.contains(tool + "." + name)) {
+				shape.put("value", string);
+			}
+		} else {
+			shape.put("type", value.getClass().getSimpleName());
+		}
+		return shape;
+	}
+
+	private static String kind(final String value)
+	{
+		if (value.contains("CERTIFICATE REQUEST-----")) {
+			return "csr";
+		}
+		if (value.contains("-----BEGIN CERTIFICATE-----")) {
+			return "certificate";
+		}
+		if (value.contains("-----BEGIN ")) {
+			return "pem";
+		}
+		if (value.indexOf('@') > 0 && value.indexOf(' ') < 0) {
+			return "email";
+		}
+		if (DN.matcher(value).matches()) {
+			return "dn";
+		}
+		if (HEX.matcher(value).matches()) {
+			return "hex";
+		}
+		return "text";
+	}
+
+	private String anonymise(final String sessionId)
+	{
+		if (sessionId == null) {
+			return null;
+		}
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(salt);
+			return HexFormat.of().formatHex(digest.digest(sessionId.getBytes(StandardCharsets.UTF_8)), 0, 8);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static boolean hasErrorMessage(final Object result)
+	{
+		if (result instanceof Record record) {
+			for (final RecordComponent component : record.getClass().getRecordComponents()) {
+				if ("error_message".equals(component.getName())) {
+					try {
+						return component.getAccessor().invoke(record) != null;
+					} catch (ReflectiveOperationException | RuntimeException e) {
+						return false;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private Binding bind(final Method method)
+	{
+		final McpTool tool = AnnotatedElementUtils.findMergedAnnotation(method, McpTool.class);
+		final String name = tool != null && !tool.name().isEmpty() ? tool.name() : method.getName();
+		return new Binding(name, parameterNames.getParameterNames(method));
+	}
+
+	private void run()
+	{
+		final List<String> batch = new ArrayList<>(BATCH_SIZE);
+		while (running || !queue.isEmpty()) {
+			try {
+				final String first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+			} catch (InterruptedException e) {
+				// Drain the remaining lines on close.
+			}
+			queue.drainTo(batch, BATCH_SIZE - batch.size());
+			if (batch.isEmpty()) {
+				continue;
+			}
+			try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND)) {
+				for (final String line : batch) {
+					out.write(line);
+					out.newLine();
+				}
+			} catch (IOException e) {
+				log.error("Failed to write {} lines to the trace {}: {}.", batch.size(), file, e.getMessage());
+			}
+			batch.clear();
+		}
+	}
+}
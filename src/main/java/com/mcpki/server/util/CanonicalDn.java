@@ -0,0 +1,147 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validated distinguished name (DN) in canonical form.
+ *
+ * The canonical form is the BouncyCastle string form of the parsed DN, i.e.
+ * without spaces between the RDNs and with upper case attribute names, e.g.
+ * " cn=mcpki-rsa-sub-ca , o=mcpki.org" becomes "CN=mcpki-rsa-sub-ca,O=mcpki.org".
+ * Attribute values keep their case. Instances compare by value, so equal DNs
+ * can be used as map keys (per issuer caches, locks and counters) and for
+ * EJBCA URLs. Instances are shared while in the bounded intern table, but the
+ * table is cleared once full, so equal DNs are not necessarily the same
+ * instance.
+ *
+ * Raw DN strings are parsed once: the results, including invalid DNs, are
+ * kept in a bounded cache, so repeated validations are a hash lookup.
+ */
+public final class CanonicalDn {
+
+	private static final Logger log = LoggerFactory.getLogger(CanonicalDn.class);
+
+	/**
+	 * Maximum number of cached raw DN strings; the cache is cleared once full.
+	 */
+	static final int MAX_ENTRIES = 4096;
+
+	private static final Pattern DN_PATTERN = Pattern.compile("^[^~?`!|%$;^&{}\0\r\t\n\\\\\"]*$");
+
+	/**
+	 * Marker of invalid raw DN strings.
+	 */
+	private static final CanonicalDn INVALID = new CanonicalDn("");
+
+	private static final Map<String, CanonicalDn> parsed = new ConcurrentHashMap<>();
+
+	private static final Map<String, CanonicalDn> interned = new ConcurrentHashMap<>();
+
+	private final String name;
+
+	private CanonicalDn(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the canonical DN of the given DN string.
+	 *
+	 * @param dn the DN string.
+	 * @return the canonical DN or null if the DN is null or invalid.
+	 */
+	public static CanonicalDn of(final String dn)
+	{
+		if (dn == null) {
+			return null;
+		}
+		CanonicalDn canonical = parsed.get(dn);
+		if (canonical == null) {
+			canonical = parse(dn);
+			if (parsed.size() >= MAX_ENTRIES) {
+				parsed.clear();
+			}
+			parsed.put(dn, canonical);
+		}
+		return canonical == INVALID ? null : canonical;
+	}
+
+	private static CanonicalDn parse(final String dn)
+	{
+		if (dn.isBlank() || !DN_PATTERN.matcher(dn).matches()) {
+			return INVALID;
+		}
+		final String name;
+		try {
+			name = BCStyle.INSTANCE.toString(new X500Name(BCStyle.INSTANCE, dn));
+		} catch (IllegalArgumentException e) {
+			log.warn("Invalid DN: {}.", e.getMessage());
+			return INVALID;
+		}
+		final CanonicalDn canonical = interned.get(name);
+		if (canonical != null) {
+			return canonical;
+		}
+		if (interned.size() >= MAX_ENTRIES) {
+			interned.clear();
+		}
+		final CanonicalDn created = new CanonicalDn(name);
+		final CanonicalDn previous = interned.putIfAbsent(name, created);
+		return previous != null ? previous : created;
+	}
+
+	/**
+	 * Returns the canonical string form of the DN.
+	 *
+	 * @return the DN string, e.g. "CN=mcpki-rsa-sub-ca,O=mcpki.org".
+	 */
+	public String name()
+	{
+		return name;
+	}
+
+	@Override
+	public boolean equals(final Object other)
+	{
+		return this == other || other instanceof CanonicalDn && name.equals(((CanonicalDn) other).name);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return name.hashCode();
+	}
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
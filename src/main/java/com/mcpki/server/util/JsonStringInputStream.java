@@ -0,0 +1,136 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams the value of a top-level string field of a JSON document, e.g. the
+ * Base64 encoded CRL of an EJBCA response, without reading the document into
+ * memory. Escape sequences are decoded (ASCII only).
+ */
+public class JsonStringInputStream extends InputStream {
+
+	private static final int MAX_KEY_LENGTH = 256;
+
+	private final InputStream in;
+
+	private boolean end;
+
+	private JsonStringInputStream(final InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Positions the JSON stream at the value of the top-level field and returns
+	 * the stream of the value.
+	 *
+	 * @param json the JSON document (should be buffered).
+	 * @param name the field name.
+	 * @return the value stream, or null if the field is missing or no string.
+	 * @throws IOException if the stream cannot be read.
+	 */
+	public static InputStream field(final InputStream json, final String name) throws IOException
+	{
+		int depth = 0;
+		int c = json.read();
+		while (c != -1) {
+			if (c == '{' || c == '[') {
+				depth++;
+			} else if (c == '}' || c == ']') {
+				depth--;
+			} else if (c == '"') {
+				final String string = skipString(json);
+				c = nextNonWhitespace(json);
+				if (c == ':' && depth == 1 && name.equals(string)) {
+					return nextNonWhitespace(json) == '"' ? new JsonStringInputStream(json) : null;
+				}
+				continue;
+			}
+			c = json.read();
+		}
+		return null;
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		if (end) {
+			return -1;
+		}
+		final int c = in.read();
+		if (c == -1) {
+			throw new IOException("Unterminated JSON string.");
+		}
+		if (c == '"') {
+			end = true;
+			return -1;
+		}
+		if (c != '\\') {
+			return c;
+		}
+		final int escaped = in.read();
+		return switch (escaped) {
+		case 'n' -> '\n';
+		case 'r' -> '\r';
+		case 't' -> '\t';
+		case 'b' -> '\b';
+		case 'f' -> '\f';
+		case 'u' -> Integer.parseInt(new String(in.readNBytes(4), StandardCharsets.US_ASCII), 16)
+				& 0x7f;
+		case -1 -> throw new IOException("Unterminated JSON string.");
+		default -> escaped;
+		};
+	}
+
+	/**
+	 * Reads a string (after the opening quote) and returns its beginning.
+	 */
+	private static String skipString(final InputStream json) throws IOException
+	{
+		final StringBuilder builder = new StringBuilder();
+		int c;
+		while ((c = json.read()) != '"') {
+			if (c == -1) {
+				throw new IOException("Unterminated JSON string.");
+			}
+			if (c == '\\') {
+				c = json.read();
+			}
+			if (builder.length() < MAX_KEY_LENGTH) {
+				builder.append((char) c);
+			}
+		}
+		return builder.toString();
+	}
+
+	private static int nextNonWhitespace(final InputStream json) throws IOException
+	{
+		int c;
+		do {
+			c = json.read();
+		} while (c == ' ' || c == '\t' || c == '\r' || c == '\n');
+		return c;
+	}
+}
@@ -0,0 +1,117 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.util;
+
+/**
+ * Log argument rendering a payload (CSR, certificate, CA chain, user input)
+ * lazily, capped in size and on a single line.
+ *
+ * The payload is only rendered if the event is logged, i.e. when the logger
+ * formats the message, so a disabled debug statement costs the allocation of
+ * this wrapper at most. Control characters are escaped (a line break becomes
+ * "\n"), so a payload cannot forge log lines, and a payload longer than the
+ * maximum is cut off and followed by its length, e.g.
+ * "-----BEGIN CERTIFICATE-----\nMIIBzz...(1234 chars)".
+ */
+public final class LogPayload {
+
+	/**
+	 * Default maximum number of rendered payload characters.
+	 */
+	public static final int DEFAULT_MAX_CHARS = 256;
+
+	private static volatile int maxChars = DEFAULT_MAX_CHARS;
+
+	private final Object value;
+
+	private LogPayload(final Object value) {
+		this.value = value;
+	}
+
+	/**
+	 * Wraps a payload for logging.
+	 * 
+	 * @param value the payload, may be null.
+	 * @return the log argument.
+	 */
+	public static LogPayload of(final Object value)
+	{
+		return new LogPayload(value);
+	}
+
+	/**
+	 * Sets the maximum number of rendered payload characters.
+	 * 
+	 * @param max the maximum, at least 16.
+	 */
+	public static void maxChars(final int max)
+	{
+		maxChars = Math.max(16, max);
+	}
+
+	/**
+	 * Renders a payload escaped and capped in size.
+	 * 
+	 * @param text the payload, may be null.
+	 * @param max  the maximum number of rendered characters (escapes included).
+	 * @return the rendered payload.
+	 */
+	static String render(final String text, final int max)
+	{
+		if (text == null) {
+			return "null";
+		}
+		final int length = text.length();
+		final StringBuilder sb = new StringBuilder(Math.min(length, max) + 16);
+		int i = 0;
+		for (; i < length && sb.length() < max; i++) {
+			final char c = text.charAt(i);
+			switch (c) {
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20 || c == 0x7f) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		if (i < length) {
+			sb.append("...(").append(length).append(" chars)");
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString()
+	{
+		return render(value == null ? null : value.toString(), maxChars);
+	}
+}
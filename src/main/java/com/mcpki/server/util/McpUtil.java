@@ -34,6 +34,12 @@ import io.modelcontextprotocol.spec.McpSchema.JSONRPCResponse.JSONRPCError;
  */
 public class McpUtil {
 
+	/**
+	 * Implementation defined JSON-RPC server error code for rejected calls due to
+	 * rate limits or overload.
+	 */
+	public static final int TOO_MANY_REQUESTS = -32029;
+
 	/**
 	 * Returns an MCP error message of type INVALID_PARAMS = -32602.
 	 * 
@@ -60,6 +66,19 @@ public class McpUtil {
 		return new McpError(new JSONRPCError(ErrorCodes.INVALID_PARAMS, msg, new JSONObject(map).toJSONString()));
 	}
 
+	/**
+	 * Returns an MCP error message of type TOO_MANY_REQUESTS = -32029.
+	 * 
+	 * @param msg the error message.
+	 * @param map the detail map.
+	 * 
+	 * @return the MPC error.
+	 */
+	public static final McpError tooManyRequestsError(final String msg, final Map<String, Object> map)
+	{
+		return new McpError(new JSONRPCError(TOO_MANY_REQUESTS, msg, new JSONObject(map).toJSONString()));
+	}
+
 	/**
 	 * Returns a masks the given URL in the error message (or other payload).
 	 * 
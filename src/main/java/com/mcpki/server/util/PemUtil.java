@@ -23,10 +23,22 @@ package com.mcpki.server.util;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
-
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +59,10 @@ public class PemUtil {
 
 	private static final String CERTIFICATE_BOUNDARY_END = "-----END CERTIFICATE-----";
 
+	private static final String CSR_BOUNDARY_START = "-----BEGIN CERTIFICATE REQUEST-----\n";
+
+	private static final String CSR_BOUNDARY_END = "-----END CERTIFICATE REQUEST-----";
+
 	/**
 	 * Converts a base64 formatted CRL to PEM including boundaries.
 	 * 
@@ -69,6 +85,17 @@ public class PemUtil {
 		return CERTIFICATE_BOUNDARY_START + toPem(base64Content) + CERTIFICATE_BOUNDARY_END;
 	}
 
+	/**
+	 * Converts a base64 formatted PKCS#10 CSR to PEM including boundaries.
+	 * 
+	 * @param base64Content the base64 formatted CSR.
+	 * @return the PEM formatted CSR.
+	 */
+	public static final String toPemCsr(final String base64Content)
+	{
+		return CSR_BOUNDARY_START + toPem(base64Content) + CSR_BOUNDARY_END;
+	}
+
 	/**
 	 * Converts a base64 formatted string to PEM.
 	 * 
@@ -77,9 +104,10 @@ public class PemUtil {
 	 */
 	public static final String toPem(final String base64Content)
 	{
-		final StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < base64Content.length(); i += CHUNK_SIZE) {
-			sb.append(base64Content.substring(i, Math.min(i + CHUNK_SIZE, base64Content.length()))).append("\n");
+		final int length = base64Content.length();
+		final StringBuilder sb = new StringBuilder(length + (length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		for (int i = 0; i < length; i += CHUNK_SIZE) {
+			sb.append(base64Content, i, Math.min(i + CHUNK_SIZE, length)).append('\n');
 		}
 		return sb.toString();
 	}
@@ -102,10 +130,76 @@ public class PemUtil {
 			return certificate.toString();
 		} catch (Exception e) {
 			log.info("Failed to parse certificate: {}.", e.getMessage());
-			e.printStackTrace();
+			if (log.isDebugEnabled()) {
+				log.debug("Failed to parse certificate: certificate={}.", LogPayload.of(pem), e);
+			}
 		}
 
 		return "";
 	}
 
+	/**
+	 * Parses a PEM formatted PKCS#10 Certificate Signing Request (CSR). Literal
+	 * "\n" sequences (as often sent by LLMs) are treated as line breaks.
+	 *
+	 * @param pem the PEM formatted CSR.
+	 * @return the CSR.
+	 * @throws IOException if the PEM does not contain a CSR.
+	 */
+	public static final PKCS10CertificationRequest parsePemCsr(final String pem) throws IOException
+	{
+		try (PEMParser parser = new PEMParser(new StringReader(pem.replace("\\n", "\n")))) {
+			final Object object = parser.readObject();
+			if (object instanceof PKCS10CertificationRequest) {
+				return (PKCS10CertificationRequest) object;
+			}
+			throw new IOException("PEM does not contain a certificate signing request.");
+		}
+	}
+
+	/**
+	 * Reads all X.509 certificates of a PEM string. Text between the PEM blocks
+	 * (e.g. the Subject / Issuer annotation of EJBCA CA chains) is ignored, literal
+	 * "\n" sequences are treated as line breaks.
+	 *
+	 * @param pem the PEM formatted certificates.
+	 * @return the certificates in the order of the PEM string.
+	 * @throws IOException if a certificate cannot be decoded.
+	 */
+	public static final List<X509Certificate> readPemCertificates(final String pem) throws IOException
+	{
+		final List<X509Certificate> certificates = new ArrayList<>();
+		final JcaX509CertificateConverter converter = new JcaX509CertificateConverter().setProvider("BC");
+		try (PEMParser parser = new PEMParser(new StringReader(pem.replace("\\n", "\n")))) {
+			Object object;
+			while ((object = parser.readObject()) != null) {
+				if (object instanceof X509CertificateHolder) {
+					certificates.add(converter.getCertificate((X509CertificateHolder) object));
+				}
+			}
+		} catch (CertificateException e) {
+			throw new IOException("Failed to decode certificate.", e);
+		}
+		return certificates;
+	}
+
+	/**
+	 * Reads a PEM formatted X.509 CRL.
+	 *
+	 * @param pem the PEM formatted CRL.
+	 * @return the CRL.
+	 * @throws IOException if the PEM does not contain a CRL.
+	 */
+	public static final X509CRL readPemCrl(final String pem) throws IOException
+	{
+		try (PEMParser parser = new PEMParser(new StringReader(pem.replace("\\n", "\n")))) {
+			final Object object = parser.readObject();
+			if (object instanceof X509CRLHolder) {
+				return new JcaX509CRLConverter().setProvider("BC").getCRL((X509CRLHolder) object);
+			}
+			throw new IOException("PEM does not contain a CRL.");
+		} catch (CRLException e) {
+			throw new IOException("Failed to decode CRL.", e);
+		}
+	}
 }
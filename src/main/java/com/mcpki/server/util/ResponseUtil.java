@@ -0,0 +1,310 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * Utility class to shape large tool responses: field projection, a compact
+ * tabular encoding of lists and size bounded pages with continuation cursors.
+ */
+public class ResponseUtil {
+
+	/**
+	 * Response format with one JSON object per list item.
+	 */
+	public static final String FORMAT_JSON = "json";
+
+	/**
+	 * Response format with the column names once and one array per list item.
+	 */
+	public static final String FORMAT_TABLE = "table";
+
+	private static final Pattern FIELD = Pattern.compile("[A-Za-z0-9_]{1,64}");
+
+	private static final String CURSOR_PREFIX = "o:";
+
+	private static final String CURSOR_VERSION = ";v:";
+
+	/**
+	 * Part of a list or object that fits into the size budget.
+	 *
+	 * @param value the encoded part.
+	 * @param count the number of list items or object fields in the part.
+	 */
+	public record Page(Object value, int count) {
+	}
+
+	/**
+	 * Returns the field names of a comma separated list.
+	 *
+	 * @param fields the comma separated field names or null.
+	 * @return the field names, empty for all fields.
+	 */
+	public static List<String> parseFields(final String fields)
+	{
+		final List<String> result = new ArrayList<>();
+		if (fields == null || fields.isBlank()) {
+			return result;
+		}
+		for (final String field : fields.split(",")) {
+			final String name = field.strip();
+			if (!FIELD.matcher(name).matches()) {
+				throw McpUtil.invalidParamsError("Invalid field name.", name);
+			}
+			if (!result.contains(name)) {
+				result.add(name);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if the format is {@link #FORMAT_TABLE}.
+	 *
+	 * @param format the format or null for {@link #FORMAT_JSON}.
+	 * @return true for the tabular format.
+	 */
+	public static boolean isTable(final String format)
+	{
+		if (format == null || format.isBlank() || FORMAT_JSON.equalsIgnoreCase(format.strip())) {
+			return false;
+		}
+		if (FORMAT_TABLE.equalsIgnoreCase(format.strip())) {
+			return true;
+		}
+		throw McpUtil.invalidParamsError("Invalid format, expected json or table.", format);
+	}
+
+	/**
+	 * Returns the object with the given fields only.
+	 *
+	 * @param object the object.
+	 * @param fields the fields, empty for all fields.
+	 * @return the projected object.
+	 */
+	@SuppressWarnings("unchecked")
+	public static JSONObject project(final Map<?, ?> object, final List<String> fields)
+	{
+		if (fields.isEmpty()) {
+			return object instanceof JSONObject json ? json : new JSONObject(object);
+		}
+		final JSONObject projected = new JSONObject();
+		for (final String field : fields) {
+			if (object.containsKey(field)) {
+				projected.put(field, object.get(field));
+			}
+		}
+		return projected;
+	}
+
+	/**
+	 * Encodes the leading list items that fit into maxBytes, at least one item.
+	 *
+	 * In the table format the value is { columns: [...], rows: [[...], ...] }
+	 * with the given fields or all fields (sorted) as columns, otherwise an array
+	 * of the projected objects.
+	 *
+	 * @param items    the list items.
+	 * @param fields   the fields, empty for all fields.
+	 * @param table    true for the table format.
+	 * @param maxBytes the size budget of the encoded items.
+	 * @return the encoded items.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Page encodeList(final List<? extends Map<?, ?>> items, final List<String> fields,
+			final boolean table, final int maxBytes)
+	{
+		final List<String> columns = table ? columns(items, fields) : fields;
+		final JSONArray encoded = new JSONArray();
+		long size = 2;
+		for (final Map<?, ?> item : items) {
+			final Object element;
+			if (table) {
+				final JSONArray row = new JSONArray();
+				for (final String column : columns) {
+					row.add(item.get(column));
+				}
+				element = row;
+			} else {
+				element = project(item, fields);
+			}
+			final int length = JSONValue.toJSONString(element).length() + 1;
+			if (!encoded.isEmpty() && size + length > maxBytes) {
+				break;
+			}
+			size += length;
+			encoded.add(element);
+		}
+
+		if (!table) {
+			return new Page(encoded, encoded.size());
+		}
+		final JSONObject result = new JSONObject();
+		final JSONArray header = new JSONArray();
+		header.addAll(columns);
+		result.put("columns", header);
+		result.put("rows", encoded);
+		return new Page(result, encoded.size());
+	}
+
+	/**
+	 * Returns the fields (sorted by name) from start that fit into maxBytes, at
+	 * least one field.
+	 *
+	 * @param object   the object.
+	 * @param start    the index of the first field.
+	 * @param maxBytes the size budget.
+	 * @return the object with the fields of the page.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Page encodeObject(final Map<?, ?> object, final int start, final int maxBytes)
+	{
+		final TreeMap<String, Object> sorted = new TreeMap<>();
+		object.forEach((key, value) -> sorted.put(String.valueOf(key), value));
+
+		final JSONObject page = new JSONObject();
+		long size = 2;
+		int index = 0;
+		for (final Map.Entry<String, Object> entry : sorted.entrySet()) {
+			if (index++ < start) {
+				continue;
+			}
+			final int length = JSONValue.toJSONString(entry.getKey()).length()
+					+ JSONValue.toJSONString(entry.getValue()).length() + 2;
+			if (!page.isEmpty() && size + length > maxBytes) {
+				break;
+			}
+			size += length;
+			page.put(entry.getKey(), entry.getValue());
+		}
+		return new Page(page, page.size());
+	}
+
+	/**
+	 * Returns the opaque continuation cursor of the offset.
+	 *
+	 * @param offset the offset of the next item.
+	 * @return the cursor.
+	 */
+	public static String cursor(final long offset)
+	{
+		return encodeCursor(CURSOR_PREFIX + offset);
+	}
+
+	/**
+	 * Returns the opaque continuation cursor of the offset in a version of the
+	 * result (e.g. the CRL number), so that a cursor is not applied to a newer
+	 * result.
+	 *
+	 * @param offset  the offset of the next item.
+	 * @param version the version of the result.
+	 * @return the cursor.
+	 */
+	public static String cursor(final long offset, final String version)
+	{
+		return encodeCursor(CURSOR_PREFIX + offset + CURSOR_VERSION + version);
+	}
+
+	/**
+	 * Returns the offset of a continuation cursor.
+	 *
+	 * @param cursor the cursor.
+	 * @return the offset of the next item.
+	 */
+	public static int offset(final String cursor)
+	{
+		return parseOffset(decodeCursor(cursor), cursor);
+	}
+
+	/**
+	 * Returns the offset of a continuation cursor of the given result version.
+	 *
+	 * @param cursor  the cursor.
+	 * @param version the current version of the result.
+	 * @return the offset of the next item.
+	 */
+	public static int offset(final String cursor, final String version)
+	{
+		final String decoded = decodeCursor(cursor);
+		final int separator = decoded == null ? -1 : decoded.indexOf(CURSOR_VERSION);
+		if (separator < 0) {
+			throw McpUtil.invalidParamsError("Invalid cursor.", cursor);
+		}
+		if (!decoded.substring(separator + CURSOR_VERSION.length()).equals(version)) {
+			throw McpUtil.invalidParamsError("Cursor of an outdated result, restart without cursor.", cursor);
+		}
+		return parseOffset(decoded.substring(0, separator), cursor);
+	}
+
+	private static String encodeCursor(final String value)
+	{
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static String decodeCursor(final String cursor)
+	{
+		try {
+			return new String(Base64.getUrlDecoder().decode(cursor.strip()), StandardCharsets.US_ASCII);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static int parseOffset(final String decoded, final String cursor)
+	{
+		try {
+			if (decoded != null && decoded.startsWith(CURSOR_PREFIX)) {
+				final int offset = Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+				if (offset >= 0) {
+					return offset;
+				}
+			}
+		} catch (NumberFormatException e) {
+			// Invalid number, see below.
+		}
+		throw McpUtil.invalidParamsError("Invalid cursor.", cursor);
+	}
+
+	private static List<String> columns(final List<? extends Map<?, ?>> items, final List<String> fields)
+	{
+		if (!fields.isEmpty()) {
+			return fields;
+		}
+		final TreeSet<String> columns = new TreeSet<>();
+		for (final Map<?, ?> item : items) {
+			item.keySet().forEach(key -> columns.add(String.valueOf(key)));
+		}
+		return new ArrayList<>(columns);
+	}
+}
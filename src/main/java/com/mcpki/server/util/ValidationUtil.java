@@ -21,14 +21,10 @@
 
 package com.mcpki.server.util;
 
-import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import org.bouncycastle.asn1.x509.X509Name;
 import org.bouncycastle.util.Arrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,15 +34,15 @@ import io.modelcontextprotocol.spec.McpError;
 /**
  * Utility class to validate input and output data.
  */
-@SuppressWarnings("deprecation")
 public class ValidationUtil {
 
 	private static final Logger log = LoggerFactory.getLogger(ValidationUtil.class);
 
-	private static final Pattern DN_PATTERN = Pattern.compile("^[^~?`!|%$;^&{}\0\r\t\n\\\\\"]*$");
+	private static final String PEM_BEGIN = "-----BEGIN ";
 
-	private static final Pattern PEM_PATTERN = Pattern.compile(
-			"-----BEGIN ([A-Z0-9 ]+)-----\\s+([a-zA-Z0-9+/=\\r\\n]+)\\s+-----END \\1-----\\s*", Pattern.MULTILINE);
+	private static final String PEM_END = "-----END ";
+
+	private static final String PEM_DASHES = "-----";
 
 	public static List<String> REVOCATION_REASON = Collections.unmodifiableList(List.of("NOT_REVOKED", "UNSPECIFIED",
 			"KEY_COMPROMISE", "CA_COMPROMISE", "AFFILIATION_CHANGED", "SUPERSEDED", "CESSATION_OF_OPERATION",
@@ -62,24 +58,31 @@ public class ValidationUtil {
 	 * @return true if the DN is valid, false otherwise
 	 */
 	public static final boolean isValidDn(final String dn, final int minLength, final int maxLength)
+	{
+		return canonicalDn(dn, minLength, maxLength) != null;
+	}
+
+	/**
+	 * Returns the canonical form of the given distinguished name (DN) if it meets
+	 * length requirements and matches the pattern. Parsed DNs are cached, see
+	 * {@link CanonicalDn}.
+	 *
+	 * @param dn        the distinguished name to validate
+	 * @param minLength minimum allowed length of the DN
+	 * @param maxLength maximum allowed length of the DN
+	 * @return the canonical DN or null if the DN is invalid
+	 */
+	public static final CanonicalDn canonicalDn(final String dn, final int minLength, final int maxLength)
 	{
 		if (dn == null || dn.isEmpty()) {
 			log.warn("DN is null or empty.");
+			return null;
 		}
 		if (dn.length() < minLength || dn.length() > maxLength) {
 			log.warn("DN length out of range: {}.", dn.length());
+			return null;
 		}
-		if (DN_PATTERN.matcher(dn).matches()) {
-			try {
-				@SuppressWarnings("unused")
-				final X509Name name = new X509Name(dn);
-				return true;
-			} catch (IllegalArgumentException e) {
-				log.warn("Invalid DN: {}.", e.getMessage());
-				return false;
-			}
-		}
-		return false;
+		return CanonicalDn.of(dn);
 	}
 
 	/**
@@ -89,17 +92,21 @@ public class ValidationUtil {
 	 * @param dn        the issuer DN to validate
 	 * @param minLength minimum allowed length of the issuer DN
 	 * @param maxLength maximum allowed length of the issuer DN
+	 * @return the canonical issuer DN
 	 * @throws McpError if the issuer DN is not valid according to the specified
 	 *                  criteria
 	 */
-	public static void assertValidIssuerDn(final String dn, final int minLength, final int maxLength) throws McpError
+	public static CanonicalDn assertValidIssuerDn(final String dn, final int minLength, final int maxLength)
+			throws McpError
 	{
-		if (!isValidDn(dn, minLength, maxLength)) {
+		final CanonicalDn canonical = canonicalDn(dn, minLength, maxLength);
+		if (canonical == null) {
 			if (log.isDebugEnabled()) {
-				log.debug("Invalid DN: {}.", dn);
+				log.debug("Invalid DN: {}.", LogPayload.of(dn));
 			}
-			throw McpUtil.invalidParamsError("Invalid DN.", Map.of("dn", dn));
+			throw McpUtil.invalidParamsError("Invalid DN.", Map.of("dn", String.valueOf(dn)));
 		}
+		return canonical;
 	}
 
 	/**
@@ -132,7 +139,7 @@ public class ValidationUtil {
 	{
 		if (!isValidSerialNumberHex(hex, length)) {
 			if (log.isDebugEnabled()) {
-				log.debug("Invalid serial number hex: {}.", hex);
+				log.debug("Invalid serial number hex: {}.", LogPayload.of(hex));
 			}
 			throw McpUtil.invalidParamsError("Invalid serial number.", Map.of("hex", hex));
 		}
@@ -150,7 +157,7 @@ public class ValidationUtil {
 	{
 		if (reason == null || !REVOCATION_REASON.contains(reason)) {
 			if (log.isDebugEnabled()) {
-				log.debug("Invalid revocation reason: {}.", reason);
+				log.debug("Invalid revocation reason: {}.", LogPayload.of(reason));
 			}
 			throw McpUtil.invalidParamsError("Invalid revocation reason.", Map.of("revocation_reason", reason));
 		}
@@ -187,7 +194,7 @@ public class ValidationUtil {
 	{
 		if (!isValidName(name, minLength, maxLength)) {
 			if (log.isDebugEnabled()) {
-				log.debug("Invalid name for field '{}': '{}'.", field, name);
+				log.debug("Invalid name for field '{}': '{}'.", field, LogPayload.of(name));
 			}
 			throw McpUtil.invalidParamsError("Invalid name (" + field + ").", Map.of("name", name));
 		}
@@ -225,7 +232,7 @@ public class ValidationUtil {
 	{
 		if (!isValidEmail(email, minLength, maxLength)) {
 			if (log.isDebugEnabled()) {
-				log.debug("Invalid e-mail: {}.", email);
+				log.debug("Invalid e-mail: {}.", LogPayload.of(email));
 			}
 			throw McpUtil.invalidParamsError("Invalid e-mail.", Map.of("email", email));
 		}
@@ -277,7 +284,8 @@ public class ValidationUtil {
 	{
 		if (!isValidPassword(pwd, minLength, maxLength, allowedCharacters)) {
 			if (log.isDebugEnabled()) {
-				log.debug("Invalid password: {}.", pwd);
+				// Never log the password itself.
+				log.debug("Invalid password: length={}.", pwd == null ? 0 : pwd.length());
 			}
 			throw McpUtil.invalidParamsError("Invalid password.", Map.of("password", pwd));
 		}
@@ -349,33 +357,18 @@ public class ValidationUtil {
 	{
 		if (!isValidPem(pem, minLength, maxLength)) {
 			if (log.isDebugEnabled()) {
-				log.debug("Invalid PEM format (" + field + "): {}.", pem);
+				log.debug("Invalid PEM format ({}): {}.", field, LogPayload.of(pem));
 			}
 			throw McpUtil.invalidParamsError("Invalid PEM format (" + field + ").", Map.of(field, pem));
 		}
 	}
 
 	/**
-	 * Validates if the provided string is in PEM format.
+	 * Validates whether a string is in PEM format per RFC 7468: BEGIN and END
+	 * boundaries with the same label around Base64 content with line breaks.
+	 * Literal "\n" sequences (as sent by some clients) count as line breaks.
 	 *
-	 * PEM (Privacy-Enhanced Mail) format is commonly used to encode cryptographic
-	 * keys and certificates. This method checks if the input string: 1. Starts with
-	 * "-----BEGIN", followed by one or more uppercase letters or digits, and then
-	 * "REQUEST-----". 2. Contains only valid characters in between: Printable ASCII
-	 * characters (space to tilde) and line breaks. 3. Ends with "-----END",
-	 * followed by one or more uppercase letters or digits, and then "REQUEST-----".
-	 *
-	 * This regex pattern is designed to ensure the input string adheres to the
-	 * general structure of PEM-encoded objects while allowing for any valid content
-	 * between the BEGIN and END markers.
-	 *
-	 * @param pem The string to validate in PEM format
-	 * @return true if the input string matches the general PEM format; false
-	 *         otherwise
-	 */
-
-	/**
-	 * Validates whether a string is in PEM format per RFC 7468.
+	 * The string is scanned in place, without copies.
 	 *
 	 * @param pem input string
 	 * @return true if valid PEM format, false otherwise
@@ -386,22 +379,115 @@ public class ValidationUtil {
 			return false;
 		}
 
-		// Replace literal "\n" with actual newlines
-		final String normalized = pem.replace("\\n", "\n").trim();
+		int start = 0;
+		int end = pem.length();
+		while (start < end && (pem.charAt(start) <= ' ' || isLiteralNewline(pem, start))) {
+			start += pem.charAt(start) <= ' ' ? 1 : 2;
+		}
+		while (end > start && (pem.charAt(end - 1) <= ' ' || end - start >= 2 && isLiteralNewline(pem, end - 2))) {
+			end -= pem.charAt(end - 1) <= ' ' ? 1 : 2;
+		}
 
-		final Matcher matcher = PEM_PATTERN.matcher(normalized);
-		if (!matcher.matches()) {
+		if (!pem.startsWith(PEM_BEGIN, start)) {
+			return false;
+		}
+		final int labelStart = start + PEM_BEGIN.length();
+		int labelEnd = labelStart;
+		while (labelEnd < end && isPemLabelChar(pem.charAt(labelEnd))) {
+			labelEnd++;
+		}
+		final int labelLength = labelEnd - labelStart;
+		if (labelLength == 0 || !pem.startsWith(PEM_DASHES, labelEnd)) {
 			return false;
 		}
 
-		// Extract Base64 payload and strip whitespace
-		final String base64Content = matcher.group(2).replaceAll("\\s", "");
-		try {
-			Base64.getDecoder().decode(base64Content);
-			return true;
-		} catch (IllegalArgumentException e) {
+		final int endBoundary = end - PEM_END.length() - labelLength - PEM_DASHES.length();
+		if (endBoundary <= labelEnd + PEM_DASHES.length() || !pem.startsWith(PEM_END, endBoundary)
+				|| !pem.regionMatches(endBoundary + PEM_END.length(), pem, labelStart, labelLength)
+				|| !pem.startsWith(PEM_DASHES, end - PEM_DASHES.length())) {
+			return false;
+		}
+		return isPemContent(pem, labelEnd + PEM_DASHES.length(), endBoundary);
+	}
+
+	/**
+	 * Returns true if the content between the boundaries is whitespace separated
+	 * from them and is Base64 with line breaks that the Base64 decoder accepts.
+	 */
+	private static boolean isPemContent(final String pem, final int from, final int to)
+	{
+		int start = from;
+		while (start < to && (isWhitespace(pem.charAt(start)) || isLiteralNewline(pem, start))) {
+			start += isWhitespace(pem.charAt(start)) ? 1 : 2;
+		}
+		int end = to;
+		while (end > start && (isWhitespace(pem.charAt(end - 1)) || end - start >= 2 && isLiteralNewline(pem, end - 2))) {
+			end -= isWhitespace(pem.charAt(end - 1)) ? 1 : 2;
+		}
+		if (start == end) {
+			// Only whitespace: valid if a line break separates two other characters.
+			return isLineBreakInside(pem, from, to);
+		}
+		if (start == from || end == to) {
 			return false;
 		}
+
+		int count = 0;
+		int padding = 0;
+		for (int i = start; i < end; i++) {
+			final char c = pem.charAt(i);
+			if (c == '\r' || c == '\n') {
+				continue;
+			}
+			if (isLiteralNewline(pem, i)) {
+				i++;
+				continue;
+			}
+			if (c == '=') {
+				padding++;
+			} else if (padding > 0 || !isBase64Char(c)) {
+				return false;
+			}
+			count++;
+		}
+		return padding == 0 ? count % 4 != 1 : padding <= 2 && count % 4 == 0;
+	}
+
+	private static boolean isLineBreakInside(final String pem, final int from, final int to)
+	{
+		boolean previous = false;
+		for (int i = from; i < to; i++) {
+			final boolean literal = isLiteralNewline(pem, i);
+			final boolean lineBreak = literal || pem.charAt(i) == '\r' || pem.charAt(i) == '\n';
+			if (literal) {
+				i++;
+			}
+			if (previous && lineBreak && i + 1 < to) {
+				return true;
+			}
+			previous = true;
+		}
+		return false;
+	}
+
+	private static boolean isLiteralNewline(final String pem, final int index)
+	{
+		return index + 1 < pem.length() && pem.charAt(index) == '\\' && pem.charAt(index + 1) == 'n';
+	}
+
+	private static boolean isWhitespace(final char c)
+	{
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	private static boolean isPemLabelChar(final char c)
+	{
+		return c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == ' ';
+	}
+
+	private static boolean isBase64Char(final char c)
+	{
+		return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '+' || c == '/';
 	}
 
 }
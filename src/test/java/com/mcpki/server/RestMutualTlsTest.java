@@ -0,0 +1,241 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.Security;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mcpki.server.RestMutualTls.MutualTlsRequestFactory;
+
+/**
+ * Rotation of the EJBCA client key material: after the key store file is
+ * replaced, new connections move to the new client certificate over the ramp
+ * interval while the previous one keeps serving.
+ */
+public class RestMutualTlsTest {
+
+	private static final char[] PASSWORD = "Rotation-Pwd-1".toCharArray();
+
+	private static final long RAMP = 1000L;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testRotation() throws Exception
+	{
+		Security.addProvider(new BouncyCastleProvider());
+		final Path keystore = directory.resolve("client.p12");
+		writeKeyStore(keystore, "CN=client-1,O=mcpki.org");
+
+		final AtomicInteger loads = new AtomicInteger();
+		final AtomicLong clock = new AtomicLong(1000000L);
+		final MutualTlsRequestFactory factory = new MutualTlsRequestFactory(() -> {
+			loads.incrementAndGet();
+			return sslContext(keystore);
+		}, RAMP, clock::get);
+
+		try (TlsServer server = new TlsServer(directory.resolve("server.p12"))) {
+			final SSLSocketFactory first = factory.socketFactory();
+			assertEquals("CN=client-1,O=mcpki.org", server.clientSubject(first), "Wrong initial certificate.");
+			assertSame(first, factory.socketFactory(), "Socket factory not reused.");
+
+			writeKeyStore(keystore, "CN=client-2,O=mcpki.org");
+			factory.reload();
+
+			// Right after the rotation the previous certificate still serves.
+			assertSame(first, factory.socketFactory(), "Previous certificate dropped at the rotation.");
+			assertEquals("CN=client-1,O=mcpki.org", server.clientSubject(factory.socketFactory()),
+					"Previous certificate not valid during the ramp interval.");
+
+			// Within the ramp interval both certificates serve new connections.
+			clock.addAndGet(RAMP / 2);
+			final Set<String> used = new HashSet<>();
+			for (int i = 0; i < 50; i++) {
+				used.add(server.clientSubject(factory.socketFactory()));
+			}
+			assertEquals(Set.of("CN=client-1,O=mcpki.org", "CN=client-2,O=mcpki.org"), used,
+					"Connections not shifted gradually.");
+
+			// After the ramp interval only the new certificate is used.
+			clock.addAndGet(RAMP);
+			for (int i = 0; i < 10; i++) {
+				assertEquals("CN=client-2,O=mcpki.org", server.clientSubject(factory.socketFactory()),
+						"Previous certificate used after the ramp interval.");
+			}
+		}
+		assertEquals(2, loads.get(), "Key material not loaded once per rotation.");
+	}
+
+	/**
+	 * TLS server requiring a client certificate, which answers each connection
+	 * with the subject of the client certificate.
+	 */
+	private static final class TlsServer implements AutoCloseable {
+
+		private final SSLServerSocket socket;
+
+		private final Thread acceptor;
+
+		TlsServer(final Path keystore) throws Exception {
+			writeKeyStore(keystore, "CN=localhost,O=mcpki.org");
+			socket = (SSLServerSocket) sslContext(keystore).getServerSocketFactory().createServerSocket(0, 50,
+					InetAddress.getLoopbackAddress());
+			socket.setNeedClientAuth(true);
+			acceptor = new Thread(this::accept, "tls-server");
+			acceptor.setDaemon(true);
+			acceptor.start();
+		}
+
+		private void accept()
+		{
+			while (!socket.isClosed()) {
+				try (SSLSocket connection = (SSLSocket) socket.accept()) {
+					connection.startHandshake();
+					final String subject = ((X509Certificate) connection.getSession().getPeerCertificates()[0])
+							.getSubjectX500Principal().getName();
+					final OutputStream out = connection.getOutputStream();
+					out.write((subject + "\n").getBytes(StandardCharsets.UTF_8));
+					out.flush();
+				} catch (IOException e) {
+					// Closed, or a failed handshake seen by the client.
+				}
+			}
+		}
+
+		/**
+		 * Connects with the socket factory and returns the client certificate
+		 * subject seen by the server.
+		 */
+		String clientSubject(final SSLSocketFactory factory) throws IOException
+		{
+			try (SSLSocket connection = (SSLSocket) factory.createSocket(socket.getInetAddress(), socket.getLocalPort());
+					BufferedReader in = new BufferedReader(
+							new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+				connection.startHandshake();
+				return in.readLine();
+			}
+		}
+
+		@Override
+		public void close() throws Exception
+		{
+			socket.close();
+			acceptor.join(5000);
+		}
+	}
+
+	/**
+	 * Loads the key store; the peer is trusted without checks.
+	 */
+	private static SSLContext sslContext(final Path keystore) throws Exception
+	{
+		final KeyStore store = KeyStore.getInstance("PKCS12");
+		try (InputStream in = Files.newInputStream(keystore)) {
+			store.load(in, PASSWORD);
+		}
+		final KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		keyManagers.init(store, PASSWORD);
+		final TrustManager trustAll = new X509TrustManager() {
+
+			@Override
+			public void checkClientTrusted(final X509Certificate[] chain, final String authType)
+			{
+			}
+
+			@Override
+			public void checkServerTrusted(final X509Certificate[] chain, final String authType)
+			{
+			}
+
+			@Override
+			public X509Certificate[] getAcceptedIssuers()
+			{
+				return new X509Certificate[0];
+			}
+		};
+		final SSLContext context = SSLContext.getInstance("TLS");
+		context.init(keyManagers.getKeyManagers(), new TrustManager[] { trustAll }, null);
+		return context;
+	}
+
+	private static void writeKeyStore(final Path keystore, final String subject) throws Exception
+	{
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(256);
+		final KeyPair keyPair = generator.generateKeyPair();
+		final X500Name name = new X500Name(subject);
+		final Instant now = Instant.now();
+		final X509Certificate certificate = new JcaX509CertificateConverter().setProvider("BC")
+				.getCertificate(new JcaX509v3CertificateBuilder(name, BigInteger.valueOf(now.toEpochMilli()),
+						Date.from(now.minusSeconds(60)), Date.from(now.plus(Duration.ofDays(1))), name,
+						keyPair.getPublic())
+						.build(new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate())));
+
+		final KeyStore store = KeyStore.getInstance("PKCS12");
+		store.load(null, null);
+		store.setKeyEntry("client", keyPair.getPrivate(), PASSWORD, new Certificate[] { certificate });
+		try (OutputStream out = Files.newOutputStream(keystore)) {
+			store.store(out, PASSWORD);
+		}
+	}
+}
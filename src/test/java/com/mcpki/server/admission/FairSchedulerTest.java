@@ -0,0 +1,129 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+public class FairSchedulerTest {
+
+	@Test
+	public void testHighPriorityOvertakesQueuedReads() throws Exception
+	{
+		final FairScheduler scheduler = new FairScheduler(1, 0, 1, TimeUnit.HOURS);
+		assertEquals(0L, scheduler.acquire("a", Priority.NORMAL, 1d, 1d, 1, TimeUnit.SECONDS), "Slot not free.");
+
+		final List<String> order = new CopyOnWriteArrayList<>();
+		final Thread low = waiter(scheduler, "low", Priority.LOW, order);
+		awaitQueued(scheduler, Priority.LOW);
+		final Thread high = waiter(scheduler, "high", Priority.HIGH, order);
+		awaitQueued(scheduler, Priority.HIGH);
+
+		scheduler.release();
+		low.join(5000);
+		high.join(5000);
+		assertEquals(List.of("high", "low"), order, "High priority call did not overtake.");
+	}
+
+	@Test
+	public void testReservedSlotForHighPriority() throws Exception
+	{
+		final FairScheduler scheduler = new FairScheduler(2, 1, 1, TimeUnit.HOURS);
+		assertEquals(0L, scheduler.acquire("a", Priority.LOW, 1d, 1d, 1, TimeUnit.SECONDS), "Slot not free.");
+		assertEquals(-1L, scheduler.acquire("a", Priority.LOW, 1d, 1d, 10, TimeUnit.MILLISECONDS),
+				"Reserved slot used by low priority.");
+		assertEquals(0L, scheduler.acquire("b", Priority.HIGH, 1d, 1d, 1, TimeUnit.SECONDS),
+				"Reserved slot not free.");
+	}
+
+	@Test
+	public void testAgedLowPriorityServedUnderHighPriorityLoad() throws Exception
+	{
+		final FairScheduler scheduler = new FairScheduler(1, 0, 20, TimeUnit.MILLISECONDS);
+		assertEquals(0L, scheduler.acquire("a", Priority.HIGH, 1d, 1d, 1, TimeUnit.SECONDS), "Slot not free.");
+
+		final List<String> order = new CopyOnWriteArrayList<>();
+		final Thread low = waiter(scheduler, "low", Priority.LOW, order);
+		awaitQueued(scheduler, Priority.LOW);
+
+		// Several clients keep the high priority queue non-empty.
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final List<Thread> load = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			final String client = "high-" + i;
+			final Thread thread = new Thread(() -> {
+				try {
+					while (running.get()) {
+						if (scheduler.acquire(client, Priority.HIGH, 1d, 1d, 5, TimeUnit.SECONDS) >= 0L) {
+							Thread.sleep(2);
+							scheduler.release();
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			thread.start();
+			load.add(thread);
+		}
+		awaitQueued(scheduler, Priority.HIGH);
+		scheduler.release();
+
+		low.join(5000);
+		running.set(false);
+		for (final Thread thread : load) {
+			thread.join(5000);
+		}
+		assertEquals(List.of("low"), order, "Low priority call starved under high priority load.");
+	}
+
+	private static Thread waiter(final FairScheduler scheduler, final String client, final Priority priority,
+			final List<String> order)
+	{
+		final Thread thread = new Thread(() -> {
+			try {
+				if (scheduler.acquire(client, priority, 1d, 1d, 5, TimeUnit.SECONDS) >= 0L) {
+					order.add(client);
+					scheduler.release();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	private static void awaitQueued(final FairScheduler scheduler, final Priority priority) throws InterruptedException
+	{
+		for (int i = 0; i < 500 && scheduler.queueLength(priority) == 0; i++) {
+			Thread.sleep(10);
+		}
+	}
+}
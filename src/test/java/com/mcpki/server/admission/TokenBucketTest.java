@@ -0,0 +1,53 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	public void testBurstAndRefill()
+	{
+		final TokenBucket bucket = new TokenBucket(2d, 3d, 0L);
+		assertEquals(true, bucket.tryConsume(1d, 0L), "First token missing.");
+		assertEquals(true, bucket.tryConsume(1d, 0L), "Second token missing.");
+		assertEquals(true, bucket.tryConsume(1d, 0L), "Third token missing.");
+		assertEquals(false, bucket.tryConsume(1d, 0L), "Burst exceeded.");
+		assertEquals(SECOND / 2, bucket.nanosUntilAvailable(1d, 0L), "Wrong refill time.");
+		assertEquals(true, bucket.tryConsume(1d, SECOND / 2), "Token not refilled.");
+	}
+
+	@Test
+	public void testCapacityLimit()
+	{
+		final TokenBucket bucket = new TokenBucket(100d, 2d, 0L);
+		assertEquals(true, bucket.tryConsume(2d, 10 * SECOND), "Tokens missing.");
+		assertEquals(false, bucket.tryConsume(1d, 10 * SECOND), "Capacity exceeded.");
+	}
+}
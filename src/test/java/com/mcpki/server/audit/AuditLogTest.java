@@ -0,0 +1,119 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.audit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.mcpki.server.audit.AuditLog.Action;
+import com.mcpki.server.audit.AuditLog.Verification;
+
+public class AuditLogTest {
+
+	private static final String ISSUER = "CN=mcpki-rsa-sub-ca,O=mcpki.org";
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testConcurrentAppendAndReopen() throws Exception
+	{
+		try (AuditLog log = new AuditLog(directory, 4096, 64, 5)) {
+			final Thread[] producers = new Thread[4];
+			for (int t = 0; t < producers.length; t++) {
+				final int producer = t;
+				producers[t] = new Thread(() -> {
+					for (int i = 0; i < 250; i++) {
+						log.append(Action.ISSUE, ISSUER, producer + "-" + i, "user" + i, "ENDUSER", null);
+					}
+				});
+				producers[t].start();
+			}
+			for (final Thread producer : producers) {
+				producer.join();
+			}
+			assertTrue(log.flush(10_000), "Records not forced to disk.");
+			assertEquals(1000, log.size(), "Records lost.");
+			assertTrue(log.verify().valid(), "Hash chain invalid.");
+		}
+		try (var files = Files.list(directory)) {
+			assertTrue(files.count() > 1, "Segments not rotated.");
+		}
+
+		try (AuditLog log = new AuditLog(directory, 4096, 64, 5)) {
+			assertEquals(1000, log.size(), "Records not recovered.");
+			log.append(Action.REVOKE, ISSUER, "3-249", null, null, "KEY_COMPROMISE");
+			assertTrue(log.flush(10_000), "Record not forced to disk.");
+
+			final Verification verification = log.verify();
+			assertTrue(verification.valid(), "Hash chain not continued after reopen.");
+			assertEquals(1001, verification.records(), "Wrong number of verified records.");
+
+			final List<AuditRecord> records = log.read(0, 10, r -> "3-249".equals(r.serial_number()));
+			assertEquals(2, records.size(), "Wrong number of matching records.");
+			assertEquals("REVOKE", records.get(1).action(), "Wrong action.");
+			assertEquals(1000, records.get(1).sequence(), "Wrong sequence.");
+			assertEquals("KEY_COMPROMISE", records.get(1).revocation_reason(), "Wrong revocation reason.");
+			assertEquals(3, log.read(998, 10, r -> true).size(), "Wrong records from sequence.");
+		}
+	}
+
+	@Test
+	public void testModifiedRecordBreaksChain() throws Exception
+	{
+		try (AuditLog log = new AuditLog(directory, 1 << 20, 64, 0)) {
+			for (int i = 0; i < 10; i++) {
+				log.append(Action.ISSUE, ISSUER, "SN" + i, "user" + i, "ENDUSER", null);
+			}
+			assertTrue(log.flush(10_000), "Records not forced to disk.");
+		}
+
+		final Path segment;
+		try (var files = Files.list(directory)) {
+			segment = files.findFirst().get();
+		}
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			// Change the serial number of the third record.
+			final long offset = 2 * (AuditLog.HEADER + 1 + 4 * 5 + ISSUER.length() + 3 + 5 + 7) + AuditLog.HEADER + 1
+					+ 4 + ISSUER.length() + 4;
+			file.seek(offset);
+			assertEquals('S', file.read(), "Wrong record offset.");
+			file.seek(offset);
+			file.write('X');
+		}
+
+		try (AuditLog log = new AuditLog(directory, 1 << 20, 64, 0)) {
+			final Verification verification = log.verify();
+			assertFalse(verification.valid(), "Modified record not detected.");
+			assertEquals(2L, verification.first_invalid_sequence(), "Wrong invalid record.");
+		}
+	}
+}
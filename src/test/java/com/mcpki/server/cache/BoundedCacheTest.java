@@ -0,0 +1,96 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class BoundedCacheTest {
+
+	private final AtomicLong now = new AtomicLong();
+
+	@Test
+	public void testLruEviction()
+	{
+		final BoundedCache<String, String> cache = new BoundedCache<>(2, 1000, BoundedCache.Eviction.LRU,
+				String::length, now::get);
+		cache.put("a", "1");
+		cache.put("b", "22");
+		cache.get("a");
+		cache.put("c", "333");
+
+		assertNull(cache.get("b"), "Least recently used entry not evicted.");
+		assertEquals("1", cache.get("a"), "Recently used entry evicted.");
+		assertEquals(2, cache.size(), "Wrong size.");
+		assertEquals(4, cache.weight(), "Wrong weight.");
+		assertEquals(1, cache.evictions(), "Wrong evictions.");
+	}
+
+	@Test
+	public void testTimeToLive()
+	{
+		final BoundedCache<String, String> cache = new BoundedCache<>(10, 100, BoundedCache.Eviction.TINY_LFU,
+				String::length, now::get);
+		cache.put("a", "1");
+		now.set(99);
+		assertEquals("1", cache.get("a"), "Entry expired early.");
+		now.set(100);
+		assertNull(cache.get("a"), "Expired entry returned.");
+		assertEquals(0, cache.weight(), "Expired entry weight not removed.");
+		assertEquals(1, cache.hits(), "Wrong hits.");
+		assertEquals(1, cache.misses(), "Wrong misses.");
+	}
+
+	@Test
+	public void testTinyLfuKeepsFrequentEntriesDuringScan()
+	{
+		final BoundedCache<String, String> cache = new BoundedCache<>(100, 60000, BoundedCache.Eviction.TINY_LFU,
+				String::length, now::get);
+		for (int i = 0; i < 99; i++) {
+			final String key = "hot" + i;
+			for (int j = 0; j < 3; j++) {
+				if (cache.get(key) == null) {
+					cache.put(key, key);
+				}
+			}
+		}
+		for (int i = 0; i < 1000; i++) {
+			final String key = "scan" + i;
+			if (cache.get(key) == null) {
+				cache.put(key, key);
+			}
+		}
+
+		int kept = 0;
+		for (int i = 0; i < 99; i++) {
+			if (cache.get("hot" + i) != null) {
+				kept++;
+			}
+		}
+		assertEquals(99, kept, "Frequent entries evicted by a scan.");
+		assertEquals(100, cache.size(), "Cache size not bounded.");
+	}
+}
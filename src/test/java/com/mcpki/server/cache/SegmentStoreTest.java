@@ -0,0 +1,93 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SegmentStoreTest {
+
+	@TempDir
+	Path directory;
+
+	private static String value(final SegmentStore store, final String key)
+	{
+		return new String(store.get(key).value(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testReopenAndCompact() throws Exception
+	{
+		try (SegmentStore store = new SegmentStore(directory, 256)) {
+			for (int i = 0; i < 20; i++) {
+				store.put("key" + (i % 5), ("value" + i).getBytes(StandardCharsets.UTF_8), i, 1000L + i);
+			}
+		}
+		try (SegmentStore store = new SegmentStore(directory, 256)) {
+			assertEquals(5, store.size(), "Keys lost on reopen.");
+			assertEquals("value18", value(store, "key3"), "Latest value not replayed.");
+			assertEquals(1018L, store.get("key3").expiresAt(), "Validity not replayed.");
+
+			store.compact(1017L);
+			assertEquals(3, store.size(), "Expired keys not dropped.");
+			assertEquals(0d, store.deadRatio(), "Dead records left.");
+			try (var files = Files.list(directory)) {
+				assertEquals(1, files.count(), "Old segments not deleted.");
+			}
+		}
+		try (SegmentStore store = new SegmentStore(directory, 256)) {
+			assertEquals("value19", value(store, "key4"), "Compacted value lost.");
+			assertNull(store.get("key0"), "Dropped key replayed.");
+		}
+	}
+
+	@Test
+	public void testCorruptRecordEndsReplay() throws Exception
+	{
+		try (SegmentStore store = new SegmentStore(directory, 1024)) {
+			store.put("first", "1".getBytes(StandardCharsets.UTF_8), 0L, 1L);
+			store.put("second", "2".getBytes(StandardCharsets.UTF_8), 0L, 1L);
+		}
+		final Path segment;
+		try (var files = Files.list(directory)) {
+			segment = files.findFirst().get();
+		}
+		// Flip the value byte of the second record.
+		final int offset = SegmentStore.HEADER + "first".length() + 1 + SegmentStore.HEADER + "second".length();
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.seek(offset);
+			file.write('3');
+		}
+		try (SegmentStore store = new SegmentStore(directory, 1024)) {
+			assertEquals("1", value(store, "first"), "Valid record lost.");
+			assertNull(store.get("second"), "Corrupt record replayed.");
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class SwrCacheTest {
+
+	private final AtomicLong now = new AtomicLong();
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private final AtomicBoolean failing = new AtomicBoolean();
+
+	private final SwrCache.Loader<String> loader = () -> {
+		if (failing.get()) {
+			throw new IllegalStateException("EJBCA down");
+		}
+		return "v" + loads.incrementAndGet();
+	};
+
+	// Background refreshes run inline.
+	private final SwrCache<String, String> cache = new SwrCache<>("test", Duration.ofMillis(10),
+			Duration.ofMillis(100), Runnable::run, now::get);
+
+	@Test
+	public void testFreshAndSoftExpired() throws Exception
+	{
+		assertEquals("v1", cache.get("key", loader).value(), "Not loaded.");
+		assertEquals("v1", cache.get("key", loader).value(), "Fresh value not served.");
+		assertEquals(1, loads.get(), "Fresh value reloaded.");
+
+		now.set(50);
+		assertEquals("v1", cache.get("key", loader).value(), "Soft expired value not served.");
+		assertEquals(2, loads.get(), "No background refresh.");
+		assertEquals("v2", cache.get("key", loader).value(), "Refreshed value not served.");
+	}
+
+	@Test
+	public void testHardExpiredFallsBackToStale() throws Exception
+	{
+		cache.get("key", loader);
+		failing.set(true);
+		now.set(500);
+
+		final SwrCache.Value<String> value = cache.get("key", loader);
+		assertEquals("v1", value.value(), "Last good value not served.");
+		assertEquals(true, value.stale(), "Value not flagged stale.");
+		assertThrows(IllegalStateException.class, () -> cache.get("other", loader), "Load failure not thrown.");
+	}
+}
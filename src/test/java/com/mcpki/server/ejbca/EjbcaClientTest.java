@@ -0,0 +1,132 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.ejbca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+import com.mcpki.server.ejbca.EjbcaClient.Idempotent;
+
+public class EjbcaClientTest {
+
+	private static final String BASE_URL = "https://ejbca.mcpki.org:8443/ejbca/ejbca-rest-api";
+
+	private final EjbcaClient client = new EjbcaClient(BASE_URL, null);
+
+	@Test
+	public void testUri()
+	{
+		assertEquals(BASE_URL + "/v1/ca/CN=mcpki%20rsa%20sub-ca,O=mcpki.org/certificate/download",
+				client.uri(Endpoint.CA_CERTIFICATE, "CN=mcpki rsa sub-ca,O=mcpki.org").toString(),
+				"Wrong encoding of the DN.");
+		assertEquals(BASE_URL + "/v1/ca/CN=a%2Fb%3Fc,O=mcpki.org/getLatestCrl?deltaCrl=false&crlPartitionIndex=0",
+				client.uri(Endpoint.LATEST_CRL, "CN=a/b?c,O=mcpki.org").toString(),
+				"Wrong encoding of slash and question mark.");
+		assertEquals(BASE_URL + "/v1/certificate/CN=ca,O=mcpki.org/3317571EB0DF/revoke?reason=KEY_COMPROMISE",
+				client.uri(Endpoint.REVOKE, "CN=ca,O=mcpki.org", "3317571EB0DF", "KEY_COMPROMISE").toString(),
+				"Wrong revocation URI.");
+		assertEquals(BASE_URL + "/v1/certificate/expire?days=30&offset=0&maxNumberOfResults=100",
+				client.uri(Endpoint.EXPIRE, 30, 0, 100).toString(), "Wrong query.");
+		assertEquals(BASE_URL + "/v2/certificate/count?isActive=true", client.uri(Endpoint.COUNT, true).toString(),
+				"Wrong boolean query.");
+		assertEquals("/ejbca/ejbca-rest-api/v1/ca/CN=mcpki rsa,O=mcpki.org/createcrl",
+				client.uri(Endpoint.CREATE_CRL, "CN=mcpki rsa,O=mcpki.org").getPath(), "Wrong decoded path.");
+		assertThrows(IllegalArgumentException.class, () -> client.uri(Endpoint.REVOKE, "CN=ca"),
+				"Missing values not detected.");
+	}
+
+	@Test
+	public void testErrorMessage()
+	{
+		assertEquals("I/O error on GET request for \"https://<host>:<port>/.../v1/ca\": Connection refused",
+				client.errorMessage(new ResourceAccessException(
+						"I/O error on GET request for \"" + BASE_URL + "/v1/ca\": Connection refused")),
+				"URL not sanitized.");
+		assertEquals("IllegalStateException", client.errorMessage(new IllegalStateException()),
+				"Wrong message without message.");
+	}
+
+	@Test
+	public void testIsTransient()
+	{
+		final ResourceAccessException refused = new ResourceAccessException("I/O error",
+				new ConnectException("Connection refused"));
+		final ResourceAccessException timeout = new ResourceAccessException("I/O error",
+				new SocketTimeoutException("Read timed out"));
+		final HttpServerErrorException badGateway = new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+		assertTrue(EjbcaClient.isTransient(refused, false), "Connection refused is not retried.");
+		assertTrue(EjbcaClient.isTransient(timeout, true), "Read timeout of a read is not retried.");
+		assertFalse(EjbcaClient.isTransient(timeout, false), "Read timeout of an enrollment is retried.");
+		assertTrue(EjbcaClient.isTransient(badGateway, true), "Bad gateway of a read is not retried.");
+		assertFalse(EjbcaClient.isTransient(badGateway, false), "Bad gateway of an enrollment is retried.");
+	}
+
+	@Test
+	public void testPostIdempotent()
+	{
+		final AtomicInteger requests = new AtomicInteger();
+		final RestTemplate restTemplate = new RestTemplate() {
+			@Override
+			public <T> T postForObject(final URI url, final Object request, final Class<T> responseType)
+			{
+				if (requests.incrementAndGet() == 1) {
+					throw new ResourceAccessException("I/O error", new ConnectException("Connection refused"));
+				}
+				return responseType.cast("{\"serial_number\":\"" + requests.get() + "\"}");
+			}
+		};
+		final EjbcaClient retrying = new EjbcaClient(BASE_URL, restTemplate, 3, 0);
+		final String key = EjbcaClient.idempotencyKey("csr", "user", "Very-Secret-Pwd-1");
+
+		final Idempotent<String> first = retrying.postIdempotent(key, Endpoint.PKCS10_ENROLL, "{}", String.class);
+		assertFalse(first.replayed(), "First request is replayed.");
+		assertEquals(2, requests.get(), "Refused connection not retried.");
+
+		final Idempotent<String> second = retrying.postIdempotent(key, Endpoint.PKCS10_ENROLL, "{}", String.class);
+		assertTrue(second.replayed(), "Repeated request is not replayed.");
+		assertEquals(first.response(), second.response(), "Wrong replayed response.");
+		assertEquals(2, requests.get(), "Repeated request sent again.");
+
+		retrying.postIdempotent(EjbcaClient.idempotencyKey("csr", "other", "Very-Secret-Pwd-1"),
+				Endpoint.PKCS10_ENROLL, "{}", String.class);
+		assertEquals(3, requests.get(), "Request with another key not sent.");
+
+		// A repeated request with another password is sent (and authorized) again.
+		retrying.postIdempotent(EjbcaClient.idempotencyKey("csr", "user", "Wrong-Pwd-2"), Endpoint.PKCS10_ENROLL,
+				"{}", String.class);
+		assertEquals(4, requests.get(), "Request with another password replayed.");
+	}
+}
@@ -0,0 +1,877 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.ejbca;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequest;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * Stand-in for the EJBCA REST API, for load and latency tests without an EJBCA
+ * instance.
+ *
+ * The server speaks mutual TLS with certificates of a throwaway CA and
+ * implements the endpoints used by the tools: CA list and certificate
+ * download, latest and new CRL, PKCS#10 enrollment, revocation, certificates
+ * about to expire, count, certificate profile and the v2 search. Certificates
+ * and CRLs are really issued and signed by the CA. Latency, jitter and the
+ * share of failing requests (HTTP 503) are configurable.
+ *
+ * Standalone (keystores and the MCP server properties go to target/mock-ejbca):
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.mcpki.server.ejbca.MockEjbca -Dmock.ejbca.port=8443
+ * -Dmock.ejbca.latency.ms=20 -Dmock.ejbca.jitter.ms=10
+ * -Dmock.ejbca.error.rate=0.01
+ */
+public class MockEjbca implements AutoCloseable {
+
+	/**
+	 * Context path of the REST API.
+	 */
+	public static final String CONTEXT = "/ejbca/ejbca-rest-api";
+
+	/**
+	 * Profile of the enrolled certificates.
+	 */
+	public static final String PROFILE = "ENDUSER";
+
+	private static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+
+	private static final Pattern CA_DOWNLOAD = Pattern.compile("/v1/ca/(.+)/certificate/download");
+
+	private static final Pattern CA_LATEST_CRL = Pattern.compile("/v1/ca/(.+)/getLatestCrl");
+
+	private static final Pattern CA_CREATE_CRL = Pattern.compile("/v1/ca/(.+)/createcrl");
+
+	private static final Pattern REVOKE = Pattern.compile("/v1/certificate/(.+)/([0-9A-Fa-f]+)/revoke");
+
+	private static final Pattern PROFILE_PATH = Pattern.compile("/v2/certificate/profile/(.+)");
+
+	private static final String[] REASONS = { "UNSPECIFIED", "KEY_COMPROMISE", "CA_COMPROMISE",
+			"AFFILIATION_CHANGED", "SUPERSEDED", "CESSATION_OF_OPERATION", "CERTIFICATE_HOLD", "", "REMOVE_FROM_CRL",
+			"PRIVILEGES_WITHDRAWN", "AA_COMPROMISE" };
+
+	private final Settings settings;
+
+	private final KeyPair caKeyPair;
+
+	private final X509Certificate caCertificate;
+
+	private final X500Name caName;
+
+	private final KeyPair entityKeyPair;
+
+	private final Map<String, Issued> issued = new ConcurrentHashMap<>();
+
+	private final AtomicLong crlNumber = new AtomicLong();
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private final Map<String, JSONObject> bodies = new ConcurrentHashMap<>();
+
+	private volatile byte[] crl;
+
+	private HttpsServer server;
+
+	private ExecutorService executor;
+
+	/**
+	 * Settings of the stand-in.
+	 *
+	 * @param port         the port, 0 for any free port.
+	 * @param latencyMs    the latency added to each request.
+	 * @param jitterMs     the maximum random latency added on top.
+	 * @param errorRate    the share of requests answered with HTTP 503.
+	 * @param certificates the number of certificates issued at start.
+	 * @param password     the password of the keystores.
+	 */
+	public record Settings(int port, long latencyMs, long jitterMs, double errorRate, int certificates,
+			String password) {
+
+		/**
+		 * Returns settings without latency and errors.
+		 *
+		 * @return the settings.
+		 */
+		public static Settings defaults()
+		{
+			return new Settings(0, 0, 0, 0d, 100, "mcpki-mock");
+		}
+
+		/**
+		 * Returns the settings of the mock.ejbca.* system properties.
+		 *
+		 * @return the settings.
+		 */
+		public static Settings fromSystemProperties()
+		{
+			return new Settings(Integer.getInteger("mock.ejbca.port", 8443),
+					Long.getLong("mock.ejbca.latency.ms", 0L), Long.getLong("mock.ejbca.jitter.ms", 0L),
+					Double.parseDouble(System.getProperty("mock.ejbca.error.rate", "0")),
+					Integer.getInteger("mock.ejbca.certificates", 1000),
+					System.getProperty("mock.ejbca.password", "mcpki-mock"));
+		}
+	}
+
+	/**
+	 * Issued certificate.
+	 */
+	private record Issued(X509Certificate certificate, String profile, long updateTime, Date revocationDate,
+			int reason) {
+
+		boolean revoked()
+		{
+			return revocationDate != null;
+		}
+	}
+
+	/**
+	 * Creates the stand-in with a new CA and the initial certificates.
+	 *
+	 * @param settings the settings.
+	 * @throws GeneralSecurityException if the keys or certificates cannot be
+	 *                                  created.
+	 */
+	public MockEjbca(final Settings settings) throws GeneralSecurityException {
+		if (Security.getProvider("BC") == null) {
+			Security.addProvider(new BouncyCastleProvider());
+		}
+		this.settings = settings;
+		this.caKeyPair = keyPair();
+		this.caName = new X500Name("CN=mcpki-mock-ca,O=mcpki.org");
+		this.caCertificate = certificate(caName, caKeyPair.getPublic(), BigInteger.ONE, Duration.ofDays(3650), true,
+				null, null);
+		this.entityKeyPair = keyPair();
+
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < settings.certificates(); i++) {
+			final X509Certificate certificate = certificate(new X500Name("CN=agent-" + i + ".mcpki.org,O=mcpki.org"),
+					entityKeyPair.getPublic(), serial(), Duration.ofDays(1 + random.nextInt(365)), false,
+					KeyPurposeId.id_kp_clientAuth, null);
+			issued.put(hex(certificate.getSerialNumber()),
+					new Issued(certificate, PROFILE, System.currentTimeMillis(), null, 0));
+		}
+		this.crl = createCrl();
+	}
+
+	/**
+	 * Starts the HTTPS server.
+	 *
+	 * @throws IOException              if the server cannot be started.
+	 * @throws GeneralSecurityException if the TLS context cannot be created.
+	 */
+	public void start() throws IOException, GeneralSecurityException
+	{
+		final KeyPair serverKeyPair = keyPair();
+		final X509Certificate serverCertificate = certificate(new X500Name("CN=localhost,O=mcpki.org"),
+				serverKeyPair.getPublic(), serial(), Duration.ofDays(30), false, KeyPurposeId.id_kp_serverAuth,
+				new GeneralNames(new GeneralName[] { new GeneralName(GeneralName.dNSName, "localhost"),
+						new GeneralName(GeneralName.iPAddress, "127.0.0.1") }));
+
+		final KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		keyManagers.init(keyStore(serverKeyPair.getPrivate(), serverCertificate), settings.password().toCharArray());
+		final TrustManagerFactory trustManagers = TrustManagerFactory
+				.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		trustManagers.init(trustStore());
+		final SSLContext context = SSLContext.getInstance("TLS");
+		context.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+
+		server = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.port()), 256);
+		server.setHttpsConfigurator(new HttpsConfigurator(context) {
+
+			@Override
+			public void configure(final HttpsParameters params)
+			{
+				final SSLParameters parameters = context.getDefaultSSLParameters();
+				parameters.setNeedClientAuth(true);
+				params.setSSLParameters(parameters);
+			}
+		});
+		final AtomicInteger threads = new AtomicInteger();
+		executor = Executors.newCachedThreadPool(r -> {
+			final Thread thread = new Thread(r, "mcpki-mock-ejbca-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+		server.createContext(CONTEXT, this::handle);
+		server.start();
+	}
+
+	@Override
+	public void close()
+	{
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the value of com.mcpki.server.tools.ejbca.rest.url.
+	 *
+	 * @return the base URL.
+	 */
+	public String baseUrl()
+	{
+		return "https://localhost:" + server.getAddress().getPort() + CONTEXT;
+	}
+
+	/**
+	 * Returns the certificate of the CA issuing the certificates, CRLs and TLS
+	 * certificates.
+	 *
+	 * @return the CA certificate.
+	 */
+	public X509Certificate caCertificate()
+	{
+		return caCertificate;
+	}
+
+	/**
+	 * Returns the subject DN of the CA.
+	 *
+	 * @return the DN.
+	 */
+	public String caName()
+	{
+		return caName.toString();
+	}
+
+	/**
+	 * Returns the number of requests received (including injected errors).
+	 *
+	 * @return the number of requests.
+	 */
+	public int requests()
+	{
+		return requests.get();
+	}
+
+	/**
+	 * Returns the body of the last request to the path (PKCS#10 enrollment and
+	 * v2 search), e.g. "/v1/certificate/pkcs10enroll".
+	 *
+	 * @param path the path below the REST context.
+	 * @return the parsed body or null.
+	 */
+	public JSONObject lastBody(final String path)
+	{
+		return bodies.get(path);
+	}
+
+	/**
+	 * Writes a PKCS#12 keystore with a new client key and certificate issued by
+	 * the CA (com.mcpki.server.tools.ejbca.rest.keystore).
+	 *
+	 * @param file the keystore file.
+	 * @throws IOException              if the file cannot be written.
+	 * @throws GeneralSecurityException if the key or certificate cannot be
+	 *                                  created.
+	 */
+	public void writeClientKeyStore(final Path file) throws IOException, GeneralSecurityException
+	{
+		final KeyPair keyPair = keyPair();
+		final X509Certificate certificate = certificate(new X500Name("CN=mcpki-server,O=mcpki.org"),
+				keyPair.getPublic(), serial(), Duration.ofDays(30), false, KeyPurposeId.id_kp_clientAuth, null);
+		try (OutputStream out = Files.newOutputStream(file)) {
+			keyStore(keyPair.getPrivate(), certificate).store(out, settings.password().toCharArray());
+		}
+	}
+
+	/**
+	 * Writes a PKCS#12 truststore with the CA certificate
+	 * (com.mcpki.server.tools.ejbca.rest.truststore).
+	 *
+	 * @param file the truststore file.
+	 * @throws IOException              if the file cannot be written.
+	 * @throws GeneralSecurityException if the truststore cannot be created.
+	 */
+	public void writeTrustStore(final Path file) throws IOException, GeneralSecurityException
+	{
+		try (OutputStream out = Files.newOutputStream(file)) {
+			trustStore().store(out, settings.password().toCharArray());
+		}
+	}
+
+	/**
+	 * Writes the client keystore and truststore to a directory and returns the
+	 * com.mcpki.server.tools.ejbca.rest.* command line arguments of the MCP
+	 * server for this stand-in.
+	 *
+	 * @param directory the directory of the keystores.
+	 * @return the arguments.
+	 * @throws IOException              if the keystores cannot be written.
+	 * @throws GeneralSecurityException if the keystores cannot be created.
+	 */
+	public String[] serverArguments(final Path directory) throws IOException, GeneralSecurityException
+	{
+		final Path keystore = directory.resolve("client.p12");
+		final Path truststore = directory.resolve("truststore.p12");
+		writeClientKeyStore(keystore);
+		writeTrustStore(truststore);
+		return new String[] { "--com.mcpki.server.tools.ejbca.rest.url=" + baseUrl(),
+				"--com.mcpki.server.tools.ejbca.rest.keystore=file:" + keystore.toAbsolutePath(),
+				"--com.mcpki.server.tools.ejbca.rest.keystorepwd=" + settings.password(),
+				"--com.mcpki.server.tools.ejbca.rest.truststore=file:" + truststore.toAbsolutePath(),
+				"--com.mcpki.server.tools.ejbca.rest.truststorepwd=" + settings.password() };
+	}
+
+	/**
+	 * Runs the stand-in until the process is stopped.
+	 *
+	 * @param args not used.
+	 * @throws Exception if the stand-in cannot be started.
+	 */
+	public static void main(final String[] args) throws Exception
+	{
+		final MockEjbca ejbca = new MockEjbca(Settings.fromSystemProperties());
+		ejbca.start();
+		final Path directory = Path.of(System.getProperty("mock.ejbca.directory", "target/mock-ejbca"));
+		Files.createDirectories(directory);
+		final Path keystore = directory.resolve("client.p12");
+		final Path truststore = directory.resolve("truststore.p12");
+		ejbca.writeClientKeyStore(keystore);
+		ejbca.writeTrustStore(truststore);
+
+		System.out.println("Mock EJBCA CA " + ejbca.caName() + " listening, MCP server properties:");
+		System.out.println("com.mcpki.server.tools.ejbca.rest.url=" + ejbca.baseUrl());
+		System.out.println("com.mcpki.server.tools.ejbca.rest.keystore=file:" + keystore.toAbsolutePath());
+		System.out.println("com.mcpki.server.tools.ejbca.rest.keystorepwd=" + ejbca.settings.password());
+		System.out.println("com.mcpki.server.tools.ejbca.rest.truststore=file:" + truststore.toAbsolutePath());
+		System.out.println("com.mcpki.server.tools.ejbca.rest.truststorepwd=" + ejbca.settings.password());
+		Thread.currentThread().join();
+	}
+
+	private void handle(final HttpExchange exchange) throws IOException
+	{
+		requests.incrementAndGet();
+		try {
+			delay();
+			if (settings.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.errorRate()) {
+				error(exchange, 503, "Injected error.");
+				return;
+			}
+
+			final String method = exchange.getRequestMethod();
+			final String path = exchange.getRequestURI().getPath().substring(CONTEXT.length());
+			final Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+			Matcher matcher;
+			if ("GET".equals(method) && "/v1/ca".equals(path)) {
+				json(exchange, cas());
+			} else if ("GET".equals(method) && (matcher = CA_DOWNLOAD.matcher(path)).matches()) {
+				caDownload(exchange, matcher.group(1));
+			} else if ("GET".equals(method) && (matcher = CA_LATEST_CRL.matcher(path)).matches()) {
+				latestCrl(exchange, matcher.group(1));
+			} else if ("POST".equals(method) && (matcher = CA_CREATE_CRL.matcher(path)).matches()) {
+				createCrl(exchange, matcher.group(1));
+			} else if ("POST".equals(method) && "/v1/certificate/pkcs10enroll".equals(path)) {
+				enroll(exchange, received(path, body(exchange)));
+			} else if (("PUT".equals(method) || "POST".equals(method)) && (matcher = REVOKE.matcher(path)).matches()) {
+				revoke(exchange, matcher.group(1), matcher.group(2), query.getOrDefault("reason", "UNSPECIFIED"));
+			} else if ("GET".equals(method) && "/v1/certificate/expire".equals(path)) {
+				json(exchange, expire(integer(query, "days", 30), integer(query, "offset", 0),
+						integer(query, "maxNumberOfResults", 100)));
+			} else if ("GET".equals(method) && "/v2/certificate/count".equals(path)) {
+				final boolean active = Boolean.parseBoolean(query.getOrDefault("isActive", "false"));
+				json(exchange, new JSONObject(Map.of("count",
+						issued.values().stream().filter(i -> !active || isActive(i)).count())));
+			} else if ("GET".equals(method) && (matcher = PROFILE_PATH.matcher(path)).matches()) {
+				profile(exchange, matcher.group(1));
+			} else if ("POST".equals(method) && "/v2/certificate/search".equals(path)) {
+				json(exchange, search(received(path, body(exchange))));
+			} else {
+				error(exchange, 404, "Resource not found.");
+			}
+		} catch (ParseException | ClassCastException | IllegalArgumentException e) {
+			error(exchange, 400, "Bad request: " + e.getMessage());
+		} catch (GeneralSecurityException e) {
+			error(exchange, 500, "Internal error: " + e.getMessage());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private JSONObject cas()
+	{
+		final Map<String, Object> ca = new TreeMap<>();
+		ca.put("id", caName.hashCode());
+		ca.put("name", "mcpki-mock-ca");
+		ca.put("subject_dn", caName());
+		ca.put("issuer_dn", caName());
+		ca.put("expiration_date", caCertificate.getNotAfter().toInstant().toString());
+		ca.put("external", false);
+		final JSONArray cas = new JSONArray();
+		cas.add(new JSONObject(ca));
+		return new JSONObject(Map.of("certificate_authorities", cas));
+	}
+
+	private void caDownload(final HttpExchange exchange, final String dn) throws IOException, GeneralSecurityException
+	{
+		if (!isCa(dn)) {
+			error(exchange, 404, "CA with DN: " + dn + " does not exist.");
+			return;
+		}
+		send(exchange, 200, "text/plain", "Subject: " + caName() + "\nIssuer: " + caName() + "\n"
+				+ pem("CERTIFICATE", caCertificate.getEncoded()));
+	}
+
+	private void latestCrl(final HttpExchange exchange, final String dn) throws IOException
+	{
+		if (!isCa(dn)) {
+			error(exchange, 404, "CA with DN: " + dn + " does not exist.");
+			return;
+		}
+		final Map<String, Object> response = new TreeMap<>();
+		response.put("crl", Base64.getEncoder().encodeToString(crl));
+		response.put("response_format", "DER");
+		json(exchange, new JSONObject(response));
+	}
+
+	private void createCrl(final HttpExchange exchange, final String dn) throws IOException, GeneralSecurityException
+	{
+		final Map<String, Object> response = new TreeMap<>();
+		response.put("issuer_dn", dn);
+		if (!isCa(dn)) {
+			response.put("all_success", false);
+			response.put("error_code", "400");
+			response.put("error_message", "CA with DN: " + dn + " does not exist.");
+			json(exchange, 400, new JSONObject(response));
+			return;
+		}
+		crl = createCrl();
+		response.put("latest_crl_version", crlNumber.get());
+		response.put("all_success", true);
+		json(exchange, new JSONObject(response));
+	}
+
+	private void enroll(final HttpExchange exchange, final JSONObject request)
+			throws IOException, GeneralSecurityException
+	{
+		final String csr = (String) request.get("certificate_request");
+		if (csr == null) {
+			error(exchange, 400, "Missing certificate_request.");
+			return;
+		}
+		final JcaPKCS10CertificationRequest pkcs10;
+		try (PEMParser parser = new PEMParser(new StringReader(csr.replace("\\n", "\n")))) {
+			final Object object = parser.readObject();
+			if (!(object instanceof PKCS10CertificationRequest)) {
+				error(exchange, 400, "Invalid certificate_request.");
+				return;
+			}
+			pkcs10 = new JcaPKCS10CertificationRequest((PKCS10CertificationRequest) object).setProvider("BC");
+		}
+		final String profile = request.get("certificate_profile_name") == null ? PROFILE
+				: request.get("certificate_profile_name").toString();
+		if (!PROFILE.equals(profile)) {
+			error(exchange, 400, "Certificate profile with name " + profile + " not found.");
+			return;
+		}
+
+		final X509Certificate certificate = certificate(pkcs10.getSubject(), pkcs10.getPublicKey(), serial(),
+				Duration.ofDays(365), false, KeyPurposeId.id_kp_clientAuth, null);
+		final String serial = hex(certificate.getSerialNumber());
+		issued.put(serial, new Issued(certificate, profile, System.currentTimeMillis(), null, 0));
+
+		final Map<String, Object> response = new TreeMap<>();
+		response.put("certificate", Base64.getEncoder().encodeToString(certificate.getEncoded()));
+		response.put("serial_number", serial);
+		response.put("response_format", "DER");
+		json(exchange, 201, new JSONObject(response));
+	}
+
+	private void revoke(final HttpExchange exchange, final String dn, final String serialNumber, final String reason)
+			throws IOException
+	{
+		final String serial = serialNumber.toUpperCase();
+		final Issued certificate = issued.get(serial);
+		int code = -1;
+		for (int i = 0; i < REASONS.length; i++) {
+			if (!REASONS[i].isEmpty() && REASONS[i].equalsIgnoreCase(reason)) {
+				code = i;
+			}
+		}
+		if (!isCa(dn) || certificate == null || code < 0) {
+			error(exchange, 404, "Certificate could not be revoked.");
+			return;
+		}
+		if (certificate.revoked()) {
+			error(exchange, 409, "Certificate is already revoked.");
+			return;
+		}
+		final Date now = new Date();
+		issued.put(serial, new Issued(certificate.certificate(), certificate.profile(), now.getTime(), now, code));
+
+		final Map<String, Object> response = new TreeMap<>();
+		response.put("issuer_dn", caName());
+		response.put("serial_number", serial);
+		response.put("revocation_reason", REASONS[code]);
+		response.put("revocation_date", now.toInstant().toString());
+		response.put("message", "Successfully revoked");
+		response.put("revoked", true);
+		json(exchange, new JSONObject(response));
+	}
+
+	@SuppressWarnings("unchecked")
+	private JSONObject expire(final int days, final int offset, final int max) throws GeneralSecurityException
+	{
+		final long now = System.currentTimeMillis();
+		final long until = now + Duration.ofDays(days).toMillis();
+		final List<Issued> expiring = issued.values().stream().filter(this::isActive)
+				.filter(i -> i.certificate().getNotAfter().getTime() <= until)
+				.sorted(Comparator.comparing((Issued i) -> i.certificate().getNotAfter())).toList();
+
+		final JSONArray certificates = new JSONArray();
+		for (int i = offset; i < Math.min(expiring.size(), offset + max); i++) {
+			final X509Certificate certificate = expiring.get(i).certificate();
+			final Map<String, Object> item = new TreeMap<>();
+			item.put("certificate", Base64.getEncoder().encodeToString(certificate.getEncoded()));
+			item.put("serial_number", hex(certificate.getSerialNumber()));
+			item.put("response_format", "DER");
+			certificates.add(new JSONObject(item));
+		}
+		final Map<String, Object> pagination = new TreeMap<>();
+		pagination.put("more_results", offset + certificates.size() < expiring.size());
+		pagination.put("next_offset", offset + certificates.size());
+		pagination.put("number_of_results", certificates.size());
+
+		final Map<String, Object> response = new TreeMap<>();
+		response.put("certificates_rest_response", new JSONObject(Map.of("certificates", certificates)));
+		response.put("pagination_rest_response_component", new JSONObject(pagination));
+		return new JSONObject(response);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void profile(final HttpExchange exchange, final String name) throws IOException
+	{
+		if (!PROFILE.equals(name)) {
+			error(exchange, 404, "Certificate profile with name " + name + " not found.");
+			return;
+		}
+		final Map<String, Object> profile = new TreeMap<>();
+		profile.put("certificate_profile_id", 1);
+		profile.put("certificate_profile_name", PROFILE);
+		profile.put("available_key_algorithms", list("RSA", "EC", "Ed25519", "ML-DSA-65"));
+		profile.put("available_bit_lengths", list(2048L, 3072L, 4096L, 256L, 384L));
+		profile.put("available_ecdsa_curves", list("P-256", "P-384"));
+		profile.put("available_cas", list("mcpki-mock-ca"));
+		profile.put("validity", "1y");
+		profile.put("extended_key_usage", list("clientAuth", "serverAuth"));
+		json(exchange, new JSONObject(profile));
+	}
+
+	/**
+	 * v2 search: all certificates sorted by update time (criteria ignored).
+	 */
+	@SuppressWarnings("unchecked")
+	private JSONObject search(final JSONObject request)
+	{
+		final JSONObject pagination = (JSONObject) request.get("pagination");
+		final int pageSize = pagination == null ? 100 : ((Number) pagination.get("page_size")).intValue();
+		final int page = pagination == null ? 1 : ((Number) pagination.get("current_page")).intValue();
+
+		final List<Issued> sorted = issued.values().stream().sorted(Comparator.comparingLong(Issued::updateTime))
+				.toList();
+		final JSONArray certificates = new JSONArray();
+		for (int i = (page - 1) * pageSize; i < Math.min(sorted.size(), page * pageSize); i++) {
+			final Issued item = sorted.get(i);
+			final X509Certificate certificate = item.certificate();
+			final Map<String, Object> json = new HashMap<>();
+			json.put("serialNumber", hex(certificate.getSerialNumber()));
+			json.put("issuerDN", caName());
+			json.put("subjectDN", certificate.getSubjectX500Principal().getName());
+			json.put("certificateProfile", item.profile());
+			json.put("notBefore", certificate.getNotBefore().getTime());
+			json.put("expireDate", certificate.getNotAfter().getTime());
+			json.put("status", item.revoked() ? "CERT_REVOKED" : "CERT_ACTIVE");
+			json.put("updateTime", item.updateTime());
+			certificates.add(new JSONObject(json));
+		}
+		return new JSONObject(Map.of("certificates", certificates));
+	}
+
+	private byte[] createCrl() throws GeneralSecurityException
+	{
+		try {
+			final Date now = new Date();
+			final X509v2CRLBuilder builder = new X509v2CRLBuilder(caName, now);
+			builder.setNextUpdate(new Date(now.getTime() + Duration.ofDays(1).toMillis()));
+			for (final Issued item : issued.values()) {
+				if (item.revoked()) {
+					builder.addCRLEntry(item.certificate().getSerialNumber(), item.revocationDate(), item.reason());
+				}
+			}
+			builder.addExtension(Extension.cRLNumber, false,
+					new CRLNumber(BigInteger.valueOf(crlNumber.incrementAndGet())));
+			return builder.build(signer()).getEncoded();
+		} catch (IOException | OperatorCreationException e) {
+			throw new GeneralSecurityException("Failed to create CRL.", e);
+		}
+	}
+
+	private X509Certificate certificate(final X500Name subject, final PublicKey publicKey, final BigInteger serial,
+			final Duration validity, final boolean ca, final KeyPurposeId purpose, final GeneralNames names)
+			throws GeneralSecurityException
+	{
+		try {
+			final Instant now = Instant.now();
+			final JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(ca ? subject : caName, serial,
+					Date.from(now.minusSeconds(60)), Date.from(now.plus(validity)), subject, publicKey);
+			if (ca) {
+				builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(0));
+				builder.addExtension(Extension.keyUsage, true,
+						new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign | KeyUsage.digitalSignature));
+			} else {
+				builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
+				builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature));
+				builder.addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(purpose));
+			}
+			if (names != null) {
+				builder.addExtension(Extension.subjectAlternativeName, false, names);
+			}
+			return new JcaX509CertificateConverter().getCertificate(builder.build(signer()));
+		} catch (IOException | OperatorCreationException e) {
+			throw new GeneralSecurityException("Failed to create certificate.", e);
+		}
+	}
+
+	private ContentSigner signer() throws OperatorCreationException
+	{
+		return new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(caKeyPair.getPrivate());
+	}
+
+	private KeyStore keyStore(final PrivateKey key, final X509Certificate certificate)
+			throws IOException, GeneralSecurityException
+	{
+		final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		keyStore.load(null, null);
+		keyStore.setKeyEntry("mcpki", key, settings.password().toCharArray(),
+				new Certificate[] { certificate, caCertificate });
+		return keyStore;
+	}
+
+	private KeyStore trustStore() throws IOException, GeneralSecurityException
+	{
+		final KeyStore trustStore = KeyStore.getInstance("PKCS12");
+		trustStore.load(null, null);
+		trustStore.setCertificateEntry("mcpki-mock-ca", caCertificate);
+		return trustStore;
+	}
+
+	private boolean isCa(final String dn)
+	{
+		try {
+			return caName.equals(new X500Name(dn));
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private boolean isActive(final Issued item)
+	{
+		return !item.revoked() && item.certificate().getNotAfter().getTime() > System.currentTimeMillis();
+	}
+
+	private void delay()
+	{
+		long delay = settings.latencyMs();
+		if (settings.jitterMs() > 0) {
+			delay += ThreadLocalRandom.current().nextLong(settings.jitterMs() + 1);
+		}
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static KeyPair keyPair() throws GeneralSecurityException
+	{
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(256);
+		return generator.generateKeyPair();
+	}
+
+	private static BigInteger serial()
+	{
+		// 40 hex digits like EJBCA (and com.mcpki.server.serialnumber.hex.length).
+		return new BigInteger(159, ThreadLocalRandom.current()).setBit(158);
+	}
+
+	private static String hex(final BigInteger serial)
+	{
+		return serial.toString(16).toUpperCase();
+	}
+
+	private static String pem(final String type, final byte[] der)
+	{
+		return "-----BEGIN " + type + "-----\n" + Base64.getMimeEncoder(64, new byte[] { '\n' }).encodeToString(der)
+				+ "\n-----END " + type + "-----\n";
+	}
+
+	@SuppressWarnings("unchecked")
+	private static JSONArray list(final Object... values)
+	{
+		final JSONArray array = new JSONArray();
+		for (final Object value : values) {
+			array.add(value);
+		}
+		return array;
+	}
+
+	private JSONObject received(final String path, final JSONObject body)
+	{
+		bodies.put(path, body);
+		return body;
+	}
+
+	private static JSONObject body(final HttpExchange exchange) throws IOException, ParseException
+	{
+		try (InputStream in = exchange.getRequestBody()) {
+			return (JSONObject) new JSONParser().parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+		}
+	}
+
+	private static Map<String, String> query(final String query)
+	{
+		final Map<String, String> parameters = new HashMap<>();
+		if (query == null) {
+			return parameters;
+		}
+		for (final String parameter : query.split("[&?]")) {
+			final int separator = parameter.indexOf('=');
+			if (separator > 0) {
+				parameters.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+						URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return parameters;
+	}
+
+	private static int integer(final Map<String, String> query, final String name, final int defaultValue)
+	{
+		final String value = query.get(name);
+		return value == null ? defaultValue : Integer.parseInt(value);
+	}
+
+	private static void json(final HttpExchange exchange, final JSONObject json) throws IOException
+	{
+		json(exchange, 200, json);
+	}
+
+	private static void json(final HttpExchange exchange, final int status, final JSONObject json) throws IOException
+	{
+		send(exchange, status, "application/json", json.toJSONString());
+	}
+
+	private static void error(final HttpExchange exchange, final int status, final String message) throws IOException
+	{
+		final Map<String, Object> error = new TreeMap<>();
+		error.put("error_code", status);
+		error.put("error_message", message);
+		json(exchange, status, new JSONObject(error));
+	}
+
+	private static void send(final HttpExchange exchange, final int status, final String contentType,
+			final String body) throws IOException
+	{
+		final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
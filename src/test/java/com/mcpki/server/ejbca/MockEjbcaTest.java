@@ -0,0 +1,219 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.ejbca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Map;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MockEjbcaTest {
+
+	private static final String PASSWORD = "mcpki-test";
+
+	@TempDir
+	static Path directory;
+
+	private static MockEjbca ejbca;
+
+	private static HttpClient client;
+
+	@BeforeAll
+	public static void setUp() throws Exception
+	{
+		ejbca = new MockEjbca(new MockEjbca.Settings(0, 0, 0, 0d, 20, PASSWORD));
+		ejbca.start();
+		ejbca.writeClientKeyStore(directory.resolve("client.p12"));
+		ejbca.writeTrustStore(directory.resolve("truststore.p12"));
+		client = client(true);
+	}
+
+	@AfterAll
+	public static void tearDown()
+	{
+		ejbca.close();
+	}
+
+	@Test
+	public void testClientCertificateRequired() throws Exception
+	{
+		final HttpClient anonymous = client(false);
+		assertThrows(IOException.class,
+				() -> anonymous.send(get("/v1/ca"), HttpResponse.BodyHandlers.ofString()),
+				"Request without client certificate must fail.");
+	}
+
+	@Test
+	public void testCaList() throws Exception
+	{
+		final HttpResponse<String> response = client.send(get("/v1/ca"), HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode(), "Wrong status.");
+		assertTrue(response.body().contains(ejbca.caName()), "CA is missing.");
+
+		final HttpResponse<String> download = client.send(get("/v1/ca/" + ejbca.caName() + "/certificate/download"),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, download.statusCode(), "Wrong status.");
+		assertTrue(download.body().contains("-----BEGIN CERTIFICATE-----"), "PEM is missing.");
+	}
+
+	@Test
+	public void testEnrollRevokeCrl() throws Exception
+	{
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(256);
+		final KeyPair keyPair = generator.generateKeyPair();
+		final byte[] csr = new JcaPKCS10CertificationRequestBuilder(new X500Name("CN=agent-1,O=mcpki.org"),
+				keyPair.getPublic()).build(new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate()))
+				.getEncoded();
+		final String pem = "-----BEGIN CERTIFICATE REQUEST-----\n" + Base64.getMimeEncoder().encodeToString(csr)
+				+ "\n-----END CERTIFICATE REQUEST-----\n";
+
+		final JSONObject enroll = json(client.send(
+				request("/v1/certificate/pkcs10enroll").header("Content-Type", "application/json")
+						.POST(HttpRequest.BodyPublishers
+								.ofString(new JSONObject(Map.of("certificate_request", pem)).toJSONString()))
+						.build(),
+				HttpResponse.BodyHandlers.ofInputStream()));
+		final X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+				.generateCertificate(
+						new ByteArrayInputStream(Base64.getDecoder().decode((String) enroll.get("certificate"))));
+		certificate.verify(ejbca.caCertificate().getPublicKey());
+		assertEquals("CN=agent-1,O=mcpki.org", certificate.getSubjectX500Principal().getName(), "Wrong subject.");
+
+		final String serial = (String) enroll.get("serial_number");
+		final HttpResponse<String> revoke = client.send(
+				request("/v1/certificate/" + ejbca.caName() + "/" + serial + "/revoke?reason=KEY_COMPROMISE")
+						.PUT(HttpRequest.BodyPublishers.noBody()).build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, revoke.statusCode(), "Wrong status.");
+
+		final HttpResponse<String> create = client.send(
+				request("/v1/ca/" + ejbca.caName() + "/createcrl").POST(HttpRequest.BodyPublishers.noBody()).build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, create.statusCode(), "Wrong status.");
+
+		final JSONObject latest = json(client.send(get("/v1/ca/" + ejbca.caName() + "/getLatestCrl"),
+				HttpResponse.BodyHandlers.ofInputStream()));
+		final X509CRL crl = (X509CRL) CertificateFactory.getInstance("X.509")
+				.generateCRL(new ByteArrayInputStream(Base64.getDecoder().decode((String) latest.get("crl"))));
+		crl.verify(ejbca.caCertificate().getPublicKey());
+		assertTrue(crl.isRevoked(certificate), "Certificate must be on the CRL.");
+	}
+
+	@Test
+	public void testInjectedErrors() throws Exception
+	{
+		try (MockEjbca failing = new MockEjbca(new MockEjbca.Settings(0, 0, 0, 1d, 0, PASSWORD))) {
+			failing.start();
+			failing.writeClientKeyStore(directory.resolve("failing.p12"));
+			failing.writeTrustStore(directory.resolve("failing-truststore.p12"));
+			final HttpClient failingClient = HttpClient.newBuilder()
+					.sslContext(sslContext(directory.resolve("failing.p12"),
+							directory.resolve("failing-truststore.p12")))
+					.build();
+			final HttpResponse<String> response = failingClient.send(
+					HttpRequest.newBuilder(URI.create(failing.baseUrl() + "/v2/certificate/count")).build(),
+					HttpResponse.BodyHandlers.ofString());
+			assertEquals(503, response.statusCode(), "Wrong status.");
+			assertEquals(1, failing.requests(), "Wrong number of requests.");
+		}
+	}
+
+	private static HttpRequest get(final String path)
+	{
+		return request(path).GET().build();
+	}
+
+	private static HttpRequest.Builder request(final String path)
+	{
+		return HttpRequest.newBuilder(URI.create(ejbca.baseUrl() + path));
+	}
+
+	private static JSONObject json(final HttpResponse<InputStream> response) throws Exception
+	{
+		assertTrue(response.statusCode() < 300, "Wrong status " + response.statusCode() + ".");
+		try (InputStream in = response.body()) {
+			return (JSONObject) new JSONParser().parse(new String(in.readAllBytes()));
+		}
+	}
+
+	private static HttpClient client(final boolean withCertificate) throws Exception
+	{
+		return HttpClient.newBuilder().sslContext(sslContext(withCertificate ? directory.resolve("client.p12") : null,
+				directory.resolve("truststore.p12"))).build();
+	}
+
+	private static SSLContext sslContext(final Path keystore, final Path truststore) throws Exception
+	{
+		KeyManagerFactory keyManagers = null;
+		if (keystore != null) {
+			final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+			try (InputStream in = Files.newInputStream(keystore)) {
+				keyStore.load(in, PASSWORD.toCharArray());
+			}
+			keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+			keyManagers.init(keyStore, PASSWORD.toCharArray());
+		}
+		final KeyStore trustStore = KeyStore.getInstance("PKCS12");
+		try (InputStream in = Files.newInputStream(truststore)) {
+			trustStore.load(in, PASSWORD.toCharArray());
+		}
+		final TrustManagerFactory trustManagers = TrustManagerFactory
+				.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+		trustManagers.init(trustStore);
+		final SSLContext context = SSLContext.getInstance("TLS");
+		context.init(keyManagers == null ? null : keyManagers.getKeyManagers(), trustManagers.getTrustManagers(),
+				null);
+		return context;
+	}
+}
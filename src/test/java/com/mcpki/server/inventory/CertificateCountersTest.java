@@ -0,0 +1,179 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import com.mcpki.server.ejbca.EjbcaClient;
+import com.mcpki.server.ejbca.EjbcaClient.Endpoint;
+import com.mcpki.server.inventory.CertificateCounters.CountResponse;
+import com.mcpki.server.inventory.CertificateCounters.Snapshot;
+
+public class CertificateCountersTest {
+
+	private static final String ISSUER = "CN=mcpki-rsa-sub-ca,O=mcpki.org";
+
+	private static final String CANONICAL = CertificateRecord.canonicalIssuer(ISSUER);
+
+	/**
+	 * EJBCA client answering the count endpoint with fixed counts.
+	 */
+	private static final class CountingEjbca extends EjbcaClient {
+
+		final AtomicLong total = new AtomicLong();
+
+		final AtomicLong active = new AtomicLong();
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> T get(final Endpoint endpoint, final Class<T> type, final Object... values)
+		{
+			return (T) new CountResponse(Boolean.TRUE.equals(values[0]) ? active.get() : total.get());
+		}
+	}
+
+	private static ObjectProvider<CertificateInventory> provider(final CertificateInventory inventory)
+	{
+		return new ObjectProvider<>() {
+
+			@Override
+			public CertificateInventory getObject()
+			{
+				return inventory;
+			}
+
+			@Override
+			public CertificateInventory getObject(final Object... args)
+			{
+				return inventory;
+			}
+
+			@Override
+			public CertificateInventory getIfAvailable()
+			{
+				return inventory;
+			}
+
+			@Override
+			public CertificateInventory getIfUnique()
+			{
+				return inventory;
+			}
+		};
+	}
+
+	private static CertificateRecord record(final String serial, final String status)
+	{
+		return new CertificateRecord(serial, ISSUER, "CN=" + serial, List.of(), "SERVER", 0L, Long.MAX_VALUE, status,
+				0L);
+	}
+
+	@Test
+	public void testIssuedAndRevoked()
+	{
+		final CertificateInventory inventory = new CertificateInventory();
+		inventory.upsert(List.of(record("0A", CertificateRecord.ACTIVE), record("0B", CertificateRecord.REVOKED)));
+		inventory.synced(System.currentTimeMillis());
+		final CountingEjbca ejbca = new CountingEjbca();
+		ejbca.total.set(2);
+		ejbca.active.set(1);
+		final CertificateCounters counters = new CertificateCounters(ejbca, provider(inventory), 60000L);
+		counters.reconcile();
+
+		counters.issued(" cn=mcpki-rsa-sub-ca , o=mcpki.org", "SERVER");
+		counters.issued(ISSUER, "SERVER");
+		Snapshot active = counters.snapshot(true);
+		assertEquals(3, active.count(), "Issued not counted.");
+		assertEquals(3L, active.by_issuer().get(CANONICAL), "Issuer variants counted apart.");
+
+		counters.revoked(ISSUER, "0a");
+		counters.revoked(ISSUER, "0A");
+		counters.revoked(ISSUER, "0B");
+		active = counters.snapshot(true);
+		assertEquals(2, active.count(), "Revocation of inactive certificates counted.");
+		assertEquals(2L, active.by_profile().get("SERVER"), "Profile of revoked certificate not counted.");
+		assertEquals(CertificateRecord.REVOKED, inventory.get(ISSUER, "0A").status(), "Record not marked revoked.");
+
+		// Unknown to the inventory: counted once.
+		counters.revoked(ISSUER, "0C");
+		counters.revoked(ISSUER, "0c");
+		assertEquals(1, counters.snapshot(true).count(), "Repeated revocation counted.");
+		assertEquals(4, counters.snapshot(false).count(), "Revocation changed the total.");
+	}
+
+	@Test
+	public void testBreakdownWithoutFreshInventory()
+	{
+		final CountingEjbca ejbca = new CountingEjbca();
+		ejbca.total.set(1);
+		final CertificateCounters counters = new CertificateCounters(ejbca, provider(new CertificateInventory()),
+				60000L);
+		counters.reconcile();
+		assertTrue(counters.isReady(), "Not seeded.");
+		assertNull(counters.snapshot(true).by_issuer(), "Breakdown without fresh inventory.");
+
+		// Revocations of certificates issued before the reconciliation do not go
+		// below zero.
+		counters.revoked(ISSUER, "0A");
+		counters.revoked(ISSUER, "0B");
+		assertEquals(0, counters.snapshot(true).count(), "Negative count.");
+
+		counters.issued(ISSUER, "SERVER");
+		final Snapshot active = counters.snapshot(true);
+		assertEquals(1, active.count(), "Issued not counted.");
+		assertNull(active.by_issuer(), "Issuer breakdown counted from events.");
+		assertNull(active.by_profile(), "Profile breakdown counted from events.");
+	}
+
+	@Test
+	public void testReconcile()
+	{
+		final CertificateInventory inventory = new CertificateInventory();
+		inventory.upsert(List.of(record("0A", CertificateRecord.ACTIVE), record("0B", CertificateRecord.ACTIVE),
+				record("0C", CertificateRecord.REVOKED)));
+		inventory.synced(System.currentTimeMillis());
+		final CountingEjbca ejbca = new CountingEjbca();
+		ejbca.total.set(3);
+		ejbca.active.set(2);
+		final CertificateCounters counters = new CertificateCounters(ejbca, provider(inventory), 60000L);
+
+		counters.revoked(ISSUER, "0D");
+		counters.reconcile();
+		assertTrue(counters.isReady(), "Not seeded.");
+		assertEquals(2, counters.snapshot(true).count(), "Active count not reseeded.");
+		assertEquals(3, counters.snapshot(false).count(), "Total count not reseeded.");
+		assertEquals(2L, counters.snapshot(true).by_issuer().get(CANONICAL), "Issuer breakdown not reseeded.");
+
+		// The breakdown of the inventory and of new events use the same issuer key.
+		counters.issued("CN=mcpki-rsa-sub-ca, O=mcpki.org", "SERVER");
+		assertEquals(3L, counters.snapshot(true).by_issuer().get(CANONICAL), "Issuer keys differ.");
+		assertEquals(1, counters.snapshot(true).by_issuer().size(), "Issuer split into several keys.");
+	}
+}
@@ -0,0 +1,111 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.mcpki.server.inventory.CertificateInventory.Page;
+
+public class CertificateInventoryTest {
+
+	private static final String ISSUER = "CN=mcpki-dilithium2-root-ca,O=mcpki.org";
+
+	private static CertificateRecord record(final String serial, final String cn, final String profile,
+			final long notAfter, final String status)
+	{
+		return new CertificateRecord(serial, ISSUER, "CN=" + cn + ",O=mcpki.org", List.of("dNSName=" + cn), profile,
+				0L, notAfter, status, 0L);
+	}
+
+	@Test
+	public void testCanonicalIssuer()
+	{
+		final CertificateInventory inventory = new CertificateInventory();
+		inventory.upsert(List.of(new CertificateRecord("0A", " cn=mcpki-dilithium2-root-ca , o=mcpki.org", "CN=a",
+				List.of(), "SERVER", 0L, 100L, CertificateRecord.ACTIVE, 0L)));
+
+		assertEquals(ISSUER, inventory.get(ISSUER, "0a").issuer_dn(), "Issuer DN not canonical.");
+		assertEquals(1, inventory.search(null, null, "CN=mcpki-dilithium2-root-ca, O=mcpki.org", null, null, 0L,
+				Long.MAX_VALUE, 0, 10).total(), "Issuer variant not found.");
+		assertEquals(1, inventory.countBy(CertificateRecord::issuer_dn, 50L).get(ISSUER)[1], "Wrong issuer count.");
+	}
+
+	@Test
+	public void testIndexedSearch()
+	{
+		final CertificateInventory inventory = new CertificateInventory();
+		inventory.upsert(List.of(record("01", "www.mcpki.org", "SERVER", 300L, CertificateRecord.ACTIVE),
+				record("02", "mail.mcpki.org", "SERVER", 100L, CertificateRecord.ACTIVE),
+				record("03", "alice", "USER", 200L, CertificateRecord.REVOKED)));
+
+		assertEquals(1, inventory.search("www", null, null, null, null, 0L, Long.MAX_VALUE, 0, 10).total(),
+				"Subject prefix not found.");
+		assertEquals(1, inventory.search(null, "MAIL.mcpki", null, null, null, 0L, Long.MAX_VALUE, 0, 10).total(),
+				"SAN prefix not found.");
+		assertEquals(1, inventory.search("cn=www.mcpki.org,o=mcpki.org", null, null, null, null, 0L, Long.MAX_VALUE,
+				0, 10).total(), "Full DN not found.");
+		assertEquals(2, inventory.search(null, null, ISSUER, "server", null, 0L, Long.MAX_VALUE, 0, 10).total(),
+				"Issuer and profile not found.");
+		assertEquals(0, inventory.search(null, null, "CN=other", null, null, 0L, Long.MAX_VALUE, 0, 10).total(),
+				"Unknown issuer found.");
+
+		final Page page = inventory.search(null, null, null, null, null, 0L, 250L, 0, 1);
+		assertEquals(2, page.total(), "Expiry range wrong.");
+		assertEquals("02", page.certificates().get(0).serial_number(), "Not ordered by expiry.");
+		assertEquals(1, inventory.search(null, null, null, null, "revoked", 0L, Long.MAX_VALUE, 0, 10).total(),
+				"Status filter wrong.");
+	}
+
+	@Test
+	public void testUpsertReplacesIndexEntries()
+	{
+		final CertificateInventory inventory = new CertificateInventory();
+		inventory.upsert(List.of(record("01", "www.mcpki.org", "SERVER", 300L, CertificateRecord.ACTIVE)));
+		inventory.upsert(List.of(record("01", "www.mcpki.org", "SERVER", 300L, CertificateRecord.REVOKED)));
+
+		assertEquals(1, inventory.size(), "Record duplicated.");
+		assertEquals(0, inventory.count(true, 100L), "Revoked certificate counted.");
+		assertEquals(0, inventory.search(null, null, null, null, "active", 0L, Long.MAX_VALUE, 0, 10).total(),
+				"Stale status found.");
+	}
+
+	@Test
+	public void testCountByIssuerAndProfile()
+	{
+		final CertificateInventory inventory = new CertificateInventory();
+		inventory.upsert(List.of(record("01", "www.mcpki.org", "SERVER", 300L, CertificateRecord.ACTIVE),
+				record("02", "mail.mcpki.org", "SERVER", 100L, CertificateRecord.ACTIVE),
+				record("03", "alice", "USER", 200L, CertificateRecord.REVOKED)));
+
+		final Map<String, long[]> profiles = inventory.countBy(CertificateRecord::certificate_profile, 150L);
+		assertEquals(2, profiles.get("SERVER")[0], "Wrong total per profile.");
+		assertEquals(1, profiles.get("SERVER")[1], "Wrong active count per profile.");
+		assertEquals(0, profiles.get("USER")[1], "Revoked certificate counted as active.");
+		assertEquals(3, inventory.countBy(CertificateRecord::issuer_dn, 150L).get(ISSUER)[0],
+				"Wrong total per issuer.");
+	}
+}
@@ -0,0 +1,110 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.mcpki.server.McpServerApplication;
+import com.mcpki.server.ejbca.MockEjbca;
+
+/**
+ * Round trip of the typed v2 search request and response against the EJBCA
+ * stand-in.
+ */
+public class InventorySyncTest {
+
+	private static final int CERTIFICATES = 3;
+
+	@TempDir
+	static Path directory;
+
+	private static MockEjbca ejbca;
+
+	private static ConfigurableApplicationContext context;
+
+	@BeforeAll
+	public static void start() throws Exception
+	{
+		ejbca = new MockEjbca(new MockEjbca.Settings(0, 0, 0, 0d, CERTIFICATES, "mcpki-sync"));
+		ejbca.start();
+		final List<String> arguments = new ArrayList<>(List.of("--spring.profiles.active=github-build",
+				"--server.port=0", "--logging.file.name=" + directory.resolve("mcpki-server.log"),
+				"--com.mcpki.server.tools.admission.enabled=false", "--com.mcpki.server.warmup.enabled=false",
+				"--com.mcpki.server.inventory.enabled=true",
+				"--com.mcpki.server.inventory.sync.interval.ms=3600000"));
+		arguments.addAll(List.of(ejbca.serverArguments(directory)));
+		context = new SpringApplication(McpServerApplication.class).run(arguments.toArray(new String[0]));
+	}
+
+	@AfterAll
+	public static void stop()
+	{
+		if (context != null) {
+			context.close();
+		}
+		if (ejbca != null) {
+			ejbca.close();
+		}
+	}
+
+	@Test
+	public void testSearchRoundTrip()
+	{
+		context.getBean(InventorySync.class).sync();
+
+		final JSONObject request = ejbca.lastBody("/v2/certificate/search");
+		assertNotNull(request, "No search request received.");
+		final JSONObject pagination = (JSONObject) request.get("pagination");
+		assertEquals(500L, ((Number) pagination.get("page_size")).longValue(), "Wrong page size.");
+		assertEquals(1L, ((Number) pagination.get("current_page")).longValue(), "Wrong page.");
+		final JSONObject criterion = (JSONObject) ((JSONArray) request.get("criteria")).get(0);
+		assertEquals("UPDATE_TIME", criterion.get("property"), "Wrong criterion property.");
+		assertEquals("AFTER", criterion.get("operation"), "Wrong criterion operation.");
+		assertTrue(criterion.get("value").toString().endsWith("Z"), "Criterion value is not ISO 8601.");
+		assertEquals("ASC", ((JSONObject) request.get("sort")).get("operation"), "Wrong sort order.");
+
+		final CertificateInventory inventory = context.getBean(CertificateInventory.class);
+		final long now = System.currentTimeMillis();
+		assertEquals(CERTIFICATES, inventory.count(true, now), "Search response not mapped.");
+		final CertificateInventory.Page page = inventory.search("CN=agent-0.mcpki.org", null, ejbca.caName(),
+				MockEjbca.PROFILE, CertificateRecord.ACTIVE, 0, Long.MAX_VALUE, 0, 10);
+		assertEquals(1, page.total(), "Certificate not found by subject, issuer and profile.");
+		final CertificateRecord record = page.certificates().get(0);
+		assertTrue(record.not_before() < now && now < record.not_after(), "Validity not mapped.");
+		assertTrue(record.update_time() > 0, "Update time not mapped.");
+	}
+}
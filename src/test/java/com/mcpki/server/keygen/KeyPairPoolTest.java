@@ -0,0 +1,77 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.keygen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class KeyPairPoolTest {
+
+	@BeforeAll
+	public static void setUp()
+	{
+		Security.addProvider(new BouncyCastleProvider());
+	}
+
+	@Test
+	public void testTakeFromPool() throws Exception
+	{
+		try (KeyPairPool pool = new KeyPairPool(Set.of(KeyAlgorithm.P_256), 2, 8, 30, TimeUnit.SECONDS, 1)) {
+			final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (pool.depth(KeyAlgorithm.P_256) < 2 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(2, pool.depth(KeyAlgorithm.P_256), "Pool not filled.");
+			final KeyPair keyPair = pool.take(KeyAlgorithm.P_256);
+			assertNotNull(keyPair, "Key pair missing.");
+			assertEquals("EC", keyPair.getPublic().getAlgorithm(), "Wrong key algorithm.");
+			assertEquals(0, pool.misses(KeyAlgorithm.P_256), "Unexpected miss.");
+		}
+	}
+
+	@Test
+	public void testInlineFallback() throws Exception
+	{
+		try (KeyPairPool pool = new KeyPairPool(Set.of(KeyAlgorithm.P_256), 0, 0, 30, TimeUnit.SECONDS, 1)) {
+			assertNotNull(pool.take(KeyAlgorithm.P_256), "Key pair missing.");
+			assertTrue(pool.misses(KeyAlgorithm.P_256) >= 1, "Miss not counted.");
+		}
+	}
+
+	@Test
+	public void testAlgorithmLabels()
+	{
+		assertEquals(KeyAlgorithm.ML_DSA_44, KeyAlgorithm.of("Dilithium2"), "Alias not resolved.");
+		assertEquals(KeyAlgorithm.RSA_3072, KeyAlgorithm.of("rsa-3072"), "Label not resolved.");
+		assertEquals(null, KeyAlgorithm.of("DSA-1024"), "Unknown label resolved.");
+	}
+}
@@ -0,0 +1,405 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.load;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+import org.json.simple.JSONValue;
+
+/**
+ * Load generator driving an MCP server over the streamable HTTP transport with
+ * concurrent simulated agents, each with its own MCP session, and a weighted
+ * tool mix. Reports throughput, latency percentiles (p50, p90, p99, p99.9) and
+ * error rates per tool as JSON.
+ *
+ * Against a running server (e.g. with the EJBCA stand-in MockEjbca):
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.mcpki.server.load.LoadHarness
+ * -Dload.url=http://localhost:12121/mcp -Dload.agents=64
+ * -Dload.duration.seconds=60 -Dload.report=target/load-report.json
+ */
+public class LoadHarness {
+
+	/**
+	 * Default tool mix: 70% CA certificate download and parsing, 20% enrollment.
+	 */
+	public static final String DEFAULT_MIX = "get_ca_certificate=35,parse_certificate=35,enroll_certificate_with_csr=20,get_available_cas=10";
+
+	private static final Pattern PEM = Pattern
+			.compile("-----BEGIN CERTIFICATE-----[A-Za-z0-9+/=\\s\\\\n]+-----END CERTIFICATE-----");
+
+	private static final int CSRS = 64;
+
+	private final Settings settings;
+
+	private final Map<String, Integer> mix;
+
+	private final Map<String, Function<Integer, Map<String, Object>>> arguments = new HashMap<>();
+
+	private final AtomicInteger sequence = new AtomicInteger();
+
+	/**
+	 * Settings of a load run.
+	 *
+	 * @param endpoint the MCP endpoint.
+	 * @param agents   the number of concurrent agents (MCP sessions).
+	 * @param duration the measured duration.
+	 * @param warmup   the duration before, not measured.
+	 * @param mix      the tool mix, tool=weight separated by commas.
+	 * @param caDn     the subject DN of the CA (get_ca_certificate).
+	 * @param caName   the name of the CA (enrollment).
+	 * @param profile  the certificate and end entity profile (enrollment).
+	 * @param timeout  the timeout of a tool call.
+	 */
+	public record Settings(URI endpoint, int agents, Duration duration, Duration warmup, String mix, String caDn,
+			String caName, String profile, Duration timeout) {
+
+		/**
+		 * Returns the settings of the load.* system properties.
+		 *
+		 * @return the settings.
+		 */
+		public static Settings fromSystemProperties()
+		{
+			return new Settings(URI.create(System.getProperty("load.url", "http://localhost:12121/mcp")),
+					Integer.getInteger("load.agents", 32),
+					Duration.ofSeconds(Integer.getInteger("load.duration.seconds", 60)),
+					Duration.ofSeconds(Integer.getInteger("load.warmup.seconds", 10)),
+					System.getProperty("load.mix", DEFAULT_MIX),
+					System.getProperty("load.ca.dn", "CN=mcpki-mock-ca,O=mcpki.org"),
+					System.getProperty("load.ca.name", "mcpki-mock-ca"), System.getProperty("load.profile", "ENDUSER"),
+					Duration.ofSeconds(Integer.getInteger("load.timeout.seconds", 60)));
+		}
+	}
+
+	/**
+	 * Latencies and errors of one tool, recorded by one agent.
+	 */
+	static class Samples {
+
+		long[] nanos = new long[1024];
+
+		int count;
+
+		int errors;
+
+		long bytes;
+
+		void add(final long latency, final boolean error, final int size)
+		{
+			if (count == nanos.length) {
+				nanos = Arrays.copyOf(nanos, count * 2);
+			}
+			nanos[count++] = latency;
+			if (error) {
+				errors++;
+			}
+			bytes += size;
+		}
+
+		void addAll(final Samples samples)
+		{
+			if (count + samples.count > nanos.length) {
+				nanos = Arrays.copyOf(nanos, count + samples.count);
+			}
+			System.arraycopy(samples.nanos, 0, nanos, count, samples.count);
+			count += samples.count;
+			errors += samples.errors;
+			bytes += samples.bytes;
+		}
+	}
+
+	/**
+	 * Creates the harness.
+	 *
+	 * @param settings the settings.
+	 * @throws GeneralSecurityException if the CSRs cannot be created.
+	 */
+	public LoadHarness(final Settings settings) throws GeneralSecurityException {
+		this.settings = settings;
+		this.mix = new LinkedHashMap<>();
+		for (final String entry : settings.mix().split(",")) {
+			final String[] toolWeight = entry.trim().split("=");
+			mix.put(toolWeight[0], Integer.parseInt(toolWeight[1]));
+		}
+
+		final List<String> csrs = new ArrayList<>();
+		for (int i = 0; i < CSRS; i++) {
+			csrs.add(csr(i));
+		}
+		arguments.put("get_ca_certificate", n -> Map.of("subject_dn", settings.caDn()));
+		arguments.put("get_available_cas", n -> Map.of("external", false));
+		arguments.put("enroll_certificate_with_csr", n -> {
+			final Map<String, Object> enroll = new TreeMap<>();
+			enroll.put("csr", csrs.get(n % CSRS));
+			enroll.put("certificate_profile_name", settings.profile());
+			enroll.put("end_entity_profile_name", settings.profile());
+			enroll.put("name_of_ca", settings.caName());
+			enroll.put("username", "load-agent-" + n);
+			enroll.put("password", "Load-Test-Pwd-" + n % 1000);
+			enroll.put("email", "load-agent-" + n + "@mcpki.org");
+			return enroll;
+		});
+	}
+
+	/**
+	 * Sets the arguments of a tool of the mix, for tools without built-in
+	 * arguments.
+	 *
+	 * @param tool      the tool.
+	 * @param arguments the arguments for a sequence number.
+	 */
+	public void setArguments(final String tool, final Function<Integer, Map<String, Object>> arguments)
+	{
+		this.arguments.put(tool, arguments);
+	}
+
+	/**
+	 * Runs the load and returns the JSON report.
+	 *
+	 * @return the report.
+	 * @throws IOException          if the CA certificate for parse_certificate
+	 *                              cannot be retrieved.
+	 * @throws InterruptedException if interrupted.
+	 */
+	public String run() throws IOException, InterruptedException
+	{
+		final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(Executors.newCachedThreadPool(r -> {
+			final Thread thread = new Thread(r, "mcpki-load-http");
+			thread.setDaemon(true);
+			return thread;
+		})).build();
+		if (mix.containsKey("parse_certificate") && !arguments.containsKey("parse_certificate")) {
+			final String pem = caCertificate(http, settings.endpoint(), settings.timeout(), settings.caDn());
+			arguments.put("parse_certificate", n -> Map.of("certificate", pem));
+		}
+		for (final String tool : mix.keySet()) {
+			if (!arguments.containsKey(tool)) {
+				throw new IllegalArgumentException("No arguments for tool " + tool + ".");
+			}
+		}
+		final String[] tools = mix.keySet().toArray(new String[0]);
+		final int[] cumulative = new int[tools.length];
+		int total = 0;
+		for (int i = 0; i < tools.length; i++) {
+			total += mix.get(tools[i]);
+			cumulative[i] = total;
+		}
+
+		final long start = System.nanoTime();
+		final long measureFrom = start + settings.warmup().toNanos();
+		final long end = measureFrom + settings.duration().toNanos();
+		final List<Map<String, Samples>> recorded = new ArrayList<>();
+		final CountDownLatch done = new CountDownLatch(settings.agents());
+		final AtomicInteger failedSessions = new AtomicInteger();
+		for (int agent = 0; agent < settings.agents(); agent++) {
+			final Map<String, Samples> samples = new HashMap<>();
+			recorded.add(samples);
+			final int weights = total;
+			final Thread thread = new Thread(() -> {
+				try (McpHttpClient client = new McpHttpClient(http, settings.endpoint(), settings.timeout())) {
+					client.initialize();
+					final ThreadLocalRandom random = ThreadLocalRandom.current();
+					long now;
+					while ((now = System.nanoTime()) < end) {
+						final int pick = random.nextInt(weights);
+						int i = 0;
+						while (cumulative[i] <= pick) {
+							i++;
+						}
+						final String tool = tools[i];
+						final Map<String, Object> args = arguments.get(tool).apply(sequence.incrementAndGet());
+						boolean error;
+						int bytes = 0;
+						final long started = System.nanoTime();
+						try {
+							final McpHttpClient.Result result = client.call(tool, args);
+							error = result.error();
+							bytes = result.bytes();
+						} catch (IOException e) {
+							error = true;
+						}
+						if (now >= measureFrom) {
+							samples.computeIfAbsent(tool, t -> new Samples()).add(System.nanoTime() - started, error,
+									bytes);
+						}
+					}
+				} catch (IOException e) {
+					failedSessions.incrementAndGet();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					done.countDown();
+				}
+			}, "mcpki-load-agent-" + agent);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		done.await();
+
+		final Map<String, Samples> merged = new TreeMap<>();
+		for (final Map<String, Samples> samples : recorded) {
+			samples.forEach((tool, s) -> merged.computeIfAbsent(tool, t -> new Samples()).addAll(s));
+		}
+		return report(merged, failedSessions.get());
+	}
+
+	/**
+	 * Runs the load with the load.* system properties and writes the report to
+	 * load.report (or stdout).
+	 *
+	 * @param args not used.
+	 * @throws Exception if the load cannot be run.
+	 */
+	public static void main(final String[] args) throws Exception
+	{
+		final String report = new LoadHarness(Settings.fromSystemProperties()).run();
+		final String file = System.getProperty("load.report");
+		if (file == null) {
+			System.out.println(report);
+		} else {
+			Files.writeString(Path.of(file), report, StandardCharsets.UTF_8);
+		}
+	}
+
+	private String report(final Map<String, Samples> samples, final int failedSessions)
+	{
+		final double seconds = settings.duration().toNanos() / 1e9;
+		final Map<String, Object> tools = new TreeMap<>();
+		final Samples all = new Samples();
+		for (final Map.Entry<String, Samples> entry : samples.entrySet()) {
+			tools.put(entry.getKey(), statistics(entry.getValue(), seconds));
+			all.addAll(entry.getValue());
+		}
+
+		final Map<String, Object> report = new LinkedHashMap<>();
+		report.put("endpoint", settings.endpoint().toString());
+		report.put("agents", settings.agents());
+		report.put("duration_seconds", settings.duration().toSeconds());
+		report.put("warmup_seconds", settings.warmup().toSeconds());
+		report.put("mix", mix);
+		report.put("failed_sessions", failedSessions);
+		report.put("total", statistics(all, seconds));
+		report.put("tools", tools);
+		final StringWriter writer = new StringWriter();
+		try {
+			JSONValue.writeJSONString(report, writer);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return writer.toString();
+	}
+
+	static Map<String, Object> statistics(final Samples samples, final double seconds)
+	{
+		final long[] sorted = Arrays.copyOf(samples.nanos, samples.count);
+		Arrays.sort(sorted);
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+		statistics.put("requests", samples.count);
+		statistics.put("errors", samples.errors);
+		statistics.put("error_rate", samples.count == 0 ? 0d : (double) samples.errors / samples.count);
+		statistics.put("throughput_per_second", samples.count / seconds);
+		statistics.put("response_bytes_mean", samples.count == 0 ? 0 : samples.bytes / samples.count);
+		statistics.put("p50_ms", percentile(sorted, 0.5));
+		statistics.put("p90_ms", percentile(sorted, 0.9));
+		statistics.put("p99_ms", percentile(sorted, 0.99));
+		statistics.put("p999_ms", percentile(sorted, 0.999));
+		statistics.put("max_ms", sorted.length == 0 ? 0d : sorted[sorted.length - 1] / 1e6);
+		return statistics;
+	}
+
+	/**
+	 * Nearest-rank percentile in milliseconds.
+	 */
+	static double percentile(final long[] sorted, final double percentile)
+	{
+		if (sorted.length == 0) {
+			return 0d;
+		}
+		final int rank = (int) Math.ceil(percentile * sorted.length);
+		return sorted[Math.max(0, rank - 1)] / 1e6;
+	}
+
+	/**
+	 * Retrieves the PEM of the CA certificate for parse_certificate.
+	 */
+	static String caCertificate(final HttpClient http, final URI endpoint, final Duration timeout, final String caDn)
+			throws IOException, InterruptedException
+	{
+		try (McpHttpClient client = new McpHttpClient(http, endpoint, timeout)) {
+			client.initialize();
+			final McpHttpClient.Result result = client.call("get_ca_certificate", Map.of("subject_dn", caDn));
+			final Matcher matcher = PEM.matcher(result.text());
+			if (result.error() || !matcher.find()) {
+				throw new IOException("No CA certificate for parse_certificate: " + result.text());
+			}
+			return matcher.group().replace("\\n", "\n");
+		}
+	}
+
+	static String csr(final int i) throws GeneralSecurityException
+	{
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(256);
+		final KeyPair keyPair = generator.generateKeyPair();
+		try {
+			final byte[] der = new JcaPKCS10CertificationRequestBuilder(
+					new X500Name("CN=load-agent-" + i + ".mcpki.org,O=mcpki.org"), keyPair.getPublic())
+					.build(new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate())).getEncoded();
+			return "-----BEGIN CERTIFICATE REQUEST-----\n"
+					+ Base64.getMimeEncoder(64, new byte[] { '\n' }).encodeToString(der)
+					+ "\n-----END CERTIFICATE REQUEST-----";
+		} catch (IOException | OperatorCreationException e) {
+			throw new GeneralSecurityException("Failed to create CSR.", e);
+		}
+	}
+}
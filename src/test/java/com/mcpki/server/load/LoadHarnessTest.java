@@ -0,0 +1,104 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Security;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.mcpki.server.McpServerApplication;
+import com.mcpki.server.ejbca.MockEjbca;
+
+public class LoadHarnessTest {
+
+	private static final Logger log = LoggerFactory.getLogger(LoadHarnessTest.class);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testPercentile()
+	{
+		final long[] sorted = new long[1000];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = (i + 1) * 1_000_000L;
+		}
+		assertEquals(500d, LoadHarness.percentile(sorted, 0.5), "Wrong p50.");
+		assertEquals(990d, LoadHarness.percentile(sorted, 0.99), "Wrong p99.");
+		assertEquals(999d, LoadHarness.percentile(sorted, 0.999), "Wrong p99.9.");
+		assertEquals(1d, LoadHarness.percentile(new long[] { 1_000_000L }, 0.999), "Wrong p99.9 of one sample.");
+	}
+
+	/**
+	 * Runs the default tool mix against the server backed by the EJBCA stand-in
+	 * (5 to 15 ms latency) and writes the report to target/load-report.json.
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	public void testLoad() throws Exception
+	{
+		Security.addProvider(new BouncyCastleProvider());
+		try (MockEjbca ejbca = new MockEjbca(new MockEjbca.Settings(0, 5, 10, 0d, 1000, "mcpki-load"))) {
+			ejbca.start();
+			final List<String> arguments = new ArrayList<>(List.of("--spring.profiles.active=github-build",
+					"--server.port=0", "--logging.file.name=" + directory.resolve("mcpki-server.log"),
+					"--com.mcpki.server.tools.admission.enabled=false"));
+			arguments.addAll(List.of(ejbca.serverArguments(directory)));
+
+			try (ConfigurableApplicationContext context = new SpringApplication(McpServerApplication.class)
+					.run(arguments.toArray(new String[0]))) {
+				final String port = context.getEnvironment().getProperty("local.server.port");
+				final LoadHarness harness = new LoadHarness(new LoadHarness.Settings(
+						URI.create("http://localhost:" + port + "/mcp"), Integer.getInteger("load.agents", 32),
+						Duration.ofSeconds(Integer.getInteger("load.duration.seconds", 30)), Duration.ofSeconds(5),
+						System.getProperty("load.mix", LoadHarness.DEFAULT_MIX), ejbca.caName(), "mcpki-mock-ca",
+						MockEjbca.PROFILE, Duration.ofSeconds(60)));
+				final String report = harness.run();
+				Files.writeString(Path.of("target", "load-report.json"), report, StandardCharsets.UTF_8);
+				log.info("Load report: {}", report);
+
+				final JSONObject total = (JSONObject) ((JSONObject) new JSONParser().parse(report)).get("total");
+				assertTrue(((Number) total.get("requests")).longValue() > 0, "No requests.");
+				assertTrue(((Number) total.get("error_rate")).doubleValue() < 0.01, "Error rate above 1%.");
+			}
+		}
+	}
+}
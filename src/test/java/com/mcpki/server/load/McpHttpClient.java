@@ -0,0 +1,247 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Minimal MCP client session over the streamable HTTP transport (JSON-RPC
+ * POSTs answered with JSON or an event stream).
+ *
+ * Only initialize and tools/call are implemented, without the reactive stack of
+ * the SDK client, so that the measured latency is the server's.
+ */
+public class McpHttpClient implements AutoCloseable {
+
+	private static final String PROTOCOL_VERSION = "2025-06-18";
+
+	private static final Pattern ERROR_MESSAGE = Pattern.compile("\"error_message\"\\s*:\\s*\"");
+
+	private final HttpClient http;
+
+	private final URI endpoint;
+
+	private final Duration timeout;
+
+	private final AtomicLong ids = new AtomicLong();
+
+	private String sessionId;
+
+	private boolean initialized;
+
+	/**
+	 * Result of a tool call.
+	 *
+	 * @param error true if the call failed (HTTP, JSON-RPC or tool error, or an
+	 *              error_message in the response).
+	 * @param bytes the size of the response body.
+	 * @param text  the text content of the result or the error message.
+	 */
+	public record Result(boolean error, int bytes, String text) {
+	}
+
+	/**
+	 * Creates a client session (not yet initialized).
+	 *
+	 * @param http     the HTTP client, shared by the sessions.
+	 * @param endpoint the MCP endpoint, e.g. http://localhost:12121/mcp.
+	 * @param timeout  the request timeout.
+	 */
+	public McpHttpClient(final HttpClient http, final URI endpoint, final Duration timeout) {
+		this.http = http;
+		this.endpoint = endpoint;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Initializes the session, unless initialized already.
+	 *
+	 * @throws IOException          if the server rejects the session.
+	 * @throws InterruptedException if interrupted.
+	 */
+	public synchronized void initialize() throws IOException, InterruptedException
+	{
+		if (initialized) {
+			return;
+		}
+		final Map<String, Object> clientInfo = new TreeMap<>();
+		clientInfo.put("name", "mcpki-load");
+		clientInfo.put("version", "1.0");
+		final Map<String, Object> params = new TreeMap<>();
+		params.put("protocolVersion", PROTOCOL_VERSION);
+		params.put("capabilities", new JSONObject());
+		params.put("clientInfo", clientInfo);
+
+		final HttpResponse<InputStream> response = post(request("initialize", params));
+		sessionId = response.headers().firstValue("Mcp-Session-Id").orElse(null);
+		final Result result = read(response, false);
+		if (result.error()) {
+			throw new IOException("Failed to initialize MCP session: " + result.text());
+		}
+
+		final Map<String, Object> notification = new TreeMap<>();
+		notification.put("jsonrpc", "2.0");
+		notification.put("method", "notifications/initialized");
+		try (InputStream in = post(JSONValue.toJSONString(notification)).body()) {
+			in.readAllBytes();
+		}
+		this.initialized = true;
+	}
+
+	/**
+	 * Calls a tool.
+	 *
+	 * @param tool      the tool name.
+	 * @param arguments the tool arguments.
+	 * @return the result.
+	 * @throws IOException          if the request fails on the transport level.
+	 * @throws InterruptedException if interrupted.
+	 */
+	public Result call(final String tool, final Map<String, Object> arguments) throws IOException, InterruptedException
+	{
+		final Map<String, Object> params = new TreeMap<>();
+		params.put("name", tool);
+		params.put("arguments", arguments);
+		return read(post(request("tools/call", params)), true);
+	}
+
+	@Override
+	public void close()
+	{
+		if (sessionId == null) {
+			return;
+		}
+		try {
+			http.send(HttpRequest.newBuilder(endpoint).timeout(timeout).header("Mcp-Session-Id", sessionId).DELETE()
+					.build(), HttpResponse.BodyHandlers.discarding());
+		} catch (IOException e) {
+			// The session expires on the server.
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		sessionId = null;
+	}
+
+	private String request(final String method, final Map<String, Object> params)
+	{
+		final Map<String, Object> request = new TreeMap<>();
+		request.put("jsonrpc", "2.0");
+		request.put("id", ids.incrementAndGet());
+		request.put("method", method);
+		request.put("params", params);
+		return JSONValue.toJSONString(request);
+	}
+
+	private HttpResponse<InputStream> post(final String body) throws IOException, InterruptedException
+	{
+		final HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint).timeout(timeout)
+				.header("Content-Type", "application/json").header("Accept", "application/json, text/event-stream")
+				.POST(HttpRequest.BodyPublishers.ofString(body));
+		if (sessionId != null) {
+			builder.header("Mcp-Session-Id", sessionId).header("MCP-Protocol-Version", PROTOCOL_VERSION);
+		}
+		return http.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+	}
+
+	/**
+	 * Reads the JSON-RPC response from a JSON body or the first data event of an
+	 * event stream.
+	 */
+	private static Result read(final HttpResponse<InputStream> response, final boolean toolCall) throws IOException
+	{
+		final String body;
+		try (InputStream in = response.body()) {
+			final boolean eventStream = response.headers().firstValue("Content-Type").orElse("")
+					.startsWith("text/event-stream");
+			body = eventStream ? firstEvent(in) : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		final int bytes = body.length();
+		if (response.statusCode() != 200) {
+			return new Result(true, bytes, "HTTP " + response.statusCode() + ": " + body);
+		}
+
+		try {
+			final JSONObject json = (JSONObject) new JSONParser().parse(body);
+			if (json.get("error") != null) {
+				return new Result(true, bytes, json.get("error").toString());
+			}
+			final JSONObject result = (JSONObject) json.get("result");
+			if (!toolCall) {
+				return new Result(result == null, bytes, body);
+			}
+			final String text = text(result);
+			final boolean error = result == null || Boolean.TRUE.equals(result.get("isError"))
+					|| ERROR_MESSAGE.matcher(text).find();
+			return new Result(error, bytes, text);
+		} catch (ParseException | ClassCastException e) {
+			return new Result(true, bytes, "Invalid JSON-RPC response: " + e.getMessage());
+		}
+	}
+
+	private static String firstEvent(final InputStream in) throws IOException
+	{
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		final StringBuilder data = new StringBuilder();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.startsWith("data:")) {
+				data.append(line.substring(5).strip());
+			} else if (line.isEmpty() && data.length() > 0) {
+				break;
+			}
+		}
+		return data.toString();
+	}
+
+	private static String text(final JSONObject result)
+	{
+		if (result == null || !(result.get("content") instanceof JSONArray)) {
+			return "";
+		}
+		final StringBuilder text = new StringBuilder();
+		for (final Object content : (JSONArray) result.get("content")) {
+			if (content instanceof JSONObject && ((JSONObject) content).get("text") != null) {
+				text.append(((JSONObject) content).get("text"));
+			}
+		}
+		return text.toString();
+	}
+}
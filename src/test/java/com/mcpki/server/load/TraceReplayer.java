@@ -0,0 +1,345 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Replays a tool call trace recorded by the TraceRecorder
+ * (com.mcpki.server.trace.enabled=true) against a test instance, at the
+ * original rate or accelerated.
+ *
+ * The calls are sent open loop at their recorded offsets divided by the speed,
+ * one MCP session per recorded session, so that bursts such as an agent fleet
+ * start are reproduced. Parameters recorded without value are synthesized from
+ * their shape: CSRs from a pool, certificates from the CA, DNs, e-mail
+ * addresses, serial numbers and names from a sequence number, passwords from
+ * the replay password. The JSON report adds the schedule lag (how late calls
+ * were sent) to the LoadHarness statistics.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.mcpki.server.load.TraceReplayer
+ * -Dreplay.trace=mcpki-trace.jsonl -Dreplay.url=http://localhost:12121/mcp
+ * -Dreplay.speed=4 -Dreplay.report=target/replay-report.json
+ */
+public class TraceReplayer {
+
+	private static final int CSRS = 64;
+
+	private final Settings settings;
+
+	private final List<Call> calls;
+
+	private final List<String> csrs = new ArrayList<>();
+
+	private String caCertificate;
+
+	/**
+	 * Settings of a replay.
+	 *
+	 * @param trace    the trace file.
+	 * @param endpoint the MCP endpoint.
+	 * @param speed    the speed-up, 1 for the original rate.
+	 * @param caDn     the subject DN of the CA (certificates to parse).
+	 * @param password the password of enrollments and revocations.
+	 * @param threads  the maximum number of concurrent calls.
+	 * @param timeout  the timeout of a tool call.
+	 */
+	public record Settings(Path trace, URI endpoint, double speed, String caDn, String password, int threads,
+			Duration timeout) {
+
+		/**
+		 * Returns the settings of the replay.* system properties.
+		 *
+		 * @return the settings.
+		 */
+		public static Settings fromSystemProperties()
+		{
+			return new Settings(Path.of(System.getProperty("replay.trace", "mcpki-trace.jsonl")),
+					URI.create(System.getProperty("replay.url", "http://localhost:12121/mcp")),
+					Double.parseDouble(System.getProperty("replay.speed", "1")),
+					System.getProperty("replay.ca.dn", "CN=mcpki-mock-ca,O=mcpki.org"),
+					System.getProperty("replay.password", "Replay-Test-Pwd-1"), Integer.getInteger("replay.threads", 256),
+					Duration.ofSeconds(Integer.getInteger("replay.timeout.seconds", 60)));
+		}
+	}
+
+	/**
+	 * Recorded call.
+	 *
+	 * @param offsetMs the offset from the first call.
+	 * @param session  the anonymised session (may be null).
+	 * @param tool     the tool.
+	 * @param params   the parameter shapes.
+	 */
+	record Call(long offsetMs, String session, String tool, Map<String, Map<String, Object>> params) {
+	}
+
+	/**
+	 * Creates the replayer and reads the trace.
+	 *
+	 * @param settings the settings.
+	 * @throws IOException if the trace cannot be read.
+	 */
+	public TraceReplayer(final Settings settings) throws IOException {
+		this.settings = settings;
+		this.calls = read(settings.trace());
+	}
+
+	/**
+	 * Reads a trace, sorted by start time.
+	 *
+	 * @param trace the trace file.
+	 * @return the calls.
+	 * @throws IOException if the trace cannot be read.
+	 */
+	@SuppressWarnings("unchecked")
+	static List<Call> read(final Path trace) throws IOException
+	{
+		final List<JSONObject> lines = new ArrayList<>();
+		final JSONParser parser = new JSONParser();
+		try (BufferedReader reader = Files.newBufferedReader(trace, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isBlank()) {
+					lines.add((JSONObject) parser.parse(line));
+				}
+			}
+		} catch (ParseException e) {
+			throw new IOException("Invalid trace line in " + trace + ": " + e, e);
+		}
+		lines.sort(Comparator.comparingLong(line -> ((Number) line.get("start_ms")).longValue()));
+
+		final List<Call> calls = new ArrayList<>(lines.size());
+		final long first = lines.isEmpty() ? 0 : ((Number) lines.get(0).get("start_ms")).longValue();
+		for (final JSONObject line : lines) {
+			calls.add(new Call(((Number) line.get("start_ms")).longValue() - first, (String) line.get("session"),
+					(String) line.get("tool"), (Map<String, Map<String, Object>>) line.get("params")));
+		}
+		return calls;
+	}
+
+	/**
+	 * Replays the trace and returns the JSON report.
+	 *
+	 * @return the report.
+	 * @throws IOException              if the CA certificate cannot be
+	 *                                  retrieved.
+	 * @throws GeneralSecurityException if the CSRs cannot be created.
+	 * @throws InterruptedException     if interrupted.
+	 */
+	public String run() throws IOException, GeneralSecurityException, InterruptedException
+	{
+		final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		prepare(http);
+
+		final AtomicInteger threadCount = new AtomicInteger();
+		final ExecutorService executor = Executors.newFixedThreadPool(settings.threads(), r -> {
+			final Thread thread = new Thread(r, "mcpki-replay-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		final Map<String, McpHttpClient> sessions = new ConcurrentHashMap<>();
+		final Map<String, LoadHarness.Samples> samples = new ConcurrentHashMap<>();
+		final LoadHarness.Samples lag = new LoadHarness.Samples();
+		final AtomicInteger transportErrors = new AtomicInteger();
+
+		final long start = System.nanoTime();
+		int sequence = 0;
+		for (final Call call : calls) {
+			final long due = start + (long) (TimeUnit.MILLISECONDS.toNanos(call.offsetMs()) / settings.speed());
+			long wait;
+			while ((wait = due - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			final Map<String, Object> arguments = arguments(call, ++sequence);
+			executor.execute(() -> {
+				final long started = System.nanoTime();
+				synchronized (lag) {
+					lag.add(started - due, false, 0);
+				}
+				boolean error = true;
+				int bytes = 0;
+				try {
+					final McpHttpClient client = session(http, sessions, call.session());
+					final McpHttpClient.Result result = client.call(call.tool(), arguments);
+					error = result.error();
+					bytes = result.bytes();
+				} catch (IOException e) {
+					transportErrors.incrementAndGet();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				final LoadHarness.Samples tool = samples.computeIfAbsent(call.tool(), t -> new LoadHarness.Samples());
+				synchronized (tool) {
+					tool.add(System.nanoTime() - started, error, bytes);
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(settings.timeout().toSeconds() + 60, TimeUnit.SECONDS);
+		final double seconds = (System.nanoTime() - start) / 1e9;
+		sessions.values().forEach(McpHttpClient::close);
+
+		final Map<String, Object> tools = new TreeMap<>();
+		final LoadHarness.Samples all = new LoadHarness.Samples();
+		for (final Map.Entry<String, LoadHarness.Samples> entry : new TreeMap<>(samples).entrySet()) {
+			tools.put(entry.getKey(), LoadHarness.statistics(entry.getValue(), seconds));
+			all.addAll(entry.getValue());
+		}
+		final Map<String, Object> report = new LinkedHashMap<>();
+		report.put("trace", settings.trace().toString());
+		report.put("endpoint", settings.endpoint().toString());
+		report.put("speed", settings.speed());
+		report.put("calls", calls.size());
+		report.put("sessions", sessions.size());
+		report.put("transport_errors", transportErrors.get());
+		report.put("trace_duration_seconds", calls.isEmpty() ? 0 : calls.get(calls.size() - 1).offsetMs() / 1e3);
+		report.put("replay_duration_seconds", seconds);
+		report.put("schedule_lag", LoadHarness.statistics(lag, seconds));
+		report.put("total", LoadHarness.statistics(all, seconds));
+		report.put("tools", tools);
+		final StringWriter writer = new StringWriter();
+		JSONValue.writeJSONString(report, writer);
+		return writer.toString();
+	}
+
+	/**
+	 * Replays the trace of the replay.* system properties and writes the report
+	 * to replay.report (or stdout).
+	 *
+	 * @param args not used.
+	 * @throws Exception if the trace cannot be replayed.
+	 */
+	public static void main(final String[] args) throws Exception
+	{
+		final String report = new TraceReplayer(Settings.fromSystemProperties()).run();
+		final String file = System.getProperty("replay.report");
+		if (file == null) {
+			System.out.println(report);
+		} else {
+			Files.writeString(Path.of(file), report, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Returns the arguments of a call, with the recorded values and synthesized
+	 * values for the others.
+	 *
+	 * @param call     the call.
+	 * @param sequence the sequence number of the call.
+	 * @return the arguments.
+	 */
+	Map<String, Object> arguments(final Call call, final int sequence)
+	{
+		final Map<String, Object> arguments = new TreeMap<>();
+		for (final Map.Entry<String, Map<String, Object>> param : call.params().entrySet()) {
+			final Map<String, Object> shape = param.getValue();
+			final Object value;
+			if (shape.containsKey("value")) {
+				value = shape.get("value");
+			} else if (Boolean.TRUE.equals(shape.get("redacted"))) {
+				value = settings.password();
+			} else if (!"string".equals(shape.get("type"))) {
+				continue;
+			} else {
+				final int length = ((Number) shape.get("length")).intValue();
+				value = switch (String.valueOf(shape.get("kind"))) {
+				case "csr" -> csrs.get(sequence % CSRS);
+				case "certificate" -> caCertificate;
+				case "dn" -> "CN=replay-" + sequence + ",O=mcpki.org";
+				case "email" -> "replay-" + sequence + "@mcpki.org";
+				case "hex" -> hex(length);
+				default -> "replay-" + sequence;
+				};
+			}
+			arguments.put(param.getKey(), value);
+		}
+		return arguments;
+	}
+
+	private void prepare(final HttpClient http) throws IOException, GeneralSecurityException, InterruptedException
+	{
+		boolean certificates = false;
+		boolean requests = false;
+		for (final Call call : calls) {
+			for (final Map<String, Object> shape : call.params().values()) {
+				certificates |= "certificate".equals(shape.get("kind")) && !shape.containsKey("value");
+				requests |= "csr".equals(shape.get("kind")) && !shape.containsKey("value");
+			}
+		}
+		if (certificates) {
+			caCertificate = LoadHarness.caCertificate(http, settings.endpoint(), settings.timeout(), settings.caDn());
+		}
+		for (int i = 0; requests && i < CSRS; i++) {
+			csrs.add(LoadHarness.csr(i));
+		}
+	}
+
+	private McpHttpClient session(final HttpClient http, final Map<String, McpHttpClient> sessions,
+			final String session) throws IOException, InterruptedException
+	{
+		final String key = session == null ? "" : session;
+		final McpHttpClient client = sessions.computeIfAbsent(key,
+				k -> new McpHttpClient(http, settings.endpoint(), settings.timeout()));
+		client.initialize();
+		return client;
+	}
+
+	private static String hex(final int length)
+	{
+		final StringBuilder hex = new StringBuilder(length);
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		hex.append("123456789ABCDEF".charAt(random.nextInt(15)));
+		while (hex.length() < length) {
+			hex.append("0123456789ABCDEF".charAt(random.nextInt(16)));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,70 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TraceReplayerTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testArguments() throws Exception
+	{
+		final Path trace = directory.resolve("trace.jsonl");
+		Files.writeString(trace, String.join("\n",
+				"{\"tool\":\"revoke_certificate\",\"start_ms\":1500,\"session\":\"a1\",\"params\":{"
+						+ "\"issuer_dn\":{\"type\":\"string\",\"length\":27,\"kind\":\"dn\",\"value\":\"CN=mcpki-mock-ca,O=mcpki.org\"},"
+						+ "\"serial_number\":{\"type\":\"string\",\"length\":40,\"kind\":\"hex\"},"
+						+ "\"password\":{\"type\":\"string\",\"redacted\":true},"
+						+ "\"reason\":{\"type\":\"null\"}}}",
+				"{\"tool\":\"get_available_cas\",\"start_ms\":1000,\"session\":\"a1\",\"params\":{"
+						+ "\"external\":{\"type\":\"boolean\",\"value\":false}}}"),
+				StandardCharsets.UTF_8);
+
+		final TraceReplayer replayer = new TraceReplayer(new TraceReplayer.Settings(trace,
+				URI.create("http://localhost:12121/mcp"), 1, "CN=mcpki-mock-ca,O=mcpki.org", "Replay-Test-Pwd-1", 4,
+				Duration.ofSeconds(10)));
+		final List<TraceReplayer.Call> calls = TraceReplayer.read(trace);
+		assertEquals("get_available_cas", calls.get(0).tool(), "Calls must be sorted by start.");
+		assertEquals(500, calls.get(1).offsetMs(), "Wrong offset.");
+
+		final Map<String, Object> arguments = replayer.arguments(calls.get(1), 1);
+		assertEquals("CN=mcpki-mock-ca,O=mcpki.org", arguments.get("issuer_dn"), "Recorded value is missing.");
+		assertEquals("Replay-Test-Pwd-1", arguments.get("password"), "Replay password is missing.");
+		assertEquals(40, ((String) arguments.get("serial_number")).length(), "Wrong serial number length.");
+		assertFalse(arguments.containsKey("reason"), "Null parameter must be omitted.");
+	}
+}
@@ -0,0 +1,170 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.localca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.ExtensionsGenerator;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class LocalCaTest {
+
+	private static final Logger log = LoggerFactory.getLogger(LocalCaTest.class);
+
+	private static LocalCa ca;
+
+	private static PKCS10CertificationRequest csr;
+
+	@BeforeAll
+	public static void setUp() throws Exception
+	{
+		Security.addProvider(new BouncyCastleProvider());
+
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", "BC");
+		generator.initialize(256);
+		final KeyPair caKeyPair = generator.generateKeyPair();
+		final X500Name caName = new X500Name("CN=mcpki-test-sub-ca,O=mcpki.org");
+		final Instant now = Instant.now();
+		final JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(caName, BigInteger.ONE,
+				Date.from(now.minusSeconds(60)), Date.from(now.plus(Duration.ofDays(30))), caName,
+				caKeyPair.getPublic());
+		builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(0));
+		final X509Certificate caCertificate = new JcaX509CertificateConverter().setProvider("BC").getCertificate(
+				builder.build(new JcaContentSignerBuilder("SHA256withECDSA").setProvider("BC").build(caKeyPair.getPrivate())));
+		ca = new LocalCa(caKeyPair.getPrivate(), caCertificate, null, Duration.ofHours(24));
+
+		final KeyPair keyPair = generator.generateKeyPair();
+		csr = new JcaPKCS10CertificationRequestBuilder(new X500Name("CN=agent-1,O=mcpki.org"), keyPair.getPublic())
+				.build(new JcaContentSignerBuilder("SHA256withECDSA").setProvider("BC").build(keyPair.getPrivate()));
+	}
+
+	@Test
+	public void testIssue() throws Exception
+	{
+		final X509Certificate certificate = ca.issue(csr, Duration.ofMinutes(30));
+		certificate.verify(ca.getCaCertificate().getPublicKey(), "BC");
+		assertEquals("CN=agent-1,O=mcpki.org", certificate.getSubjectX500Principal().getName(), "Wrong subject.");
+		assertEquals(40, certificate.getSerialNumber().toString(16).length(), "Serial number is not 40 hex digits.");
+		assertEquals(-1, certificate.getBasicConstraints(), "Certificate must not be a CA.");
+		assertTrue(certificate.getKeyUsage()[0], "Missing digital signature key usage.");
+		assertFalse(certificate.getKeyUsage()[2], "Key encipherment set for an EC key.");
+	}
+
+	@Test
+	public void testPolicy() throws Exception
+	{
+		final IssuancePolicy policy = new IssuancePolicy("CN={username},O=mcpki\\.org", List.of("mcpki.org"));
+		assertNull(policy.check(csr, "agent-1"), "Own subject rejected.");
+		assertNotNull(policy.check(csr, "agent-2"), "Subject of another end entity allowed.");
+		assertNotNull(new IssuancePolicy("", List.of()).check(csr, "agent-1"), "Unconfigured policy allows.");
+
+		assertNull(policy.check(csrWithSan(new GeneralName(GeneralName.dNSName, "agent-1.mcpki.org")), "agent-1"),
+				"Subdomain rejected.");
+		assertNull(policy.check(csrWithSan(new GeneralName(GeneralName.dNSName, "*.mcpki.org")), "agent-1"),
+				"Wildcard of allowed domain rejected.");
+		assertNotNull(policy.check(csrWithSan(new GeneralName(GeneralName.dNSName, "evilmcpki.org")), "agent-1"),
+				"Foreign domain allowed.");
+		assertNotNull(policy.check(csrWithSan(new GeneralName(GeneralName.dNSName, "mcpki.org.evil.com")), "agent-1"),
+				"Foreign domain allowed.");
+		assertNotNull(policy.check(csrWithSan(new GeneralName(GeneralName.iPAddress, "10.0.0.1")), "agent-1"),
+				"IP address allowed.");
+	}
+
+	private static PKCS10CertificationRequest csrWithSan(final GeneralName name) throws Exception
+	{
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", "BC");
+		generator.initialize(256);
+		final KeyPair keyPair = generator.generateKeyPair();
+		final ExtensionsGenerator extensions = new ExtensionsGenerator();
+		extensions.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(name));
+		return new JcaPKCS10CertificationRequestBuilder(new X500Name("CN=agent-1,O=mcpki.org"), keyPair.getPublic())
+				.addAttribute(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest, extensions.generate())
+				.build(new JcaContentSignerBuilder("SHA256withECDSA").setProvider("BC").build(keyPair.getPrivate()));
+	}
+
+	@Test
+	public void testValidityCapped() throws Exception
+	{
+		final X509Certificate certificate = ca.issue(csr, Duration.ofDays(365));
+		assertTrue(certificate.getNotAfter().toInstant().isBefore(Instant.now().plus(Duration.ofHours(25))),
+				"Validity not capped.");
+	}
+
+	/**
+	 * Signing throughput and latency, run with -Dbenchmark=true.
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	public void benchmarkIssue() throws Exception
+	{
+		final int warmUp = 2000;
+		final int count = 10000;
+		for (int i = 0; i < warmUp; i++) {
+			ca.issue(csr, Duration.ofMinutes(30));
+		}
+
+		final long[] latencies = new long[count];
+		final long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			final long t = System.nanoTime();
+			ca.issue(csr, Duration.ofMinutes(30));
+			latencies[i] = System.nanoTime() - t;
+		}
+		final long elapsed = System.nanoTime() - start;
+		Arrays.sort(latencies);
+
+		log.info("Local CA ({}): {} certificates/s, p50 {} us, p99 {} us, p999 {} us.", ca.getSignatureAlgorithm(),
+				Math.round(count * 1e9 / elapsed), latencies[count / 2] / 1000, latencies[count * 99 / 100] / 1000,
+				latencies[count * 999 / 1000] / 1000);
+	}
+}
@@ -0,0 +1,143 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.pki;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.mcpki.server.pki.ChainValidator.Result;
+
+public class ChainValidatorTest {
+
+	private static final X500Name ROOT = new X500Name("CN=mcpki-test-root-ca,O=mcpki.org");
+
+	private static KeyPair rootKeyPair;
+
+	private static X509Certificate root;
+
+	private static X509Certificate leaf;
+
+	@BeforeAll
+	public static void setUp() throws Exception
+	{
+		Security.addProvider(new BouncyCastleProvider());
+
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", "BC");
+		generator.initialize(256);
+		rootKeyPair = generator.generateKeyPair();
+		root = certificate(ROOT, ROOT, BigInteger.ONE, rootKeyPair.getPublic(), rootKeyPair.getPrivate(), true);
+		leaf = certificate(new X500Name("CN=www.mcpki.org,O=mcpki.org"), ROOT, BigInteger.TWO,
+				generator.generateKeyPair().getPublic(), rootKeyPair.getPrivate(), false);
+	}
+
+	private static X509Certificate certificate(final X500Name subject, final X500Name issuer, final BigInteger serial,
+			final PublicKey key, final PrivateKey signer, final boolean ca) throws Exception
+	{
+		final Instant now = Instant.now();
+		final JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(issuer, serial,
+				Date.from(now.minusSeconds(60)), Date.from(now.plus(Duration.ofDays(30))), subject, key);
+		if (ca) {
+			builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(0));
+			builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+		}
+		return new JcaX509CertificateConverter().setProvider("BC").getCertificate(
+				builder.build(new JcaContentSignerBuilder("SHA256withECDSA").setProvider("BC").build(signer)));
+	}
+
+	private static X509CRL crl(final BigInteger... revoked) throws Exception
+	{
+		final Date now = new Date();
+		final X509v2CRLBuilder builder = new X509v2CRLBuilder(ROOT, now);
+		builder.setNextUpdate(new Date(now.getTime() + Duration.ofDays(1).toMillis()));
+		for (final BigInteger serial : revoked) {
+			builder.addCRLEntry(serial, new Date(now.getTime() - 1000), CRLReason.keyCompromise);
+		}
+		return new JcaX509CRLConverter().setProvider("BC").getCRL(builder.build(
+				new JcaContentSignerBuilder("SHA256withECDSA").setProvider("BC").build(rootKeyPair.getPrivate())));
+	}
+
+	@Test
+	public void testValidPathAndCache()
+	{
+		final VerificationCache cache = new VerificationCache(100);
+		final ChainValidator validator = new ChainValidator(cache, 8);
+
+		final Result result = validator.validate(leaf, List.of(root), null, new Date());
+		assertTrue(result.valid(), "Path invalid: " + result.errors());
+		assertEquals(List.of(leaf, root), result.path(), "Wrong path.");
+
+		final long misses = cache.misses();
+		assertTrue(validator.validate(leaf, List.of(root), null, new Date()).valid(), "Cached path invalid.");
+		assertEquals(misses, cache.misses(), "Signatures verified again.");
+		assertTrue(cache.hits() > 0, "No cache hits.");
+	}
+
+	@Test
+	public void testRevocation() throws Exception
+	{
+		final ChainValidator validator = new ChainValidator(new VerificationCache(100), 8);
+		final X509CRL good = crl();
+		final X509CRL revoked = crl(leaf.getSerialNumber());
+
+		assertTrue(validator.validate(leaf, List.of(root), issuer -> good, new Date()).valid(), "Not revoked.");
+		final Result result = validator.validate(leaf, List.of(root), issuer -> revoked, new Date());
+		assertEquals(false, result.valid(), "Revocation not detected.");
+		assertEquals(false, validator.validate(leaf, List.of(root), issuer -> null, new Date()).valid(),
+				"Missing CRL accepted.");
+	}
+
+	@Test
+	public void testNoTrustAnchor()
+	{
+		final Result result = new ChainValidator(new VerificationCache(100), 8).validate(leaf, List.of(), null,
+				new Date());
+		assertEquals(false, result.valid(), "Path without anchor accepted.");
+		assertEquals(List.of(), result.path(), "Path not empty.");
+	}
+}
@@ -0,0 +1,128 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.pki;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Date;
+import java.util.List;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.TBSCertList;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.asn1.x509.V2TBSCertListGenerator;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.junit.jupiter.api.Test;
+
+import com.mcpki.server.pki.StreamingCrlParser.CrlSummary;
+import com.mcpki.server.pki.StreamingCrlParser.Entry;
+
+public class StreamingCrlParserTest {
+
+	private static final long THIS_UPDATE = 1_750_000_000_000L;
+
+	@Test
+	public void testSummary() throws Exception
+	{
+		final CrlSummary summary = StreamingCrlParser.summarize(new ByteArrayInputStream(crl(1000)), 3);
+
+		assertEquals("CN=Test CA,O=mcpki.org", summary.issuer_dn(), "Wrong issuer.");
+		assertEquals(new Date(THIS_UPDATE), summary.this_update(), "Wrong this update.");
+		assertEquals(new Date(THIS_UPDATE + 86_400_000L), summary.next_update(), "Wrong next update.");
+		assertEquals("2A", summary.crl_number(), "Wrong CRL number.");
+		assertEquals(1000, summary.entry_count(), "Wrong entry count.");
+		assertEquals(500L, summary.reasons().get("keyCompromise"), "Wrong reason count.");
+		assertEquals(500L, summary.reasons().get("unspecified"), "Wrong reason count.");
+		assertEquals(3, summary.newest_entries().size(), "Wrong number of newest entries.");
+		assertEquals("3E7", summary.newest_entries().get(0).serial_number(), "Newest entry not first.");
+		assertEquals("3E5", summary.newest_entries().get(2).serial_number(), "Wrong newest entry.");
+	}
+
+	@Test
+	public void testEntriesPage() throws Exception
+	{
+		final byte[] crl = crl(20);
+		final List<Entry> page = StreamingCrlParser.entries(new ByteArrayInputStream(crl), 10, 5);
+		assertEquals(6, page.size(), "Page does not indicate more entries.");
+		assertEquals("A", page.get(0).serial_number(), "Wrong first entry.");
+		assertEquals(5, StreamingCrlParser.entries(new ByteArrayInputStream(crl), 15, 5).size(), "Wrong last page.");
+		assertEquals(0, StreamingCrlParser.entries(new ByteArrayInputStream(crl(0)), 0, 5).size(), "Entries in empty CRL.");
+	}
+
+	@Test
+	public void testMalformed()
+	{
+		assertThrows(IOException.class,
+				() -> StreamingCrlParser.summarize(new ByteArrayInputStream(new byte[] { 0x30, 0x03, 0x02, 0x01 }), 1),
+				"Malformed CRL accepted.");
+	}
+
+	/**
+	 * Returns a signed CRL; every second entry has the reason key compromise.
+	 */
+	private static byte[] crl(final int entries) throws IOException, GeneralSecurityException
+	{
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(256);
+		final KeyPair keyPair = generator.generateKeyPair();
+		final AlgorithmIdentifier algorithm = new AlgorithmIdentifier(X9ObjectIdentifiers.ecdsa_with_SHA256);
+
+		final V2TBSCertListGenerator tbsGenerator = new V2TBSCertListGenerator();
+		tbsGenerator.setSignature(algorithm);
+		tbsGenerator.setIssuer(new X500Name("CN=Test CA,O=mcpki.org"));
+		tbsGenerator.setThisUpdate(new Time(new Date(THIS_UPDATE)));
+		tbsGenerator.setNextUpdate(new Time(new Date(THIS_UPDATE + 86_400_000L)));
+		for (int i = 0; i < entries; i++) {
+			tbsGenerator.addCRLEntry(new ASN1Integer(i), new Time(new Date(THIS_UPDATE - (entries - i) * 1000L)),
+					i % 2 == 0 ? CRLReason.keyCompromise : 0);
+		}
+		tbsGenerator.setExtensions(
+				new Extensions(new Extension(Extension.cRLNumber, false, new ASN1Integer(42).getEncoded())));
+		final TBSCertList tbs = tbsGenerator.generateTBSCertList();
+
+		final Signature signature = Signature.getInstance("SHA256withECDSA");
+		signature.initSign(keyPair.getPrivate());
+		signature.update(tbs.getEncoded(ASN1Encoding.DER));
+
+		final ASN1EncodableVector crl = new ASN1EncodableVector();
+		crl.add(tbs);
+		crl.add(algorithm);
+		crl.add(new DERBitString(signature.sign()));
+		return new DERSequence(crl).getEncoded(ASN1Encoding.DER);
+	}
+}
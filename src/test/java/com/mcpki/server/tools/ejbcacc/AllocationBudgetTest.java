@@ -0,0 +1,237 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.tools.ejbcacc;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.mcpki.server.McpServerApplication;
+import com.mcpki.server.ejbca.MockEjbca;
+import com.mcpki.server.tools.pki.ParseCertificate;
+import com.mcpki.server.tools.pki.ValidateCertificateChain;
+import com.mcpki.server.util.AllocationMeter;
+import com.mcpki.server.util.PemUtil;
+
+/**
+ * Checks the bytes allocated per call of each tool's hot path against the
+ * budgets in allocation-budgets.properties. The tools run in-process against
+ * the EJBCA stand-in without latency, so the measurement covers validation,
+ * the REST client, JSON mapping and the response, but not the MCP transport.
+ * The tool result cache, the stale-while-revalidate caches, the persistent
+ * cache and the CRL spool are disabled, so each call takes the uncached path.
+ * The tool budgets are not yet calibrated from real runs, so the test only
+ * runs with -Dbenchmark=true.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class AllocationBudgetTest {
+
+	private static final int WARMUP = 50;
+
+	private static final int CALLS = 100;
+
+	private static final String PASSWORD = "Alloc-Test-Pwd-1";
+
+	@TempDir
+	static Path directory;
+
+	private static MockEjbca ejbca;
+
+	private static ConfigurableApplicationContext context;
+
+	private static String caDn;
+
+	private static String caPem;
+
+	private static String csr;
+
+	@BeforeAll
+	public static void start() throws Exception
+	{
+		Security.addProvider(new BouncyCastleProvider());
+		ejbca = new MockEjbca(new MockEjbca.Settings(0, 0, 0, 0d, 200, "mcpki-alloc"));
+		ejbca.start();
+		final List<String> arguments = new ArrayList<>(List.of("--spring.profiles.active=github-build",
+				"--server.port=0", "--logging.file.name=" + directory.resolve("mcpki-server.log"),
+				"--com.mcpki.server.tools.admission.enabled=false", "--com.mcpki.server.cache.tool.enabled=false",
+				"--com.mcpki.server.cache.persistent.enabled=false",
+				"--com.mcpki.server.tools.ejbca.GetAvailableCas.cache.soft.ttl.seconds=0",
+				"--com.mcpki.server.tools.ejbca.GetAvailableCas.cache.hard.ttl.seconds=0",
+				"--com.mcpki.server.tools.ejbca.GetCertificateProfile.cache.soft.ttl.seconds=0",
+				"--com.mcpki.server.tools.ejbca.GetCertificateProfile.cache.hard.ttl.seconds=0",
+				"--com.mcpki.server.tools.ejbca.GetCrlSummary.spool.ttl.seconds=0"));
+		arguments.addAll(List.of(ejbca.serverArguments(directory)));
+		context = new SpringApplication(McpServerApplication.class).run(arguments.toArray(new String[0]));
+
+		caDn = ejbca.caName();
+		caPem = PemUtil.toPemCertificate(Base64.getEncoder().encodeToString(ejbca.caCertificate().getEncoded()));
+
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(256);
+		final KeyPair keyPair = generator.generateKeyPair();
+		final byte[] der = new JcaPKCS10CertificationRequestBuilder(new X500Name("CN=alloc.mcpki.org,O=mcpki.org"),
+				keyPair.getPublic()).build(new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate()))
+				.getEncoded();
+		csr = "-----BEGIN CERTIFICATE REQUEST-----\n" + Base64.getMimeEncoder(64, new byte[] { '\n' }).encodeToString(der)
+				+ "\n-----END CERTIFICATE REQUEST-----";
+	}
+
+	@AfterAll
+	public static void stop()
+	{
+		if (context != null) {
+			context.close();
+		}
+		if (ejbca != null) {
+			ejbca.close();
+		}
+	}
+
+	@Test
+	public void testGetAvailableCas()
+	{
+		final GetAvailableCas tool = context.getBean(GetAvailableCas.class);
+		AllocationMeter.assertWithinBudget("tool.get_available_cas", WARMUP, CALLS, i -> tool.ejbca_getCas(false, null));
+	}
+
+	@Test
+	public void testGetCaCertificate()
+	{
+		final GetCaCertificate tool = context.getBean(GetCaCertificate.class);
+		AllocationMeter.assertWithinBudget("tool.get_ca_certificate", WARMUP, CALLS,
+				i -> tool.ejbca_getCaCertificate(caDn, null));
+	}
+
+	@Test
+	public void testGetLatestCrl()
+	{
+		final GetLatestCrl tool = context.getBean(GetLatestCrl.class);
+		AllocationMeter.assertWithinBudget("tool.get_latest_crl", WARMUP, CALLS, i -> tool.ejbca_getLatestCrl(caDn, null));
+	}
+
+	@Test
+	public void testGetCrlSummary()
+	{
+		final GetCrlSummary tool = context.getBean(GetCrlSummary.class);
+		AllocationMeter.assertWithinBudget("tool.get_crl_summary", WARMUP, CALLS,
+				i -> tool.ejbca_getCrlSummary(caDn, null, null, null, null));
+	}
+
+	@Test
+	public void testCreateCrl()
+	{
+		final CreateCrl tool = context.getBean(CreateCrl.class);
+		AllocationMeter.assertWithinBudget("tool.create_crl", WARMUP, CALLS, i -> tool.ejbca_createCrl(caDn, null));
+	}
+
+	@Test
+	public void testGetCountCertificates()
+	{
+		final GetCountCertificates tool = context.getBean(GetCountCertificates.class);
+		AllocationMeter.assertWithinBudget("tool.get_count_certificates", WARMUP, CALLS,
+				i -> tool.ejbca_getCountCertificates(false, null, null, null));
+	}
+
+	@Test
+	public void testGetCertificateProfile()
+	{
+		final GetCertificateProfile tool = context.getBean(GetCertificateProfile.class);
+		AllocationMeter.assertWithinBudget("tool.get_certificate_profile", WARMUP, CALLS,
+				i -> tool.ejbca_getCertificateProfile(MockEjbca.PROFILE, null, null, null));
+	}
+
+	@Test
+	public void testGetCertificatesAboutToExpire()
+	{
+		final GetCertificatesAboutToExpire tool = context.getBean(GetCertificatesAboutToExpire.class);
+		AllocationMeter.assertWithinBudget("tool.get_certificates_about_to_expire", WARMUP, CALLS,
+				i -> tool.ejbca_getCertificatesAboutToExpire(30, 0, 100, null, null, null, null));
+	}
+
+	@Test
+	public void testEnrollCertificateWithCsr()
+	{
+		final EnrollCertificateWithCsr tool = context.getBean(EnrollCertificateWithCsr.class);
+		AllocationMeter.assertWithinBudget("tool.enroll_certificate_with_csr", WARMUP, CALLS,
+				i -> tool.ejbca_enrollPkcs10(csr, MockEjbca.PROFILE, MockEjbca.PROFILE, "mcpki-mock-ca", "alloc-csr-" + i,
+						PASSWORD, "alloc-csr-" + i + "@mcpki.org", null));
+	}
+
+	@Test
+	public void testEnrollCertificateWithServerKey()
+	{
+		final EnrollCertificateWithServerKey tool = context.getBean(EnrollCertificateWithServerKey.class);
+		AllocationMeter.assertWithinBudget("tool.enroll_certificate_with_server_key", WARMUP, CALLS,
+				i -> tool.ejbca_enrollWithServerKey("P-256", "CN=alloc-key-" + i + ",O=mcpki.org", MockEjbca.PROFILE,
+						MockEjbca.PROFILE, "mcpki-mock-ca", "alloc-key-" + i, PASSWORD, "alloc-key-" + i + "@mcpki.org",
+						null));
+	}
+
+	@Test
+	public void testRevokeCertificate()
+	{
+		final EnrollCertificateWithCsr enroll = context.getBean(EnrollCertificateWithCsr.class);
+		final String[] serials = new String[WARMUP + CALLS];
+		for (int i = 0; i < serials.length; i++) {
+			serials[i] = enroll.ejbca_enrollPkcs10(csr, MockEjbca.PROFILE, MockEjbca.PROFILE, "mcpki-mock-ca",
+					"alloc-rev-" + i, PASSWORD, "alloc-rev-" + i + "@mcpki.org", null).serial_number();
+			assertNotNull(serials[i], "No serial number of enrolled certificate.");
+		}
+		final RevokeCertificate tool = context.getBean(RevokeCertificate.class);
+		AllocationMeter.assertWithinBudget("tool.revoke_certificate", WARMUP, CALLS,
+				i -> tool.ejbca_revokeCertificate(caDn, serials[i], PASSWORD, "KEY_COMPROMISE", null));
+	}
+
+	@Test
+	public void testParseCertificate()
+	{
+		final ParseCertificate tool = context.getBean(ParseCertificate.class);
+		AllocationMeter.assertWithinBudget("tool.parse_certificate", WARMUP, CALLS,
+				i -> tool.pki_parseCertificate(caPem, null));
+	}
+
+	@Test
+	public void testValidateCertificateChain()
+	{
+		final ValidateCertificateChain tool = context.getBean(ValidateCertificateChain.class);
+		AllocationMeter.assertWithinBudget("tool.validate_certificate_chain", WARMUP, CALLS,
+				i -> tool.pki_validateCertificateChain(caPem, false, null));
+	}
+}
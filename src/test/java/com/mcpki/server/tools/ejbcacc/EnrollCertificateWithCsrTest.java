@@ -0,0 +1,127 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.tools.ejbcacc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.mcpki.server.McpServerApplication;
+import com.mcpki.server.ejbca.MockEjbca;
+import com.mcpki.server.tools.ejbcacc.EnrollCertificateWithCsr.EnrollCertificateWithCsrResponse;
+
+/**
+ * Round trip of the typed PKCS#10 enrollment request and response against the
+ * EJBCA stand-in.
+ */
+public class EnrollCertificateWithCsrTest {
+
+	private static final String PASSWORD = "Round-Trip-Pwd-1";
+
+	@TempDir
+	static Path directory;
+
+	private static MockEjbca ejbca;
+
+	private static ConfigurableApplicationContext context;
+
+	@BeforeAll
+	public static void start() throws Exception
+	{
+		Security.addProvider(new BouncyCastleProvider());
+		ejbca = new MockEjbca(new MockEjbca.Settings(0, 0, 0, 0d, 1, "mcpki-enroll"));
+		ejbca.start();
+		final List<String> arguments = new ArrayList<>(List.of("--spring.profiles.active=github-build",
+				"--server.port=0", "--logging.file.name=" + directory.resolve("mcpki-server.log"),
+				"--com.mcpki.server.tools.admission.enabled=false", "--com.mcpki.server.warmup.enabled=false"));
+		arguments.addAll(List.of(ejbca.serverArguments(directory)));
+		context = new SpringApplication(McpServerApplication.class).run(arguments.toArray(new String[0]));
+	}
+
+	@AfterAll
+	public static void stop()
+	{
+		if (context != null) {
+			context.close();
+		}
+		if (ejbca != null) {
+			ejbca.close();
+		}
+	}
+
+	@Test
+	public void testEnrollRoundTrip() throws Exception
+	{
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(256);
+		final KeyPair keyPair = generator.generateKeyPair();
+		final byte[] der = new JcaPKCS10CertificationRequestBuilder(
+				new X500Name("CN=round-trip.mcpki.org,O=mcpki.org"), keyPair.getPublic())
+				.build(new JcaContentSignerBuilder("SHA256withECDSA").build(keyPair.getPrivate())).getEncoded();
+		final String csr = "-----BEGIN CERTIFICATE REQUEST-----\n"
+				+ Base64.getMimeEncoder(64, new byte[] { '\n' }).encodeToString(der)
+				+ "\n-----END CERTIFICATE REQUEST-----";
+
+		final EnrollCertificateWithCsrResponse response = context.getBean(EnrollCertificateWithCsr.class)
+				.ejbca_enrollPkcs10(csr, MockEjbca.PROFILE, MockEjbca.PROFILE, "mcpki-mock-ca", "round-trip",
+						PASSWORD, "round-trip@mcpki.org", null);
+		assertNull(response.error_message(), "Enrollment failed: " + response.error_message());
+		assertNotNull(response.serial_number(), "Serial number not mapped.");
+		assertTrue(response.certificate().startsWith("-----BEGIN CERTIFICATE-----"), "Certificate not mapped.");
+
+		final JSONObject request = ejbca.lastBody("/v1/certificate/pkcs10enroll");
+		assertNotNull(request, "No enrollment request received.");
+		assertEquals(Set.of("certificate_request", "certificate_profile_name", "end_entity_profile_name",
+				"certificate_authority_name", "username", "password", "include_chain", "email"), request.keySet(),
+				"Wrong request fields.");
+		assertEquals(csr, request.get("certificate_request"), "Wrong CSR.");
+		assertEquals(MockEjbca.PROFILE, request.get("certificate_profile_name"), "Wrong certificate profile.");
+		assertEquals(MockEjbca.PROFILE, request.get("end_entity_profile_name"), "Wrong end entity profile.");
+		assertEquals("mcpki-mock-ca", request.get("certificate_authority_name"), "Wrong CA.");
+		assertEquals("round-trip", request.get("username"), "Wrong username.");
+		assertEquals(PASSWORD, request.get("password"), "Wrong password.");
+		assertEquals(Boolean.FALSE, request.get("include_chain"), "include_chain is not a boolean.");
+		assertEquals("round-trip@mcpki.org", request.get("email"), "Wrong e-mail address.");
+	}
+}
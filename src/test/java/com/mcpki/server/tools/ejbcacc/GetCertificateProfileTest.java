@@ -0,0 +1,46 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.tools.ejbcacc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.jupiter.api.Test;
+
+public class GetCertificateProfileTest {
+
+	@Test
+	public void testMarkStale() throws Exception
+	{
+		assertEquals("{\"stale\":true}", GetCertificateProfile.markStale("{}"), "Empty profile not marked.");
+		assertEquals(" {\"stale\":true,\"validity\":\"1y\"}", GetCertificateProfile.markStale(" {\"validity\":\"1y\"}"),
+				"Profile not marked.");
+		assertEquals("[]", GetCertificateProfile.markStale("[]"), "Non-object marked.");
+
+		final String marked = GetCertificateProfile.markStale("{\"stale\":false,\"validity\":\"1y\"}");
+		final JSONObject json = (JSONObject) new JSONParser().parse(marked);
+		assertEquals(Boolean.TRUE, json.get("stale"), "Existing stale field not replaced.");
+		assertEquals(2, json.size(), "Stale field duplicated.");
+		assertEquals(1, marked.split("\"stale\"", -1).length - 1, "Stale field duplicated.");
+	}
+}
@@ -0,0 +1,175 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.tools.localca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.Security;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.mcpki.server.McpServerApplication;
+import com.mcpki.server.audit.AuditJournal;
+import com.mcpki.server.audit.AuditRecord;
+import com.mcpki.server.ejbca.MockEjbca;
+import com.mcpki.server.tools.localca.EnrollShortLivedCertificate.EnrollShortLivedCertificateResponse;
+import com.mcpki.server.util.CanonicalDn;
+
+/**
+ * Short-lived certificates of the local CA are recorded in the audit journal
+ * like EJBCA enrollments.
+ */
+public class EnrollShortLivedCertificateTest {
+
+	private static final String CA_NAME = "CN=mcpki-test-sub-ca,O=mcpki.org";
+
+	private static final String PASSWORD = "Local-Ca-Pwd-1";
+
+	@TempDir
+	static Path directory;
+
+	private static MockEjbca ejbca;
+
+	private static ConfigurableApplicationContext context;
+
+	@BeforeAll
+	public static void start() throws Exception
+	{
+		Security.addProvider(new BouncyCastleProvider());
+		ejbca = new MockEjbca(new MockEjbca.Settings(0, 0, 0, 0d, 1, "mcpki-localca"));
+		ejbca.start();
+		final Path keystore = directory.resolve("localca.p12");
+		writeCaKeyStore(keystore);
+
+		final List<String> arguments = new ArrayList<>(List.of("--spring.profiles.active=github-build",
+				"--server.port=0", "--logging.file.name=" + directory.resolve("mcpki-server.log"),
+				"--com.mcpki.server.tools.admission.enabled=false", "--com.mcpki.server.warmup.enabled=false",
+				"--com.mcpki.server.tools.localca.EnrollShortLivedCertificate=true",
+				"--com.mcpki.server.tools.localca.keystore=" + keystore,
+				"--com.mcpki.server.tools.localca.keystorepwd=" + PASSWORD,
+				"--com.mcpki.server.tools.localca.alias=ca",
+				"--com.mcpki.server.tools.localca.journal=" + directory.resolve("mcpki-localca.journal"),
+				"--com.mcpki.server.audit.enabled=true",
+				"--com.mcpki.server.audit.directory=" + directory.resolve("mcpki-audit")));
+		arguments.addAll(List.of(ejbca.serverArguments(directory)));
+		context = new SpringApplication(McpServerApplication.class).run(arguments.toArray(new String[0]));
+	}
+
+	@AfterAll
+	public static void stop()
+	{
+		if (context != null) {
+			context.close();
+		}
+		if (ejbca != null) {
+			ejbca.close();
+		}
+	}
+
+	private static void writeCaKeyStore(final Path keystore) throws Exception
+	{
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", "BC");
+		generator.initialize(256);
+		final KeyPair keyPair = generator.generateKeyPair();
+		final X500Name name = new X500Name(CA_NAME);
+		final Instant now = Instant.now();
+		final JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name, BigInteger.ONE,
+				Date.from(now.minusSeconds(60)), Date.from(now.plus(Duration.ofDays(30))), name, keyPair.getPublic());
+		builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(0));
+		final X509Certificate certificate = new JcaX509CertificateConverter().setProvider("BC").getCertificate(
+				builder.build(new JcaContentSignerBuilder("SHA256withECDSA").setProvider("BC").build(keyPair.getPrivate())));
+
+		final KeyStore store = KeyStore.getInstance("PKCS12", "BC");
+		store.load(null, null);
+		store.setKeyEntry("ca", keyPair.getPrivate(), PASSWORD.toCharArray(), new Certificate[] { certificate });
+		try (OutputStream out = Files.newOutputStream(keystore)) {
+			store.store(out, PASSWORD.toCharArray());
+		}
+	}
+
+	private static String csr(final String subject) throws Exception
+	{
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", "BC");
+		generator.initialize(256);
+		final KeyPair keyPair = generator.generateKeyPair();
+		final byte[] der = new JcaPKCS10CertificationRequestBuilder(new X500Name(subject), keyPair.getPublic())
+				.build(new JcaContentSignerBuilder("SHA256withECDSA").setProvider("BC").build(keyPair.getPrivate()))
+				.getEncoded();
+		return "-----BEGIN CERTIFICATE REQUEST-----\n" + Base64.getMimeEncoder(64, new byte[] { '\n' }).encodeToString(der)
+				+ "\n-----END CERTIFICATE REQUEST-----";
+	}
+
+	@Test
+	public void testIssuedCertificateAudited() throws Exception
+	{
+		final EnrollShortLivedCertificate tool = context.getBean(EnrollShortLivedCertificate.class);
+		final EnrollShortLivedCertificateResponse response = tool
+				.localca_enrollShortLived(csr("CN=agent-1,O=mcpki.org"), 30, "agent-1", null);
+		assertNull(response.error_message(), "Enrollment failed.");
+		assertNotNull(response.serial_number(), "No serial number.");
+
+		// The journal writes in the background.
+		final AuditJournal journal = context.getBean(AuditJournal.class);
+		List<AuditRecord> records = List.of();
+		for (int i = 0; i < 500 && records.isEmpty(); i++) {
+			records = journal.read(0, 10, record -> response.serial_number().equals(record.serial_number()));
+			if (records.isEmpty()) {
+				Thread.sleep(10);
+			}
+		}
+		assertEquals(1, records.size(), "Issued certificate not audited.");
+		final AuditRecord record = records.get(0);
+		assertEquals("ISSUE", record.action(), "Wrong action.");
+		assertEquals(CanonicalDn.of(CA_NAME).name(), record.issuer_dn(), "Wrong issuer.");
+		assertEquals("agent-1", record.username(), "Wrong end entity.");
+	}
+}
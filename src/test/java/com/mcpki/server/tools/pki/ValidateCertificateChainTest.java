@@ -0,0 +1,125 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.tools.pki;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.mcpki.server.McpServerApplication;
+import com.mcpki.server.ejbca.MockEjbca;
+import com.mcpki.server.tools.ejbcacc.GetCaCertificate;
+import com.mcpki.server.tools.ejbcacc.GetCaCertificate.GetCaCertificateResponse;
+import com.mcpki.server.tools.pki.ValidateCertificateChain.ValidateCertificateChainResponse;
+import com.mcpki.server.util.CanonicalDn;
+import com.mcpki.server.util.PemUtil;
+
+/**
+ * Validates certificates while EJBCA is not reachable: the EJBCA stand-in is
+ * stopped before the server starts.
+ */
+public class ValidateCertificateChainTest {
+
+	private static final String ISSUER = "CN=mcpki-unreachable-ca,O=mcpki.org";
+
+	@TempDir
+	static Path directory;
+
+	private static ConfigurableApplicationContext context;
+
+	private static String leaf;
+
+	@BeforeAll
+	public static void start() throws Exception
+	{
+		Security.addProvider(new BouncyCastleProvider());
+		final MockEjbca ejbca = new MockEjbca(new MockEjbca.Settings(0, 0, 0, 0d, 1, "mcpki-down"));
+		ejbca.start();
+		final List<String> arguments = new ArrayList<>(List.of("--spring.profiles.active=github-build",
+				"--server.port=0", "--logging.file.name=" + directory.resolve("mcpki-server.log"),
+				"--com.mcpki.server.tools.admission.enabled=false", "--com.mcpki.server.warmup.enabled=false",
+				"--com.mcpki.server.tools.ejbca.rest.retry.backoff.ms=1"));
+		arguments.addAll(List.of(ejbca.serverArguments(directory)));
+		ejbca.close();
+		context = new SpringApplication(McpServerApplication.class).run(arguments.toArray(new String[0]));
+
+		final KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(256);
+		final KeyPair caKeyPair = generator.generateKeyPair();
+		final KeyPair keyPair = generator.generateKeyPair();
+		final Instant now = Instant.now();
+		final byte[] der = new JcaX509v3CertificateBuilder(new X500Name(ISSUER), BigInteger.TEN,
+				Date.from(now.minusSeconds(60)), Date.from(now.plus(Duration.ofDays(1))),
+				new X500Name("CN=www.mcpki.org,O=mcpki.org"), keyPair.getPublic())
+				.build(new JcaContentSignerBuilder("SHA256withECDSA").build(caKeyPair.getPrivate())).getEncoded();
+		leaf = PemUtil.toPemCertificate(Base64.getEncoder().encodeToString(der));
+	}
+
+	@AfterAll
+	public static void stop()
+	{
+		if (context != null) {
+			context.close();
+		}
+	}
+
+	@Test
+	public void testCaChainNotAvailable()
+	{
+		final GetCaCertificateResponse chain = context.getBean(GetCaCertificate.class)
+				.caCertificate(CanonicalDn.of(ISSUER));
+		assertNull(chain.ca_chain(), "Error returned as CA chain.");
+		assertNotNull(chain.error_code(), "Missing error code.");
+		assertNotNull(chain.error_message(), "Missing error message.");
+
+		final ValidateCertificateChainResponse response = context.getBean(ValidateCertificateChain.class)
+				.pki_validateCertificateChain(leaf, false, null);
+		assertFalse(response.valid(), "Validated without CA chain.");
+		assertNull(response.path(), "Path without CA chain.");
+		assertTrue(response.error_message().contains("not available"),
+				"Wrong error message: " + response.error_message());
+	}
+}
@@ -0,0 +1,90 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.trace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TraceRecorderTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testShape() throws Exception
+	{
+		try (TraceRecorder recorder = new TraceRecorder(directory.resolve("trace.jsonl"), 16,
+				Set.of("issuer_dn", "get_ca_certificate.subject_dn"))) {
+			final Map<String, Object> password = recorder.shape("get_ca_certificate", "password", "Very-Secret-Pwd-1");
+			assertEquals(Map.of("type", "string", "redacted", true), password, "Password must be redacted.");
+
+			final Map<String, Object> dn = recorder.shape("get_ca_certificate", "issuer_dn",
+					"CN=mcpki-test-ca,O=mcpki.org");
+			assertEquals("CN=mcpki-test-ca,O=mcpki.org", dn.get("value"), "Listed value is missing.");
+			assertEquals("dn", dn.get("kind"), "Wrong kind.");
+
+			assertEquals("CN=mcpki-test-ca,O=mcpki.org",
+					recorder.shape("get_ca_certificate", "subject_dn", "CN=mcpki-test-ca,O=mcpki.org").get("value"),
+					"Value listed for the tool is missing.");
+			assertFalse(recorder.shape("enroll_certificate_with_server_key", "subject_dn", "CN=alice,O=mcpki.org")
+					.containsKey("value"), "Value listed for another tool must not be recorded.");
+
+			final Map<String, Object> username = recorder.shape("get_ca_certificate", "username", "alice");
+			assertFalse(username.containsKey("value"), "Unlisted value must not be recorded.");
+			assertEquals(5, username.get("length"), "Wrong length.");
+
+			assertEquals("csr",
+					recorder.shape("get_ca_certificate", "csr", "-----BEGIN CERTIFICATE REQUEST-----\nMII").get("kind"),
+					"Wrong kind.");
+			assertEquals(30L, recorder.shape("get_ca_certificate", "days", 30L).get("value"),
+					"Number value is missing.");
+		}
+	}
+
+	@Test
+	public void testRecord() throws Exception
+	{
+		final Path trace = directory.resolve("trace.jsonl");
+		try (TraceRecorder recorder = new TraceRecorder(trace, 16, Set.of())) {
+			recorder.record(new TraceRecorder.Binding("revoke_certificate", new String[] { "serial_number", "password" }),
+					new Object[] { "3317571EB0DF61426A1A6A380DB03C23A1266E8E", "Very-Secret-Pwd-1" },
+					System.currentTimeMillis(), 1_500_000L, "{}", null);
+		}
+		final List<String> lines = Files.readAllLines(trace, StandardCharsets.UTF_8);
+		assertEquals(1, lines.size(), "Wrong number of lines.");
+		assertTrue(lines.get(0).contains("\"tool\":\"revoke_certificate\""), "Tool is missing.");
+		assertTrue(lines.get(0).contains("\"kind\":\"hex\""), "Shape is missing.");
+		assertFalse(lines.get(0).contains("Very-Secret-Pwd-1"), "Password must not be recorded.");
+		assertFalse(lines.get(0).contains("3317571EB0DF"), "Serial number must not be recorded.");
+	}
+}
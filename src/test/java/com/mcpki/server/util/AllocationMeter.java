@@ -0,0 +1,104 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.function.IntConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the bytes allocated per call on the calling thread with the thread
+ * allocation counter and checks them against the budgets in
+ * allocation-budgets.properties (overridable with
+ * -Dallocation.budget.&lt;name&gt;=&lt;bytes&gt;).
+ */
+public final class AllocationMeter {
+
+	private static final Logger log = LoggerFactory.getLogger(AllocationMeter.class);
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	private static final Properties BUDGETS = new Properties();
+
+	static {
+		try (InputStream in = AllocationMeter.class.getResourceAsStream("/allocation-budgets.properties")) {
+			if (in != null) {
+				BUDGETS.load(in);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private AllocationMeter() {
+	}
+
+	/**
+	 * Returns the mean number of bytes allocated per call after the warm-up.
+	 *
+	 * @param warmup the number of calls before the measurement.
+	 * @param calls  the number of measured calls.
+	 * @param call   the call, with the call number.
+	 * @return the bytes per call.
+	 */
+	public static long bytesPerCall(final int warmup, final int calls, final IntConsumer call)
+	{
+		for (int i = 0; i < warmup; i++) {
+			call.accept(i);
+		}
+		final long before = THREADS.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < calls; i++) {
+			call.accept(warmup + i);
+		}
+		return (THREADS.getCurrentThreadAllocatedBytes() - before) / calls;
+	}
+
+	/**
+	 * Asserts that the mean number of bytes allocated per call is within the
+	 * budget.
+	 *
+	 * @param name   the budget name.
+	 * @param warmup the number of calls before the measurement.
+	 * @param calls  the number of measured calls.
+	 * @param call   the call, with the call number.
+	 */
+	public static void assertWithinBudget(final String name, final int warmup, final int calls,
+			final IntConsumer call)
+	{
+		final String budget = System.getProperty("allocation.budget." + name, BUDGETS.getProperty(name));
+		assertNotNull(budget, "No allocation budget for " + name + ".");
+		final long bytes = bytesPerCall(warmup, calls, call);
+		log.info("Allocation {}: {} bytes/call (budget {}).", name, bytes, budget);
+		assertTrue(bytes <= Long.parseLong(budget.trim()),
+				"Allocation of " + name + " " + bytes + " bytes/call exceeds the budget of " + budget + ".");
+	}
+}
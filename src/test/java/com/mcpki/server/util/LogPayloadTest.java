@@ -0,0 +1,40 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class LogPayloadTest {
+
+	@Test
+	public void testRender()
+	{
+		assertEquals("null", LogPayload.of(null).toString());
+		assertEquals("CN=test,O=mcpki.org", LogPayload.render("CN=test,O=mcpki.org", 32));
+		// Line breaks cannot start a forged log line.
+		assertEquals("a\\nb\\r\\tc\\u001b", LogPayload.render("a\nb\r\tc\u001b", 32));
+		assertEquals("-----BEGIN...(38 chars)", LogPayload.render("-----BEGIN CERTIFICATE-----\nMIIBzzCCAX", 10));
+		assertEquals("0123456789", LogPayload.render("0123456789", 10));
+	}
+}
@@ -72,4 +72,9 @@ public class PemUtilTest {
 	public void testToPemCrl() {
 		assertEquals(pemCrl, PemUtil.toPemCrl(base64Crl), "CRL does not match.");
 	}
+
+	@Test
+	public void testToPemAllocation() {
+		AllocationMeter.assertWithinBudget("pem.to_pem", 10_000, 10_000, i -> PemUtil.toPem(base64Certificate));
+	}
 }
@@ -0,0 +1,96 @@
+/*************************************************************************
+*																		 *
+* https://mcpki.org														 *
+* 																		 *
+* Copyright (C) 2025 A. Jakobs										 	 *
+* 																		 *
+* This program is free software: you can redistribute it and/or modify	 *
+* it under the terms of the GNU General Public License as published by	 *
+* the Free Software Foundation, either version 3 of the License, or		 *
+* (at your option) any later version.									 *
+* 																		 *
+* This program is distributed in the hope that it will be useful,		 *
+* but WITHOUT ANY WARRANTY; without even the implied warranty of		 *
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the			 *
+* GNU General Public License for more details.							 *
+* 																		 *
+* You should have received a copy of the GNU General Public License		 *
+* along with this program. If not, see <http://www.gnu.org/licenses/>.	 *
+* 																		 *
+*************************************************************************/
+
+package com.mcpki.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import com.mcpki.server.util.ResponseUtil.Page;
+
+import io.modelcontextprotocol.spec.McpError;
+
+public class ResponseUtilTest {
+
+	@Test
+	public void testProjection()
+	{
+		final List<String> fields = ResponseUtil.parseFields(" serial_number, subject_dn,serial_number ");
+		assertEquals(List.of("serial_number", "subject_dn"), fields, "Wrong fields.");
+
+		final JSONObject projected = ResponseUtil.project(
+				Map.of("serial_number", "01", "subject_dn", "CN=a", "certificate", "MIIB..."), fields);
+		assertEquals(2, projected.size(), "Field not removed.");
+		assertEquals("CN=a", projected.get("subject_dn"), "Field not kept.");
+
+		assertThrows(McpError.class, () -> ResponseUtil.parseFields("subject_dn,\"x\""), "Invalid field accepted.");
+		assertThrows(McpError.class, () -> ResponseUtil.isTable("csv"), "Invalid format accepted.");
+	}
+
+	@Test
+	public void testTableEncoding()
+	{
+		final List<Map<String, Object>> items = List.of(Map.of("a", 1, "b", "x"), Map.of("a", 2, "c", "z"));
+		final Page page = ResponseUtil.encodeList(items, List.of(), true, Integer.MAX_VALUE);
+		final JSONObject table = (JSONObject) page.value();
+
+		assertEquals(2, page.count(), "Wrong number of rows.");
+		assertEquals("[\"a\",\"b\",\"c\"]", ((JSONArray) table.get("columns")).toJSONString(), "Wrong columns.");
+		assertEquals("[[1,\"x\",null],[2,null,\"z\"]]", ((JSONArray) table.get("rows")).toJSONString(),
+				"Wrong rows.");
+	}
+
+	@Test
+	public void testTruncationAndCursor()
+	{
+		final List<Map<String, Object>> items = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			items.add(Map.of("n", i));
+		}
+		// [{"n":0},{"n":1}] fits into 20 bytes, a third item does not.
+		final Page page = ResponseUtil.encodeList(items, List.of(), false, 20);
+		assertEquals(2, page.count(), "Wrong number of items in budget.");
+		assertEquals(1, ResponseUtil.encodeList(items, List.of(), false, 1).count(), "First item not returned.");
+
+		final JSONObject object = new JSONObject(Map.of("a", "1", "b", "2", "c", "3"));
+		final Page fields = ResponseUtil.encodeObject(object, 1, Integer.MAX_VALUE);
+		assertEquals(2, fields.count(), "Wrong number of fields.");
+		assertEquals("2", ((JSONObject) fields.value()).get("b"), "Wrong first field.");
+
+		assertEquals(42, ResponseUtil.offset(ResponseUtil.cursor(42)), "Wrong cursor offset.");
+		assertThrows(McpError.class, () -> ResponseUtil.offset("bm9wZQ"), "Invalid cursor accepted.");
+		assertThrows(McpError.class, () -> ResponseUtil.offset("%%%"), "Invalid cursor accepted.");
+
+		assertEquals(42, ResponseUtil.offset(ResponseUtil.cursor(42, "1A"), "1A"), "Wrong versioned cursor offset.");
+		assertThrows(McpError.class, () -> ResponseUtil.offset(ResponseUtil.cursor(42, "1A"), "1B"),
+				"Cursor of another version accepted.");
+		assertThrows(McpError.class, () -> ResponseUtil.offset(ResponseUtil.cursor(42), "1A"),
+				"Cursor without version accepted.");
+	}
+}
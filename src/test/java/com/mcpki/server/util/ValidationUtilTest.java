@@ -23,6 +23,11 @@ package com.mcpki.server.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.Base64;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringBootConfiguration;
@@ -71,6 +76,49 @@ public class ValidationUtilTest {
 
 	private static final String dn = "CN=mcpki-rsa-sub-ca,O=mcpki.org";
 
+	/**
+	 * The regular expression isValidPemFormat replaced, as reference.
+	 */
+	private static final Pattern PEM_PATTERN = Pattern.compile(
+			"-----BEGIN ([A-Z0-9 ]+)-----\\s+([a-zA-Z0-9+/=\\r\\n]+)\\s+-----END \\1-----\\s*", Pattern.MULTILINE);
+
+	private static final String BODY = "MIIBzzCCAXSgAwIBAgIUNC7R0e0m9L5ogZPueUcGQc6vAF4wCgYIKoZIzj0EAwIw";
+
+	// @formatter:off
+
+	/**
+	 * PEM strings and whether they are valid.
+	 */
+	private static final Object[][] PEM_CASES = {
+		{ "-----BEGIN CERTIFICATE-----\n" + BODY + "\n-----END CERTIFICATE-----", true },
+		{ "-----BEGIN CERTIFICATE-----\r\n" + BODY + "\r\n-----END CERTIFICATE-----\r\n", true },
+		{ "  -----BEGIN CERTIFICATE-----\\n" + BODY + "\\n-----END CERTIFICATE-----\\n", true },
+		{ "-----BEGIN CERTIFICATE-----\n" + BODY.substring(0, 32) + "\\n" + BODY.substring(32) + "\n-----END CERTIFICATE-----", true },
+		{ "-----BEGIN CERTIFICATE-----\n" + BODY + "\n-----END CERTIFICATE REQUEST-----", false },
+		{ "-----BEGIN CERTIFICATE REQUEST-----\n" + BODY + "\n-----END CERTIFICATE-----", false },
+		{ "-----BEGIN CERTIFICATE-----\n" + BODY + "\n-----END CERTIFICATX-----", false },
+		{ "-----BEGIN certificate-----\n" + BODY + "\n-----END certificate-----", false },
+		{ "-----BEGIN -----\n" + BODY + "\n-----END -----", false },
+		{ "-----BEGIN CERTIFICATE-----\nAiEAsINW1bqy30SCfQNvO/RYJ/DB+5zIhEJO6cFVTCkDGDU=\n-----END CERTIFICATE-----", true },
+		{ "-----BEGIN CERTIFICATE-----\nAiEAsINW1bqy30SCfQNvO/RYJ/DB+5zIhEJO6cFVTCkDGDU==\n-----END CERTIFICATE-----", false },
+		{ "-----BEGIN CERTIFICATE-----\nAiEAsINW1bqy30SCfQNvO/RYJ/DB+5zIhEJO6cFVTCkDGD=\n-----END CERTIFICATE-----", false },
+		{ "-----BEGIN CERTIFICATE-----\nAiEA=sINW1bqy30SCfQNvO/RYJ/DB+5zIhEJO6cFVTCkDGDU\n-----END CERTIFICATE-----", false },
+		{ "-----BEGIN CERTIFICATE-----\nAiEAsINW1bqy30SCfQNvO/RYJ/DB+5zIhEJO6cFVTCkDGD\n-----END CERTIFICATE-----", true },
+		{ "-----BEGIN CERTIFICATE-----" + BODY + "\n-----END CERTIFICATE-----", false },
+		{ "-----BEGIN CERTIFICATE-----\n" + BODY + "-----END CERTIFICATE-----", false },
+		{ "-----BEGIN CERTIFICATE-----" + BODY + "-----END CERTIFICATE-----", false },
+		{ "-----BEGIN CERTIFICATE-----\\" + BODY + "\\n-----END CERTIFICATE-----", false },
+		{ "-----BEGIN CERTIFICATE-----\nMIIB*zCC\n-----END CERTIFICATE-----", false },
+		{ "-----BEGIN CERTIFICATE-----\nMIIB zCC\n-----END CERTIFICATE-----", false },
+		{ "-----BEGIN CERTIFICATE-----\n" + BODY + "\n-----END CERTIFICATE-----\nMIIB", false },
+		{ "MIIB\n-----BEGIN CERTIFICATE-----\n" + BODY + "\n-----END CERTIFICATE-----", false },
+		{ "-----BEGIN CERTIFICATE-----\n" + BODY, false },
+		{ "-----BEGIN CERTIFICATE-----\n-----END CERTIFICATE-----", false },
+		{ "", false },
+	};
+
+	// @formatter:on
+
 	@Value("${com.mcpki.server.pem.length.min}")
 	private int pemMinStrength;
 
@@ -95,10 +143,73 @@ public class ValidationUtilTest {
 		assertEquals(true, ValidationUtil.isValidPemFormat(p256SubCa), "CA certificate is invalid PEM format.");
 	}
 
+	@Test
+	public void testIsValidPemFormatCases()
+	{
+		for (final Object[] pemCase : PEM_CASES) {
+			final String pem = (String) pemCase[0];
+			assertEquals(pemCase[1], ValidationUtil.isValidPemFormat(pem), "Wrong result for " + pem);
+			assertEquals(reference(pem), ValidationUtil.isValidPemFormat(pem), "Differs from the reference for " + pem);
+		}
+	}
+
+	@Test
+	public void testIsValidPemFormatEquivalence()
+	{
+		final String alphabet = "-= \n\r\\nAZaz09+/CERTIFICATEBEGIND";
+		final Random random = new Random(4711);
+		for (int i = 0; i < 20_000; i++) {
+			final StringBuilder pem = new StringBuilder(p256SubCa);
+			for (int mutations = 1 + random.nextInt(3); mutations > 0; mutations--) {
+				final int at = random.nextInt(pem.length());
+				final char c = alphabet.charAt(random.nextInt(alphabet.length()));
+				switch (random.nextInt(3)) {
+				case 0 -> pem.deleteCharAt(at);
+				case 1 -> pem.insert(at, c);
+				default -> pem.setCharAt(at, c);
+				}
+			}
+			final String mutated = pem.toString();
+			assertEquals(reference(mutated), ValidationUtil.isValidPemFormat(mutated),
+					"Differs from the reference for " + mutated);
+		}
+	}
+
+	@Test
+	public void testIsValidPemFormatAllocation()
+	{
+		AllocationMeter.assertWithinBudget("pem.is_valid_pem_format", 10_000, 10_000,
+				i -> ValidationUtil.isValidPemFormat(p256SubCa));
+	}
+
 	@Test
 	public void testIsValidateDn()
 	{
 		assertEquals(true, ValidationUtil.isValidDn(dn, dnMinLength, dnMaxLength), "DN is invalid.");
 	}
 
+	@Test
+	public void testCanonicalDn()
+	{
+		final CanonicalDn canonical = ValidationUtil.canonicalDn(dn, dnMinLength, dnMaxLength);
+		assertEquals(dn, canonical.name(), "DN is not canonical.");
+		assertEquals(canonical, ValidationUtil.canonicalDn("cn = mcpki-rsa-sub-ca, o=mcpki.org", dnMinLength, dnMaxLength),
+				"Spellings of the DN are not the same canonical DN.");
+		assertEquals(null, ValidationUtil.canonicalDn("", dnMinLength, dnMaxLength), "Empty DN is valid.");
+		assertEquals(null, ValidationUtil.canonicalDn(null, dnMinLength, dnMaxLength), "Null DN is valid.");
+	}
+
+	private static boolean reference(final String pem)
+	{
+		final Matcher matcher = PEM_PATTERN.matcher(pem.replace("\\n", "\n").trim());
+		if (!matcher.matches()) {
+			return false;
+		}
+		try {
+			Base64.getDecoder().decode(matcher.group(2).replaceAll("\\s", ""));
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
 }